@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) Steven P. Goldsmith. All rights reserved.
+ */
+package com.codeferm.detonator.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Run benchmarks with GC profiler and JSON results. Any JMH command line options can be passed, for example:
+ *
+ * {@code java -jar benchmarks/target/benchmarks.jar DaoBenchmark.find -p backend=mapdb -p rows=100000 -t 4}
+ *
+ * Results are written to jmh-result.json unless -rff is used.
+ *
+ * @author Steven P. Goldsmith
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class BenchmarkRunner {
+
+    /**
+     * Main method.
+     *
+     * @param args JMH command line options.
+     * @throws RunnerException Possible exception.
+     * @throws CommandLineOptionException Possible exception.
+     */
+    public static void main(final String... args) throws RunnerException, CommandLineOptionException {
+        final var commandLine = new CommandLineOptions(args);
+        final var builder = new OptionsBuilder().parent(commandLine).addProfiler(GCProfiler.class);
+        // Machine readable results so releases can be compared
+        if (commandLine.getResult().hasValue()) {
+            builder.result(commandLine.getResult().get());
+        } else {
+            builder.result("jmh-result.json");
+        }
+        builder.resultFormat(commandLine.getResultFormat().orElse(ResultFormatType.JSON));
+        new Runner(builder.build()).run();
+    }
+}
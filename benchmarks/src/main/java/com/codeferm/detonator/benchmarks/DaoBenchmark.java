@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) Steven P. Goldsmith. All rights reserved.
+ */
+package com.codeferm.detonator.benchmarks;
+
+import com.codeferm.dto.Orders;
+import com.codeferm.dto.OrdersKey;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * DAO CRUD benchmarks. Backend, row count and batch size are JMH parameters (see {@link DaoState}) and thread count is set with the
+ * JMH {@code -t} option. Batch operations report time per batch.
+ *
+ * @author Steven P. Goldsmith
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class DaoBenchmark {
+
+    /**
+     * Per thread state.
+     */
+    @State(Scope.Thread)
+    public static class ThreadState {
+
+        /**
+         * Random keys.
+         */
+        private final SplittableRandom random = new SplittableRandom();
+
+        /**
+         * Random existing key.
+         *
+         * @param state Shared state.
+         * @return Key.
+         */
+        public OrdersKey randomKey(final DaoState state) {
+            return new OrdersKey(random.nextLong(state.rows) + 1);
+        }
+    }
+
+    /**
+     * Per thread state for delete benchmark.
+     */
+    @State(Scope.Thread)
+    public static class DeleteState {
+
+        /**
+         * Rows saved in invocation setup and deleted by benchmark.
+         */
+        private List<OrdersKey> keys;
+
+        /**
+         * Save rows to delete. This runs outside of the measured time.
+         *
+         * @param state Shared state.
+         */
+        @Setup(Level.Invocation)
+        public void setup(final DaoState state) {
+            final var map = new HashMap<OrdersKey, Orders>();
+            final var start = state.nextId.getAndAdd(state.batchSize);
+            for (var i = 0; i < state.batchSize; i++) {
+                final var dto = DaoState.newOrder(start + i);
+                map.put(dto.getKey(), dto);
+            }
+            state.dao.save(map);
+            keys = new ArrayList<>(map.keySet());
+        }
+    }
+
+    /**
+     * Find by key.
+     *
+     * @param state Shared state.
+     * @param threadState Thread state.
+     * @return Found order.
+     */
+    @Benchmark
+    public Orders find(final DaoState state, final ThreadState threadState) {
+        return state.dao.find(threadState.randomKey(state));
+    }
+
+    /**
+     * Find range of batchSize keys.
+     *
+     * @param state Shared state.
+     * @param threadState Thread state.
+     * @return Orders in range.
+     */
+    @Benchmark
+    public List<Orders> findRange(final DaoState state, final ThreadState threadState) {
+        final var from = threadState.random.nextLong(Math.max(1, state.rows - state.batchSize)) + 1;
+        return state.dao.findRange(new OrdersKey(from), new OrdersKey(from + state.batchSize - 1));
+    }
+
+    /**
+     * Find all rows.
+     *
+     * @param state Shared state.
+     * @return All orders.
+     */
+    @Benchmark
+    public List<Orders> findAll(final DaoState state) {
+        return state.dao.findAll();
+    }
+
+    /**
+     * Save with explicit key.
+     *
+     * @param state Shared state.
+     */
+    @Benchmark
+    public void save(final DaoState state) {
+        state.dao.save(DaoState.newOrder(state.nextId.getAndIncrement()));
+    }
+
+    /**
+     * Save and return generated key.
+     *
+     * @param state Shared state.
+     * @return Generated key.
+     */
+    @Benchmark
+    public OrdersKey saveReturnKey(final DaoState state) {
+        return state.dao.saveReturnKey(DaoState.newOrder(null), new String[]{"ORDER_ID"});
+    }
+
+    /**
+     * Update batchSize random rows as a batch.
+     *
+     * @param state Shared state.
+     * @param threadState Thread state.
+     */
+    @Benchmark
+    public void updateMap(final DaoState state, final ThreadState threadState) {
+        final Map<OrdersKey, Orders> map = new HashMap<>();
+        while (map.size() < Math.min(state.batchSize, state.rows)) {
+            final var key = threadState.randomKey(state);
+            final var dto = DaoState.newOrder(key.getOrderId());
+            dto.setStatus("Shipped");
+            map.put(key, dto);
+        }
+        state.dao.update(map);
+    }
+
+    /**
+     * Delete batchSize rows as a batch. Rows are saved in invocation setup.
+     *
+     * @param state Shared state.
+     * @param deleteState Delete state.
+     */
+    @Benchmark
+    public void deleteList(final DaoState state, final DeleteState deleteState) {
+        state.dao.delete(deleteState.keys);
+    }
+}
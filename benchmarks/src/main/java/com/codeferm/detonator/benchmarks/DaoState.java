@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) Steven P. Goldsmith. All rights reserved.
+ */
+package com.codeferm.detonator.benchmarks;
+
+import com.codeferm.detonator.Dao;
+import com.codeferm.detonator.DbUtilsDs;
+import com.codeferm.detonator.GenDbDao;
+import com.codeferm.detonator.GenMapDbDao;
+import com.codeferm.dto.Orders;
+import com.codeferm.dto.OrdersKey;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.commons.dbcp2.BasicDataSource;
+import org.mapdb.DB;
+import org.mapdb.DBMaker;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Shared benchmark state. Each trial creates a private ORDERS table (or MapDB collection) populated with {@code rows} orders using
+ * IDs 1 to rows. Explicit IDs used by save start at {@link #SAVE_ID} and generated keys start at {@link #GENERATED_ID}, so inserts
+ * never collide with the populated rows.
+ *
+ * Backends are embedded H2 in memory ({@code h2mem}), embedded H2 file ({@code h2file}) using {@link GenDbDao} and file based MapDB
+ * ({@code mapdb}) using {@link GenMapDbDao}.
+ *
+ * @author Steven P. Goldsmith
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+@State(Scope.Benchmark)
+public class DaoState {
+
+    /**
+     * First ID used for explicit saves.
+     */
+    public static final long SAVE_ID = 1000000000L;
+    /**
+     * First generated key.
+     */
+    public static final long GENERATED_ID = 3000000000L;
+    /**
+     * H2 file database.
+     */
+    private static final String H2_FILE = "/tmp/bench";
+    /**
+     * MapDB file.
+     */
+    private static final String MAP_FILE = "/tmp/bench.mapdb";
+    /**
+     * Backend to benchmark.
+     */
+    @Param({"h2mem", "h2file", "mapdb"})
+    public String backend;
+    /**
+     * Number of populated rows.
+     */
+    @Param({"10000"})
+    public int rows;
+    /**
+     * Number of rows per batch operation.
+     */
+    @Param({"100"})
+    public int batchSize;
+    /**
+     * DAO being benchmarked.
+     */
+    public Dao<OrdersKey, Orders> dao;
+    /**
+     * Next ID for explicit saves.
+     */
+    public final AtomicLong nextId = new AtomicLong(SAVE_ID);
+    /**
+     * H2 DataSource.
+     */
+    private BasicDataSource dataSource;
+    /**
+     * MapDB database.
+     */
+    private DB db;
+
+    /**
+     * Create order.
+     *
+     * @param id Order ID or null for generated key.
+     * @return Order.
+     */
+    public static Orders newOrder(final Long id) {
+        final var dto = new Orders();
+        dto.setOrderId(id);
+        dto.setCustomerId(id == null ? 1L : id % 100 + 1);
+        dto.setOrderDate(Date.valueOf(LocalDate.of(2020, 1, 1)));
+        dto.setSalesmanId(54L);
+        dto.setStatus("Pending");
+        return dto;
+    }
+
+    /**
+     * Load generated SQL properties from class path.
+     *
+     * @return SQL properties for ORDERS.
+     */
+    private Properties loadSql() {
+        final var properties = new Properties();
+        try (final var in = DaoState.class.getClassLoader().getResourceAsStream("orders.properties")) {
+            properties.load(in);
+        } catch (IOException e) {
+            throw new RuntimeException("Error loading orders.properties", e);
+        }
+        return properties;
+    }
+
+    /**
+     * Create H2 DataSource and ORDERS table.
+     *
+     * @param url JDBC URL.
+     */
+    private void createH2(final String url) {
+        dataSource = new BasicDataSource();
+        dataSource.setDriverClassName("org.h2.Driver");
+        dataSource.setUsername("sa");
+        dataSource.setPassword("");
+        dataSource.setUrl(url);
+        dataSource.setMaxTotal(64);
+        final var db = new DbUtilsDs(dataSource);
+        db.update("drop table if exists ORDERS");
+        db.update(String.format(
+                "create table ORDERS (ORDER_ID bigint generated by default as identity (start with %d) primary key, CUSTOMER_ID bigint "
+                + "not null, STATUS varchar(20) not null, SALESMAN_ID bigint, ORDER_DATE date not null)", GENERATED_ID));
+        dao = new GenDbDao<>(dataSource, loadSql(), OrdersKey.class, Orders.class);
+    }
+
+    /**
+     * Create backend and populate rows.
+     */
+    @Setup(Level.Trial)
+    public void setup() {
+        switch (backend) {
+            case "h2mem":
+                createH2("jdbc:h2:mem:bench;DB_CLOSE_DELAY=-1");
+                break;
+            case "h2file":
+                deleteFiles(H2_FILE + ".mv.db", H2_FILE + ".trace.db");
+                createH2("jdbc:h2:" + H2_FILE);
+                break;
+            case "mapdb":
+                deleteFiles(MAP_FILE);
+                db = DBMaker.fileDB(MAP_FILE).fileMmapEnableIfSupported().closeOnJvmShutdown().make();
+                // Key sequence used by saveReturnKey
+                db.atomicLong("orders_key", GENERATED_ID).create();
+                dao = new GenMapDbDao<>(db, "orders", OrdersKey.class, Orders.class);
+                break;
+            default:
+                throw new IllegalArgumentException(String.format("Unknown backend %s", backend));
+        }
+        // Populate in batches
+        final var map = new HashMap<OrdersKey, Orders>();
+        for (var i = 1L; i <= rows; i++) {
+            final var dto = newOrder(i);
+            map.put(dto.getKey(), dto);
+            if (map.size() == 1000) {
+                dao.save(map);
+                map.clear();
+            }
+        }
+        dao.save(map);
+    }
+
+    /**
+     * Close backend.
+     *
+     * @throws SQLException Possible exception.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        if (dataSource != null) {
+            new DbUtilsDs(dataSource).update("drop table ORDERS");
+            dataSource.close();
+            dataSource = null;
+        }
+        if (db != null) {
+            db.close();
+            db = null;
+        }
+        nextId.set(SAVE_ID);
+    }
+
+    /**
+     * Delete files if they exist.
+     *
+     * @param fileNames Files to delete.
+     */
+    private void deleteFiles(final String... fileNames) {
+        try {
+            for (final var fileName : fileNames) {
+                Files.deleteIfExists(Paths.get(fileName));
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Error deleting files", e);
+        }
+    }
+}
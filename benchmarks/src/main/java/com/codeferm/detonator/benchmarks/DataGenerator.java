@@ -0,0 +1,586 @@
+/*
+ * Copyright (c) Steven P. Goldsmith. All rights reserved.
+ */
+package com.codeferm.detonator.benchmarks;
+
+import com.codeferm.detonator.Dao;
+import com.codeferm.detonator.DataLoader;
+import com.codeferm.detonator.DtoFields;
+import com.codeferm.detonator.GenDbDao;
+import com.codeferm.detonator.MetadataExtract;
+import com.codeferm.detonator.RsmdDto;
+import com.codeferm.dto.Dto;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import javax.sql.DataSource;
+import org.apache.commons.dbcp2.BasicDataSource;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Generate large referentially consistent datasets for the sample schema or any schema with generated DTOs and SQL.
+ *
+ * Table metadata and foreign keys come from {@link MetadataExtract}. Tables are generated in dependency order, so every foreign key
+ * references an existing row. Referenced rows are picked with a {@link ZipfSampler} per referenced table, which gives hot products,
+ * popular warehouses and heavy customers. Rows are written with batched {@link GenDbDao#save(java.util.Map)} calls. The same seed and
+ * starting database give the same data.
+ *
+ * Primary keys are assigned from the current maximum key. Composite keys made only of foreign keys are kept unique by picking again.
+ * Self references (employee manager) pick from rows already generated.
+ *
+ * @author Steven P. Goldsmith
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class DataGenerator {
+
+    /**
+     * Logger.
+     */
+    private static final Logger logger = LogManager.getLogger(DataGenerator.class);
+    /**
+     * Picks before giving up on a unique composite key.
+     */
+    private static final int MAX_PICKS = 1000;
+    /**
+     * Characters used for random strings.
+     */
+    private static final char[] CHARS = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789".toCharArray();
+    /**
+     * Characters used for generated string keys.
+     */
+    private static final char[] KEY_CHARS = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ".toCharArray();
+    /**
+     * DataSource.
+     */
+    private final DataSource dataSource;
+    /**
+     * Metadata extract.
+     */
+    private final MetadataExtract metadataExtract = new MetadataExtract();
+    /**
+     * Generated DTO package.
+     */
+    private final String dtoPackage;
+    /**
+     * Random generator.
+     */
+    private final SplittableRandom random;
+    /**
+     * Rows per DAO save.
+     */
+    private final int batchSize;
+    /**
+     * Default Zipf exponent.
+     */
+    private final double skew;
+    /**
+     * Zipf exponent by referenced table.
+     */
+    private final Map<String, Double> skews = new HashMap<>();
+    /**
+     * Fixed values by table and column name.
+     */
+    private final Map<String, List<String>> values = new HashMap<>();
+    /**
+     * Primary key values of referenced tables.
+     */
+    private final Map<String, List<Object>> keys = new HashMap<>();
+    /**
+     * Samplers of referenced tables.
+     */
+    private final Map<String, ZipfSampler> samplers = new HashMap<>();
+    /**
+     * Dates are generated up to ten years back from this date, so the same seed gives the same data on any day.
+     */
+    private LocalDate baseDate = LocalDate.of(2020, 1, 1);
+    /**
+     * Base date as epoch milliseconds for timestamps.
+     */
+    private long baseMillis = Timestamp.valueOf(baseDate.atStartOfDay()).getTime();
+
+    /**
+     * Construct generator.
+     *
+     * @param dataSource DataSource.
+     * @param dtoPackage Generated DTO package.
+     * @param seed Random seed.
+     * @param batchSize Rows per DAO save.
+     * @param skew Default Zipf exponent for picking referenced rows. 0 is uniform.
+     */
+    public DataGenerator(final DataSource dataSource, final String dtoPackage, final long seed, final int batchSize,
+            final double skew) {
+        this.dataSource = dataSource;
+        this.dtoPackage = dtoPackage;
+        this.random = new SplittableRandom(seed);
+        this.batchSize = batchSize;
+        this.skew = skew;
+    }
+
+    public LocalDate getBaseDate() {
+        return baseDate;
+    }
+
+    public void setBaseDate(final LocalDate baseDate) {
+        this.baseDate = baseDate;
+        this.baseMillis = Timestamp.valueOf(baseDate.atStartOfDay()).getTime();
+    }
+
+    /**
+     * Set Zipf exponent used when picking rows of a referenced table.
+     *
+     * @param tableName Referenced table name.
+     * @param skew Zipf exponent. 0 is uniform.
+     */
+    public void setSkew(final String tableName, final double skew) {
+        skews.put(tableName.toUpperCase(Locale.US), skew);
+    }
+
+    /**
+     * Set values picked for a column instead of random values.
+     *
+     * @param tableName Table name.
+     * @param columnName Column name.
+     * @param list Values.
+     */
+    public void setValues(final String tableName, final String columnName, final List<String> list) {
+        values.put(String.format("%s.%s", tableName, columnName).toUpperCase(Locale.US), list);
+    }
+
+    /**
+     * Run query and return first column of each row.
+     *
+     * @param sql SQL statement.
+     * @return Column values.
+     */
+    private List<Object> selectColumn(final String sql) {
+        final List<Object> list = new ArrayList<>();
+        try (final Connection connection = dataSource.getConnection(); final Statement statement = connection.createStatement();
+                final ResultSet resultSet = statement.executeQuery(sql)) {
+            while (resultSet.next()) {
+                list.add(resultSet.getObject(1));
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(String.format("SQL exception: sql=%s", sql), e);
+        }
+        return list;
+    }
+
+    /**
+     * Get metadata of tables and every table they reference.
+     *
+     * @param tableNames Table names.
+     * @return Map of ResultSetMetaData DTO Maps keyed by table name.
+     */
+    private Map<String, Map<String, RsmdDto>> getMetadata(final Set<String> tableNames) {
+        final Map<String, Map<String, RsmdDto>> tables = new TreeMap<>();
+        final List<String> pending = new ArrayList<>(tableNames);
+        while (!pending.isEmpty()) {
+            final var tableName = pending.remove(pending.size() - 1);
+            if (!tables.containsKey(tableName)) {
+                final var map = metadataExtract.getResultSetMetaData(dataSource, String.format("select * from %s where 1 = 0",
+                        tableName), true);
+                metadataExtract.setImportedKeys(dataSource, tableName, map);
+                tables.put(tableName, map);
+                map.values().stream().filter(dto -> dto.getPkTableName() != null).forEach(dto -> pending.add(dto.
+                        getPkTableName()));
+            }
+        }
+        return tables;
+    }
+
+    /**
+     * Get primary key columns in key sequence order.
+     *
+     * @param columns Map of ResultSetMetaData DTOs.
+     * @return Key columns.
+     */
+    private List<RsmdDto> keyColumns(final Map<String, RsmdDto> columns) {
+        final Map<Integer, RsmdDto> map = new TreeMap<>();
+        columns.values().stream().filter(dto -> dto.getKeySeq() != null).forEach(dto -> map.put(dto.getKeySeq(), dto));
+        return new ArrayList<>(map.values());
+    }
+
+    /**
+     * Convert value to field type.
+     *
+     * @param value Value.
+     * @param type Field type.
+     * @return Converted value.
+     */
+    private static Object convert(final Object value, final Class type) {
+        Object retValue = value;
+        if (value instanceof Number) {
+            final var number = (Number) value;
+            if (type == Long.class) {
+                retValue = number.longValue();
+            } else if (type == Integer.class) {
+                retValue = number.intValue();
+            } else if (type == Short.class) {
+                retValue = number.shortValue();
+            } else if (type == Byte.class) {
+                retValue = number.byteValue();
+            } else if (type == BigInteger.class) {
+                retValue = BigInteger.valueOf(number.longValue());
+            } else if (type == BigDecimal.class) {
+                retValue = new BigDecimal(number.toString());
+            } else if (type == Double.class) {
+                retValue = number.doubleValue();
+            } else if (type == Float.class) {
+                retValue = number.floatValue();
+            } else if (type == String.class) {
+                retValue = number.toString();
+            }
+        } else if (value instanceof String && type != String.class) {
+            retValue = convert(new BigDecimal((String) value), type);
+        }
+        return retValue;
+    }
+
+    /**
+     * Largest whole number that fits column precision and scale, capped, so generated numbers stay realistic.
+     *
+     * @param dto Column metadata.
+     * @param cap Maximum value.
+     * @return Bound.
+     */
+    private static long numberBound(final RsmdDto dto, final long cap) {
+        final var digits = dto.getPrecision() - Math.max(dto.getScale(), 0);
+        var bound = cap;
+        if (digits > 0 && digits < 18) {
+            bound = Math.min(cap, (long) Math.pow(10, digits) - 1);
+        }
+        return Math.max(bound, 1);
+    }
+
+    /**
+     * Random value for column.
+     *
+     * @param dto Column metadata.
+     * @param type Field type.
+     * @return Value.
+     */
+    private Object randomValue(final RsmdDto dto, final Class type) {
+        final Object value;
+        if (type == String.class) {
+            final var max = dto.getPrecision() > 0 ? Math.min(dto.getPrecision(), 40) : 40;
+            // Fixed length columns get the full length
+            final var length = dto.getColumnTypeName().toUpperCase(Locale.US).startsWith("CHAR") ? max : 1 + random.nextInt(max);
+            final var chars = new char[length];
+            for (var i = 0; i < length; i++) {
+                chars[i] = CHARS[random.nextInt(CHARS.length)];
+            }
+            value = new String(chars);
+        } else if (type == BigDecimal.class || type == Double.class || type == Float.class) {
+            final var scale = Math.max(dto.getScale(), 0);
+            value = convert(BigDecimal.valueOf(random.nextLong(numberBound(dto, 100000) * (long) Math.pow(10, scale)), scale),
+                    type);
+        } else if (Number.class.isAssignableFrom(type)) {
+            value = convert(1 + random.nextLong(numberBound(dto, 100000)), type);
+        } else if (type == Date.class) {
+            value = Date.valueOf(baseDate.minusDays(random.nextInt(3650)));
+        } else if (type == Timestamp.class) {
+            value = new Timestamp(baseMillis - random.nextLong(3650L * 24 * 60 * 60 * 1000));
+        } else if (type == Boolean.class) {
+            value = random.nextBoolean();
+        } else {
+            throw new RuntimeException(String.format("Type %s of column %s not supported", type.getName(), dto.getColumnName()));
+        }
+        return value;
+    }
+
+    /**
+     * Pick primary key of a referenced table row.
+     *
+     * @param tableName Referenced table name.
+     * @return Key value or null if table is empty.
+     */
+    private Object reference(final String tableName) {
+        final var list = keys.get(tableName);
+        if (list.isEmpty()) {
+            return null;
+        }
+        var sampler = samplers.get(tableName);
+        if (sampler == null || sampler.getSize() != list.size()) {
+            // Shuffle, so hot rows are spread over the key range
+            for (var i = list.size() - 1; i > 0; i--) {
+                final var j = random.nextInt(i + 1);
+                list.set(i, list.set(j, list.get(i)));
+            }
+            sampler = new ZipfSampler(list.size(), skews.getOrDefault(tableName, skew));
+            samplers.put(tableName, sampler);
+        }
+        return list.get(sampler.next(random));
+    }
+
+    /**
+     * Next string key that is not already used.
+     *
+     * @param counter Key counter.
+     * @param length Key length.
+     * @param existing Existing keys.
+     * @return Key.
+     */
+    private static String stringKey(final long[] counter, final int length, final Set<Object> existing) {
+        String key;
+        do {
+            var value = counter[0]++;
+            final var chars = new char[length];
+            for (var i = length - 1; i >= 0; i--) {
+                chars[i] = KEY_CHARS[(int) (value % KEY_CHARS.length)];
+                value /= KEY_CHARS.length;
+            }
+            if (value > 0) {
+                throw new RuntimeException(String.format("Ran out of %d character keys", length));
+            }
+            key = new String(chars);
+        } while (existing.contains(key));
+        return key;
+    }
+
+    /**
+     * Generate rows for one table.
+     *
+     * @param tableName Table name.
+     * @param columns Map of ResultSetMetaData DTOs.
+     * @param count Number of rows.
+     * @param referenced True if other tables reference this table.
+     * @return Rows written.
+     */
+    private long generateTable(final String tableName, final Map<String, RsmdDto> columns, final long count,
+            final boolean referenced) {
+        final var camelCase = metadataExtract.toCamelCase(tableName);
+        final Class vClass;
+        final Class kClass;
+        try {
+            vClass = Class.forName(String.format("%s.%s", dtoPackage, camelCase));
+            kClass = Class.forName(String.format("%s.%sKey", dtoPackage, camelCase));
+        } catch (ClassNotFoundException e) {
+            throw new RuntimeException(String.format("No generated DTO for %s", tableName), e);
+        }
+        final Dao<Object, Object> dao = new GenDbDao<>(dataSource, LoadDriver.loadProperties(String.format("%s.properties",
+                camelCase.toLowerCase(Locale.US))), kClass, vClass);
+        final var dtoFields = new DtoFields(vClass);
+        final var size = dtoFields.size();
+        // Map DTO fields to columns
+        final var fields = new RsmdDto[size];
+        columns.values().forEach(dto -> {
+            final var index = dtoFields.getNames().indexOf(dto.getVarName());
+            if (index < 0) {
+                throw new RuntimeException(String.format("Column %s.%s has no DTO field", tableName, dto.getColumnName()));
+            }
+            fields[index] = dto;
+        });
+        final var keyColumns = keyColumns(columns);
+        // Key columns that are not foreign keys get the next value
+        final var sequences = new long[size];
+        final Set<Object> existingKeys = new HashSet<>();
+        final var stringCounter = new long[1];
+        for (final var dto : keyColumns) {
+            if (dto.getPkTableName() == null) {
+                final var index = dtoFields.getNames().indexOf(dto.getVarName());
+                if (dtoFields.getTypes().get(index) == String.class) {
+                    existingKeys.addAll(selectColumn(String.format("select %s from %s order by %s", dto.getColumnName(), tableName,
+                            dto.getColumnName())));
+                } else {
+                    final var list = selectColumn(String.format("select max(%s) from %s", dto.getColumnName(), tableName));
+                    sequences[index] = list.get(0) == null ? 1 : ((Number) list.get(0)).longValue() + 1;
+                }
+            }
+        }
+        // Composite key made only of foreign keys must be checked for uniqueness
+        final var compositeFk = keyColumns.size() > 1 && keyColumns.stream().allMatch(dto -> dto.getPkTableName() != null);
+        final var keyIndexes = keyColumns.stream().mapToInt(dto -> dtoFields.getNames().indexOf(dto.getVarName())).toArray();
+        final Set<List<Object>> compositeKeys = new HashSet<>();
+        if (compositeFk) {
+            final var names = String.join(", ", keyColumns.stream().map(RsmdDto::getColumnName).toArray(String[]::new));
+            try (final Connection connection = dataSource.getConnection(); final Statement statement = connection.
+                    createStatement(); final ResultSet resultSet = statement.executeQuery(String.format("select %s from %s order by %s",
+                            names, tableName, names))) {
+                while (resultSet.next()) {
+                    final var key = new Object[keyIndexes.length];
+                    for (var i = 0; i < key.length; i++) {
+                        key[i] = convert(resultSet.getObject(i + 1), dtoFields.getTypes().get(keyIndexes[i]));
+                    }
+                    compositeKeys.add(Arrays.asList(key));
+                }
+            } catch (SQLException e) {
+                throw new RuntimeException(String.format("Error reading keys of %s", tableName), e);
+            }
+        }
+        final var keyList = referenced ? keys.get(tableName) : null;
+        final Map<Object, Object> batch = new LinkedHashMap<>();
+        final var start = System.nanoTime();
+        for (long row = 0; row < count; row++) {
+            final var bean = dtoFields.newInstance();
+            var picks = 0;
+            boolean unique;
+            do {
+                unique = true;
+                for (var i = 0; i < size; i++) {
+                    final var dto = fields[i];
+                    final var type = dtoFields.getTypes().get(i);
+                    final var fixed = values.get(String.format("%s.%s", tableName, dto.getColumnName()));
+                    Object value;
+                    if (dto.getPkTableName() != null) {
+                        // Self references pick uniformly from rows generated so far
+                        value = convert(dto.getPkTableName().equals(tableName) ? (keyList.isEmpty() ? null : keyList.get(random.
+                                nextInt(keyList.size()))) : reference(dto.getPkTableName()), type);
+                        if (value == null && dto.getNullable() == ResultSetMetaData.columnNoNulls) {
+                            throw new RuntimeException(String.format("No rows in %s for %s.%s", dto.getPkTableName(),
+                                    tableName, dto.getColumnName()));
+                        }
+                    } else if (dto.getKeySeq() != null && type == String.class) {
+                        value = stringKey(stringCounter, Math.max(dto.getPrecision(), 1), existingKeys);
+                    } else if (dto.getKeySeq() != null) {
+                        value = picks == 0 ? convert(sequences[i]++, type) : dtoFields.get(bean, i);
+                    } else if (fixed != null) {
+                        value = convert(fixed.get(random.nextInt(fixed.size())), type);
+                    } else {
+                        value = randomValue(dto, type);
+                    }
+                    dtoFields.set(bean, i, value);
+                }
+                if (compositeFk) {
+                    final var key = new Object[keyIndexes.length];
+                    for (var i = 0; i < key.length; i++) {
+                        key[i] = dtoFields.get(bean, keyIndexes[i]);
+                    }
+                    unique = compositeKeys.add(Arrays.asList(key));
+                    if (!unique && ++picks >= MAX_PICKS) {
+                        throw new RuntimeException(String.format("Could not find unique key for %s after %d picks, generated %d rows",
+                                tableName, MAX_PICKS, row));
+                    }
+                }
+            } while (!unique);
+            batch.put(((Dto) bean).getKey(), bean);
+            if (batch.size() >= batchSize) {
+                dao.save(batch);
+                batch.clear();
+            }
+            // Rows of self referencing tables can be referenced by the next rows
+            if (keyList != null) {
+                keyList.add(dtoFields.get(bean, keyIndexes[0]));
+            }
+        }
+        if (!batch.isEmpty()) {
+            dao.save(batch);
+        }
+        final var seconds = (System.nanoTime() - start) / 1000000000.0;
+        logger.info("Generated {} rows for {} in {} seconds, {} rows/second", count, tableName, String.format("%.3f", seconds),
+                String.format("%.0f", seconds > 0 ? count / seconds : count));
+        return count;
+    }
+
+    /**
+     * Generate rows. Tables not in the map are not generated, but existing rows can be referenced.
+     *
+     * @param rows Rows to add by table name.
+     * @return Total rows written.
+     */
+    public long generate(final Map<String, Long> rows) {
+        final Map<String, Long> counts = new HashMap<>();
+        rows.forEach((tableName, count) -> counts.put(tableName.toUpperCase(Locale.US), count));
+        final var tables = getMetadata(counts.keySet());
+        final Set<String> referenced = new HashSet<>();
+        tables.values().forEach(map -> map.values().stream().filter(dto -> dto.getPkTableName() != null).forEach(dto -> referenced.
+                add(dto.getPkTableName())));
+        long total = 0;
+        for (final var tableName : metadataExtract.sortTables(tables)) {
+            final var columns = tables.get(tableName);
+            if (referenced.contains(tableName)) {
+                final var keyColumns = keyColumns(columns);
+                if (keyColumns.size() != 1) {
+                    throw new RuntimeException(String.format("Referenced table %s must have a single column key", tableName));
+                }
+                // Key order must not depend on the database, so samplers pick the same rows for the same seed
+                final var keyColumn = keyColumns.get(0).getColumnName();
+                keys.put(tableName, selectColumn(String.format("select %s from %s order by %s", keyColumn, tableName, keyColumn)));
+            }
+            final var count = counts.getOrDefault(tableName, 0L);
+            if (count > 0) {
+                total += generateTable(tableName, columns, count, referenced.contains(tableName));
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Generate dataset using generator.properties on the class path. Properties can be overridden by a properties file passed as the
+     * first argument and by system properties.
+     *
+     * @param args Optional properties file.
+     */
+    public static void main(final String[] args) {
+        final var properties = LoadDriver.loadProperties("generator.properties");
+        if (args.length > 0) {
+            try (final var in = new FileInputStream(args[0])) {
+                properties.load(in);
+            } catch (IOException e) {
+                throw new RuntimeException(String.format("Error loading %s", args[0]), e);
+            }
+        }
+        // System properties override files
+        System.getProperties().stringPropertyNames().stream().filter(name -> name.startsWith("gen.") || name.startsWith("db.")).
+                forEach(name -> properties.setProperty(name, System.getProperty(name)));
+        final var dataSource = new BasicDataSource();
+        dataSource.setDriverClassName(properties.getProperty("db.driver"));
+        dataSource.setUsername(properties.getProperty("db.user"));
+        dataSource.setPassword(properties.getProperty("db.password"));
+        dataSource.setUrl(properties.getProperty("db.url"));
+        if (Boolean.parseBoolean(properties.getProperty("db.create"))) {
+            new DataLoader(dataSource).execScript(properties.getProperty("db.sample"), properties.getProperty("db.delimiter"), Boolean.
+                    parseBoolean(properties.getProperty("db.remove.delimiter")));
+        }
+        final var generator = new DataGenerator(dataSource, properties.getProperty("gen.dto.package"), Long.parseLong(properties.
+                getProperty("gen.seed").trim()), Integer.parseInt(properties.getProperty("gen.batch.size").trim()), Double.
+                parseDouble(properties.getProperty("gen.skew").trim()));
+        final var baseDate = properties.getProperty("gen.base.date");
+        if (baseDate != null) {
+            generator.setBaseDate(LocalDate.parse(baseDate.trim()));
+        }
+        final Map<String, Long> rows = new LinkedHashMap<>();
+        for (final var name : properties.stringPropertyNames()) {
+            final var value = properties.getProperty(name).trim();
+            if (name.startsWith("gen.rows.")) {
+                rows.put(name.substring("gen.rows.".length()), Long.parseLong(value));
+            } else if (name.startsWith("gen.skew.")) {
+                generator.setSkew(name.substring("gen.skew.".length()), Double.parseDouble(value));
+            } else if (name.startsWith("gen.values.")) {
+                final var column = name.substring("gen.values.".length());
+                final var dot = column.lastIndexOf('.');
+                generator.setValues(column.substring(0, dot), column.substring(dot + 1), Arrays.asList(value.split("\\s*,\\s*")));
+            }
+        }
+        final var start = System.nanoTime();
+        final var total = generator.generate(rows);
+        logger.info("Generated {} rows in {} seconds", total, String.format("%.3f", (System.nanoTime() - start) / 1000000000.0));
+        try {
+            dataSource.close();
+        } catch (SQLException e) {
+            throw new RuntimeException("Error closing DataSource", e);
+        }
+    }
+}
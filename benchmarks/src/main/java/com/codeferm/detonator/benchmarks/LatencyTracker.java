@@ -0,0 +1,344 @@
+/*
+ * Copyright (c) Steven P. Goldsmith. All rights reserved.
+ */
+package com.codeferm.detonator.benchmarks;
+
+import com.codeferm.detonator.BatchCreateOrder;
+import com.codeferm.detonator.CreateOrder;
+import com.codeferm.detonator.Observable;
+import com.codeferm.detonator.Observer;
+import com.codeferm.detonator.OrderAggregate;
+import com.codeferm.detonator.OrderMessage;
+import com.codeferm.detonator.OrderQueue;
+import com.codeferm.detonator.OrderShipped;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Correlates orders through the pipeline and records latency histograms in microseconds. An order is tracked by message identity
+ * from submit until {@link CreateOrder} assigns its ID, then by order ID until {@link OrderShipped} has written the manifest.
+ *
+ * Stages are submit to created (queue wait, inventory and inserts), created to shipped (observer hand off, order info and template)
+ * and end to end. Only orders submitted during the measured phase are recorded. Set {@link #shipDone(OrderAggregate)} as the
+ * OrderCreated done callback, so orders rejected or failed after creation are counted as failed and leave the pipeline.
+ *
+ * @author Steven P. Goldsmith
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class LatencyTracker implements Observer<OrderShipped, OrderAggregate> {
+
+    /**
+     * Tracked order.
+     */
+    private static final class Sample {
+
+        /**
+         * Intended submit time in nanoseconds.
+         */
+        private final long submitted;
+        /**
+         * Submitted during measured phase.
+         */
+        private final boolean measured;
+        /**
+         * Created time in nanoseconds.
+         */
+        private long created;
+
+        /**
+         * Construct with submit time.
+         *
+         * @param submitted Intended submit time.
+         * @param measured True if measured.
+         */
+        private Sample(final long submitted, final boolean measured) {
+            this.submitted = submitted;
+            this.measured = measured;
+        }
+    }
+
+    /**
+     * Intended submit time set by driver thread before submit.
+     */
+    private final ThreadLocal<Sample> pending = new ThreadLocal<>();
+    /**
+     * Orders waiting to be created by message identity.
+     */
+    private final Map<OrderMessage, Sample> messages = Collections.synchronizedMap(new IdentityHashMap<>());
+    /**
+     * Orders waiting to be shipped by order ID.
+     */
+    private final Map<Long, Sample> orders = new ConcurrentHashMap<>();
+    /**
+     * Submit to created.
+     */
+    private final Histogram created = new ConcurrentHistogram(3);
+    /**
+     * Created to shipped.
+     */
+    private final Histogram shipped = new ConcurrentHistogram(3);
+    /**
+     * Submit to shipped.
+     */
+    private final Histogram endToEnd = new ConcurrentHistogram(3);
+    /**
+     * Orders in the pipeline.
+     */
+    private final AtomicLong inFlight = new AtomicLong();
+    /**
+     * Measured orders submitted.
+     */
+    private final AtomicLong submittedCount = new AtomicLong();
+    /**
+     * Measured orders completed.
+     */
+    private final AtomicLong completedCount = new AtomicLong();
+    /**
+     * Measured orders failed.
+     */
+    private final AtomicLong failedCount = new AtomicLong();
+    /**
+     * Measured orders rejected by queue.
+     */
+    private final AtomicLong rejectedCount = new AtomicLong();
+    /**
+     * Called when an order leaves the pipeline, used by closed loop mode.
+     */
+    private volatile Runnable onDone = () -> {
+    };
+
+    public void setOnDone(final Runnable onDone) {
+        this.onDone = onDone;
+    }
+
+    public Histogram getCreated() {
+        return created;
+    }
+
+    public Histogram getShipped() {
+        return shipped;
+    }
+
+    public Histogram getEndToEnd() {
+        return endToEnd;
+    }
+
+    public long getInFlight() {
+        return inFlight.get();
+    }
+
+    public long getSubmittedCount() {
+        return submittedCount.get();
+    }
+
+    public long getCompletedCount() {
+        return completedCount.get();
+    }
+
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    /**
+     * Set intended submit time of next order submitted by this thread.
+     *
+     * @param intended Intended submit time in nanoseconds.
+     * @param measured True if submitted during measured phase.
+     */
+    public void begin(final long intended, final boolean measured) {
+        pending.set(new Sample(intended, measured));
+    }
+
+    /**
+     * Order message submitted.
+     *
+     * @param orderMessage Order message.
+     */
+    private void submitted(final OrderMessage orderMessage) {
+        var sample = pending.get();
+        pending.remove();
+        if (sample == null) {
+            sample = new Sample(System.nanoTime(), false);
+        }
+        if (sample.measured) {
+            submittedCount.incrementAndGet();
+        }
+        inFlight.incrementAndGet();
+        messages.put(orderMessage, sample);
+    }
+
+    /**
+     * Order created.
+     *
+     * @param orderMessage Order message.
+     * @param dto Created order.
+     */
+    private void created(final OrderMessage orderMessage, final OrderAggregate dto) {
+        final var sample = messages.remove(orderMessage);
+        if (sample != null) {
+            sample.created = System.nanoTime();
+            orders.put(dto.getOrderId(), sample);
+        }
+    }
+
+    /**
+     * Order rejected by queue.
+     *
+     * @param orderMessage Order message.
+     */
+    private void rejected(final OrderMessage orderMessage) {
+        final var sample = messages.remove(orderMessage);
+        if (sample != null) {
+            if (sample.measured) {
+                rejectedCount.incrementAndGet();
+            }
+            inFlight.decrementAndGet();
+            onDone.run();
+        }
+    }
+
+    /**
+     * Order failed.
+     *
+     * @param orderMessage Order message.
+     */
+    private void failed(final OrderMessage orderMessage) {
+        final var sample = messages.remove(orderMessage);
+        if (sample != null) {
+            if (sample.measured) {
+                failedCount.incrementAndGet();
+            }
+            inFlight.decrementAndGet();
+            onDone.run();
+        }
+    }
+
+    /**
+     * Order shipped.
+     *
+     * @param object Observable that called.
+     * @param data Order aggregate.
+     */
+    @Override
+    public void update(final Observable<OrderShipped, OrderAggregate> object, final OrderAggregate data) {
+        final var sample = orders.remove(data.getOrderId());
+        if (sample != null) {
+            final var now = System.nanoTime();
+            if (sample.measured) {
+                created.recordValue(Math.max(0, sample.created - sample.submitted) / 1000);
+                shipped.recordValue(Math.max(0, now - sample.created) / 1000);
+                endToEnd.recordValue(Math.max(0, now - sample.submitted) / 1000);
+                completedCount.incrementAndGet();
+            }
+            inFlight.decrementAndGet();
+            onDone.run();
+        }
+    }
+
+    /**
+     * Order left the created and shipped stages. Shipped orders were already removed by {@link #update}, so an order still tracked
+     * here was rejected or failed in OrderCreated or OrderShipped and is counted as failed.
+     *
+     * @param order Order aggregate.
+     */
+    public void shipDone(final OrderAggregate order) {
+        final var sample = orders.remove(order.getOrderId());
+        if (sample != null) {
+            if (sample.measured) {
+                failedCount.incrementAndGet();
+            }
+            inFlight.decrementAndGet();
+            onDone.run();
+        }
+    }
+
+    /**
+     * Wrap queue, so submits are tracked.
+     *
+     * @param orderQueue Queue to wrap.
+     * @return Tracking queue.
+     */
+    public OrderQueue wrap(final OrderQueue orderQueue) {
+        return new OrderQueue() {
+            @Override
+            public boolean create(final OrderMessage orderMessage) {
+                submitted(orderMessage);
+                final var accepted = orderQueue.create(orderMessage);
+                if (!accepted) {
+                    rejected(orderMessage);
+                }
+                return accepted;
+            }
+
+            @Override
+            public void shutdown() {
+                orderQueue.shutdown();
+            }
+        };
+    }
+
+    /**
+     * Wrap CreateOrder, so created and failed orders are tracked.
+     *
+     * @param createOrder CreateOrder to wrap.
+     * @return Tracking CreateOrder.
+     */
+    public CreateOrder wrap(final CreateOrder createOrder) {
+        final var wrapped = new CreateOrder(createOrder.getUpdateInventory(), createOrder.getOrders(), createOrder.getOrderItems(),
+                createOrder.getProducts()) {
+            @Override
+            public OrderAggregate create(final OrderMessage orderMessage) {
+                try {
+                    final var dto = super.create(orderMessage);
+                    created(orderMessage, dto);
+                    return dto;
+                } catch (RuntimeException e) {
+                    failed(orderMessage);
+                    throw e;
+                }
+            }
+        };
+        wrapped.setSetBased(createOrder.isSetBased());
+        return wrapped;
+    }
+
+    /**
+     * Wrap BatchCreateOrder, so created and failed orders of each batch are tracked.
+     *
+     * @param batchCreateOrder BatchCreateOrder to wrap.
+     * @return Tracking BatchCreateOrder.
+     */
+    public BatchCreateOrder wrap(final BatchCreateOrder batchCreateOrder) {
+        return new BatchCreateOrder(batchCreateOrder.getOrders(), batchCreateOrder.getOrderItems(), batchCreateOrder.getProducts(),
+                batchCreateOrder.getInventories()) {
+            @Override
+            public List<OrderAggregate> create(final List<OrderMessage> list, final Map<Integer, RuntimeException> errors) {
+                try {
+                    final var created = super.create(list, errors);
+                    for (var i = 0; i < list.size(); i++) {
+                        if (created.get(i) != null) {
+                            created(list.get(i), created.get(i));
+                        } else {
+                            failed(list.get(i));
+                        }
+                    }
+                    return created;
+                } catch (RuntimeException e) {
+                    list.forEach(LatencyTracker.this::failed);
+                    throw e;
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,488 @@
+/*
+ * Copyright (c) Steven P. Goldsmith. All rights reserved.
+ */
+package com.codeferm.detonator.benchmarks;
+
+import com.codeferm.detonator.BatchCreateOrder;
+import com.codeferm.detonator.BatchOrderQueue;
+import com.codeferm.detonator.CreateOrder;
+import com.codeferm.detonator.CreateOrderQueue;
+import com.codeferm.detonator.Dao;
+import com.codeferm.detonator.DataLoader;
+import com.codeferm.detonator.EventBus;
+import com.codeferm.detonator.GenDbDao;
+import com.codeferm.detonator.GenMapDbDao;
+import com.codeferm.detonator.InventoryLedger;
+import com.codeferm.detonator.Observable;
+import com.codeferm.detonator.OrderAggregate;
+import com.codeferm.detonator.OrderCreated;
+import com.codeferm.detonator.OrderQueue;
+import com.codeferm.detonator.OrderRouter;
+import com.codeferm.detonator.OrderShipped;
+import com.codeferm.detonator.OrdersBo;
+import com.codeferm.detonator.OverflowPolicy;
+import com.codeferm.detonator.PartitionedOrderQueue;
+import com.codeferm.detonator.SegmentShippedSink;
+import com.codeferm.detonator.UpdateInventoryDao;
+import com.codeferm.detonator.WaitStrategy;
+import com.codeferm.dto.Dto;
+import com.codeferm.dto.Inventories;
+import com.codeferm.dto.InventoriesKey;
+import com.codeferm.dto.OrderItems;
+import com.codeferm.dto.OrderItemsKey;
+import com.codeferm.dto.Orders;
+import com.codeferm.dto.OrdersKey;
+import com.codeferm.dto.Products;
+import com.codeferm.dto.ProductsKey;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.TreeSet;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import org.HdrHistogram.Histogram;
+import org.apache.commons.dbcp2.BasicDataSource;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.mapdb.DB;
+import org.mapdb.DBMaker;
+
+/**
+ * Load driver for {@link OrdersBo#createOrder(long, long, java.util.List)} using the GenDbDao or GenMapDbDao wiring.
+ *
+ * Open loop mode submits orders at a fixed arrival rate and measures latency from the intended submit time, so a stalled pipeline
+ * shows up as latency instead of being hidden by a slower submit rate. Closed loop mode keeps a fixed number of orders in flight.
+ * Orders submitted during warmup are not recorded. After steady state the driver waits for orders in flight and writes a JSON
+ * report with throughput and latency percentiles for each stage.
+ *
+ * Properties are loaded from load.properties on the class path and can be overridden by a properties file passed as the first
+ * argument and by system properties.
+ *
+ * @author Steven P. Goldsmith
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class LoadDriver {
+
+    /**
+     * Logger.
+     */
+    private static final Logger logger = LogManager.getLogger(LoadDriver.class);
+    /**
+     * Properties.
+     */
+    private final Properties properties;
+    /**
+     * Latency tracker.
+     */
+    private final LatencyTracker tracker = new LatencyTracker();
+    /**
+     * DataSource.
+     */
+    private BasicDataSource dataSource;
+    /**
+     * MapDB database.
+     */
+    private DB db;
+
+    /**
+     * Construct with properties.
+     *
+     * @param properties Driver properties.
+     */
+    public LoadDriver(final Properties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * Load properties from class path.
+     *
+     * @param name Properties file name.
+     * @return Properties.
+     */
+    public static Properties loadProperties(final String name) {
+        final var props = new Properties();
+        try (final var in = LoadDriver.class.getClassLoader().getResourceAsStream(name)) {
+            if (in == null) {
+                throw new RuntimeException(String.format("%s not found on class path", name));
+            }
+            props.load(in);
+        } catch (IOException e) {
+            throw new RuntimeException(String.format("Error loading %s", name), e);
+        }
+        return props;
+    }
+
+    /**
+     * Get int property.
+     *
+     * @param name Property name.
+     * @return Value.
+     */
+    private int getInt(final String name) {
+        return Integer.parseInt(properties.getProperty(name).trim());
+    }
+
+    /**
+     * Create DataSource and optionally create sample database.
+     */
+    private void createDataSource() {
+        dataSource = new BasicDataSource();
+        dataSource.setDriverClassName(properties.getProperty("db.driver"));
+        dataSource.setUsername(properties.getProperty("db.user"));
+        dataSource.setPassword(properties.getProperty("db.password"));
+        dataSource.setUrl(properties.getProperty("db.url"));
+        dataSource.setMaxTotal(getInt("db.pool.size"));
+        if (Boolean.parseBoolean(properties.getProperty("db.create"))) {
+            new DataLoader(dataSource).execScript(properties.getProperty("db.sample"), properties.getProperty("db.delimiter"), Boolean.
+                    parseBoolean(properties.getProperty("db.remove.delimiter")));
+        }
+    }
+
+    /**
+     * Create RDBMS DAO.
+     *
+     * @param <K> Key type.
+     * @param <V> Value type.
+     * @param name Table name.
+     * @param kClass Key class.
+     * @param vClass Value class.
+     * @return DAO.
+     */
+    private <K, V> Dao<K, V> dbDao(final String name, final Class kClass, final Class vClass) {
+        final var sql = loadProperties(String.format("%s.properties", name));
+        // Merge custom SQL such as the guarded inventory updates
+        final var custom = String.format("%s-custom.properties", name);
+        if (LoadDriver.class.getClassLoader().getResource(custom) != null) {
+            sql.putAll(loadProperties(custom));
+        }
+        return new GenDbDao<>(dataSource, sql, kClass, vClass);
+    }
+
+    /**
+     * Create DAO for backend. MapDB collections are copied from the database.
+     *
+     * @param <K> Key type.
+     * @param <V> Value type.
+     * @param name Table name.
+     * @param kClass Key class.
+     * @param vClass Value class.
+     * @return DAO.
+     */
+    private <K, V> Dao<K, V> createDao(final String name, final Class kClass, final Class vClass) {
+        final Dao<K, V> dbDao = dbDao(name, kClass, vClass);
+        if (db == null) {
+            return dbDao;
+        }
+        final var map = new HashMap<K, V>();
+        long lastKey = 0;
+        for (final V value : dbDao.findAll()) {
+            final K key = ((Dto) value).getKey();
+            map.put(key, value);
+            if (key instanceof OrdersKey) {
+                lastKey = Math.max(lastKey, ((OrdersKey) key).getOrderId());
+            }
+        }
+        // Auto increment key used by saveReturnKey
+        db.atomicLong(String.format("%s_key", name), lastKey).createOrOpen();
+        final Dao<K, V> mapDao = new GenMapDbDao<>(db, name, kClass, vClass);
+        mapDao.save(map);
+        return mapDao;
+    }
+
+    /**
+     * Create order items lists used for orders. Each list has two products and only products with inventory are used, so orders do
+     * not fail on stock.
+     *
+     * @param productIds Product IDs with inventory.
+     * @param pairs Number of product pairs.
+     * @return Order items lists.
+     */
+    private List<List<OrderItems>> createOrderItemsLists(final List<Long> productIds, final int pairs) {
+        if (productIds.size() < pairs * 2) {
+            throw new RuntimeException(String.format("At least %d products with inventory are required", pairs * 2));
+        }
+        final List<List<OrderItems>> lists = new ArrayList<>();
+        for (var p = 0; p < pairs; p++) {
+            final List<OrderItems> list = new ArrayList<>();
+            for (var i = 0; i < 2; i++) {
+                final var item = new OrderItems();
+                item.setItemId(i + 1L);
+                item.setProductId(productIds.get(p * 2 + i));
+                item.setQuantity(1);
+                list.add(item);
+            }
+            lists.add(list);
+        }
+        return lists;
+    }
+
+    /**
+     * Run warmup and steady state, then drain and report.
+     *
+     * @return Report as JSON.
+     */
+    public String run() {
+        final var backend = properties.getProperty("load.backend").trim();
+        final var mode = properties.getProperty("load.mode").trim();
+        createDataSource();
+        if ("mapdb".equals(backend)) {
+            try {
+                Files.deleteIfExists(Paths.get(properties.getProperty("map.file")));
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+            db = DBMaker.fileDB(properties.getProperty("map.file")).fileMmapEnableIfSupported().make();
+        } else if (!"db".equals(backend)) {
+            throw new IllegalArgumentException(String.format("Unknown backend %s", backend));
+        }
+        try {
+            Files.createDirectories(Paths.get(properties.getProperty("output.dir")));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        final Dao<OrdersKey, Orders> orders = createDao("orders", OrdersKey.class, Orders.class);
+        final Dao<OrderItemsKey, OrderItems> orderItems = createDao("orderitems", OrderItemsKey.class, OrderItems.class);
+        final Dao<ProductsKey, Products> products = createDao("products", ProductsKey.class, Products.class);
+        final Dao<InventoriesKey, Inventories> inventories = createDao("inventories", InventoriesKey.class, Inventories.class);
+        // Max out inventory
+        final var quantity = getInt("load.inventory");
+        final var productIds = new TreeSet<Long>();
+        for (final var inv : inventories.findAll()) {
+            inv.setQuantity(quantity);
+            inventories.update(inv.getKey(), inv);
+            productIds.add(inv.getProductId());
+        }
+        // Wire pipeline with tracking queue and CreateOrder
+        // Inventory ledger allocates in memory and writes changes in the background
+        InventoryLedger ledger = null;
+        if (Boolean.parseBoolean(properties.getProperty("load.inventory.ledger"))) {
+            ledger = new InventoryLedger(inventories);
+        }
+        final var plainCreateOrder = new CreateOrder(ledger != null ? ledger : new UpdateInventoryDao(orderItems, inventories), orders,
+                orderItems, products);
+        // Set based create uses a fixed number of round trips per order
+        plainCreateOrder.setSetBased(Boolean.parseBoolean(properties.getProperty("load.set.based")));
+        final var createOrder = tracker.wrap(plainCreateOrder);
+        // Every stage has a bounded queue
+        final var capacity = getInt("load.queue.capacity");
+        final var queueOverflow = OverflowPolicy.of(properties.getProperty("load.queue.overflow"));
+        final var stageOverflow = OverflowPolicy.of(properties.getProperty("load.stage.overflow"));
+        // Batch queue creates several orders per round trip and partitioned queue runs unrelated orders in parallel
+        final var batchSize = getInt("load.batch.size");
+        final var partitions = getInt("load.partitions");
+        final Observable<OrderQueue, OrderAggregate> createOrderQueue;
+        if (batchSize > 0) {
+            createOrderQueue = new BatchOrderQueue(tracker.wrap(new BatchCreateOrder(orders, orderItems, products, inventories)),
+                    batchSize, getInt("load.batch.wait.millis"), capacity, queueOverflow);
+        } else if (partitions > 1) {
+            createOrderQueue = new PartitionedOrderQueue(createOrder, partitions, OrderRouter.of(properties.getProperty(
+                    "load.partition.key").trim()), capacity, queueOverflow);
+        } else {
+            createOrderQueue = new CreateOrderQueue(createOrder, capacity, queueOverflow);
+        }
+        final var ordersBo = new OrdersBo(tracker.wrap((OrderQueue) createOrderQueue), orders, orderItems, products, inventories);
+        final var orderShipped = new OrderShipped(properties.getProperty("template.dir"), properties.getProperty("template"),
+                properties.getProperty("output.dir"), ordersBo, getInt("order.shipped.max.threads"), capacity, stageOverflow);
+        // Compiled template renders without FreeMarker
+        orderShipped.setCompiled(Boolean.parseBoolean(properties.getProperty("load.template.compiled")));
+        // Segment sink appends manifests to rolling segment files instead of a file per order
+        if ("segment".equalsIgnoreCase(properties.getProperty("load.shipped.sink").trim())) {
+            orderShipped.setShippedSink(new SegmentShippedSink(properties.getProperty("output.dir")));
+        }
+        orderShipped.addObserver(tracker);
+        final var orderCreated = new OrderCreated(orderShipped, getInt("order.created.max.threads"), capacity, stageOverflow);
+        // Orders rejected or failed after creation still release their closed loop permit
+        orderCreated.setOnDone(tracker::shipDone);
+        // Event bus decouples order creation from observers
+        final var busSize = getInt("load.event.bus.size");
+        EventBus<OrderQueue, OrderAggregate> eventBus = null;
+        if (busSize > 0) {
+            eventBus = new EventBus<>(busSize, busSize, WaitStrategy.of(properties.getProperty("load.event.bus.wait").trim()));
+            eventBus.addConsumer("order-created", orderCreated);
+            createOrderQueue.addObserver(eventBus);
+        } else {
+            createOrderQueue.addObserver(orderCreated);
+        }
+        // Each order uses the next pair of products
+        final var lists = createOrderItemsLists(new ArrayList<>(productIds), getInt("load.product.pairs"));
+        var orderCount = 0;
+        final var warmupNanos = TimeUnit.SECONDS.toNanos(getInt("load.warmup.seconds"));
+        final var durationNanos = TimeUnit.SECONDS.toNanos(getInt("load.duration.seconds"));
+        logger.info("Starting {} loop load on {} backend, warmup {} seconds, steady state {} seconds", mode, backend, getInt(
+                "load.warmup.seconds"), getInt("load.duration.seconds"));
+        final var start = System.nanoTime();
+        final var measureStart = start + warmupNanos;
+        final var end = measureStart + durationNanos;
+        if ("open".equals(mode)) {
+            final var interval = 1000000000L / getInt("load.rate");
+            var intended = start;
+            while (intended < end) {
+                final var wait = intended - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                tracker.begin(intended, intended >= measureStart);
+                ordersBo.createOrder(1, 1, copy(lists.get(orderCount++ % lists.size())));
+                intended += interval;
+            }
+        } else if ("closed".equals(mode)) {
+            final var permits = new Semaphore(getInt("load.concurrency"));
+            tracker.setOnDone(permits::release);
+            var now = start;
+            while (now < end) {
+                try {
+                    if (!permits.tryAcquire(end - now, TimeUnit.NANOSECONDS)) {
+                        break;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                now = System.nanoTime();
+                tracker.begin(now, now >= measureStart);
+                ordersBo.createOrder(1, 1, copy(lists.get(orderCount++ % lists.size())));
+            }
+        } else {
+            throw new IllegalArgumentException(String.format("Unknown mode %s", mode));
+        }
+        // Drain orders in flight
+        final var drainEnd = System.nanoTime() + TimeUnit.SECONDS.toNanos(getInt("load.drain.seconds"));
+        while (tracker.getInFlight() > 0 && System.nanoTime() < drainEnd) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+        final var steadySeconds = durationNanos / 1000000000.0;
+        final var report = report(backend, mode, steadySeconds);
+        logger.info("Completed {} of {} measured orders, {} failed, {} rejected, {} orders/second, p99 {} us", tracker.
+                getCompletedCount(), tracker.getSubmittedCount(), tracker.getFailedCount(), tracker.getRejectedCount(), String.
+                format("%.2f", tracker.getCompletedCount() / steadySeconds), tracker.getEndToEnd().getValueAtPercentile(99.0));
+        // Shut down pipeline
+        ordersBo.getOrderQueue().shutdown();
+        if (eventBus != null) {
+            logger.info("Event bus max lag {}", eventBus.getMaxLag("order-created"));
+            eventBus.shutdown();
+        }
+        orderCreated.shutdown();
+        orderShipped.shutdown();
+        if (ledger != null) {
+            ledger.close();
+        }
+        close();
+        return report;
+    }
+
+    /**
+     * Copy order items, since CreateOrder sets order ID on each item.
+     *
+     * @param list Order items.
+     * @return Copy of order items.
+     */
+    private List<OrderItems> copy(final List<OrderItems> list) {
+        final List<OrderItems> items = new ArrayList<>(list.size());
+        list.forEach(item -> {
+            final var copy = new OrderItems();
+            copy.setItemId(item.getItemId());
+            copy.setProductId(item.getProductId());
+            copy.setQuantity(item.getQuantity());
+            items.add(copy);
+        });
+        return items;
+    }
+
+    /**
+     * Close MapDB and DataSource.
+     */
+    private void close() {
+        if (db != null) {
+            db.close();
+        }
+        try {
+            dataSource.close();
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Append histogram as JSON object.
+     *
+     * @param json JSON being built.
+     * @param name Histogram name.
+     * @param histogram Histogram in microseconds.
+     */
+    private void appendHistogram(final StringBuilder json, final String name, final Histogram histogram) {
+        json.append(String.format(Locale.US, "    \"%s\": {\"count\": %d, \"mean\": %.1f, \"p50\": %d, \"p90\": %d, \"p99\": %d, "
+                + "\"p99.9\": %d, \"p99.99\": %d, \"max\": %d}", name, histogram.getTotalCount(), histogram.getMean(), histogram.
+                getValueAtPercentile(50.0), histogram.getValueAtPercentile(90.0), histogram.getValueAtPercentile(99.0), histogram.
+                getValueAtPercentile(99.9), histogram.getValueAtPercentile(99.99), histogram.getMaxValue()));
+    }
+
+    /**
+     * Build report and write it to load.report file.
+     *
+     * @param backend Backend.
+     * @param mode Mode.
+     * @param steadySeconds Steady state seconds.
+     * @return Report as JSON.
+     */
+    private String report(final String backend, final String mode, final double steadySeconds) {
+        final var json = new StringBuilder();
+        json.append("{\n");
+        json.append(String.format(Locale.US, "  \"backend\": \"%s\",\n  \"mode\": \"%s\",\n", backend, mode));
+        if ("open".equals(mode)) {
+            json.append(String.format("  \"rate\": %d,\n", getInt("load.rate")));
+        } else {
+            json.append(String.format("  \"concurrency\": %d,\n", getInt("load.concurrency")));
+        }
+        json.append(String.format(Locale.US, "  \"warmupSeconds\": %d,\n  \"durationSeconds\": %d,\n", getInt("load.warmup.seconds"),
+                getInt("load.duration.seconds")));
+        json.append(String.format(Locale.US,
+                "  \"submitted\": %d,\n  \"completed\": %d,\n  \"failed\": %d,\n  \"rejected\": %d,\n  \"incomplete\": %d,\n"
+                + "  \"throughput\": %.2f,\n", tracker.getSubmittedCount(), tracker.getCompletedCount(), tracker.getFailedCount(),
+                tracker.getRejectedCount(), tracker.getInFlight(), tracker.getCompletedCount() / steadySeconds));
+        json.append("  \"latencyMicros\": {\n");
+        appendHistogram(json, "created", tracker.getCreated());
+        json.append(",\n");
+        appendHistogram(json, "shipped", tracker.getShipped());
+        json.append(",\n");
+        appendHistogram(json, "endToEnd", tracker.getEndToEnd());
+        json.append("\n  }\n}\n");
+        final var report = json.toString();
+        try {
+            Files.writeString(Paths.get(properties.getProperty("load.report")), report, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new RuntimeException(String.format("Error writing %s", properties.getProperty("load.report")), e);
+        }
+        return report;
+    }
+
+    /**
+     * Main method.
+     *
+     * @param args Optional properties file overriding load.properties.
+     */
+    public static void main(final String[] args) {
+        final var properties = loadProperties("load.properties");
+        if (args.length > 0) {
+            try (final var in = new FileInputStream(args[0])) {
+                properties.load(in);
+            } catch (IOException e) {
+                throw new RuntimeException(String.format("Error loading %s", args[0]), e);
+            }
+        }
+        // System properties override files
+        System.getProperties().stringPropertyNames().stream().filter(name -> name.startsWith("load.") || name.startsWith("db.")
+                || name.startsWith("map.") || name.startsWith("template") || name.startsWith("output.") || name.startsWith("order.")).
+                forEach(name -> properties.setProperty(name, System.getProperty(name)));
+        System.out.print(new LoadDriver(properties).run());
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) Steven P. Goldsmith. All rights reserved.
+ */
+package com.codeferm.detonator.benchmarks;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Pick indexes 0 to n - 1 following a Zipf distribution. Index 0 is the most popular. An exponent of 0 is uniform and higher values
+ * concentrate picks on fewer indexes. The cumulative distribution is computed once, so each pick is a binary search.
+ *
+ * @author Steven P. Goldsmith
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class ZipfSampler {
+
+    /**
+     * Number of indexes.
+     */
+    private final int size;
+    /**
+     * Cumulative distribution or null for uniform.
+     */
+    private final double[] cdf;
+
+    /**
+     * Compute cumulative distribution.
+     *
+     * @param size Number of indexes.
+     * @param exponent Zipf exponent. 0 is uniform.
+     */
+    public ZipfSampler(final int size, final double exponent) {
+        if (size < 1) {
+            throw new RuntimeException(String.format("Size must be greater than 0, size=%d", size));
+        }
+        this.size = size;
+        if (exponent > 0) {
+            cdf = new double[size];
+            var sum = 0.0;
+            for (var i = 0; i < size; i++) {
+                sum += 1.0 / Math.pow(i + 1, exponent);
+                cdf[i] = sum;
+            }
+            // Normalize
+            for (var i = 0; i < size; i++) {
+                cdf[i] /= sum;
+            }
+        } else {
+            cdf = null;
+        }
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Pick next index.
+     *
+     * @param random Random generator.
+     * @return Index.
+     */
+    public int next(final SplittableRandom random) {
+        if (cdf == null) {
+            return random.nextInt(size);
+        }
+        final var index = Arrays.binarySearch(cdf, random.nextDouble());
+        // Insertion point is the first element greater than value
+        return Math.min(index < 0 ? -index - 1 : index, size - 1);
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) Steven P. Goldsmith. All rights reserved.
+ */
+package com.codeferm.detonator;
+
+import com.codeferm.dto.Inventories;
+import com.codeferm.dto.InventoriesKey;
+import com.codeferm.dto.OrderItems;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Thread safe inventory update. Quantity is taken with a conditional update, so the database checks and decrements in one
+ * statement and concurrent orders can't oversell or lose updates. Use this when more than one thread or MDB session creates orders.
+ * In a transaction use {@link #update(List)} (CreateOrder.setSetBased(true)), which takes rows in product ID order.
+ *
+ * The inventories SQL must include the named queries in inventories-custom.properties:
+ * <ul>
+ * <li>decrementQuantity with parameters quantity, productId, warehouseId and quantity</li>
+ * <li>incrementQuantity with parameters quantity, productId and warehouseId</li>
+ * </ul>
+ *
+ * @author Steven P. Goldsmith
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class AtomicUpdateInventory implements UpdateInventory {
+
+    /**
+     * Inventories DAO.
+     */
+    private final DbDao<InventoriesKey, Inventories> inventories;
+
+    /**
+     * Construct with Inventories DAO.
+     *
+     * @param inventories Inventories DAO with custom SQL.
+     */
+    public AtomicUpdateInventory(final DbDao<InventoriesKey, Inventories> inventories) {
+        this.inventories = inventories;
+    }
+
+    public DbDao<InventoriesKey, Inventories> getInventories() {
+        return inventories;
+    }
+
+    /**
+     * Take item quantity from first warehouse that still has enough when the update runs.
+     *
+     * @param item OrderItems DTO.
+     * @return Inventories DTO with quantity as of the update.
+     */
+    @Override
+    public Inventories update(final OrderItems item) {
+        // Get warehouses by product.
+        final var list = inventories.findRange(new InventoriesKey(item.getProductId(), 0L), new InventoriesKey(item.
+                getProductId(), Long.MAX_VALUE));
+        // See if we get any hits
+        if (list == null || list.isEmpty()) {
+            throw new OrderRejectedException(String.format("productId %d not found", item.getProductId()));
+        }
+        for (final Inventories inv : list) {
+            // Quantity read may be stale, so let the database decide
+            if (inv.getQuantity() >= item.getQuantity() && inventories.updateBy("decrementQuantity", new Object[]{item.
+                    getQuantity(), inv.getProductId(), inv.getWarehouseId(), item.getQuantity()}) == 1) {
+                inv.setQuantity(inv.getQuantity() - item.getQuantity());
+                return inv;
+            }
+        }
+        throw new OrderRejectedException(String.format("productId %d not in invenroty", item.getProductId()));
+    }
+
+    /**
+     * Update quantity of all OrderItems of an order. Items are updated in product ID order, so concurrent transactions lock
+     * inventory rows in the same order and can't deadlock. If an item fails the quantity already taken for other items is given
+     * back, which a JTA rollback would also do.
+     *
+     * @param items OrderItems used for update.
+     * @return Inventories DTO of each item in item order.
+     */
+    @Override
+    public List<Inventories> update(final List<OrderItems> items) {
+        final List<Integer> order = new ArrayList<>(items.size());
+        for (var i = 0; i < items.size(); i++) {
+            order.add(i);
+        }
+        order.sort(Comparator.comparing(i -> items.get(i).getProductId()));
+        final var list = new Inventories[items.size()];
+        final List<Integer> taken = new ArrayList<>(items.size());
+        try {
+            for (final int i : order) {
+                list[i] = update(items.get(i));
+                taken.add(i);
+            }
+        } catch (RuntimeException e) {
+            for (final int i : taken) {
+                inventories.updateBy("incrementQuantity", new Object[]{items.get(i).getQuantity(), list[i].getProductId(), list[i].
+                        getWarehouseId()});
+            }
+            throw e;
+        }
+        return Arrays.asList(list);
+    }
+
+    /**
+     * Updates can run concurrently.
+     *
+     * @return True.
+     */
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+}
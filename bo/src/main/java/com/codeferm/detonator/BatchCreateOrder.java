@@ -0,0 +1,342 @@
+/*
+ * Copyright (c) Steven P. Goldsmith. All rights reserved.
+ */
+package com.codeferm.detonator;
+
+import com.codeferm.dto.Inventories;
+import com.codeferm.dto.InventoriesKey;
+import com.codeferm.dto.OrderItems;
+import com.codeferm.dto.OrderItemsKey;
+import com.codeferm.dto.Orders;
+import com.codeferm.dto.OrdersKey;
+import com.codeferm.dto.Products;
+import com.codeferm.dto.ProductsKey;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Create a batch of orders with a few batched writes instead of several round trips per item. Inventory and products are read once
+ * per product for the whole batch and every order is checked against that snapshot first, so an order that is rejected (unknown
+ * product, not enough inventory or bean validation) is reported on its own and the rest of the batch goes ahead. Orders that pass are
+ * written with one batched inventory update, one batched insert returning keys and one batched item insert.
+ *
+ * With a {@link DbDao} inventory is taken with a guarded batch update, so the database has the final say and concurrent writers
+ * can't oversell. The inventories SQL must include the named queries in inventories-custom.properties. Other DAOs write the
+ * snapshot back, so like UpdateInventoryDao only one batch may update inventory at a time. Run in a transaction (see
+ * BatchOrderQueue.createBatch) to commit the batch once.
+ *
+ * @author Steven P. Goldsmith
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class BatchCreateOrder {
+
+    /**
+     * Quantity of an item taken from an inventory row.
+     */
+    private static final class Take {
+
+        /**
+         * Order position in batch.
+         */
+        private final int order;
+        /**
+         * Order item.
+         */
+        private final OrderItems item;
+        /**
+         * Reserved inventory row.
+         */
+        private final Inventories inv;
+
+        /**
+         * Construct take.
+         *
+         * @param order Order position in batch.
+         * @param item Order item.
+         * @param inv Reserved inventory row.
+         */
+        private Take(final int order, final OrderItems item, final Inventories inv) {
+            this.order = order;
+            this.item = item;
+            this.inv = inv;
+        }
+    }
+
+    /**
+     * Orders DAO.
+     */
+    private Dao<OrdersKey, Orders> orders;
+    /**
+     * OrderItems DAO.
+     */
+    private Dao<OrderItemsKey, OrderItems> orderItems;
+    /**
+     * Products DAO.
+     */
+    private Dao<ProductsKey, Products> products;
+    /**
+     * Inventories DAO.
+     */
+    private Dao<InventoriesKey, Inventories> inventories;
+    /**
+     * Validation bean.
+     */
+    private final ValidateBean validateBean;
+
+    /**
+     * Default constructor.
+     */
+    public BatchCreateOrder() {
+        validateBean = new ValidateBean();
+    }
+
+    /**
+     * Construct with DAOs.
+     *
+     * @param orders Orders DAO.
+     * @param orderItems OrderItems DAO.
+     * @param products Products DAO.
+     * @param inventories Inventories DAO.
+     */
+    public BatchCreateOrder(final Dao<OrdersKey, Orders> orders, final Dao<OrderItemsKey, OrderItems> orderItems,
+            final Dao<ProductsKey, Products> products, final Dao<InventoriesKey, Inventories> inventories) {
+        validateBean = new ValidateBean();
+        this.orders = orders;
+        this.orderItems = orderItems;
+        this.products = products;
+        this.inventories = inventories;
+    }
+
+    public Dao<OrdersKey, Orders> getOrders() {
+        return orders;
+    }
+
+    public void setOrders(Dao<OrdersKey, Orders> orders) {
+        this.orders = orders;
+    }
+
+    public Dao<OrderItemsKey, OrderItems> getOrderItems() {
+        return orderItems;
+    }
+
+    public void setOrderItems(Dao<OrderItemsKey, OrderItems> orderItems) {
+        this.orderItems = orderItems;
+    }
+
+    public Dao<ProductsKey, Products> getProducts() {
+        return products;
+    }
+
+    public void setProducts(Dao<ProductsKey, Products> products) {
+        this.products = products;
+    }
+
+    public Dao<InventoriesKey, Inventories> getInventories() {
+        return inventories;
+    }
+
+    public void setInventories(Dao<InventoriesKey, Inventories> inventories) {
+        this.inventories = inventories;
+    }
+
+    /**
+     * Reserve inventory and price items of one order against the batch snapshot. Reservations are undone if any item fails.
+     *
+     * @param orderMessage Order message.
+     * @param stock Inventory by product ID read once per batch.
+     * @param prices Products by product ID read once per batch.
+     * @return Inventory row reserved by each item in item order.
+     */
+    private List<Inventories> reserve(final OrderMessage orderMessage, final Map<Long, List<Inventories>> stock,
+            final Map<Long, Products> prices) {
+        final List<Inventories> reserved = new ArrayList<>();
+        try {
+            for (final OrderItems item : orderMessage.getOrderItemsList()) {
+                // Search warehouses for product
+                final var list = stock.computeIfAbsent(item.getProductId(), productId -> inventories.findRange(new InventoriesKey(
+                        productId, 0L), new InventoriesKey(productId, Long.MAX_VALUE)));
+                if (list.isEmpty()) {
+                    throw new OrderRejectedException(String.format("productId %d not found", item.getProductId()));
+                }
+                final var inv = list.stream().filter(i -> i.getQuantity() >= item.getQuantity()).findFirst().orElseThrow(
+                        () -> new OrderRejectedException(String.format("productId %d not in invenroty", item.getProductId())));
+                final var product = prices.computeIfAbsent(inv.getProductId(), productId -> products.find(new ProductsKey(
+                        productId)));
+                if (product == null) {
+                    throw new OrderRejectedException(String.format("productId %d not found", item.getProductId()));
+                }
+                // Remove item quantity from inventory
+                inv.setQuantity(inv.getQuantity() - item.getQuantity());
+                reserved.add(inv);
+                // Set price
+                item.setUnitPrice(product.getStandardCost());
+                // Validate with placeholder order ID, real ID is set once keys are generated
+                item.setOrderId(0L);
+                validateBean.valid(item);
+            }
+        } catch (RuntimeException e) {
+            // Give back what this order reserved
+            for (var i = 0; i < reserved.size(); i++) {
+                final var inv = reserved.get(i);
+                inv.setQuantity(inv.getQuantity() + orderMessage.getOrderItemsList().get(i).getQuantity());
+            }
+            throw e;
+        }
+        return reserved;
+    }
+
+    /**
+     * Take reserved quantities in the database with one guarded batch update (decrementQuantity in inventories-custom.properties).
+     * The snapshot may be stale when something else changed inventory since it was read, so a row that no longer has enough
+     * quantity fails only the orders that used it. What the other items of a failed order took is given back with one batch
+     * (incrementQuantity). Rows are updated in product and warehouse order, so concurrent batches lock rows in the same order.
+     *
+     * @param list Order messages.
+     * @param reservations Inventory row reserved by each item keyed by position in list.
+     * @param created Orders in list order with null where the order failed. Orders that fail are set to null.
+     * @param errors Receives the error of each order that failed keyed by position in list.
+     */
+    @SuppressWarnings("unchecked")
+    private void takeInventory(final List<OrderMessage> list, final Map<Integer, List<Inventories>> reservations,
+            final List<Orders> created, final Map<Integer, RuntimeException> errors) {
+        final List<Take> takes = new ArrayList<>();
+        reservations.forEach((i, reserved) -> {
+            final var items = list.get(i).getOrderItemsList();
+            for (var j = 0; j < reserved.size(); j++) {
+                takes.add(new Take(i, items.get(j), reserved.get(j)));
+            }
+        });
+        if (takes.isEmpty()) {
+            return;
+        }
+        takes.sort(Comparator.comparing((Take take) -> take.inv.getProductId()).thenComparing(take -> take.inv.getWarehouseId()));
+        final var params = new Object[takes.size()][];
+        for (var k = 0; k < params.length; k++) {
+            final var take = takes.get(k);
+            params[k] = new Object[]{take.item.getQuantity(), take.inv.getProductId(), take.inv.getWarehouseId(), take.item.
+                getQuantity()};
+        }
+        final var dbDao = (DbDao<InventoriesKey, Inventories>) inventories;
+        final var counts = dbDao.batchUpdateBy("decrementQuantity", params);
+        // Fail orders with a row that didn't match the guard
+        for (var k = 0; k < counts.length; k++) {
+            final var take = takes.get(k);
+            if (counts[k] == 0 && created.get(take.order) != null) {
+                created.set(take.order, null);
+                errors.put(take.order, new OrderRejectedException(String.format("productId %d not in invenroty", take.item.
+                        getProductId())));
+            }
+        }
+        // Give back rows taken by failed orders
+        final List<Object[]> giveBack = new ArrayList<>();
+        for (var k = 0; k < counts.length; k++) {
+            final var take = takes.get(k);
+            if (counts[k] != 0 && created.get(take.order) == null) {
+                giveBack.add(new Object[]{take.item.getQuantity(), take.inv.getProductId(), take.inv.getWarehouseId()});
+            }
+        }
+        if (!giveBack.isEmpty()) {
+            dbDao.batchUpdateBy("incrementQuantity", giveBack.toArray(new Object[giveBack.size()][]));
+        }
+    }
+
+    /**
+     * Create batch of orders. OrderItems.itemId must be set prior to calling. Only an {@link OrderRejectedException} fails a single
+     * order. Any other exception, like a database error on a read or one of the batched writes, fails the whole batch, so run in a
+     * transaction if partial batches are not acceptable.
+     *
+     * @param list Order messages.
+     * @param errors Receives the error of each order that failed keyed by position in list.
+     * @return Created orders as {@link OrderAggregate} in list order with null where the order failed.
+     */
+    public List<OrderAggregate> create(final List<OrderMessage> list, final Map<Integer, RuntimeException> errors) {
+        final Map<Long, List<Inventories>> stock = new HashMap<>();
+        final Map<Long, Products> prices = new HashMap<>();
+        final Map<Integer, List<Inventories>> reservations = new LinkedHashMap<>();
+        final List<Orders> created = new ArrayList<>();
+        // Check every order against snapshot before writing anything
+        for (var i = 0; i < list.size(); i++) {
+            final var orderMessage = list.get(i);
+            try {
+                // Create DTO to save (note we skip setting orderId since it's an identity field and will be auto generated)
+                final var dto = new Orders();
+                dto.setCustomerId(orderMessage.getCustomerId());
+                dto.setOrderDate(Date.valueOf(LocalDate.now()));
+                dto.setSalesmanId(orderMessage.getSalesmanId());
+                dto.setStatus("New");
+                // Validate with placeholder order ID, real ID is set once keys are generated
+                dto.setOrderId(0L);
+                validateBean.valid(dto);
+                dto.setOrderId(null);
+                reservations.put(i, reserve(orderMessage, stock, prices));
+                created.add(dto);
+            } catch (OrderRejectedException e) {
+                // Other exceptions fail the whole batch
+                errors.put(i, e);
+                created.add(null);
+            }
+        }
+        if (inventories instanceof DbDao) {
+            takeInventory(list, reservations, created, errors);
+        } else {
+            // Only this batch changed the snapshot, so write it back in one batch
+            final Map<InventoriesKey, Inventories> dirty = new LinkedHashMap<>();
+            reservations.values().forEach(reserved -> reserved.forEach(inv -> dirty.put(inv.getKey(), inv)));
+            if (!dirty.isEmpty()) {
+                inventories.update(dirty);
+            }
+        }
+        final List<Orders> accepted = created.stream().filter(Objects::nonNull).collect(Collectors.toList());
+        final List<OrderAggregate> aggregates = new ArrayList<>(list.size());
+        if (!accepted.isEmpty()) {
+            // Save orders in one batch and get identity keys
+            final var keys = orders.saveReturnKeys(accepted, new String[]{"ORDER_ID"});
+            final Map<OrderItemsKey, OrderItems> items = new LinkedHashMap<>();
+            var k = 0;
+            for (var i = 0; i < list.size(); i++) {
+                final var dto = created.get(i);
+                if (dto != null) {
+                    dto.setOrderId(keys.get(k++).getOrderId());
+                    for (final OrderItems item : list.get(i).getOrderItemsList()) {
+                        item.setOrderId(dto.getOrderId());
+                        items.put(item.getKey(), item);
+                    }
+                }
+            }
+            // Add items in one batch
+            orderItems.save(items);
+        }
+        // Pass on items and products with each order
+        for (var i = 0; i < list.size(); i++) {
+            if (created.get(i) != null) {
+                final var orderItemsList = list.get(i).getOrderItemsList();
+                final List<Products> productsList = new ArrayList<>();
+                orderItemsList.forEach(item -> productsList.add(prices.get(item.getProductId())));
+                aggregates.add(new OrderAggregate(created.get(i), orderItemsList, productsList));
+            } else {
+                aggregates.add(null);
+            }
+        }
+        return aggregates;
+    }
+
+    /**
+     * toString method.
+     *
+     * @return String representation of object.
+     */
+    @Override
+    public String toString() {
+        return "BatchCreateOrder{" + "orders=" + orders + ", orderItems=" + orderItems + ", products=" + products + ", inventories="
+                + inventories + ", validateBean=" + validateBean + '}';
+    }
+}
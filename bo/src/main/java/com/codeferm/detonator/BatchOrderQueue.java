@@ -0,0 +1,332 @@
+/*
+ * Copyright (c) Steven P. Goldsmith. All rights reserved.
+ */
+package com.codeferm.detonator;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * OrderQueue that drains up to batch size messages, or what arrives within the maximum wait, and creates them with
+ * {@link BatchCreateOrder}. Round trips are paid once per batch instead of once per order, so throughput scales with batch size.
+ * Orders that fail are logged and counted one by one, created orders are passed to observers in the order they were queued.
+ *
+ * A single thread drains the queue, since BatchCreateOrder checks inventory in memory. The queue is bounded and blocks or rejects
+ * when full. Caller runs is not allowed, since orders would update inventory outside the queue thread. Override
+ * {@link #createBatch(List, Map)} to wrap each batch in a transaction.
+ *
+ * Every order in a batch is recorded in {@link StageMetrics} with its own queue wait and the batch's service time.
+ *
+ * @author Steven P. Goldsmith
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class BatchOrderQueue extends Observable<OrderQueue, OrderAggregate> implements OrderQueue {
+
+    /**
+     * Order message with its enqueue timestamp.
+     */
+    private static final class Queued {
+
+        /**
+         * Order message.
+         */
+        private final OrderMessage orderMessage;
+        /**
+         * Enqueue timestamp.
+         */
+        private final long enqueued;
+
+        /**
+         * Construct with order message and enqueue timestamp.
+         *
+         * @param orderMessage Order message.
+         * @param enqueued Enqueue timestamp.
+         */
+        private Queued(final OrderMessage orderMessage, final long enqueued) {
+            this.orderMessage = orderMessage;
+            this.enqueued = enqueued;
+        }
+    }
+
+    /**
+     * Logger.
+     */
+    private final Logger logger = LogManager.getLogger(BatchOrderQueue.class);
+    /**
+     * Bounded message queue.
+     */
+    private final BlockingQueue<Queued> queue;
+    /**
+     * Overflow policy.
+     */
+    private final OverflowPolicy overflowPolicy;
+    /**
+     * Maximum orders per batch.
+     */
+    private final int batchSize;
+    /**
+     * Maximum time to wait for a batch to fill in milliseconds.
+     */
+    private final long maxWaitMillis;
+    /**
+     * Thread draining queue.
+     */
+    private final Thread thread;
+    /**
+     * Batch create order logic.
+     */
+    private BatchCreateOrder batchCreateOrder;
+    /**
+     * False after shutdown.
+     */
+    private volatile boolean running = true;
+    /**
+     * Batches created.
+     */
+    private final AtomicLong batches = new AtomicLong();
+    /**
+     * Orders created.
+     */
+    private final AtomicLong completed = new AtomicLong();
+    /**
+     * Orders failed.
+     */
+    private final AtomicLong failed = new AtomicLong();
+    /**
+     * Orders rejected.
+     */
+    private final AtomicLong rejected = new AtomicLong();
+    /**
+     * Queue wait, service time and order counts.
+     */
+    private final StageMetrics metrics;
+
+    /**
+     * Construct with batch size, wait and unbounded queue.
+     *
+     * @param batchSize Maximum orders per batch.
+     * @param maxWaitMillis Maximum time to wait for a batch to fill in milliseconds.
+     */
+    public BatchOrderQueue(final int batchSize, final long maxWaitMillis) {
+        this(null, batchSize, maxWaitMillis, StageExecutor.UNBOUNDED, OverflowPolicy.BLOCK);
+    }
+
+    /**
+     * Construct with BatchCreateOrder, batch size, wait, queue capacity and overflow policy.
+     *
+     * @param batchCreateOrder Batch create order logic.
+     * @param batchSize Maximum orders per batch.
+     * @param maxWaitMillis Maximum time to wait for a batch to fill in milliseconds.
+     * @param capacity Queue capacity or {@link StageExecutor#UNBOUNDED}.
+     * @param overflowPolicy Block or reject when queue is full.
+     */
+    public BatchOrderQueue(final BatchCreateOrder batchCreateOrder, final int batchSize, final long maxWaitMillis,
+            final int capacity, final OverflowPolicy overflowPolicy) {
+        if (overflowPolicy == OverflowPolicy.CALLER_RUNS) {
+            throw new RuntimeException(String.format("Overflow policy %s not supported by BatchOrderQueue", overflowPolicy));
+        }
+        if (batchSize < 1) {
+            throw new RuntimeException(String.format("Batch size must be greater than 0, batchSize=%d", batchSize));
+        }
+        this.batchCreateOrder = batchCreateOrder;
+        this.batchSize = batchSize;
+        this.maxWaitMillis = maxWaitMillis;
+        this.overflowPolicy = overflowPolicy;
+        queue = capacity == StageExecutor.UNBOUNDED ? new LinkedBlockingQueue<>() : new ArrayBlockingQueue<>(capacity);
+        metrics = new StageMetrics("batch-order-queue", queue::size);
+        StageMetrics.getRegistry().register(metrics);
+        thread = new ThreadFactoryBuilder().setNameFormat("batch-order-queue-%d").build().newThread(this::drain);
+        thread.start();
+    }
+
+    public BatchCreateOrder getBatchCreateOrder() {
+        return batchCreateOrder;
+    }
+
+    public void setBatchCreateOrder(final BatchCreateOrder batchCreateOrder) {
+        this.batchCreateOrder = batchCreateOrder;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public long getBatches() {
+        return batches.get();
+    }
+
+    public long getCompleted() {
+        return completed.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    public StageMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Create batch of orders. Override to run in a transaction.
+     *
+     * @param list Order messages.
+     * @param errors Receives the error of each order that failed keyed by position in list.
+     * @return Created orders in list order with null where the order failed.
+     */
+    public List<OrderAggregate> createBatch(final List<OrderMessage> list, final Map<Integer, RuntimeException> errors) {
+        return batchCreateOrder.create(list, errors);
+    }
+
+    /**
+     * Create batch, report failures and notify observers of created orders. An observer that throws is logged, like a
+     * {@link StageExecutor} task, and the rest of the batch is still passed on.
+     *
+     * @param queued Queued order messages.
+     */
+    private void process(final List<Queued> queued) {
+        final List<OrderMessage> list = new ArrayList<>(queued.size());
+        final var start = new long[queued.size()];
+        for (var i = 0; i < start.length; i++) {
+            list.add(queued.get(i).orderMessage);
+            start[i] = metrics.started(queued.get(i).enqueued);
+        }
+        final Map<Integer, RuntimeException> errors = new HashMap<>();
+        List<OrderAggregate> created;
+        try {
+            created = createBatch(list, errors);
+        } catch (RuntimeException e) {
+            // DeTOnator exception handling throws RuntimeException
+            failed.addAndGet(list.size());
+            for (final var s : start) {
+                metrics.failed(s);
+            }
+            logger.error("Create order batch of {} error {}", list.size(), e.getMessage());
+            return;
+        } finally {
+            batches.incrementAndGet();
+        }
+        for (var i = 0; i < created.size(); i++) {
+            if (created.get(i) != null) {
+                completed.incrementAndGet();
+                metrics.completed(start[i]);
+                try {
+                    notifyObservers(created.get(i));
+                } catch (RuntimeException e) {
+                    // Order was created, an observer failing must not stop the rest of the batch or the drain thread
+                    logger.error("Order {} observer error", created.get(i).getOrderId(), e);
+                }
+            } else {
+                failed.incrementAndGet();
+                metrics.failed(start[i]);
+                logger.error("Create order error {}", errors.get(i).getMessage());
+            }
+        }
+    }
+
+    /**
+     * Drain queue in batches until shutdown and queue is empty.
+     */
+    private void drain() {
+        final List<Queued> list = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                final var first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    list.add(first);
+                    // Fill batch until full or wait is up
+                    final var deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+                    queue.drainTo(list, batchSize - list.size());
+                    while (list.size() < batchSize) {
+                        final var next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                        if (next == null) {
+                            break;
+                        }
+                        list.add(next);
+                        queue.drainTo(list, batchSize - list.size());
+                    }
+                    try {
+                        process(list);
+                    } catch (RuntimeException e) {
+                        // Keep draining, otherwise queued orders are never created and a blocked create waits forever
+                        logger.error("Order batch of {} error", list.size(), e);
+                    } finally {
+                        list.clear();
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+    }
+
+    /**
+     * Queue order.
+     *
+     * @param orderMessage Order message.
+     * @return True if order was queued.
+     */
+    @Override
+    public boolean create(final OrderMessage orderMessage) {
+        var accepted = false;
+        if (running) {
+            final var queued = new Queued(orderMessage, metrics.enqueued());
+            if (overflowPolicy == OverflowPolicy.BLOCK) {
+                try {
+                    queue.put(queued);
+                    accepted = true;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            } else {
+                accepted = queue.offer(queued);
+            }
+        }
+        if (!accepted) {
+            rejected.incrementAndGet();
+        }
+        return accepted;
+    }
+
+    /**
+     * Stop accepting orders and wait for queued orders to be created.
+     */
+    @Override
+    public void shutdown() {
+        running = false;
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+        // Orders queued while drain thread was stopping
+        final List<Queued> list = new ArrayList<>();
+        queue.drainTo(list);
+        if (!list.isEmpty()) {
+            process(list);
+        }
+        StageMetrics.getRegistry().unregister(metrics);
+        logger.debug("Created {} orders in {} batches, {} failed, {} rejected", completed.get(), batches.get(), failed.get(),
+                rejected.get());
+    }
+}
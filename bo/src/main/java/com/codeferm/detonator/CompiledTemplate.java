@@ -0,0 +1,277 @@
+/*
+ * Copyright (c) Steven P. Goldsmith. All rights reserved.
+ */
+package com.codeferm.detonator;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Template compiled once into a list of closures that write straight to the Writer, so nothing is parsed, no model Map is built and
+ * no FreeMarker environment is created per render.
+ *
+ * Only plain text and interpolations of a bound variable followed by properties or no argument getters are supported, for example
+ * ${ordersDto.getOrderId()} or ${ordersDto.orderId}. Variables are bound by position when compiling, so render takes values in the
+ * same order. Numbers are formatted like the FreeMarker default number format of the locale. {@link #compile(String, String...)}
+ * returns null for anything else (directives, built-ins, default values, etc.), so callers can fall back to FreeMarker.
+ *
+ * This class is thread safe.
+ *
+ * @author Steven P. Goldsmith
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public final class CompiledTemplate {
+
+    /**
+     * Writes one part of the template.
+     */
+    @FunctionalInterface
+    private interface Part {
+
+        /**
+         * Write part.
+         *
+         * @param writer Output.
+         * @param values Bound values.
+         * @throws IOException Possible exception.
+         */
+        void write(final Writer writer, final Object[] values) throws IOException;
+    }
+
+    /**
+     * Interpolation of a bound variable followed by properties or getters. Accessor methods are looked up once per runtime class.
+     */
+    private static final class Expression implements Part {
+
+        /**
+         * Expression source used in error messages.
+         */
+        private final String source;
+        /**
+         * Index of bound variable.
+         */
+        private final int index;
+        /**
+         * Accessor method name of each step.
+         */
+        private final String[] methodNames;
+        /**
+         * Accessor method of each step by runtime class.
+         */
+        private final List<ConcurrentHashMap<Class<?>, Method>> methods = new ArrayList<>();
+        /**
+         * Number format of template.
+         */
+        private final ThreadLocal<NumberFormat> numberFormat;
+
+        /**
+         * Construct with source, variable index, steps and number format.
+         *
+         * @param source Expression source.
+         * @param index Index of bound variable.
+         * @param steps Properties or getters with ().
+         * @param numberFormat Number format of template.
+         */
+        private Expression(final String source, final int index, final String[] steps, final ThreadLocal<NumberFormat> numberFormat) {
+            this.source = source;
+            this.index = index;
+            this.numberFormat = numberFormat;
+            methodNames = new String[steps.length];
+            for (var i = 0; i < steps.length; i++) {
+                if (steps[i].endsWith("()")) {
+                    methodNames[i] = steps[i].substring(0, steps[i].length() - 2);
+                } else {
+                    methodNames[i] = String.format("get%s%s", steps[i].substring(0, 1).toUpperCase(), steps[i].substring(1));
+                }
+                methods.add(new ConcurrentHashMap<>());
+            }
+        }
+
+        /**
+         * Find accessor of step.
+         *
+         * @param step Step index.
+         * @param clazz Runtime class of value.
+         * @return Accessor method.
+         */
+        private Method method(final int step, final Class<?> clazz) {
+            return methods.get(step).computeIfAbsent(clazz, c -> {
+                try {
+                    return c.getMethod(methodNames[step]);
+                } catch (NoSuchMethodException e) {
+                    throw new RuntimeException(String.format("Template expression %s: %s has no method %s()", source, c.getName(),
+                            methodNames[step]), e);
+                }
+            });
+        }
+
+        /**
+         * Evaluate expression and write formatted value.
+         *
+         * @param writer Output.
+         * @param values Bound values.
+         * @throws IOException Possible exception.
+         */
+        @Override
+        public void write(final Writer writer, final Object[] values) throws IOException {
+            var value = values[index];
+            for (var i = 0; i < methodNames.length && value != null; i++) {
+                try {
+                    value = method(i, value.getClass()).invoke(value);
+                } catch (IllegalAccessException | InvocationTargetException e) {
+                    throw new RuntimeException(String.format("Template expression %s", source), e);
+                }
+            }
+            // FreeMarker fails on missing values as well
+            if (value == null) {
+                throw new RuntimeException(String.format("Template expression %s is null", source));
+            }
+            if (value instanceof Number) {
+                writer.write(numberFormat.get().format(value));
+            } else {
+                writer.write(value.toString());
+            }
+        }
+    }
+
+    /**
+     * FreeMarker syntax that isn't supported.
+     */
+    private static final Pattern UNSUPPORTED = Pattern.compile("<#|</#|<@|</@|\\[#|\\[/#|\\[@|#\\{|\\[=");
+    /**
+     * Supported interpolation.
+     */
+    private static final Pattern INTERPOLATION = Pattern.compile(
+            "\\$\\{\\s*([A-Za-z_]\\w*)((?:\\.[A-Za-z_]\\w*(?:\\(\\))?)*)\\s*\\}");
+    /**
+     * Compiled parts.
+     */
+    private final Part[] parts;
+    /**
+     * Number of bound variables.
+     */
+    private final int variables;
+
+    /**
+     * Construct with parts.
+     *
+     * @param parts Compiled parts.
+     * @param variables Number of bound variables.
+     */
+    private CompiledTemplate(final List<Part> parts, final int variables) {
+        this.parts = parts.toArray(new Part[0]);
+        this.variables = variables;
+    }
+
+    /**
+     * Compile template file using default locale.
+     *
+     * @param path Template file.
+     * @param names Variable names in render order.
+     * @return Compiled template or null if template uses unsupported syntax.
+     */
+    public static CompiledTemplate compile(final Path path, final String... names) {
+        try {
+            return compile(Files.readString(path, StandardCharsets.UTF_8), names);
+        } catch (IOException e) {
+            throw new RuntimeException(String.format("Template read exception: path=%s", path), e);
+        }
+    }
+
+    /**
+     * Compile template text using default locale.
+     *
+     * @param text Template text.
+     * @param names Variable names in render order.
+     * @return Compiled template or null if template uses unsupported syntax.
+     */
+    public static CompiledTemplate compile(final String text, final String... names) {
+        return compile(text, Locale.getDefault(), names);
+    }
+
+    /**
+     * Compile template text.
+     *
+     * @param text Template text.
+     * @param locale Locale used to format numbers.
+     * @param names Variable names in render order.
+     * @return Compiled template or null if template uses unsupported syntax.
+     */
+    public static CompiledTemplate compile(final String text, final Locale locale, final String... names) {
+        if (UNSUPPORTED.matcher(text).find()) {
+            return null;
+        }
+        final ThreadLocal<NumberFormat> numberFormat = ThreadLocal.withInitial(() -> NumberFormat.getNumberInstance(locale));
+        final var nameList = Arrays.asList(names);
+        final List<Part> parts = new ArrayList<>();
+        final var matcher = INTERPOLATION.matcher(text);
+        var last = 0;
+        while (matcher.find()) {
+            final var segment = text.substring(last, matcher.start());
+            // Interpolation we couldn't match, for example ${x?c} between supported ones
+            if (segment.contains("${")) {
+                return null;
+            }
+            if (!segment.isEmpty()) {
+                parts.add(literal(segment));
+            }
+            final var index = nameList.indexOf(matcher.group(1));
+            if (index < 0) {
+                return null;
+            }
+            final var steps = matcher.group(2).isEmpty() ? new String[0] : matcher.group(2).substring(1).split("\\.");
+            parts.add(new Expression(matcher.group(), index, steps, numberFormat));
+            last = matcher.end();
+        }
+        final var rest = text.substring(last);
+        if (rest.contains("${")) {
+            return null;
+        }
+        if (!rest.isEmpty()) {
+            parts.add(literal(rest));
+        }
+        return new CompiledTemplate(parts, names.length);
+    }
+
+    /**
+     * Literal text part.
+     *
+     * @param text Literal text.
+     * @return Part.
+     */
+    private static Part literal(final String text) {
+        return (writer, values) -> writer.write(text);
+    }
+
+    /**
+     * Render template.
+     *
+     * @param writer Output.
+     * @param values Values of variables in the order names were passed to compile.
+     */
+    public void render(final Writer writer, final Object... values) {
+        if (values.length != variables) {
+            throw new RuntimeException(String.format("Template expects %d values, got %d", variables, values.length));
+        }
+        try {
+            for (final var part : parts) {
+                part.write(writer, values);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -11,11 +11,19 @@ import com.codeferm.dto.Products;
 import com.codeferm.dto.ProductsKey;
 import java.sql.Date;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * CreateOrder uses UpdateInventory to update the inventory in a thread safe way. UpdateInventoryDao is a single threaded queue used
  * to process orders. UpdateInventory can be implemented for concurrent updates as well.
  *
+ * With setBased true create uses {@link #createSetBased(OrderMessage)}, which uses a fixed number of round trips per order
+ * regardless of how many items the order has.
+ *
  * @author Steven P. Goldsmith
  * @version 1.0.0
  * @since 1.0.0
@@ -42,6 +50,10 @@ public class CreateOrder {
      * Updates to inventory.
      */
     private final UpdateInventory updateInventory;
+    /**
+     * Use set based create.
+     */
+    private boolean setBased;
 
     /**
      * Construct with UpdateInventory.
@@ -98,13 +110,23 @@ public class CreateOrder {
         return updateInventory;
     }
 
+    public boolean isSetBased() {
+        return setBased;
+    }
+
+    public void setSetBased(boolean setBased) {
+        this.setBased = setBased;
+    }
+
     /**
      * Add OrderItems to Orders. OrderItems.itemId must be set prior to calling.
      *
      * @param k Orders key.
      * @param orderMessage Order message.
+     * @return Product of each item in item order.
      */
-    public void addItems(final OrdersKey k, final OrderMessage orderMessage) {
+    public List<Products> addItems(final OrdersKey k, final OrderMessage orderMessage) {
+        final List<Products> productsList = new ArrayList<>();
         // Process list of items
         for (final OrderItems item : orderMessage.getOrderItemsList()) {
             item.setOrderId(k.getOrderId());
@@ -117,16 +139,22 @@ public class CreateOrder {
             validateBean.valid(item);
             // Add item to order
             orderItems.update(item.getKey(), item);
+            productsList.add(product);
         }
+        return productsList;
     }
 
     /**
-     * Create order and return key.
+     * Create order and return it as an {@link OrderAggregate} with generated key carrying the items and products, so later stages
+     * don't have to read them again.
      *
      * @param orderMessage Order message.
-     * @return DTO with generated key.
+     * @return Order with generated key.
      */
-    public Orders create(final OrderMessage orderMessage) {
+    public OrderAggregate create(final OrderMessage orderMessage) {
+        if (setBased) {
+            return createSetBased(orderMessage);
+        }
         // Create DTO to save (note we skip setting orderId since it's an identity field and will be auto generated)
         final var dto = new Orders();
         dto.setCustomerId(orderMessage.getCustomerId());
@@ -140,8 +168,60 @@ public class CreateOrder {
         // Do bean validation after key created and throw exception on validation failure
         validateBean.valid(dto);
         // Add items
-        addItems(dto.getKey(), orderMessage);
-        return dto;
+        final var productsList = addItems(dto.getKey(), orderMessage);
+        return new OrderAggregate(dto, orderMessage.getOrderItemsList(), productsList);
+    }
+
+    /**
+     * Create order and return key using set based reads and writes. The whole order is validated before anything is written. Prices
+     * of all products are read with one multi-key read, inventory of all items is reserved with one batched update, then the order is
+     * inserted and all items are saved in one batch. OrderItems.itemId must be set prior to calling. Returns an
+     * {@link OrderAggregate} like create.
+     *
+     * @param orderMessage Order message.
+     * @return Order with generated key.
+     */
+    public OrderAggregate createSetBased(final OrderMessage orderMessage) {
+        final var items = orderMessage.getOrderItemsList();
+        // Create DTO to save (note we skip setting orderId since it's an identity field and will be auto generated)
+        final var dto = new Orders();
+        dto.setCustomerId(orderMessage.getCustomerId());
+        dto.setOrderDate(Date.valueOf(LocalDate.now()));
+        dto.setSalesmanId(orderMessage.getSalesmanId());
+        dto.setStatus("New");
+        // Validate with placeholder order ID, real ID is set once key is generated
+        dto.setOrderId(0L);
+        validateBean.valid(dto);
+        // Get price of every product in one read
+        final List<ProductsKey> keys = new ArrayList<>();
+        items.stream().map(OrderItems::getProductId).distinct().forEach(productId -> keys.add(new ProductsKey(productId)));
+        final var prices = products.find(keys).stream().collect(Collectors.toMap(Products::getProductId, Function.identity()));
+        final List<Products> productsList = new ArrayList<>();
+        for (final OrderItems item : items) {
+            final var product = prices.get(item.getProductId());
+            if (product == null) {
+                throw new OrderRejectedException(String.format("productId %d not found", item.getProductId()));
+            }
+            productsList.add(product);
+            // Set price
+            item.setUnitPrice(product.getStandardCost());
+            item.setOrderId(0L);
+            validateBean.valid(item);
+        }
+        // Reserve inventory of all items
+        updateInventory.update(items);
+        dto.setOrderId(null);
+        // Save DTO and return identity key
+        final var k = orders.saveReturnKey(dto, new String[]{"ORDER_ID"});
+        dto.setOrderId(k.getOrderId());
+        // Add all items in one batch
+        final var map = new LinkedHashMap<OrderItemsKey, OrderItems>();
+        for (final OrderItems item : items) {
+            item.setOrderId(dto.getOrderId());
+            map.put(item.getKey(), item);
+        }
+        orderItems.save(map);
+        return new OrderAggregate(dto, items, productsList);
     }
 
     /**
@@ -152,6 +232,6 @@ public class CreateOrder {
     @Override
     public String toString() {
         return "CreateOrder{" + "orders=" + orders + ", orderItems=" + orderItems + ", products=" + products + ", validateBean="
-                + validateBean + ", updateInventory=" + updateInventory + '}';
+                + validateBean + ", updateInventory=" + updateInventory + ", setBased=" + setBased + '}';
     }
 }
@@ -3,32 +3,27 @@
  */
 package com.codeferm.detonator;
 
-import com.codeferm.dto.Orders;
-import com.google.common.util.concurrent.ThreadFactoryBuilder;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 /**
- * UpdateInventoryDao is not thread safe because it updates the inventory. SingleThreadExecutor used to make sure only one update at
- * a time.
+ * UpdateInventoryDao is not thread safe because it updates the inventory. Single threaded {@link StageExecutor} used to make sure
+ * only one update at a time. The queue is bounded, so a burst of orders either blocks the caller or is rejected.
  *
  * @author Steven P. Goldsmith
  * @version 1.0.0
  * @since 1.0.0
  */
-public class CreateOrderQueue extends Observable<CreateOrderQueue, Orders> implements OrderQueue {
+public class CreateOrderQueue extends Observable<OrderQueue, OrderAggregate> implements OrderQueue {
 
     /**
      * Logger.
      */
     private final Logger logger = LogManager.getLogger(CreateOrderQueue.class);
     /**
-     * Single threaded executor service.
+     * Single threaded executor with bounded queue.
      */
-    private final ExecutorService executor;
+    private final StageExecutor executor;
     /**
      * Create order logic.
      */
@@ -38,7 +33,7 @@ public class CreateOrderQueue extends Observable<CreateOrderQueue, Orders> imple
      * Construct with ValidateBean and ExecutorService.
      */
     public CreateOrderQueue() {
-        executor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder().setNameFormat("create-order-queue-%d").build());
+        executor = new StageExecutor("create-order-queue", 1);
     }
 
     /**
@@ -48,7 +43,23 @@ public class CreateOrderQueue extends Observable<CreateOrderQueue, Orders> imple
      */
     public CreateOrderQueue(final CreateOrder createOrder) {
         this.createOrder = createOrder;
-        executor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder().setNameFormat("create-order-queue-%d").build());
+        executor = new StageExecutor("create-order-queue", 1);
+    }
+
+    /**
+     * Construct with CreateOrder, queue capacity and overflow policy. Caller runs is not allowed, since orders would update
+     * inventory outside the queue thread.
+     *
+     * @param createOrder CreateOrder
+     * @param capacity Queue capacity.
+     * @param overflowPolicy Block or reject when queue is full.
+     */
+    public CreateOrderQueue(final CreateOrder createOrder, final int capacity, final OverflowPolicy overflowPolicy) {
+        if (overflowPolicy == OverflowPolicy.CALLER_RUNS) {
+            throw new RuntimeException(String.format("Overflow policy %s not supported by CreateOrderQueue", overflowPolicy));
+        }
+        this.createOrder = createOrder;
+        executor = new StageExecutor("create-order-queue", 1, capacity, overflowPolicy);
     }
 
     public CreateOrder getCreateOrder() {
@@ -59,23 +70,21 @@ public class CreateOrderQueue extends Observable<CreateOrderQueue, Orders> imple
         this.createOrder = createOrder;
     }
 
+    public StageExecutor getExecutor() {
+        return executor;
+    }
+
     /**
      * Create order.
      *
      * @param orderMessage Order message.
+     * @return True if order was queued.
      */
     @Override
-    public void create(final OrderMessage orderMessage) {
-        final Runnable task = () -> {
-            try {
-                notifyObservers(createOrder.create(orderMessage));
-            } catch (RuntimeException e) {
-                // DeTOnator exception handling throws RuntimeException
-                // You could have an exception queue deal with exceptions
-                logger.error("Create order error {}", e.getMessage());
-            }
-        };
-        executor.execute(task);
+    public boolean create(final OrderMessage orderMessage) {
+        // Exceptions are counted as failed and logged by the stage. You could have an exception queue deal with exceptions.
+        final Runnable task = () -> notifyObservers(createOrder.create(orderMessage));
+        return executor.execute(task);
     }
 
     /**
@@ -83,13 +92,6 @@ public class CreateOrderQueue extends Observable<CreateOrderQueue, Orders> imple
      */
     @Override
     public void shutdown() {
-        // Shutdow executor service
         executor.shutdown();
-        try {
-            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
-        }
-
     }
 }
@@ -0,0 +1,427 @@
+/*
+ * Copyright (c) Steven P. Goldsmith. All rights reserved.
+ */
+package com.codeferm.detonator;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Ring buffer event bus. Register the bus as an Observer of a pipeline stage (for instance {@link CreateOrderQueue}) and it hands
+ * each event to every consumer on the consumer's own thread, so a slow consumer no longer stalls the stage that published.
+ *
+ * Slots are allocated once. Publishers claim a sequence with a single atomic increment and never lock. Each consumer has its own
+ * sequence cursor and takes all events available in one batch. Publishers wait only when the slowest consumer is a full ring
+ * behind. Lag (claimed minus consumed, which includes publishers waiting for a slot) is tracked per consumer. Slots are cleared
+ * once every consumer has passed them, so the ring doesn't keep consumed events reachable.
+ *
+ * Add consumers before publishing. Observers such as {@link OrderCreated} can be added directly with
+ * {@link #addConsumer(String, Observer)}.
+ *
+ * @param <ObservedType> Observed type.
+ * @param <DataType> Data type.
+ * @author Steven P. Goldsmith
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class EventBus<ObservedType, DataType> implements Observer<ObservedType, DataType> {
+
+    /**
+     * Logger.
+     */
+    private final Logger logger = LogManager.getLogger(EventBus.class);
+
+    /**
+     * Ring buffer slot.
+     */
+    private static final class Slot<ObservedType, DataType> {
+
+        /**
+         * Observable that published event.
+         */
+        private Observable<ObservedType, DataType> source;
+        /**
+         * Event data.
+         */
+        private DataType data;
+    }
+
+    /**
+     * Consumer with its own sequence and thread.
+     */
+    private final class Consumer implements Runnable {
+
+        /**
+         * Consumer name.
+         */
+        private final String name;
+        /**
+         * Event consumer.
+         */
+        private final EventConsumer<ObservedType, DataType> eventConsumer;
+        /**
+         * Last consumed sequence.
+         */
+        private final AtomicLong sequence;
+        /**
+         * Events consumed.
+         */
+        private final AtomicLong processed = new AtomicLong();
+        /**
+         * Batches consumed.
+         */
+        private final AtomicLong batches = new AtomicLong();
+        /**
+         * Maximum lag seen at start of batch.
+         */
+        private final AtomicLong maxLag = new AtomicLong();
+        /**
+         * Consumer thread.
+         */
+        private Thread thread;
+
+        /**
+         * Construct consumer starting after last claimed sequence.
+         *
+         * @param name Consumer name.
+         * @param eventConsumer Event consumer.
+         */
+        private Consumer(final String name, final EventConsumer<ObservedType, DataType> eventConsumer) {
+            this.name = name;
+            this.eventConsumer = eventConsumer;
+            this.sequence = new AtomicLong(next.get() - 1);
+        }
+
+        /**
+         * Consume batches until shutdown.
+         */
+        @Override
+        public void run() {
+            var nextSequence = sequence.get() + 1;
+            var counter = 0;
+            while (true) {
+                // Find last contiguous published sequence
+                var last = nextSequence - 1;
+                while (last + 1 - nextSequence < maxBatch && published.get(index(last + 1)) == last + 1) {
+                    last++;
+                }
+                if (last >= nextSequence) {
+                    maxLag.accumulateAndGet(next.get() - nextSequence, Math::max);
+                    for (var s = nextSequence; s <= last; s++) {
+                        final var slot = slots[index(s)];
+                        try {
+                            eventConsumer.onEvent(slot.source, slot.data, s, s == last);
+                        } catch (RuntimeException e) {
+                            // DeTOnator exception handling throws RuntimeException
+                            logger.error("Consumer {} error at sequence {} {}", name, s, e.getMessage());
+                        }
+                    }
+                    processed.addAndGet(last - nextSequence + 1);
+                    batches.incrementAndGet();
+                    sequence.set(last);
+                    // Release slots to publishers
+                    release();
+                    nextSequence = last + 1;
+                    counter = 0;
+                } else if (!running) {
+                    break;
+                } else {
+                    waitStrategy.idle(counter++);
+                }
+            }
+        }
+    }
+
+    /**
+     * Ring size (power of 2).
+     */
+    private final int size;
+    /**
+     * Mask used to map sequence to slot.
+     */
+    private final int mask;
+    /**
+     * Preallocated slots.
+     */
+    private final Slot<ObservedType, DataType>[] slots;
+    /**
+     * Sequence published in each slot.
+     */
+    private final AtomicLongArray published;
+    /**
+     * Next sequence to claim.
+     */
+    private final AtomicLong next = new AtomicLong();
+    /**
+     * Maximum events per consumer batch.
+     */
+    private final int maxBatch;
+    /**
+     * Consumer wait strategy.
+     */
+    private final WaitStrategy waitStrategy;
+    /**
+     * Consumers.
+     */
+    private final List<Consumer> consumers = new CopyOnWriteArrayList<>();
+    /**
+     * Last sequence whose slot has been cleared after every consumer passed it.
+     */
+    private final AtomicLong released = new AtomicLong(-1);
+    /**
+     * True while a consumer is clearing slots.
+     */
+    private final AtomicBoolean releasing = new AtomicBoolean();
+    /**
+     * Cached released sequence.
+     */
+    private volatile long gatingSequence = -1;
+    /**
+     * False after shutdown.
+     */
+    private volatile boolean running = true;
+
+    /**
+     * Construct event bus.
+     *
+     * @param size Ring size rounded up to a power of 2.
+     * @param maxBatch Maximum events per consumer batch.
+     * @param waitStrategy Consumer wait strategy.
+     */
+    public EventBus(final int size, final int maxBatch, final WaitStrategy waitStrategy) {
+        if (size < 1 || size > 1 << 30) {
+            throw new RuntimeException(String.format("Size must be between 1 and %d, size=%d", 1 << 30, size));
+        }
+        this.size = size == 1 ? 1 : Integer.highestOneBit(size - 1) << 1;
+        this.mask = this.size - 1;
+        this.maxBatch = maxBatch;
+        this.waitStrategy = waitStrategy;
+        slots = new Slot[this.size];
+        published = new AtomicLongArray(this.size);
+        for (var i = 0; i < this.size; i++) {
+            slots[i] = new Slot<>();
+            published.set(i, -1);
+        }
+    }
+
+    /**
+     * Construct event bus with yielding wait strategy.
+     *
+     * @param size Ring size rounded up to a power of 2.
+     */
+    public EventBus(final int size) {
+        this(size, size, WaitStrategy.yielding());
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Map sequence to slot index.
+     *
+     * @param sequence Sequence.
+     * @return Slot index.
+     */
+    private int index(final long sequence) {
+        return (int) sequence & mask;
+    }
+
+    /**
+     * Slowest consumer sequence.
+     *
+     * @return Minimum sequence or Long.MAX_VALUE if there are no consumers.
+     */
+    private long minSequence() {
+        var min = Long.MAX_VALUE;
+        for (final var consumer : consumers) {
+            min = Math.min(min, consumer.sequence.get());
+        }
+        return min;
+    }
+
+    /**
+     * Clear slots every consumer has passed and release them to publishers. Only one consumer clears at a time. A consumer that
+     * loses the race leaves its slots to the one clearing, which checks again before it stops.
+     */
+    private void release() {
+        var min = minSequence();
+        while (min != Long.MAX_VALUE && min > released.get()) {
+            if (releasing.compareAndSet(false, true)) {
+                try {
+                    min = minSequence();
+                    // Slots before the last ring were already overwritten or cleared
+                    for (var s = Math.max(released.get() + 1, min - size + 1); s <= min; s++) {
+                        final var slot = slots[index(s)];
+                        slot.source = null;
+                        slot.data = null;
+                    }
+                    released.set(min);
+                } finally {
+                    releasing.set(false);
+                }
+                min = minSequence();
+            } else {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Find consumer by name.
+     *
+     * @param name Consumer name.
+     * @return Consumer.
+     */
+    private Consumer consumer(final String name) {
+        for (final var consumer : consumers) {
+            if (consumer.name.equals(name)) {
+                return consumer;
+            }
+        }
+        throw new RuntimeException(String.format("Consumer %s not found", name));
+    }
+
+    /**
+     * Add consumer and start its thread. Consumer receives events published after it is added.
+     *
+     * @param name Unique consumer name.
+     * @param eventConsumer Event consumer.
+     */
+    public void addConsumer(final String name, final EventConsumer<ObservedType, DataType> eventConsumer) {
+        if (consumers.stream().anyMatch(consumer -> consumer.name.equals(name))) {
+            throw new RuntimeException(String.format("Consumer %s already exists", name));
+        }
+        final var consumer = new Consumer(name, eventConsumer);
+        final ThreadFactory threadFactory = new ThreadFactoryBuilder().setNameFormat(String.format("event-bus-%s", name)).build();
+        consumer.thread = threadFactory.newThread(consumer);
+        consumers.add(consumer);
+        // Release slots published while there were no consumers, so publishers aren't gated on them
+        release();
+        consumer.thread.start();
+    }
+
+    /**
+     * Add Observer as consumer. Observer is updated on the consumer thread.
+     *
+     * @param name Unique consumer name.
+     * @param observer Observer.
+     */
+    public void addConsumer(final String name, final Observer<ObservedType, DataType> observer) {
+        addConsumer(name, (source, data, sequence, endOfBatch) -> observer.update(source, data));
+    }
+
+    /**
+     * Publish event.
+     *
+     * @param source Observable that published event.
+     * @param data Event data.
+     * @return Event sequence.
+     */
+    public long publish(final Observable<ObservedType, DataType> source, final DataType data) {
+        if (!running) {
+            throw new RuntimeException("Event bus is shut down");
+        }
+        final var sequence = next.getAndIncrement();
+        // Wait for slowest consumer to free slot
+        final var wrapPoint = sequence - size;
+        while (wrapPoint > gatingSequence) {
+            if (consumers.isEmpty()) {
+                // Nothing reads the ring, but don't cache that, so gating applies once a consumer is added
+                break;
+            }
+            final var min = released.get();
+            if (wrapPoint > min) {
+                LockSupport.parkNanos(1);
+            } else {
+                gatingSequence = min;
+            }
+        }
+        final var slot = slots[index(sequence)];
+        slot.source = source;
+        slot.data = data;
+        published.set(index(sequence), sequence);
+        waitStrategy.signalAll();
+        return sequence;
+    }
+
+    /**
+     * Observer update publishes event.
+     *
+     * @param object Observable that called.
+     * @param data Event data.
+     */
+    @Override
+    public void update(final Observable<ObservedType, DataType> object, final DataType data) {
+        publish(object, data);
+    }
+
+    /**
+     * Last claimed sequence minus last consumed sequence.
+     *
+     * @param name Consumer name.
+     * @return Lag in events.
+     */
+    public long getLag(final String name) {
+        return next.get() - 1 - consumer(name).sequence.get();
+    }
+
+    /**
+     * Maximum lag seen by consumer.
+     *
+     * @param name Consumer name.
+     * @return Lag in events.
+     */
+    public long getMaxLag(final String name) {
+        return consumer(name).maxLag.get();
+    }
+
+    /**
+     * Events consumed.
+     *
+     * @param name Consumer name.
+     * @return Event count.
+     */
+    public long getProcessed(final String name) {
+        return consumer(name).processed.get();
+    }
+
+    /**
+     * Batches consumed. Processed divided by batches is the average batch size.
+     *
+     * @param name Consumer name.
+     * @return Batch count.
+     */
+    public long getBatches(final String name) {
+        return consumer(name).batches.get();
+    }
+
+    /**
+     * Wait for consumers to catch up, then stop consumer threads.
+     */
+    public void shutdown() {
+        final var last = next.get() - 1;
+        while (minSequence() < last && minSequence() != Long.MAX_VALUE) {
+            LockSupport.parkNanos(100000);
+        }
+        running = false;
+        waitStrategy.signalAll();
+        for (final var consumer : consumers) {
+            try {
+                consumer.thread.join();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            logger.debug("Consumer {} processed {} events in {} batches, max lag {}", consumer.name, consumer.processed.get(),
+                    consumer.batches.get(), consumer.maxLag.get());
+        }
+    }
+}
@@ -0,0 +1,28 @@
+/*
+ * Copyright (c) Steven P. Goldsmith. All rights reserved.
+ */
+package com.codeferm.detonator;
+
+/**
+ * Consume events from {@link EventBus}. Events are delivered in order on the consumer's own thread.
+ *
+ * @param <ObservedType> Observed type.
+ * @param <DataType> Data type.
+ * @author Steven P. Goldsmith
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+@FunctionalInterface
+public interface EventConsumer<ObservedType, DataType> {
+
+    /**
+     * Called for each event.
+     *
+     * @param source Observable that published event.
+     * @param data Event data.
+     * @param sequence Event sequence.
+     * @param endOfBatch True if last event of the available batch. Use to flush work done for the batch.
+     */
+    void onEvent(final Observable<ObservedType, DataType> source, final DataType data, final long sequence,
+            final boolean endOfBatch);
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) Steven P. Goldsmith. All rights reserved.
+ */
+package com.codeferm.detonator;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Compatibility sink that writes one file per order named {orderId}.txt in output dir.
+ *
+ * @author Steven P. Goldsmith
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class FileShippedSink implements ShippedSink {
+
+    /**
+     * Output dir for shipment statements.
+     */
+    private final Path outputDir;
+
+    /**
+     * Construct with output dir.
+     *
+     * @param outputDir Output dir for shipment statements.
+     */
+    public FileShippedSink(final String outputDir) {
+        this.outputDir = Paths.get(outputDir);
+    }
+
+    /**
+     * Write document to its own file.
+     *
+     * @param orderId Order ID.
+     * @param document Rendered document as UTF-8.
+     */
+    @Override
+    public void write(final long orderId, final byte[] document) {
+        try {
+            Files.write(outputDir.resolve(String.format("%d.txt", orderId)), document);
+        } catch (IOException e) {
+            throw new RuntimeException("shipOrder", e);
+        }
+    }
+
+    /**
+     * Nothing to close.
+     */
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,464 @@
+/*
+ * Copyright (c) Steven P. Goldsmith. All rights reserved.
+ */
+package com.codeferm.detonator;
+
+import com.codeferm.dto.Inventories;
+import com.codeferm.dto.InventoriesKey;
+import com.codeferm.dto.OrderItems;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * UpdateInventory backed by an in memory ledger, so allocation doesn't read or write the database. Warehouse quantities of each
+ * product are held in an array with the index of the warehouse with the most stock, so picking a warehouse is O(1). The warehouse
+ * with the most stock is used instead of the first one with enough, which spreads orders over warehouses.
+ *
+ * This class is thread safe. Products are guarded by striped locks and an order locks the stripes of its products in ascending
+ * order, so orders for unrelated products run in parallel and can be used with any {@link PartitionedOrderQueue} routing.
+ *
+ * Changed rows are marked dirty and written by a background thread every flush interval with one batched update. Several
+ * allocations of the same row between flushes are coalesced into one write. The database is the book of record: the ledger is
+ * loaded from it on startup and {@link #reconcile()} writes pending changes and reloads it, for example after inventory was changed
+ * outside the ledger. Allocations not yet flushed are lost if the process dies, so use a durable queue like
+ * {@link JournalOrderQueue} if orders must be replayed against the ledger.
+ *
+ * @author Steven P. Goldsmith
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class InventoryLedger implements UpdateInventory, AutoCloseable {
+
+    /**
+     * Default number of lock stripes.
+     */
+    public static final int DEFAULT_STRIPES = 64;
+    /**
+     * Default flush interval in milliseconds.
+     */
+    public static final long DEFAULT_FLUSH_MILLIS = 100;
+
+    /**
+     * Warehouse quantities of one product.
+     */
+    private static final class Stock {
+
+        /**
+         * Product ID.
+         */
+        private final long productId;
+        /**
+         * Warehouse IDs in ascending order.
+         */
+        private final long[] warehouseIds;
+        /**
+         * Quantity of each warehouse.
+         */
+        private final int[] quantities;
+        /**
+         * Index of warehouse with the most stock.
+         */
+        private int max;
+
+        /**
+         * Construct with product ID and quantities by warehouse ID.
+         *
+         * @param productId Product ID.
+         * @param warehouses Quantity by warehouse ID.
+         */
+        private Stock(final long productId, final TreeMap<Long, Integer> warehouses) {
+            this.productId = productId;
+            warehouseIds = new long[warehouses.size()];
+            quantities = new int[warehouses.size()];
+            var i = 0;
+            for (final var entry : warehouses.entrySet()) {
+                warehouseIds[i] = entry.getKey();
+                quantities[i++] = entry.getValue();
+            }
+            updateMax();
+        }
+
+        /**
+         * Find warehouse with the most stock. Ties go to the lowest warehouse ID.
+         */
+        private void updateMax() {
+            max = 0;
+            for (var i = 1; i < quantities.length; i++) {
+                if (quantities[i] > quantities[max]) {
+                    max = i;
+                }
+            }
+        }
+
+        /**
+         * Take quantity from warehouse with the most stock.
+         *
+         * @param quantity Quantity to take.
+         * @return Warehouse index.
+         */
+        private int take(final int quantity) {
+            final var index = max;
+            if (quantities[index] < quantity) {
+                throw new OrderRejectedException(String.format("productId %d not in inventory", productId));
+            }
+            quantities[index] -= quantity;
+            updateMax();
+            return index;
+        }
+
+        /**
+         * Give quantity back to warehouse.
+         *
+         * @param index Warehouse index.
+         * @param quantity Quantity to give back.
+         */
+        private void giveBack(final int index, final int quantity) {
+            quantities[index] += quantity;
+            updateMax();
+        }
+
+        /**
+         * Inventories DTO of warehouse.
+         *
+         * @param index Warehouse index.
+         * @return Inventories DTO.
+         */
+        private Inventories inventories(final int index) {
+            final var inv = new Inventories();
+            inv.setProductId(productId);
+            inv.setWarehouseId(warehouseIds[index]);
+            inv.setQuantity(quantities[index]);
+            return inv;
+        }
+    }
+
+    /**
+     * Logger.
+     */
+    private final Logger logger = LogManager.getLogger(InventoryLedger.class);
+    /**
+     * Inventories DAO.
+     */
+    private final Dao<InventoriesKey, Inventories> inventories;
+    /**
+     * Product locks.
+     */
+    private final ReentrantLock[] locks;
+    /**
+     * Stock by product ID. Replaced on reconcile.
+     */
+    private volatile Map<Long, Stock> stock;
+    /**
+     * Rows changed since last flush.
+     */
+    private final Set<InventoriesKey> dirty = ConcurrentHashMap.newKeySet();
+    /**
+     * Only one flush at a time.
+     */
+    private final Object flushLock = new Object();
+    /**
+     * Flush thread or null to flush after every update.
+     */
+    private final ScheduledExecutorService flusher;
+    /**
+     * Items allocated.
+     */
+    private final AtomicLong allocations = new AtomicLong();
+    /**
+     * Batched updates written.
+     */
+    private final AtomicLong flushes = new AtomicLong();
+    /**
+     * Rows written.
+     */
+    private final AtomicLong flushedRows = new AtomicLong();
+
+    /**
+     * Construct with Inventories DAO using default stripes and flush interval.
+     *
+     * @param inventories Inventories DAO.
+     */
+    public InventoryLedger(final Dao<InventoriesKey, Inventories> inventories) {
+        this(inventories, DEFAULT_STRIPES, DEFAULT_FLUSH_MILLIS);
+    }
+
+    /**
+     * Construct with Inventories DAO, lock stripes and flush interval. Inventory is loaded before returning.
+     *
+     * @param inventories Inventories DAO.
+     * @param stripes Number of lock stripes.
+     * @param flushMillis Flush interval in milliseconds or 0 to flush after every update.
+     */
+    public InventoryLedger(final Dao<InventoriesKey, Inventories> inventories, final int stripes, final long flushMillis) {
+        if (stripes < 1) {
+            throw new RuntimeException(String.format("Stripes must be greater than 0, stripes=%d", stripes));
+        }
+        this.inventories = inventories;
+        locks = new ReentrantLock[stripes];
+        for (var i = 0; i < stripes; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        stock = load();
+        if (flushMillis > 0) {
+            flusher = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("inventory-ledger-%d").
+                    setDaemon(true).build());
+            flusher.scheduleWithFixedDelay(this::flush, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+        } else {
+            flusher = null;
+        }
+    }
+
+    public long getAllocations() {
+        return allocations.get();
+    }
+
+    public long getFlushes() {
+        return flushes.get();
+    }
+
+    public long getFlushedRows() {
+        return flushedRows.get();
+    }
+
+    public int getPending() {
+        return dirty.size();
+    }
+
+    /**
+     * Read all inventory from the database.
+     *
+     * @return Stock by product ID.
+     */
+    private Map<Long, Stock> load() {
+        final Map<Long, TreeMap<Long, Integer>> warehouses = new HashMap<>();
+        inventories.findAll().forEach(inv -> warehouses.computeIfAbsent(inv.getProductId(), k -> new TreeMap<>()).put(inv.
+                getWarehouseId(), inv.getQuantity()));
+        final Map<Long, Stock> map = new HashMap<>();
+        warehouses.forEach((productId, value) -> map.put(productId, new Stock(productId, value)));
+        logger.debug("Loaded inventory of {} products", map.size());
+        return map;
+    }
+
+    /**
+     * Lock stripe of product.
+     *
+     * @param productId Product ID.
+     * @return Stripe index.
+     */
+    private int stripe(final long productId) {
+        return Math.floorMod(Long.hashCode(productId), locks.length);
+    }
+
+    /**
+     * Find stock of product.
+     *
+     * @param productId Product ID.
+     * @return Stock.
+     */
+    private Stock stock(final long productId) {
+        final var s = stock.get(productId);
+        if (s == null) {
+            throw new OrderRejectedException(String.format("productId %d not found", productId));
+        }
+        return s;
+    }
+
+    /**
+     * Quantity of a warehouse as the ledger sees it.
+     *
+     * @param productId Product ID.
+     * @param warehouseId Warehouse ID.
+     * @return Quantity or null if product isn't stocked at warehouse.
+     */
+    public Integer getQuantity(final long productId, final long warehouseId) {
+        final var s = stock.get(productId);
+        if (s == null) {
+            return null;
+        }
+        final var lock = locks[stripe(productId)];
+        lock.lock();
+        try {
+            for (var i = 0; i < s.warehouseIds.length; i++) {
+                if (s.warehouseIds[i] == warehouseId) {
+                    return s.quantities[i];
+                }
+            }
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Take item quantity from the warehouse with the most stock.
+     *
+     * @param item OrderItems DTO.
+     * @return Inventories DTO after update.
+     */
+    @Override
+    public Inventories update(final OrderItems item) {
+        final Inventories inv;
+        final var lock = locks[stripe(item.getProductId())];
+        lock.lock();
+        try {
+            // Stock is looked up under lock, since reconcile replaces it
+            final var s = stock(item.getProductId());
+            inv = s.inventories(s.take(item.getQuantity()));
+            // Mark dirty under lock, so reconcile can't reload stock before the row is written
+            dirty.add(inv.getKey());
+        } finally {
+            lock.unlock();
+        }
+        allocations.incrementAndGet();
+        if (flusher == null) {
+            flush();
+        }
+        return inv;
+    }
+
+    /**
+     * Take quantity of all items. Stripes of all products are locked in ascending order, so nothing is taken if any item fails.
+     *
+     * @param items OrderItems used for update.
+     * @return Inventories DTO of each item in item order.
+     */
+    @Override
+    public List<Inventories> update(final List<OrderItems> items) {
+        final Set<Integer> stripes = new TreeSet<>();
+        items.forEach(item -> stripes.add(stripe(item.getProductId())));
+        final List<Stock> stocks = new ArrayList<>(items.size());
+        final List<Inventories> list = new ArrayList<>(items.size());
+        final var taken = new int[items.size()];
+        var count = 0;
+        stripes.forEach(i -> locks[i].lock());
+        try {
+            for (final var item : items) {
+                stocks.add(stock(item.getProductId()));
+            }
+            for (; count < items.size(); count++) {
+                final var s = stocks.get(count);
+                taken[count] = s.take(items.get(count).getQuantity());
+                list.add(s.inventories(taken[count]));
+            }
+            // Mark dirty under lock, so reconcile can't reload stock before the rows are written
+            list.forEach(inv -> dirty.add(inv.getKey()));
+        } catch (RuntimeException e) {
+            // Give back what earlier items took
+            for (var i = count - 1; i >= 0; i--) {
+                stocks.get(i).giveBack(taken[i], items.get(i).getQuantity());
+            }
+            throw e;
+        } finally {
+            stripes.forEach(i -> locks[i].unlock());
+        }
+        allocations.addAndGet(items.size());
+        if (flusher == null) {
+            flush();
+        }
+        return list;
+    }
+
+    /**
+     * Write dirty rows with one batched update. Rows that fail to write stay dirty and are written by the next flush.
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            if (dirty.isEmpty()) {
+                return;
+            }
+            final Map<InventoriesKey, Inventories> batch = new LinkedHashMap<>();
+            final var iterator = dirty.iterator();
+            while (iterator.hasNext()) {
+                final var key = iterator.next();
+                // Rows changed after this are marked dirty again
+                iterator.remove();
+                final var lock = locks[stripe(key.getProductId())];
+                lock.lock();
+                try {
+                    final var s = stock(key.getProductId());
+                    for (var i = 0; i < s.warehouseIds.length; i++) {
+                        if (s.warehouseIds[i] == key.getWarehouseId()) {
+                            batch.put(key, s.inventories(i));
+                            break;
+                        }
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+            try {
+                inventories.update(batch);
+                flushes.incrementAndGet();
+                flushedRows.addAndGet(batch.size());
+            } catch (RuntimeException e) {
+                // DeTOnator exception handling throws RuntimeException
+                dirty.addAll(batch.keySet());
+                logger.error("Inventory flush of {} rows error {}", batch.size(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Write pending changes and reload inventory from the database. Allocations wait until reconcile is done.
+     */
+    public void reconcile() {
+        synchronized (flushLock) {
+            for (final var lock : locks) {
+                lock.lock();
+            }
+            try {
+                flush();
+                if (!dirty.isEmpty()) {
+                    throw new RuntimeException(String.format("Inventory reconcile failed, %d rows not written", dirty.size()));
+                }
+                stock = load();
+            } finally {
+                for (final var lock : locks) {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+
+    /**
+     * Stop flush thread and write pending changes.
+     */
+    @Override
+    public void close() {
+        if (flusher != null) {
+            flusher.shutdown();
+            try {
+                flusher.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flush();
+        logger.debug("Allocated {} items, wrote {} rows in {} flushes", allocations.get(), flushedRows.get(), flushes.get());
+    }
+
+    /**
+     * Updates can run concurrently.
+     *
+     * @return True.
+     */
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+}
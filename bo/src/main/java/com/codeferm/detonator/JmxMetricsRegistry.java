@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) Steven P. Goldsmith. All rights reserved.
+ */
+package com.codeferm.detonator;
+
+import java.lang.management.ManagementFactory;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+/**
+ * Publishes each stage as a {@link StageMetricsMBean} on the platform MBean server, for example
+ * com.codeferm.detonator:type=Stage,name="order-shipped",id=3, so stages can be watched with JConsole or any JMX client.
+ *
+ * @author Steven P. Goldsmith
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class JmxMetricsRegistry implements MetricsRegistry {
+
+    /**
+     * JMX domain.
+     */
+    public static final String DOMAIN = "com.codeferm.detonator";
+    /**
+     * MBean server.
+     */
+    private final MBeanServer server;
+
+    /**
+     * Construct with platform MBean server.
+     */
+    public JmxMetricsRegistry() {
+        this(ManagementFactory.getPlatformMBeanServer());
+    }
+
+    /**
+     * Construct with MBean server.
+     *
+     * @param server MBean server.
+     */
+    public JmxMetricsRegistry(final MBeanServer server) {
+        this.server = server;
+    }
+
+    /**
+     * Object name of stage. The instance ID keeps stages with the same name from replacing or unregistering each other.
+     *
+     * @param metrics Stage metrics.
+     * @return Object name.
+     */
+    public static ObjectName objectName(final StageMetrics metrics) {
+        try {
+            return new ObjectName(String.format("%s:type=Stage,name=%s,id=%d", DOMAIN, ObjectName.quote(metrics.getName()), metrics.
+                    getId()));
+        } catch (MalformedObjectNameException e) {
+            throw new RuntimeException(String.format("Invalid stage name %s", metrics.getName()), e);
+        }
+    }
+
+    @Override
+    public void register(final StageMetrics metrics) {
+        try {
+            server.registerMBean(metrics, objectName(metrics));
+        } catch (JMException e) {
+            throw new RuntimeException(String.format("Error registering stage %s", metrics.getName()), e);
+        }
+    }
+
+    @Override
+    public void unregister(final StageMetrics metrics) {
+        final var objectName = objectName(metrics);
+        try {
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+        } catch (JMException e) {
+            throw new RuntimeException(String.format("Error unregistering stage %s", metrics.getName()), e);
+        }
+    }
+}
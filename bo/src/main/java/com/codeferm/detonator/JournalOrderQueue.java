@@ -0,0 +1,647 @@
+/*
+ * Copyright (c) Steven P. Goldsmith. All rights reserved.
+ */
+package com.codeferm.detonator;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32C;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Durable OrderQueue backed by an append only journal, so queued orders survive a crash without a JMS broker.
+ *
+ * Order messages are serialized and appended to memory mapped segment files named journal-{base offset}.log. Each entry is a length,
+ * a CRC32C of the payload and the payload. When an entry doesn't fit, a roll marker is written and the next segment starts at base
+ * offset plus segment size. A flusher thread forces the segment to disk and create returns once its entry is durable, so every
+ * producer waiting during one force shares it (group commit).
+ *
+ * A single consumer thread creates the orders, since UpdateInventoryDao is not thread safe. The consumed offset is written to
+ * journal.offset by the flusher and segments below it are deleted. On restart the last segment is scanned up to the first torn or
+ * corrupt entry and everything after the saved offset is replayed, so an order may be created twice after a crash (at least once).
+ *
+ * @author Steven P. Goldsmith
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class JournalOrderQueue extends Observable<OrderQueue, OrderAggregate> implements OrderQueue {
+
+    /**
+     * Logger.
+     */
+    private final Logger logger = LogManager.getLogger(JournalOrderQueue.class);
+    /**
+     * Segment file prefix.
+     */
+    public static final String SEGMENT_PREFIX = "journal-";
+    /**
+     * Segment file suffix.
+     */
+    public static final String SEGMENT_SUFFIX = ".log";
+    /**
+     * Consumed offset file.
+     */
+    public static final String OFFSET_FILE = "journal.offset";
+    /**
+     * Default segment size.
+     */
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+    /**
+     * Entry header is length and CRC.
+     */
+    private static final int HEADER = 8;
+    /**
+     * Length marking the rest of the segment as unused.
+     */
+    private static final int ROLL = -1;
+    /**
+     * Journal directory.
+     */
+    private final Path dir;
+    /**
+     * Segment size in bytes.
+     */
+    private final int segmentSize;
+    /**
+     * Maximum time flusher and consumer wait before checking again in milliseconds.
+     */
+    private final long flushMillis;
+    /**
+     * Mapped segments by base offset.
+     */
+    private final ConcurrentSkipListMap<Long, MappedByteBuffer> segments = new ConcurrentSkipListMap<>();
+    /**
+     * Mapped consumed offset.
+     */
+    private final MappedByteBuffer offsetBuffer;
+    /**
+     * Guards write position and durable position.
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+    /**
+     * Signaled when an entry is appended.
+     */
+    private final Condition appendedCondition = lock.newCondition();
+    /**
+     * Signaled when durable position moves.
+     */
+    private final Condition durableCondition = lock.newCondition();
+    /**
+     * Segment being appended to.
+     */
+    private MappedByteBuffer writeBuffer;
+    /**
+     * Base offset of segment being appended to.
+     */
+    private long writeBase;
+    /**
+     * Offset of next append.
+     */
+    private long writePosition;
+    /**
+     * Everything below this offset is forced to disk.
+     */
+    private volatile long durablePosition;
+    /**
+     * Offset of next entry to consume. Only used by consumer thread.
+     */
+    private long readPosition;
+    /**
+     * Everything below this offset is consumed.
+     */
+    private volatile long consumedPosition;
+    /**
+     * Consumed offset written to offset file.
+     */
+    private long savedPosition;
+    /**
+     * Entries below this offset are replayed from the last run.
+     */
+    private final long recoveredPosition;
+    /**
+     * Create order logic.
+     */
+    private CreateOrder createOrder;
+    /**
+     * Flusher thread.
+     */
+    private final Thread flusher;
+    /**
+     * Consumer thread.
+     */
+    private final Thread consumer;
+    /**
+     * False after shutdown.
+     */
+    private volatile boolean running = true;
+    /**
+     * Orders appended.
+     */
+    private final AtomicLong appended = new AtomicLong();
+    /**
+     * Orders created.
+     */
+    private final AtomicLong completed = new AtomicLong();
+    /**
+     * Orders failed.
+     */
+    private final AtomicLong failed = new AtomicLong();
+    /**
+     * Orders rejected.
+     */
+    private final AtomicLong rejected = new AtomicLong();
+    /**
+     * Orders replayed from the last run.
+     */
+    private final AtomicLong replayed = new AtomicLong();
+    /**
+     * Forces of journal (group commits).
+     */
+    private final AtomicLong syncs = new AtomicLong();
+
+    /**
+     * Construct with CreateOrder and journal directory using 64 MB segments.
+     *
+     * @param createOrder CreateOrder.
+     * @param dir Journal directory.
+     */
+    public JournalOrderQueue(final CreateOrder createOrder, final Path dir) {
+        this(createOrder, dir, DEFAULT_SEGMENT_SIZE, 10);
+    }
+
+    /**
+     * Construct with CreateOrder, journal directory, segment size and flush wait. Existing journal is recovered and unconsumed entries
+     * are replayed.
+     *
+     * @param createOrder CreateOrder.
+     * @param dir Journal directory.
+     * @param segmentSize Segment size in bytes.
+     * @param flushMillis Maximum time flusher and consumer wait before checking again in milliseconds.
+     */
+    public JournalOrderQueue(final CreateOrder createOrder, final Path dir, final int segmentSize, final long flushMillis) {
+        this.createOrder = createOrder;
+        this.dir = dir;
+        this.segmentSize = segmentSize;
+        this.flushMillis = flushMillis;
+        try {
+            Files.createDirectories(dir);
+            try (final var stream = Files.list(dir)) {
+                for (final var path : stream.filter(p -> p.getFileName().toString().startsWith(SEGMENT_PREFIX) && p.getFileName().
+                        toString().endsWith(SEGMENT_SUFFIX)).collect(Collectors.toList())) {
+                    final var name = path.getFileName().toString();
+                    segments.put(Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())),
+                            map(path, segmentSize));
+                }
+            }
+            offsetBuffer = map(dir.resolve(OFFSET_FILE), 8);
+        } catch (IOException e) {
+            throw new RuntimeException(String.format("Journal open exception: dir=%s", dir), e);
+        }
+        savedPosition = offsetBuffer.getLong(0);
+        if (segments.isEmpty()) {
+            // Keep offsets growing, so an old offset file never points past new entries
+            newSegment(savedPosition);
+        } else {
+            recover();
+        }
+        durablePosition = writePosition;
+        recoveredPosition = writePosition;
+        // Offset file may be older than the first segment
+        readPosition = Math.max(savedPosition, segments.firstKey());
+        consumedPosition = readPosition;
+        compact();
+        logger.debug("Journal {} opened, consumed offset {}, write offset {}, {} segments", dir, readPosition, writePosition,
+                segments.size());
+        flusher = new Thread(this::flush, "journal-flusher");
+        consumer = new Thread(this::consume, "journal-consumer");
+        flusher.start();
+        consumer.start();
+    }
+
+    public CreateOrder getCreateOrder() {
+        return createOrder;
+    }
+
+    public void setCreateOrder(final CreateOrder createOrder) {
+        this.createOrder = createOrder;
+    }
+
+    public Path getDir() {
+        return dir;
+    }
+
+    public int getSegmentSize() {
+        return segmentSize;
+    }
+
+    public int getSegments() {
+        return segments.size();
+    }
+
+    public long getAppended() {
+        return appended.get();
+    }
+
+    public long getCompleted() {
+        return completed.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    public long getReplayed() {
+        return replayed.get();
+    }
+
+    public long getSyncs() {
+        return syncs.get();
+    }
+
+    /**
+     * Bytes written to the journal, but not consumed yet.
+     *
+     * @return Lag in bytes.
+     */
+    public long getLag() {
+        return durablePosition - consumedPosition;
+    }
+
+    /**
+     * Map file read/write. File is extended with zeros to size.
+     *
+     * @param path File to map.
+     * @param size Mapped size.
+     * @return Mapped buffer.
+     * @throws IOException Possible exception.
+     */
+    private MappedByteBuffer map(final Path path, final int size) throws IOException {
+        // Mapping stays valid after channel is closed
+        try (final var channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    /**
+     * Segment file of base offset.
+     *
+     * @param base Base offset.
+     * @return Segment path.
+     */
+    private Path segmentPath(final long base) {
+        return dir.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, base, SEGMENT_SUFFIX));
+    }
+
+    /**
+     * Create segment and append to it.
+     *
+     * @param base Base offset.
+     */
+    private void newSegment(final long base) {
+        try {
+            writeBuffer = map(segmentPath(base), segmentSize);
+        } catch (IOException e) {
+            throw new RuntimeException(String.format("Journal segment exception: base=%d", base), e);
+        }
+        segments.put(base, writeBuffer);
+        writeBase = base;
+        writePosition = base;
+    }
+
+    /**
+     * Find end of last segment. Scanning stops at the first empty, torn or corrupt entry and the rest of the segment is zeroed, so
+     * stale bytes are never read as entries.
+     */
+    private void recover() {
+        final var last = segments.lastEntry();
+        final var buffer = last.getValue();
+        var pos = 0;
+        var roll = false;
+        while (pos + HEADER <= segmentSize) {
+            final var length = buffer.getInt(pos);
+            if (length == ROLL) {
+                roll = true;
+                break;
+            }
+            if (length <= 0 || pos + HEADER + length > segmentSize || buffer.getInt(pos + 4) != crc(buffer, pos + HEADER, length)) {
+                break;
+            }
+            pos += HEADER + length;
+        }
+        if (roll || pos + HEADER > segmentSize) {
+            // Crashed after roll marker and before next segment was created
+            newSegment(last.getKey() + segmentSize);
+        } else {
+            for (var i = pos; i < segmentSize; i++) {
+                buffer.put(i, (byte) 0);
+            }
+            buffer.force();
+            writeBuffer = buffer;
+            writeBase = last.getKey();
+            writePosition = writeBase + pos;
+        }
+    }
+
+    /**
+     * CRC32C of bytes in buffer.
+     *
+     * @param buffer Buffer.
+     * @param index Start index.
+     * @param length Number of bytes.
+     * @return CRC as int.
+     */
+    private int crc(final MappedByteBuffer buffer, final int index, final int length) {
+        final var crc = new CRC32C();
+        crc.update(buffer.slice(index, length));
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Serialize order message.
+     *
+     * @param orderMessage Order message.
+     * @return Serialized bytes.
+     */
+    private byte[] serialize(final OrderMessage orderMessage) {
+        final var bytes = new ByteArrayOutputStream(512);
+        try (final var out = new ObjectOutputStream(bytes)) {
+            out.writeObject(orderMessage);
+        } catch (IOException e) {
+            throw new RuntimeException("Order message serialize exception", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Deserialize order message.
+     *
+     * @param bytes Serialized bytes.
+     * @return Order message.
+     */
+    private OrderMessage deserialize(final byte[] bytes) {
+        try (final var in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return (OrderMessage) in.readObject();
+        } catch (IOException | ClassNotFoundException e) {
+            throw new RuntimeException("Order message deserialize exception", e);
+        }
+    }
+
+    /**
+     * Append entry. Caller holds lock. A full segment is forced before the next one is started, so the flusher only forces the
+     * current segment.
+     *
+     * @param bytes Payload.
+     * @return Offset after entry.
+     */
+    private long append(final byte[] bytes) {
+        var pos = (int) (writePosition - writeBase);
+        if (pos + HEADER + bytes.length > segmentSize) {
+            if (pos + HEADER <= segmentSize) {
+                writeBuffer.putInt(pos, ROLL);
+            }
+            writeBuffer.force();
+            newSegment(writeBase + segmentSize);
+            pos = 0;
+        }
+        final var crc = new CRC32C();
+        crc.update(bytes);
+        writeBuffer.putInt(pos, bytes.length);
+        writeBuffer.putInt(pos + 4, (int) crc.getValue());
+        writeBuffer.put(pos + HEADER, bytes);
+        writePosition = writeBase + pos + HEADER + bytes.length;
+        return writePosition;
+    }
+
+    /**
+     * Force appended entries and wake up producers waiting on them. Consumed offset is saved and consumed segments are deleted
+     * between forces.
+     */
+    private void flush() {
+        while (running || durablePosition < writePosition()) {
+            try {
+                final long target;
+                final MappedByteBuffer buffer;
+                lock.lock();
+                try {
+                    if (running && writePosition == durablePosition) {
+                        appendedCondition.await(flushMillis, TimeUnit.MILLISECONDS);
+                    }
+                    target = writePosition;
+                    buffer = writeBuffer;
+                } finally {
+                    lock.unlock();
+                }
+                if (target > durablePosition) {
+                    // Producers keep appending while we force
+                    buffer.force();
+                    syncs.incrementAndGet();
+                    lock.lock();
+                    try {
+                        durablePosition = target;
+                        durableCondition.signalAll();
+                    } finally {
+                        lock.unlock();
+                    }
+                }
+                saveOffset();
+                compact();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+    }
+
+    /**
+     * Write position under lock.
+     *
+     * @return Write position.
+     */
+    private long writePosition() {
+        lock.lock();
+        try {
+            return writePosition;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Create orders from durable entries until shutdown and journal is consumed.
+     */
+    private void consume() {
+        while (true) {
+            final long limit;
+            lock.lock();
+            try {
+                while (readPosition >= durablePosition) {
+                    if (!running && durablePosition == writePosition) {
+                        return;
+                    }
+                    durableCondition.await(flushMillis, TimeUnit.MILLISECONDS);
+                }
+                limit = durablePosition;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                lock.unlock();
+            }
+            while (readPosition < limit) {
+                final var segment = segments.floorEntry(readPosition);
+                final var buffer = segment.getValue();
+                final var pos = (int) (readPosition - segment.getKey());
+                final var length = pos + HEADER <= segmentSize ? buffer.getInt(pos) : ROLL;
+                if (length == ROLL) {
+                    readPosition = segment.getKey() + segmentSize;
+                } else {
+                    final var bytes = new byte[length];
+                    buffer.get(pos + HEADER, bytes);
+                    final var crc = new CRC32C();
+                    crc.update(bytes);
+                    if ((int) crc.getValue() != buffer.getInt(pos + 4)) {
+                        failed.incrementAndGet();
+                        logger.error("Journal entry at offset {} is corrupt", readPosition);
+                    } else {
+                        if (readPosition < recoveredPosition) {
+                            replayed.incrementAndGet();
+                        }
+                        process(bytes);
+                    }
+                    readPosition += HEADER + length;
+                }
+                consumedPosition = readPosition;
+            }
+        }
+    }
+
+    /**
+     * Create order and notify observers.
+     *
+     * @param bytes Serialized order message.
+     */
+    private void process(final byte[] bytes) {
+        try {
+            final var dto = createOrder.create(deserialize(bytes));
+            completed.incrementAndGet();
+            notifyObservers(dto);
+        } catch (RuntimeException e) {
+            // DeTOnator exception handling throws RuntimeException
+            failed.incrementAndGet();
+            logger.error("Create order error {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Save consumed offset if it moved. Only called by flusher or after flusher stopped.
+     */
+    private void saveOffset() {
+        final var position = consumedPosition;
+        if (position > savedPosition) {
+            offsetBuffer.putLong(0, position);
+            offsetBuffer.force();
+            savedPosition = position;
+        }
+    }
+
+    /**
+     * Delete segments below saved consumed offset. The segment being appended to is never deleted.
+     */
+    private void compact() {
+        var first = segments.firstEntry();
+        while (first != null && first.getKey() + segmentSize <= savedPosition && first.getKey() < segments.lastKey()) {
+            segments.remove(first.getKey());
+            try {
+                Files.deleteIfExists(segmentPath(first.getKey()));
+                logger.debug("Journal segment {} deleted", first.getKey());
+            } catch (IOException e) {
+                logger.error("Journal segment {} delete error {}", first.getKey(), e.getMessage());
+            }
+            first = segments.firstEntry();
+        }
+    }
+
+    /**
+     * Append order to journal and wait until it's forced to disk.
+     *
+     * @param orderMessage Order message.
+     * @return True if order is in the journal.
+     */
+    @Override
+    public boolean create(final OrderMessage orderMessage) {
+        var accepted = false;
+        if (running) {
+            final var bytes = serialize(orderMessage);
+            if (bytes.length > segmentSize - HEADER) {
+                throw new RuntimeException(String.format("Order message of %d bytes doesn't fit in segment of %d bytes", bytes.length,
+                        segmentSize));
+            }
+            lock.lock();
+            try {
+                if (running) {
+                    final var end = append(bytes);
+                    appended.incrementAndGet();
+                    accepted = true;
+                    appendedCondition.signal();
+                    // Group commit, flusher forces everything appended while we wait
+                    while (durablePosition < end) {
+                        durableCondition.await();
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                lock.unlock();
+            }
+        }
+        if (!accepted) {
+            rejected.incrementAndGet();
+        }
+        return accepted;
+    }
+
+    /**
+     * Stop accepting orders, wait for journal to be consumed and save consumed offset.
+     */
+    @Override
+    public void shutdown() {
+        lock.lock();
+        try {
+            running = false;
+            appendedCondition.signalAll();
+            durableCondition.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            flusher.join();
+            consumer.join();
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+        saveOffset();
+        compact();
+        logger.debug("Journal {} created {} orders, {} failed, {} rejected, {} replayed, {} syncs", dir, completed.get(), failed.get(),
+                rejected.get(), replayed.get(), syncs.get());
+    }
+}
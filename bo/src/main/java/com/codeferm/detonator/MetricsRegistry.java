@@ -0,0 +1,28 @@
+/*
+ * Copyright (c) Steven P. Goldsmith. All rights reserved.
+ */
+package com.codeferm.detonator;
+
+/**
+ * Publishes {@link StageMetrics}. Implement this to send stage metrics to something other than JMX.
+ *
+ * @author Steven P. Goldsmith
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public interface MetricsRegistry {
+
+    /**
+     * Publish stage metrics. Stages with the same name are published separately and told apart by {@link StageMetrics#getId()}.
+     *
+     * @param metrics Stage metrics.
+     */
+    void register(final StageMetrics metrics);
+
+    /**
+     * Stop publishing stage metrics.
+     *
+     * @param metrics Stage metrics.
+     */
+    void unregister(final StageMetrics metrics);
+}
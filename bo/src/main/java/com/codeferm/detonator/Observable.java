@@ -3,11 +3,11 @@
  */
 package com.codeferm.detonator;
 
-import java.util.LinkedList;
-import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
- * Type safe Observable class.
+ * Type safe Observable class. Observers are kept in a copy on write list, so notify never locks and sees a consistent list while
+ * observers are added.
  * <p>
  * @param <ObservedType> Observed type.
  * @param <DataType> Data type.
@@ -20,22 +20,20 @@ public class Observable<ObservedType, DataType> {
     /**
      * List of observers.
      */
-    private final List<Observer<ObservedType, DataType>> observers = new LinkedList<>();
+    private final CopyOnWriteArrayList<Observer<ObservedType, DataType>> observers = new CopyOnWriteArrayList<>();
 
     /**
      * Add observer to List.
      *
      * @param obs Observer.
      */
-    public final synchronized void addObserver(
+    public final void addObserver(
             final Observer<ObservedType, DataType> obs) {
         if (obs == null) {
             throw new IllegalArgumentException("Observer cannot be null");
         }
         // Only add to list if Observer doesn't exist
-        if (!observers.contains(obs)) {
-            observers.add(obs);
-        }
+        observers.addIfAbsent(obs);
     }
 
     /**
@@ -44,8 +42,8 @@ public class Observable<ObservedType, DataType> {
      * @param data Data sent along with observed object.
      */
     public final void notifyObservers(final DataType data) {
-        observers.stream().forEach((obs) -> {
+        for (final var obs : observers) {
             obs.update(this, data);
-        });
+        }
     }
 }
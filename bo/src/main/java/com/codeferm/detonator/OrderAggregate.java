@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) Steven P. Goldsmith. All rights reserved.
+ */
+package com.codeferm.detonator;
+
+import com.codeferm.dto.OrderItems;
+import com.codeferm.dto.Orders;
+import com.codeferm.dto.Products;
+import java.sql.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Order with its items and products as CreateOrder had them in memory. Order queues pass it to observers, EventBus and JMS, so
+ * OrderShipped renders from it instead of reading the order back from the database.
+ *
+ * Order fields are copied on construction and {@link #toOrders()} returns a new Orders each time, so nothing can change the
+ * aggregate. The lists can't be modified. The OrderItems and Products in them are the ones order creation used and shouldn't be
+ * changed either.
+ *
+ * @author Steven P. Goldsmith
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public final class OrderAggregate {
+
+    /**
+     * Order ID.
+     */
+    private final Long orderId;
+    /**
+     * Customer ID.
+     */
+    private final Long customerId;
+    /**
+     * Order status.
+     */
+    private final String status;
+    /**
+     * Salesman ID.
+     */
+    private final Long salesmanId;
+    /**
+     * Order date in milliseconds or null.
+     */
+    private final Long orderDate;
+    /**
+     * Order items.
+     */
+    private final List<OrderItems> orderItemsList;
+    /**
+     * Product of each order item in the same order as order items.
+     */
+    private final List<Products> productsList;
+
+    /**
+     * Construct with order, items and products.
+     *
+     * @param order Order to copy.
+     * @param orderItemsList Order items.
+     * @param productsList Product of each order item in the same order as order items.
+     */
+    public OrderAggregate(final Orders order, final List<OrderItems> orderItemsList, final List<Products> productsList) {
+        if (orderItemsList.size() != productsList.size()) {
+            throw new RuntimeException(String.format("Order %d has %d items, but %d products", order.getOrderId(), orderItemsList.
+                    size(), productsList.size()));
+        }
+        orderId = order.getOrderId();
+        customerId = order.getCustomerId();
+        status = order.getStatus();
+        salesmanId = order.getSalesmanId();
+        orderDate = order.getOrderDate() == null ? null : order.getOrderDate().getTime();
+        this.orderItemsList = List.copyOf(orderItemsList);
+        this.productsList = List.copyOf(productsList);
+    }
+
+    public Long getOrderId() {
+        return orderId;
+    }
+
+    public Long getCustomerId() {
+        return customerId;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public Long getSalesmanId() {
+        return salesmanId;
+    }
+
+    public Date getOrderDate() {
+        return orderDate == null ? null : new Date(orderDate);
+    }
+
+    public List<OrderItems> getOrderItemsList() {
+        return orderItemsList;
+    }
+
+    public List<Products> getProductsList() {
+        return productsList;
+    }
+
+    /**
+     * New Orders DTO with the fields of this order.
+     *
+     * @return Orders DTO.
+     */
+    public Orders toOrders() {
+        final var dto = new Orders();
+        dto.setOrderId(orderId);
+        dto.setCustomerId(customerId);
+        dto.setStatus(status);
+        dto.setSalesmanId(salesmanId);
+        dto.setOrderDate(getOrderDate());
+        return dto;
+    }
+
+    /**
+     * Template model like {@link OrdersBo#orderInfo(long)} returns.
+     *
+     * @return Map of objects representing order.
+     */
+    public Map<String, Object> toModel() {
+        final Map<String, Object> model = new HashMap<>();
+        model.put("ordersDto", toOrders());
+        model.put("orderItemsList", orderItemsList);
+        model.put("productsList", productsList);
+        return model;
+    }
+
+    /**
+     * toString method.
+     *
+     * @return String representation of object.
+     */
+    @Override
+    public String toString() {
+        return "OrderAggregate{" + "orderId=" + orderId + ", customerId=" + customerId + ", status=" + status + ", salesmanId="
+                + salesmanId + ", orderDate=" + getOrderDate() + ", orderItemsList=" + orderItemsList + ", productsList=" + productsList
+                + '}';
+    }
+}
@@ -0,0 +1,349 @@
+/*
+ * Copyright (c) Steven P. Goldsmith. All rights reserved.
+ */
+package com.codeferm.detonator;
+
+import com.codeferm.dto.Dto;
+import com.codeferm.dto.DtoCodec;
+import com.codeferm.dto.OrderItems;
+import com.codeferm.dto.OrderItemsCodec;
+import com.codeferm.dto.Orders;
+import com.codeferm.dto.OrdersCodec;
+import com.codeferm.dto.Products;
+import com.codeferm.dto.ProductsCodec;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Versioned binary format for messages passed between pipeline stages over JMS. Only field values are written using the codecs
+ * generated from codec.ftl, so messages are a fraction of the size of Java serialization, no classes are looked up by name on read
+ * and nothing but OrderMessage, Orders and OrderAggregate can be created from a message. A batch of OrderMessages can be sent
+ * as one message.
+ *
+ * Each message starts with a version byte and a type byte. Readers reject versions they don't know.
+ *
+ * @author Steven P. Goldsmith
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public final class OrderCodec {
+
+    /**
+     * Format version.
+     */
+    public static final byte VERSION = 1;
+    /**
+     * OrderMessage type.
+     */
+    private static final byte ORDER_MESSAGE = 1;
+    /**
+     * Orders type.
+     */
+    private static final byte ORDERS = 2;
+    /**
+     * OrderAggregate type.
+     */
+    private static final byte ORDER_AGGREGATE = 3;
+    /**
+     * List of OrderMessage type.
+     */
+    private static final byte ORDER_MESSAGE_BATCH = 4;
+    /**
+     * Orders codec.
+     */
+    private static final DtoCodec<Orders> ORDERS_CODEC = new OrdersCodec();
+    /**
+     * OrderItems codec.
+     */
+    private static final DtoCodec<OrderItems> ORDER_ITEMS_CODEC = new OrderItemsCodec();
+    /**
+     * Products codec.
+     */
+    private static final DtoCodec<Products> PRODUCTS_CODEC = new ProductsCodec();
+
+    /**
+     * Static methods only.
+     */
+    private OrderCodec() {
+    }
+
+    /**
+     * Write nullable Long.
+     *
+     * @param out Output.
+     * @param value Value or null.
+     * @throws IOException Possible exception.
+     */
+    private static void writeLong(final DataOutputStream out, final Long value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value);
+        }
+    }
+
+    /**
+     * Read nullable Long.
+     *
+     * @param in Input.
+     * @return Value or null.
+     * @throws IOException Possible exception.
+     */
+    private static Long readLong(final DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readLong() : null;
+    }
+
+    /**
+     * Write nullable list of DTOs.
+     *
+     * @param <T> DTO type.
+     * @param out Output.
+     * @param codec DTO codec.
+     * @param list List or null.
+     * @throws IOException Possible exception.
+     */
+    private static <T extends Dto> void writeList(final DataOutputStream out, final DtoCodec<T> codec,
+            final List<T> list) throws IOException {
+        if (list == null) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(list.size());
+            for (final var dto : list) {
+                codec.write(out, dto);
+            }
+        }
+    }
+
+    /**
+     * Read nullable list of DTOs.
+     *
+     * @param <T> DTO type.
+     * @param in Input.
+     * @param codec DTO codec.
+     * @return List or null.
+     * @throws IOException Possible exception.
+     */
+    private static <T extends Dto> List<T> readList(final DataInputStream in, final DtoCodec<T> codec) throws
+            IOException {
+        final var size = in.readInt();
+        if (size < 0) {
+            return null;
+        }
+        final List<T> list = new ArrayList<>(Math.min(size, 1024));
+        for (var i = 0; i < size; i++) {
+            list.add(codec.read(in));
+        }
+        return list;
+    }
+
+    /**
+     * Encode order message.
+     *
+     * @param orderMessage Order message.
+     * @return Encoded bytes.
+     */
+    public static byte[] encode(final OrderMessage orderMessage) {
+        final var bytes = new ByteArrayOutputStream(256);
+        try (final var out = new DataOutputStream(bytes)) {
+            out.writeByte(VERSION);
+            out.writeByte(ORDER_MESSAGE);
+            writeOrderMessage(out, orderMessage);
+        } catch (IOException e) {
+            throw new RuntimeException("Order message encode exception", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Write order message fields.
+     *
+     * @param out Output.
+     * @param orderMessage Order message.
+     * @throws IOException Possible exception.
+     */
+    private static void writeOrderMessage(final DataOutputStream out, final OrderMessage orderMessage) throws IOException {
+        writeLong(out, orderMessage.getCustomerId());
+        writeLong(out, orderMessage.getSalesmanId());
+        writeList(out, ORDER_ITEMS_CODEC, orderMessage.getOrderItemsList());
+    }
+
+    /**
+     * Read order message fields.
+     *
+     * @param in Input.
+     * @return Order message.
+     * @throws IOException Possible exception.
+     */
+    private static OrderMessage readOrderMessage(final DataInputStream in) throws IOException {
+        final var orderMessage = new OrderMessage();
+        orderMessage.setCustomerId(readLong(in));
+        orderMessage.setSalesmanId(readLong(in));
+        orderMessage.setOrderItemsList(readList(in, ORDER_ITEMS_CODEC));
+        return orderMessage;
+    }
+
+    /**
+     * Encode batch of order messages.
+     *
+     * @param list Order messages.
+     * @return Encoded bytes.
+     */
+    public static byte[] encode(final List<OrderMessage> list) {
+        final var bytes = new ByteArrayOutputStream(256 * list.size());
+        try (final var out = new DataOutputStream(bytes)) {
+            out.writeByte(VERSION);
+            out.writeByte(ORDER_MESSAGE_BATCH);
+            out.writeInt(list.size());
+            for (final var orderMessage : list) {
+                writeOrderMessage(out, orderMessage);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Order message batch encode exception", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Encode order.
+     *
+     * @param orders Orders DTO.
+     * @return Encoded bytes.
+     */
+    public static byte[] encode(final Orders orders) {
+        final var bytes = new ByteArrayOutputStream(256);
+        try (final var out = new DataOutputStream(bytes)) {
+            out.writeByte(VERSION);
+            out.writeByte(ORDERS);
+            ORDERS_CODEC.write(out, orders);
+        } catch (IOException e) {
+            throw new RuntimeException("Orders encode exception", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Encode order with its items and products.
+     *
+     * @param aggregate Order aggregate.
+     * @return Encoded bytes.
+     */
+    public static byte[] encode(final OrderAggregate aggregate) {
+        final var bytes = new ByteArrayOutputStream(1024);
+        try (final var out = new DataOutputStream(bytes)) {
+            out.writeByte(VERSION);
+            out.writeByte(ORDER_AGGREGATE);
+            ORDERS_CODEC.write(out, aggregate.toOrders());
+            writeList(out, ORDER_ITEMS_CODEC, aggregate.getOrderItemsList());
+            writeList(out, PRODUCTS_CODEC, aggregate.getProductsList());
+        } catch (IOException e) {
+            throw new RuntimeException("Order aggregate encode exception", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Open input and check version.
+     *
+     * @param bytes Encoded bytes.
+     * @return Input positioned at type.
+     * @throws IOException Possible exception.
+     */
+    private static DataInputStream open(final byte[] bytes) throws IOException {
+        final var in = new DataInputStream(new ByteArrayInputStream(bytes));
+        final var version = in.readByte();
+        if (version != VERSION) {
+            throw new IOException(String.format("Unsupported order codec version %d", version));
+        }
+        return in;
+    }
+
+    /**
+     * Decode order message.
+     *
+     * @param bytes Encoded bytes.
+     * @return Order message.
+     */
+    public static OrderMessage decodeOrderMessage(final byte[] bytes) {
+        try (final var in = open(bytes)) {
+            final var type = in.readByte();
+            if (type != ORDER_MESSAGE) {
+                throw new IOException(String.format("Expected order message, got type %d", type));
+            }
+            return readOrderMessage(in);
+        } catch (IOException e) {
+            throw new RuntimeException("Order message decode exception", e);
+        }
+    }
+
+    /**
+     * Decode batch of order messages. A single order message is returned as a batch of one.
+     *
+     * @param bytes Encoded bytes.
+     * @return Order messages.
+     */
+    public static List<OrderMessage> decodeOrderMessages(final byte[] bytes) {
+        try (final var in = open(bytes)) {
+            final var type = in.readByte();
+            switch (type) {
+                case ORDER_MESSAGE:
+                    return List.of(readOrderMessage(in));
+                case ORDER_MESSAGE_BATCH:
+                    final var size = in.readInt();
+                    final List<OrderMessage> list = new ArrayList<>(Math.min(size, 1024));
+                    for (var i = 0; i < size; i++) {
+                        list.add(readOrderMessage(in));
+                    }
+                    return list;
+                default:
+                    throw new IOException(String.format("Expected order messages, got type %d", type));
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Order message batch decode exception", e);
+        }
+    }
+
+    /**
+     * Decode order. Only the order is returned if an OrderAggregate was encoded.
+     *
+     * @param bytes Encoded bytes.
+     * @return Orders DTO.
+     */
+    public static Orders decodeOrders(final byte[] bytes) {
+        try (final var in = open(bytes)) {
+            final var type = in.readByte();
+            if (type != ORDERS && type != ORDER_AGGREGATE) {
+                throw new IOException(String.format("Expected orders, got type %d", type));
+            }
+            return ORDERS_CODEC.read(in);
+        } catch (IOException e) {
+            throw new RuntimeException("Orders decode exception", e);
+        }
+    }
+
+    /**
+     * Decode order with its items and products.
+     *
+     * @param bytes Encoded bytes.
+     * @return Order aggregate or null if only the order was encoded.
+     */
+    public static OrderAggregate decodeOrderAggregate(final byte[] bytes) {
+        try (final var in = open(bytes)) {
+            final var type = in.readByte();
+            switch (type) {
+                case ORDERS:
+                    return null;
+                case ORDER_AGGREGATE:
+                    final var orders = ORDERS_CODEC.read(in);
+                    return new OrderAggregate(orders, readList(in, ORDER_ITEMS_CODEC), readList(in, PRODUCTS_CODEC));
+                default:
+                    throw new IOException(String.format("Expected orders, got type %d", type));
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Order aggregate decode exception", e);
+        }
+    }
+}
@@ -3,35 +3,35 @@
  */
 package com.codeferm.detonator;
 
-import com.codeferm.dto.Orders;
-import com.google.common.util.concurrent.ThreadFactoryBuilder;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 /**
- * Observe CreateOrderQueue, so you can do post create processing.
+ * Observe CreateOrderQueue or any other OrderQueue that publishes created orders, so you can do post create processing.
  *
  * @author Steven P. Goldsmith
  * @version 1.0.0
  * @since 1.0.0
  */
-public class OrderCreated implements Observer<CreateOrderQueue, Orders> {
+public class OrderCreated implements Observer<OrderQueue, OrderAggregate> {
 
     /**
      * Logger.
      */
     private final Logger logger = LogManager.getLogger(OrderCreated.class);
     /**
-     * Multi threaded executor service.
+     * Multi threaded executor with bounded queue.
      */
-    private final ExecutorService executor;
+    private final StageExecutor executor;
     /**
      * Order shipped logic.
      */
     private OrderShipped orderShipped;
+    /**
+     * Called when an order leaves the created and shipped stages, whether it was shipped, failed or rejected, or null.
+     */
+    private volatile Consumer<OrderAggregate> onDone;
 
     /**
      * Construct with pooled executor.
@@ -41,7 +41,21 @@ public class OrderCreated implements Observer<CreateOrderQueue, Orders> {
      */
     public OrderCreated(final OrderShipped orderShipped, final int maxThreads) {
         this.orderShipped = orderShipped;
-        executor = Executors.newFixedThreadPool(maxThreads, new ThreadFactoryBuilder().setNameFormat("order-created-%d").build());
+        executor = new StageExecutor("order-created", maxThreads);
+    }
+
+    /**
+     * Construct with pooled executor, queue capacity and overflow policy.
+     *
+     * @param orderShipped Order shipped logic.
+     * @param maxThreads Maximum processing threads.
+     * @param capacity Queue capacity.
+     * @param overflowPolicy What to do when queue is full.
+     */
+    public OrderCreated(final OrderShipped orderShipped, final int maxThreads, final int capacity,
+            final OverflowPolicy overflowPolicy) {
+        this.orderShipped = orderShipped;
+        executor = new StageExecutor("order-created", maxThreads, capacity, overflowPolicy);
     }
 
     public OrderShipped getOrderShipped() {
@@ -52,33 +66,47 @@ public class OrderCreated implements Observer<CreateOrderQueue, Orders> {
         this.orderShipped = orderShipped;
     }
 
+    public StageExecutor getExecutor() {
+        return executor;
+    }
+
+    public Consumer<OrderAggregate> getOnDone() {
+        return onDone;
+    }
+
+    public void setOnDone(final Consumer<OrderAggregate> onDone) {
+        this.onDone = onDone;
+    }
+
     /**
      * Observer update.
      *
      * @param object Observable that called.
-     * @param data Orders DTO.
+     * @param data Order aggregate.
      */
     @Override
-    public void update(final Observable<CreateOrderQueue, Orders> object, final Orders data) {
+    public void update(final Observable<OrderQueue, OrderAggregate> object, final OrderAggregate data) {
+        final var callback = onDone;
+        final Runnable done = callback == null ? null : () -> callback.accept(data);
         final Runnable task = () -> {
             //logger.debug("Created {}", data);
-            orderShipped.shipOrder(data);
+            if (!orderShipped.shipOrder(data, done)) {
+                logger.error("Order shipped rejected, orderId {}", data.getOrderId());
+            }
         };
-        executor.execute(task);
+        if (!executor.execute(task)) {
+            logger.error("Order created rejected, orderId {}", data.getOrderId());
+            if (done != null) {
+                done.run();
+            }
+        }
     }
 
     /**
      * Wait for queued threads to finish.
      */
     public void shutdown() {
-        // Shutdow executor service
         executor.shutdown();
-        try {
-            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
-        }
-
     }
 
 }
@@ -16,8 +16,9 @@ public interface OrderQueue {
      * Create order based on message.
      *
      * @param orderMessage Order message.
+     * @return True if order was accepted, false if it was rejected (for instance the queue is full or shut down).
      */
-    void create(final OrderMessage orderMessage);
+    boolean create(final OrderMessage orderMessage);
     
     /**
      * Wait for queued threads to finish.
@@ -0,0 +1,29 @@
+/*
+ * Copyright (c) Steven P. Goldsmith. All rights reserved.
+ */
+package com.codeferm.detonator;
+
+/**
+ * Order can't be created as sent, because it fails bean validation, has an unknown product or there isn't enough inventory. Trying
+ * again gives the same result, so callers can drop the order. Other RuntimeExceptions, like database errors, may be transient.
+ *
+ * @author Steven P. Goldsmith
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class OrderRejectedException extends RuntimeException {
+
+    /**
+     * Serial version.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Construct with message.
+     *
+     * @param message Reason order was rejected.
+     */
+    public OrderRejectedException(final String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) Steven P. Goldsmith. All rights reserved.
+ */
+package com.codeferm.detonator;
+
+import com.codeferm.dto.OrderItems;
+import java.util.Arrays;
+
+/**
+ * Route key of an order. Orders with the same key are processed in order on the same {@link PartitionedOrderQueue} partition.
+ *
+ * @author Steven P. Goldsmith
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+@FunctionalInterface
+public interface OrderRouter {
+
+    /**
+     * Route key of order.
+     *
+     * @param orderMessage Order message.
+     * @return Key.
+     */
+    long key(final OrderMessage orderMessage);
+
+    /**
+     * Route by customer, so each customer's orders stay in order.
+     *
+     * @return Order router.
+     */
+    static OrderRouter byCustomer() {
+        return orderMessage -> orderMessage.getCustomerId() == null ? 0 : orderMessage.getCustomerId();
+    }
+
+    /**
+     * Route by hash of the sorted product IDs, so orders for the same set of products update inventory in order.
+     *
+     * @return Order router.
+     */
+    static OrderRouter byProducts() {
+        return orderMessage -> {
+            final var ids = orderMessage.getOrderItemsList().stream().mapToLong(OrderItems::getProductId).toArray();
+            Arrays.sort(ids);
+            return Arrays.hashCode(ids);
+        };
+    }
+
+    /**
+     * Order router by name.
+     *
+     * @param name customer or products.
+     * @return Order router.
+     */
+    static OrderRouter of(final String name) {
+        switch (name) {
+            case "customer":
+                return byCustomer();
+            case "products":
+                return byProducts();
+            default:
+                throw new RuntimeException(String.format("Unknown order router %s", name));
+        }
+    }
+}
@@ -3,24 +3,24 @@
  */
 package com.codeferm.detonator;
 
+import com.codeferm.dto.OrderItems;
 import com.codeferm.dto.Orders;
-import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.codeferm.dto.Products;
 import freemarker.template.Configuration;
 import freemarker.template.TemplateException;
 import freemarker.template.TemplateExceptionHandler;
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
+import java.io.StringWriter;
 import java.io.Writer;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -28,24 +28,47 @@ import org.apache.logging.log4j.Logger;
  * Generate order shipped info using template. This could be used to generate email, HTML, etc. This is just an example of post
  * order creation. Obviously much more complicated stuff goes on,
  *
+ * Observers are notified after the shipping manifest is written, so load drivers and post shipping processing can hook in.
+ *
+ * Manifests are written to a {@link ShippedSink}. By default that's one file per order in output dir ({@link FileShippedSink}). Set a
+ * {@link SegmentShippedSink} to append them to rolling segment files instead.
+ *
+ * With compiled true the template is compiled once by {@link CompiledTemplate} and rendered without FreeMarker. Templates using
+ * FreeMarker features CompiledTemplate doesn't support are still processed by FreeMarker.
+ *
+ * An {@link OrderAggregate} is rendered from the items and products it carries. Only a plain Orders (for instance from an older JMS
+ * producer) is read back with {@link OrdersBo#orderInfo(long)}. Observers get an OrderAggregate either way.
+ *
  * @author Steven P. Goldsmith
  * @version 1.0.0
  * @since 1.0.0
  */
-public class OrderShipped {
+public class OrderShipped extends Observable<OrderShipped, OrderAggregate> {
 
     /**
      * Logger.
      */
     private final Logger logger = LogManager.getLogger(OrderShipped.class);
     /**
-     * Multi threaded executor service.
+     * Multi threaded executor with bounded queue.
      */
-    private final ExecutorService executor;
+    private final StageExecutor executor;
+    /**
+     * Timestamp format of now.
+     */
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("MM-dd-yyyy HH:mm:ss");
+    /**
+     * Template variables in the order CompiledTemplate.render takes them.
+     */
+    private static final String[] VARIABLES = {"ordersDto", "orderItemsList", "productsList", "now"};
     /**
      * Orders BO.
      */
     private OrdersBo ordersBo;
+    /**
+     * Template dir.
+     */
+    private final String templateDir;
     /**
      * Template to use.
      */
@@ -58,6 +81,22 @@ public class OrderShipped {
      * FreeMarker configuration singleton.
      */
     private final Configuration configuration = new Configuration(Configuration.VERSION_2_3_30);
+    /**
+     * Where manifests are written.
+     */
+    private ShippedSink shippedSink;
+    /**
+     * Orders rendered from the OrderAggregate they came with.
+     */
+    private final AtomicLong aggregates = new AtomicLong();
+    /**
+     * Orders read back from the database before rendering.
+     */
+    private final AtomicLong refetches = new AtomicLong();
+    /**
+     * Compiled template or null to use FreeMarker.
+     */
+    private volatile CompiledTemplate compiledTemplate;
 
     /**
      * Construct with template dir, OrdersBo and max threads.
@@ -70,10 +109,28 @@ public class OrderShipped {
      */
     public OrderShipped(final String templateDir, final String template, final String outputDir, final OrdersBo ordersBo,
             final int maxThreads) {
+        this(templateDir, template, outputDir, ordersBo, maxThreads, StageExecutor.UNBOUNDED, OverflowPolicy.BLOCK);
+    }
+
+    /**
+     * Construct with template dir, OrdersBo, max threads, queue capacity and overflow policy.
+     *
+     * @param templateDir Template directory.
+     * @param template Template to use.
+     * @param outputDir Output dir for shipment statements.
+     * @param ordersBo Orders BO.
+     * @param maxThreads Maximum threads.
+     * @param capacity Queue capacity.
+     * @param overflowPolicy What to do when queue is full.
+     */
+    public OrderShipped(final String templateDir, final String template, final String outputDir, final OrdersBo ordersBo,
+            final int maxThreads, final int capacity, final OverflowPolicy overflowPolicy) {
+        this.templateDir = templateDir;
         this.template = template;
         this.outputDir = outputDir;
         this.ordersBo = ordersBo;
-        executor = Executors.newFixedThreadPool(maxThreads, new ThreadFactoryBuilder().setNameFormat("order-shipped-%d").build());
+        shippedSink = new FileShippedSink(outputDir);
+        executor = new StageExecutor("order-shipped", maxThreads, capacity, overflowPolicy);
         try {
             configuration.setDirectoryForTemplateLoading(new File(templateDir));
         } catch (IOException e) {
@@ -85,6 +142,95 @@ public class OrderShipped {
         configuration.setWrapUncheckedExceptions(true);
     }
 
+    public StageExecutor getExecutor() {
+        return executor;
+    }
+
+    public ShippedSink getShippedSink() {
+        return shippedSink;
+    }
+
+    public void setShippedSink(final ShippedSink shippedSink) {
+        this.shippedSink = shippedSink;
+    }
+
+    public long getAggregates() {
+        return aggregates.get();
+    }
+
+    public long getRefetches() {
+        return refetches.get();
+    }
+
+    public boolean isCompiled() {
+        return compiledTemplate != null;
+    }
+
+    /**
+     * Render with CompiledTemplate or FreeMarker. Stays on FreeMarker if the template can't be compiled.
+     *
+     * @param compiled True to compile template.
+     */
+    public void setCompiled(final boolean compiled) {
+        if (compiled) {
+            compiledTemplate = CompiledTemplate.compile(Paths.get(templateDir, template), VARIABLES);
+            if (compiledTemplate == null) {
+                logger.info("Template {} uses features CompiledTemplate doesn't support, using FreeMarker", template);
+            }
+        } else {
+            compiledTemplate = null;
+        }
+    }
+
+    /**
+     * Render template model with CompiledTemplate or FreeMarker.
+     *
+     * @param model Template model.
+     * @param writer Template output.
+     */
+    private void render(final Map<String, Object> model, final Writer writer) {
+        final var now = LocalDateTime.now().format(FORMATTER);
+        final var compiled = compiledTemplate;
+        if (compiled != null) {
+            compiled.render(writer, model.get("ordersDto"), model.get("orderItemsList"), model.get("productsList"), now);
+        } else {
+            // Template model
+            model.put("now", now);
+            // Process DTO template
+            try {
+                final var temp = configuration.getTemplate(template);
+                temp.process(model, writer);
+            } catch (IOException | TemplateException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    /**
+     * Read order, items and products back from the database.
+     *
+     * @param dto Orders DTO.
+     * @return Order aggregate.
+     */
+    @SuppressWarnings("unchecked")
+    private OrderAggregate readBack(final Orders dto) {
+        final var model = ordersBo.orderInfo(dto.getOrderId());
+        refetches.incrementAndGet();
+        return new OrderAggregate((Orders) model.get("ordersDto"), (List<OrderItems>) model.get("orderItemsList"),
+                (List<Products>) model.get("productsList"));
+    }
+
+    /**
+     * Generate order shipped template from the items and products the order came with. Pass in the Writer required for a particular
+     * purpose.
+     *
+     * @param order Order aggregate.
+     * @param writer Template output.
+     */
+    public void shipTemplate(final OrderAggregate order, final Writer writer) {
+        render(order.toModel(), writer);
+    }
+
     /**
      * Generate order shipped template. Pass in the Writer required for a particular purpose.
      *
@@ -92,49 +238,89 @@ public class OrderShipped {
      * @param writer Template output.
      */
     public void shipTemplate(final Orders dto, final Writer writer) {
-        final var formatter = DateTimeFormatter.ofPattern("MM-dd-yyyy HH:mm:ss");
-        // Template model
-        final Map<String, Object> model = ordersBo.orderInfo(dto.getOrderId());
-        model.put("now", LocalDateTime.now().format(formatter));
-        // Process DTO template
-        try {
-            final var temp = configuration.getTemplate(template);
-            temp.process(model, writer);
-        } catch (IOException | TemplateException e) {
-            throw new RuntimeException(e);
-        }
+        render(readBack(dto).toModel(), writer);
     }
 
     /**
      * Ship order generates a plain text shipping manifest, but you would be dealing with a shipping system in the real world.
      *
+     * @param order Order aggregate.
+     * @return True if order was queued or run, false if it was rejected.
+     */
+    public boolean shipOrder(final OrderAggregate order) {
+        return shipOrder(order, null);
+    }
+
+    /**
+     * Ship order and run callback when the order leaves this stage, whether it was shipped, failed or rejected. Used to track orders
+     * in flight.
+     *
+     * @param order Order aggregate.
+     * @param done Called once order is done or null.
+     * @return True if order was queued or run, false if it was rejected.
+     */
+    public boolean shipOrder(final OrderAggregate order, final Runnable done) {
+        return ship(() -> {
+            aggregates.incrementAndGet();
+            return order;
+        }, done);
+    }
+
+    /**
+     * Ship order that came without items and products. They are read back from the database first.
+     *
+     * @param dto Orders DTO.
+     * @return True if order was queued or run, false if it was rejected.
+     */
+    public boolean shipOrder(final Orders dto) {
+        return shipOrder(dto, null);
+    }
+
+    /**
+     * Ship order that came without items and products (for instance from an older JMS producer). They are read back from the
+     * database first.
+     *
      * @param dto Orders DTO.
+     * @param done Called once order is done or null.
+     * @return True if order was queued or run, false if it was rejected.
+     */
+    public boolean shipOrder(final Orders dto, final Runnable done) {
+        return ship(() -> readBack(dto), done);
+    }
+
+    /**
+     * Render, write and notify observers on the executor.
+     *
+     * @param order Supplies order aggregate on the executor.
+     * @param done Called once order is done or null.
+     * @return True if order was queued or run, false if it was rejected.
      */
-    public void shipOrder(final Orders dto) {
+    private boolean ship(final Supplier<OrderAggregate> order, final Runnable done) {
         final Runnable task = () -> {
             try {
-                try (var out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(new File(String.format("%s/%d.txt",
-                        outputDir, dto.getOrderId())), false), StandardCharsets.UTF_8))) {
-                    shipTemplate(dto, out);
+                final var aggregate = order.get();
+                final var out = new StringWriter(2048);
+                shipTemplate(aggregate, out);
+                shippedSink.write(aggregate.getOrderId(), out.toString().getBytes(StandardCharsets.UTF_8));
+                notifyObservers(aggregate);
+            } finally {
+                if (done != null) {
+                    done.run();
                 }
-            } catch (IOException e) {
-                throw new RuntimeException("shipOrder", e);
             }
         };
-        executor.execute(task);
+        final var accepted = executor.execute(task);
+        if (!accepted && done != null) {
+            done.run();
+        }
+        return accepted;
     }
 
     /**
-     * Wait for queued threads to finish.
+     * Wait for queued threads to finish and close shipped sink.
      */
     public void shutdown() {
-        // Shutdow executor service
         executor.shutdown();
-        try {
-            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
-        }
-
+        shippedSink.close();
     }
 }
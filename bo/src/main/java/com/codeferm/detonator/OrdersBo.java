@@ -38,23 +38,23 @@ public class OrdersBo {
     /**
      * Orders DAO.
      */
-    private Dao<OrdersKey, Orders> orders;
+    private volatile Dao<OrdersKey, Orders> orders;
     /**
      * OrderItems DAO.
      */
-    private Dao<OrderItemsKey, OrderItems> orderItems;
+    private volatile Dao<OrderItemsKey, OrderItems> orderItems;
     /**
      * Products DAO.
      */
-    private Dao<ProductsKey, Products> products;
+    private volatile Dao<ProductsKey, Products> products;
     /**
      * Inventories DAO.
      */
-    private Dao<InventoriesKey, Inventories> inventories;
+    private volatile Dao<InventoriesKey, Inventories> inventories;
     /**
      * Order queue used to create orders.
      */
-    private OrderQueue orderQueue;
+    private volatile OrderQueue orderQueue;
 
     /**
      * Default constructor.
@@ -127,14 +127,15 @@ public class OrdersBo {
     }
 
     /**
-     * Throw exception if order doesn't exist or return dto if it does.
+     * Throw exception if order doesn't exist or return dto if it does. The read always goes to the primary, so a newly created order
+     * is found even if read replicas lag.
      *
      * @param ordersId Order ID to look up.
      * @return DTO if it exists.
      */
     public Orders orderExists(final long ordersId) {
         // Make sure order exists 
-        final var dto = orders.find(new OrdersKey(ordersId));
+        final var dto = ReadRouting.primary(() -> orders.find(new OrdersKey(ordersId)));
         if (dto == null) {
             throw new RuntimeException(String.format("ordersId %d not found", ordersId));
         }
@@ -147,14 +148,15 @@ public class OrdersBo {
      * @param customerId Customer ID.
      * @param salesmanId Salesman ID.
      * @param list List of OrderItems.
+     * @return True if order was accepted, false if it was rejected.
      */
-    public void createOrder(final long customerId, final long salesmanId, final List<OrderItems> list) {
+    public boolean createOrder(final long customerId, final long salesmanId, final List<OrderItems> list) {
         final var orderMessage = new OrderMessage();
         orderMessage.setCustomerId(customerId);
         orderMessage.setSalesmanId(salesmanId);
         orderMessage.setOrderItemsList(list);
         // Send to queue and return right away
-        orderQueue.create(orderMessage);
+        return orderQueue.create(orderMessage);
     }
 
     /**
@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) Steven P. Goldsmith. All rights reserved.
+ */
+package com.codeferm.detonator;
+
+/**
+ * What a {@link StageExecutor} does when its bounded queue is full.
+ *
+ * @author Steven P. Goldsmith
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public enum OverflowPolicy {
+
+    /**
+     * Block the caller until there is room in the queue.
+     */
+    BLOCK,
+    /**
+     * Shed the task and report rejection to the caller.
+     */
+    REJECT,
+    /**
+     * Run the task on the caller's thread, which slows the caller down.
+     */
+    CALLER_RUNS;
+
+    /**
+     * Overflow policy by name ignoring case, so properties can use block, reject or callerRuns.
+     *
+     * @param name Policy name.
+     * @return Overflow policy.
+     */
+    public static OverflowPolicy of(final String name) {
+        final var normalized = name.trim().replace("_", "");
+        for (final var policy : values()) {
+            if (policy.name().replace("_", "").equalsIgnoreCase(normalized)) {
+                return policy;
+            }
+        }
+        throw new RuntimeException(String.format("Unknown overflow policy %s", name));
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright (c) Steven P. Goldsmith. All rights reserved.
+ */
+package com.codeferm.detonator;
+
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * OrderQueue with one worker thread per partition. Each order is routed to a partition by {@link OrderRouter} key, so orders with
+ * the same key run in order while unrelated orders run in parallel. Use as a drop in for {@link CreateOrderQueue} when a single
+ * thread can't keep up.
+ *
+ * Partitions update inventory at the same time, so more than one partition requires a thread safe {@link UpdateInventory} such as
+ * {@link AtomicUpdateInventory} or {@link InventoryLedger}. UpdateInventoryDao can only be used with one partition.
+ *
+ * Each partition has its own bounded queue. Caller runs is not allowed, since it would break ordering within a partition.
+ *
+ * @author Steven P. Goldsmith
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class PartitionedOrderQueue extends Observable<OrderQueue, OrderAggregate> implements OrderQueue {
+
+    /**
+     * Logger.
+     */
+    private final Logger logger = LogManager.getLogger(PartitionedOrderQueue.class);
+    /**
+     * Single threaded executor with bounded queue per partition.
+     */
+    private final StageExecutor[] executors;
+    /**
+     * Orders created per partition.
+     */
+    private final AtomicLong[] completed;
+    /**
+     * Orders failed per partition.
+     */
+    private final AtomicLong[] failed;
+    /**
+     * Route key of order.
+     */
+    private final OrderRouter orderRouter;
+    /**
+     * Create order logic.
+     */
+    private final CreateOrder createOrder;
+    /**
+     * Start time used for throughput.
+     */
+    private final long start = System.nanoTime();
+
+    /**
+     * Construct with CreateOrder, partition count and router.
+     *
+     * @param createOrder CreateOrder.
+     * @param partitions Number of partitions (worker threads).
+     * @param orderRouter Route key of order.
+     */
+    public PartitionedOrderQueue(final CreateOrder createOrder, final int partitions, final OrderRouter orderRouter) {
+        this(createOrder, partitions, orderRouter, StageExecutor.UNBOUNDED, OverflowPolicy.BLOCK);
+    }
+
+    /**
+     * Construct with CreateOrder, partition count, router, queue capacity per partition and overflow policy.
+     *
+     * @param createOrder CreateOrder.
+     * @param partitions Number of partitions (worker threads).
+     * @param orderRouter Route key of order.
+     * @param capacity Queue capacity per partition.
+     * @param overflowPolicy Block or reject when partition queue is full.
+     */
+    public PartitionedOrderQueue(final CreateOrder createOrder, final int partitions, final OrderRouter orderRouter,
+            final int capacity, final OverflowPolicy overflowPolicy) {
+        if (overflowPolicy == OverflowPolicy.CALLER_RUNS) {
+            throw new RuntimeException(String.format("Overflow policy %s not supported by PartitionedOrderQueue",
+                    overflowPolicy));
+        }
+        if (partitions < 1) {
+            throw new RuntimeException(String.format("Partitions must be greater than 0, partitions=%d", partitions));
+        }
+        if (partitions > 1 && !createOrder.getUpdateInventory().isThreadSafe()) {
+            throw new RuntimeException(String.format("%s is not thread safe, partitions=%d", createOrder.getUpdateInventory().
+                    getClass().getSimpleName(), partitions));
+        }
+        this.createOrder = createOrder;
+        this.orderRouter = orderRouter;
+        executors = new StageExecutor[partitions];
+        completed = new AtomicLong[partitions];
+        failed = new AtomicLong[partitions];
+        for (var i = 0; i < partitions; i++) {
+            executors[i] = new StageExecutor(String.format("create-order-partition-%d", i), 1, capacity, overflowPolicy);
+            completed[i] = new AtomicLong();
+            failed[i] = new AtomicLong();
+        }
+    }
+
+    public CreateOrder getCreateOrder() {
+        return createOrder;
+    }
+
+    public OrderRouter getOrderRouter() {
+        return orderRouter;
+    }
+
+    /**
+     * Number of partitions.
+     *
+     * @return Partition count.
+     */
+    public int getPartitions() {
+        return executors.length;
+    }
+
+    /**
+     * Partition of order. Key is mixed, so sequential keys spread evenly.
+     *
+     * @param orderMessage Order message.
+     * @return Partition.
+     */
+    public int partition(final OrderMessage orderMessage) {
+        var key = orderRouter.key(orderMessage);
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return (int) Math.floorMod(key, (long) executors.length);
+    }
+
+    /**
+     * Orders waiting in partition.
+     *
+     * @param partition Partition.
+     * @return Queue depth.
+     */
+    public int getQueueDepth(final int partition) {
+        return executors[partition].getQueueDepth();
+    }
+
+    /**
+     * Executor of partition for rejection and wait time metrics.
+     *
+     * @param partition Partition.
+     * @return Stage executor.
+     */
+    public StageExecutor getExecutor(final int partition) {
+        return executors[partition];
+    }
+
+    /**
+     * Orders created by partition.
+     *
+     * @param partition Partition.
+     * @return Orders created.
+     */
+    public long getCompleted(final int partition) {
+        return completed[partition].get();
+    }
+
+    /**
+     * Orders failed by partition.
+     *
+     * @param partition Partition.
+     * @return Orders failed.
+     */
+    public long getFailed(final int partition) {
+        return failed[partition].get();
+    }
+
+    /**
+     * Orders created per second by partition since construction.
+     *
+     * @param partition Partition.
+     * @return Orders per second.
+     */
+    public double getThroughput(final int partition) {
+        final var seconds = (System.nanoTime() - start) / 1000000000.0;
+        return seconds > 0 ? completed[partition].get() / seconds : 0;
+    }
+
+    /**
+     * Create order on its partition.
+     *
+     * @param orderMessage Order message.
+     * @return True if order was queued.
+     */
+    @Override
+    public boolean create(final OrderMessage orderMessage) {
+        final var partition = partition(orderMessage);
+        final Runnable task = () -> {
+            try {
+                final var dto = createOrder.create(orderMessage);
+                completed[partition].incrementAndGet();
+                notifyObservers(dto);
+            } catch (RuntimeException e) {
+                // DeTOnator exception handling throws RuntimeException
+                failed[partition].incrementAndGet();
+                // Stage counts and logs it as well
+                throw e;
+            }
+        };
+        return executors[partition].execute(task);
+    }
+
+    /**
+     * Stop accepting orders and wait for every partition to drain.
+     */
+    @Override
+    public void shutdown() {
+        // Stop all partitions first, so they drain in parallel
+        for (final var executor : executors) {
+            executor.stop();
+        }
+        for (final var executor : executors) {
+            executor.awaitTermination();
+        }
+        for (var i = 0; i < executors.length; i++) {
+            logger.debug("Partition {} created {} orders, {} failed, {} orders/second", i, completed[i].get(), failed[i].get(),
+                    String.format("%.2f", getThroughput(i)));
+        }
+    }
+}
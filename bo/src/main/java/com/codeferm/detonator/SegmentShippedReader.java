@@ -0,0 +1,201 @@
+/*
+ * Copyright (c) Steven P. Goldsmith. All rights reserved.
+ */
+package com.codeferm.detonator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * Random access reader for documents written by {@link SegmentShippedSink}. Index files are loaded into memory and documents are
+ * read with positional reads, so readers don't get in each other's way. Call {@link #refresh()} to pick up documents written since
+ * the reader was opened. This class is thread safe.
+ *
+ * @author Steven P. Goldsmith
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class SegmentShippedReader implements AutoCloseable {
+
+    /**
+     * Location of a document.
+     */
+    private static final class Location {
+
+        /**
+         * Segment number.
+         */
+        private final long segment;
+        /**
+         * Offset in data file.
+         */
+        private final long offset;
+        /**
+         * Document length.
+         */
+        private final int length;
+
+        /**
+         * Construct with segment, offset and length.
+         *
+         * @param segment Segment number.
+         * @param offset Offset in data file.
+         * @param length Document length.
+         */
+        private Location(final long segment, final long offset, final int length) {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    /**
+     * Output dir.
+     */
+    private final Path dir;
+    /**
+     * Location by order ID. A later document of the same order replaces the earlier one.
+     */
+    private final Map<Long, Location> locations = new HashMap<>();
+    /**
+     * Index bytes loaded by segment.
+     */
+    private final Map<Long, Long> loaded = new HashMap<>();
+    /**
+     * Open data channels by segment.
+     */
+    private final Map<Long, FileChannel> channels = new HashMap<>();
+
+    /**
+     * Construct with output dir and load index.
+     *
+     * @param outputDir Output dir.
+     */
+    public SegmentShippedReader(final String outputDir) {
+        dir = Paths.get(outputDir);
+        refresh();
+    }
+
+    /**
+     * Load index records written since last refresh. Partial records at the end of an index file are left for the next refresh.
+     */
+    public synchronized void refresh() {
+        try (final var stream = Files.list(dir)) {
+            final var segments = stream.map(path -> path.getFileName().toString()).filter(name -> name.startsWith(
+                    SegmentShippedSink.PREFIX) && name.endsWith(SegmentShippedSink.INDEX_SUFFIX)).map(name -> Long.parseLong(name.
+                    substring(SegmentShippedSink.PREFIX.length(), name.length() - SegmentShippedSink.INDEX_SUFFIX.length()))).collect(
+                    Collectors.toCollection(TreeSet::new));
+            for (final var segment : segments) {
+                try (final var channel = FileChannel.open(SegmentShippedSink.indexPath(dir, segment), StandardOpenOption.READ)) {
+                    final var start = loaded.getOrDefault(segment, 0L);
+                    final var records = (channel.size() - start) / SegmentShippedSink.INDEX_RECORD;
+                    if (records > 0) {
+                        final var buffer = ByteBuffer.allocate((int) (records * SegmentShippedSink.INDEX_RECORD));
+                        while (buffer.hasRemaining()) {
+                            if (channel.read(buffer, start + buffer.position()) < 0) {
+                                break;
+                            }
+                        }
+                        buffer.flip();
+                        while (buffer.remaining() >= SegmentShippedSink.INDEX_RECORD) {
+                            locations.put(buffer.getLong(), new Location(segment, buffer.getLong(), buffer.getInt()));
+                        }
+                        loaded.put(segment, start + records * SegmentShippedSink.INDEX_RECORD);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(String.format("Shipped index read exception: dir=%s", dir), e);
+        }
+    }
+
+    /**
+     * Order IDs with a document.
+     *
+     * @return Sorted order IDs.
+     */
+    public synchronized Set<Long> getOrderIds() {
+        return new TreeSet<>(locations.keySet());
+    }
+
+    /**
+     * Number of documents.
+     *
+     * @return Number of documents.
+     */
+    public synchronized int size() {
+        return locations.size();
+    }
+
+    /**
+     * Read document of order.
+     *
+     * @param orderId Order ID.
+     * @return Document bytes or null if order has no document.
+     */
+    public byte[] read(final long orderId) {
+        final Location location;
+        final FileChannel channel;
+        synchronized (this) {
+            location = locations.get(orderId);
+            if (location == null) {
+                return null;
+            }
+            channel = channels.computeIfAbsent(location.segment, segment -> {
+                try {
+                    return FileChannel.open(SegmentShippedSink.dataPath(dir, segment), StandardOpenOption.READ);
+                } catch (IOException e) {
+                    throw new RuntimeException(String.format("Shipped data open exception: segment=%d", segment), e);
+                }
+            });
+        }
+        final var buffer = ByteBuffer.allocate(location.length);
+        try {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, location.offset + buffer.position()) < 0) {
+                    throw new RuntimeException(String.format("Shipped document truncated: orderId=%d", orderId));
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(String.format("Shipped data read exception: orderId=%d", orderId), e);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Read document of order as String.
+     *
+     * @param orderId Order ID.
+     * @return Document or null if order has no document.
+     */
+    public String readString(final long orderId) {
+        final var bytes = read(orderId);
+        return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Close data channels.
+     */
+    @Override
+    public synchronized void close() {
+        for (final var channel : channels.values()) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        channels.clear();
+    }
+}
@@ -0,0 +1,349 @@
+/*
+ * Copyright (c) Steven P. Goldsmith. All rights reserved.
+ */
+package com.codeferm.detonator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Appends shipping documents to rolling segment files instead of creating a file per order, so file creation and directory metadata
+ * are paid once per segment.
+ *
+ * Segment N is made of shipped-N.dat with the documents back to back and shipped-N.idx with a 20 byte record per document (order
+ * ID, offset and length). Documents and index records go through direct buffers and a single FileChannel per file. The data buffer is
+ * always written before the index buffer, so an index record never points past written data. Segments are forced when syncBytes
+ * have been written or every syncMillis, and rolled when they reach maxSegmentBytes or are rollMillis old. Use
+ * {@link SegmentShippedReader} to read documents back by order ID.
+ *
+ * @author Steven P. Goldsmith
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class SegmentShippedSink implements ShippedSink {
+
+    /**
+     * Logger.
+     */
+    private final Logger logger = LogManager.getLogger(SegmentShippedSink.class);
+    /**
+     * Segment file prefix.
+     */
+    public static final String PREFIX = "shipped-";
+    /**
+     * Data file suffix.
+     */
+    public static final String DATA_SUFFIX = ".dat";
+    /**
+     * Index file suffix.
+     */
+    public static final String INDEX_SUFFIX = ".idx";
+    /**
+     * Index record is order ID, offset and length.
+     */
+    public static final int INDEX_RECORD = 20;
+    /**
+     * Output dir.
+     */
+    private final Path dir;
+    /**
+     * Roll segment when it reaches this size.
+     */
+    private final long maxSegmentBytes;
+    /**
+     * Roll segment when it's this old in milliseconds, 0 to only roll by size.
+     */
+    private final long rollMillis;
+    /**
+     * Force when this many bytes are written since last force.
+     */
+    private final long syncBytes;
+    /**
+     * Data buffer.
+     */
+    private final ByteBuffer dataBuffer;
+    /**
+     * Index buffer.
+     */
+    private final ByteBuffer indexBuffer;
+    /**
+     * Forces and rolls segments on a timer.
+     */
+    private final ScheduledExecutorService scheduler;
+    /**
+     * Current segment number.
+     */
+    private long segment;
+    /**
+     * Data channel of current segment.
+     */
+    private FileChannel data;
+    /**
+     * Index channel of current segment.
+     */
+    private FileChannel index;
+    /**
+     * Size of current segment including buffered bytes.
+     */
+    private long dataPosition;
+    /**
+     * When current segment was started.
+     */
+    private long segmentStart;
+    /**
+     * Bytes written since last force.
+     */
+    private long unsynced;
+    /**
+     * Documents written.
+     */
+    private long documents;
+    /**
+     * Number of forces.
+     */
+    private long syncs;
+    /**
+     * True after close.
+     */
+    private boolean closed;
+
+    /**
+     * Construct with 256 MB segments, 1 MB buffers, force every 8 MB or second and no time based roll.
+     *
+     * @param outputDir Output dir.
+     */
+    public SegmentShippedSink(final String outputDir) {
+        this(outputDir, 256L * 1024 * 1024, 0, 8L * 1024 * 1024, 1000, 1024 * 1024);
+    }
+
+    /**
+     * Construct with roll, sync and buffer settings. A new segment is always started, existing segments are left as is.
+     *
+     * @param outputDir Output dir.
+     * @param maxSegmentBytes Roll segment when it reaches this size.
+     * @param rollMillis Roll segment when it's this old in milliseconds, 0 to only roll by size.
+     * @param syncBytes Force when this many bytes are written since last force.
+     * @param syncMillis Force every syncMillis if anything was written.
+     * @param bufferSize Data buffer size in bytes.
+     */
+    public SegmentShippedSink(final String outputDir, final long maxSegmentBytes, final long rollMillis, final long syncBytes,
+            final long syncMillis, final int bufferSize) {
+        this.dir = Paths.get(outputDir);
+        this.maxSegmentBytes = maxSegmentBytes;
+        this.rollMillis = rollMillis;
+        this.syncBytes = syncBytes;
+        dataBuffer = ByteBuffer.allocateDirect(bufferSize);
+        // Index record per 512 byte document is plenty
+        indexBuffer = ByteBuffer.allocateDirect(Math.max(INDEX_RECORD * 64, bufferSize / 512 * INDEX_RECORD));
+        try {
+            Files.createDirectories(dir);
+            try (final var stream = Files.list(dir)) {
+                segment = stream.map(path -> path.getFileName().toString()).filter(name -> name.startsWith(PREFIX) && name.endsWith(
+                        INDEX_SUFFIX)).mapToLong(name -> Long.parseLong(name.substring(PREFIX.length(), name.length() - INDEX_SUFFIX.
+                        length()))).max().orElse(-1) + 1;
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(String.format("Shipped sink open exception: dir=%s", dir), e);
+        }
+        open();
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final var thread = new Thread(runnable, "shipped-sink-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::tick, syncMillis, syncMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized long getSegment() {
+        return segment;
+    }
+
+    public synchronized long getDocuments() {
+        return documents;
+    }
+
+    public synchronized long getSyncs() {
+        return syncs;
+    }
+
+    /**
+     * Data file of segment.
+     *
+     * @param dir Output dir.
+     * @param segment Segment number.
+     * @return Data file path.
+     */
+    public static Path dataPath(final Path dir, final long segment) {
+        return dir.resolve(String.format("%s%020d%s", PREFIX, segment, DATA_SUFFIX));
+    }
+
+    /**
+     * Index file of segment.
+     *
+     * @param dir Output dir.
+     * @param segment Segment number.
+     * @return Index file path.
+     */
+    public static Path indexPath(final Path dir, final long segment) {
+        return dir.resolve(String.format("%s%020d%s", PREFIX, segment, INDEX_SUFFIX));
+    }
+
+    /**
+     * Open channels of current segment.
+     */
+    private void open() {
+        try {
+            data = FileChannel.open(dataPath(dir, segment), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            index = FileChannel.open(indexPath(dir, segment), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            throw new RuntimeException(String.format("Shipped sink segment exception: segment=%d", segment), e);
+        }
+        dataPosition = 0;
+        segmentStart = System.currentTimeMillis();
+    }
+
+    /**
+     * Write buffer to channel and clear it.
+     *
+     * @param buffer Buffer to write.
+     * @param channel Channel to write to.
+     * @throws IOException Possible exception.
+     */
+    private void drain(final ByteBuffer buffer, final FileChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Write buffered data, then buffered index records.
+     *
+     * @throws IOException Possible exception.
+     */
+    private void flushBuffers() throws IOException {
+        drain(dataBuffer, data);
+        drain(indexBuffer, index);
+    }
+
+    /**
+     * Flush buffers and force both files.
+     *
+     * @throws IOException Possible exception.
+     */
+    private void sync() throws IOException {
+        flushBuffers();
+        data.force(false);
+        index.force(false);
+        unsynced = 0;
+        syncs++;
+    }
+
+    /**
+     * Force and close current segment and start the next one.
+     *
+     * @throws IOException Possible exception.
+     */
+    private void roll() throws IOException {
+        sync();
+        data.close();
+        index.close();
+        logger.debug("Shipped segment {} closed at {} bytes", segment, dataPosition);
+        segment++;
+        open();
+    }
+
+    /**
+     * Timer based force and roll.
+     */
+    private synchronized void tick() {
+        if (closed) {
+            return;
+        }
+        try {
+            if (unsynced > 0) {
+                sync();
+            }
+            if (rollMillis > 0 && dataPosition > 0 && System.currentTimeMillis() - segmentStart >= rollMillis) {
+                roll();
+            }
+        } catch (IOException e) {
+            logger.error("Shipped sink sync error {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Append document and index record.
+     *
+     * @param orderId Order ID.
+     * @param document Rendered document as UTF-8.
+     */
+    @Override
+    public synchronized void write(final long orderId, final byte[] document) {
+        if (closed) {
+            throw new RuntimeException("Shipped sink is closed");
+        }
+        try {
+            if (dataPosition > 0 && dataPosition + document.length > maxSegmentBytes) {
+                roll();
+            }
+            if (document.length > dataBuffer.remaining()) {
+                flushBuffers();
+            }
+            if (document.length > dataBuffer.capacity()) {
+                // Too big to buffer
+                final var buffer = ByteBuffer.wrap(document);
+                while (buffer.hasRemaining()) {
+                    data.write(buffer);
+                }
+            } else {
+                dataBuffer.put(document);
+            }
+            if (indexBuffer.remaining() < INDEX_RECORD) {
+                flushBuffers();
+            }
+            indexBuffer.putLong(orderId).putLong(dataPosition).putInt(document.length);
+            dataPosition += document.length;
+            unsynced += document.length;
+            documents++;
+            if (unsynced >= syncBytes) {
+                sync();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(String.format("Shipped sink write exception: segment=%d, orderId=%d", segment, orderId), e);
+        }
+    }
+
+    /**
+     * Force and close current segment.
+     */
+    @Override
+    public void close() {
+        scheduler.shutdown();
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                sync();
+                data.close();
+                index.close();
+            } catch (IOException e) {
+                throw new RuntimeException(String.format("Shipped sink close exception: segment=%d", segment), e);
+            }
+        }
+        logger.debug("Shipped sink wrote {} documents with {} syncs", documents, syncs);
+    }
+}
@@ -0,0 +1,27 @@
+/*
+ * Copyright (c) Steven P. Goldsmith. All rights reserved.
+ */
+package com.codeferm.detonator;
+
+/**
+ * Where OrderShipped writes rendered shipping documents.
+ *
+ * @author Steven P. Goldsmith
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public interface ShippedSink {
+
+    /**
+     * Write rendered document of order. Called by several shipping threads at once.
+     *
+     * @param orderId Order ID.
+     * @param document Rendered document as UTF-8.
+     */
+    void write(final long orderId, final byte[] document);
+
+    /**
+     * Flush and close. Documents written before close are durable.
+     */
+    void close();
+}
@@ -0,0 +1,300 @@
+/*
+ * Copyright (c) Steven P. Goldsmith. All rights reserved.
+ */
+package com.codeferm.detonator;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Fixed thread pool with a bounded queue used by each order pipeline stage. When the queue is full the {@link OverflowPolicy}
+ * decides if the caller blocks, the task is rejected or the task runs on the caller's thread. Memory used by a stage is capped by
+ * its capacity instead of growing until the heap is gone. Constructors without a capacity keep the unbounded queue stages used
+ * before, so pass a capacity such as {@link #DEFAULT_CAPACITY} to bound a stage.
+ *
+ * Queue depth, rejections, caller runs and time callers spent blocked are tracked. Queue wait, service time, in flight, completed and
+ * failed tasks are recorded in {@link StageMetrics}, which is published through a {@link MetricsRegistry} until the stage terminates.
+ * A task that throws is counted as failed and logged, so it doesn't kill the worker thread.
+ *
+ * @author Steven P. Goldsmith
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class StageExecutor {
+
+    /**
+     * Default queue capacity per stage.
+     */
+    public static final int DEFAULT_CAPACITY = 10000;
+    /**
+     * Capacity of an unbounded queue.
+     */
+    public static final int UNBOUNDED = Integer.MAX_VALUE;
+    /**
+     * Logger.
+     */
+    private final Logger logger = LogManager.getLogger(StageExecutor.class);
+    /**
+     * Stage name used for thread names and logging.
+     */
+    private final String name;
+    /**
+     * Queue capacity.
+     */
+    private final int capacity;
+    /**
+     * Overflow policy.
+     */
+    private final OverflowPolicy overflowPolicy;
+    /**
+     * Thread pool with bounded queue.
+     */
+    private final ThreadPoolExecutor executor;
+    /**
+     * Tasks accepted.
+     */
+    private final AtomicLong accepted = new AtomicLong();
+    /**
+     * Tasks rejected.
+     */
+    private final AtomicLong rejected = new AtomicLong();
+    /**
+     * Tasks run on caller's thread.
+     */
+    private final AtomicLong callerRuns = new AtomicLong();
+    /**
+     * Times a caller blocked on a full queue.
+     */
+    private final AtomicLong blocked = new AtomicLong();
+    /**
+     * Total nanoseconds callers blocked.
+     */
+    private final AtomicLong blockedNanos = new AtomicLong();
+    /**
+     * Queue wait, service time and task counts.
+     */
+    private final StageMetrics metrics;
+    /**
+     * Registry metrics are published to.
+     */
+    private final MetricsRegistry registry;
+
+    /**
+     * Construct stage, start its threads and register its metrics.
+     *
+     * @param name Stage name used for thread names and metrics.
+     * @param threads Worker threads.
+     * @param capacity Queue capacity or {@link #UNBOUNDED}.
+     * @param overflowPolicy What to do when queue is full.
+     * @param registry Registry metrics are published to.
+     */
+    public StageExecutor(final String name, final int threads, final int capacity, final OverflowPolicy overflowPolicy,
+            final MetricsRegistry registry) {
+        if (threads < 1 || capacity < 1) {
+            throw new RuntimeException(String.format("Threads and capacity must be greater than 0, threads=%d, capacity=%d",
+                    threads, capacity));
+        }
+        this.name = name;
+        this.capacity = capacity;
+        this.overflowPolicy = overflowPolicy;
+        final BlockingQueue<Runnable> queue = capacity == UNBOUNDED ? new LinkedBlockingQueue<>() : new ArrayBlockingQueue<>(
+                capacity);
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, queue, new ThreadFactoryBuilder().
+                setNameFormat(String.format("%s-%%d", name)).build(), new ThreadPoolExecutor.AbortPolicy());
+        // Workers must exist before a blocked caller puts directly on the queue
+        executor.prestartAllCoreThreads();
+        metrics = new StageMetrics(name, () -> executor.getQueue().size());
+        this.registry = registry;
+        registry.register(metrics);
+    }
+
+    /**
+     * Construct stage using the default {@link StageMetrics#getRegistry()} registry.
+     *
+     * @param name Stage name used for thread names and metrics.
+     * @param threads Worker threads.
+     * @param capacity Queue capacity.
+     * @param overflowPolicy What to do when queue is full.
+     */
+    public StageExecutor(final String name, final int threads, final int capacity, final OverflowPolicy overflowPolicy) {
+        this(name, threads, capacity, overflowPolicy, StageMetrics.getRegistry());
+    }
+
+    /**
+     * Construct stage with unbounded queue.
+     *
+     * @param name Stage name used for thread names.
+     * @param threads Worker threads.
+     */
+    public StageExecutor(final String name, final int threads) {
+        this(name, threads, UNBOUNDED, OverflowPolicy.BLOCK);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    public long getAccepted() {
+        return accepted.get();
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    public long getCallerRuns() {
+        return callerRuns.get();
+    }
+
+    public long getBlocked() {
+        return blocked.get();
+    }
+
+    public long getBlockedNanos() {
+        return blockedNanos.get();
+    }
+
+    public StageMetrics getMetrics() {
+        return metrics;
+    }
+
+    public long getQueueWaitNanos() {
+        return metrics.getQueueWaitNanos();
+    }
+
+    public long getMaxQueueWaitNanos() {
+        return metrics.getMaxQueueWaitNanos();
+    }
+
+    /**
+     * Average time tasks waited in queue.
+     *
+     * @return Average nanoseconds.
+     */
+    public long getAvgQueueWaitNanos() {
+        final var count = metrics.getStarted();
+        return count > 0 ? metrics.getQueueWaitNanos() / count : 0;
+    }
+
+    /**
+     * Reject task.
+     *
+     * @return Always false.
+     */
+    private boolean reject() {
+        rejected.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Queue task. When the queue is full the overflow policy is applied. Tasks are rejected after shutdown regardless of policy.
+     *
+     * @param task Task to run.
+     * @return True if task was queued or run, false if it was rejected.
+     */
+    public boolean execute(final Runnable task) {
+        if (executor.isShutdown()) {
+            return reject();
+        }
+        final var enqueued = metrics.enqueued();
+        final Runnable timed = () -> {
+            final var start = metrics.started(enqueued);
+            try {
+                task.run();
+                metrics.completed(start);
+            } catch (RuntimeException e) {
+                // DeTOnator exception handling throws RuntimeException
+                metrics.failed(start);
+                logger.error("Stage {} task error", name, e);
+            }
+        };
+        try {
+            executor.execute(timed);
+            accepted.incrementAndGet();
+            return true;
+        } catch (RejectedExecutionException e) {
+            if (executor.isShutdown()) {
+                return reject();
+            }
+        }
+        // Queue is full
+        switch (overflowPolicy) {
+            case BLOCK:
+                blocked.incrementAndGet();
+                try {
+                    executor.getQueue().put(timed);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return reject();
+                } finally {
+                    blockedNanos.addAndGet(System.nanoTime() - enqueued);
+                }
+                // Shutdown while blocked may leave task without a worker
+                if (executor.isShutdown() && executor.getQueue().remove(timed)) {
+                    return reject();
+                }
+                accepted.incrementAndGet();
+                return true;
+            case CALLER_RUNS:
+                callerRuns.incrementAndGet();
+                accepted.incrementAndGet();
+                timed.run();
+                return true;
+            default:
+                return reject();
+        }
+    }
+
+    /**
+     * Stop accepting tasks. Queued tasks still run.
+     */
+    public void stop() {
+        executor.shutdown();
+    }
+
+    /**
+     * Wait for queued tasks to finish after {@link #stop()} and unregister metrics.
+     */
+    public void awaitTermination() {
+        try {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        } finally {
+            // Always release the MBean, even if interrupted
+            registry.unregister(metrics);
+        }
+        logger.debug("Stage {} accepted {}, rejected {}, caller runs {}, blocked {}, avg queue wait {} us, max queue wait {} us",
+                name, accepted.get(), rejected.get(), callerRuns.get(), blocked.get(), getAvgQueueWaitNanos() / 1000,
+                metrics.getMaxQueueWaitNanos() / 1000);
+        logger.debug(metrics);
+    }
+
+    /**
+     * Stop accepting tasks and wait for queued tasks to finish.
+     */
+    public void shutdown() {
+        stop();
+        awaitTermination();
+    }
+}
@@ -0,0 +1,285 @@
+/*
+ * Copyright (c) Steven P. Goldsmith. All rights reserved.
+ */
+package com.codeferm.detonator;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Metrics of one pipeline stage. Time a task waited in the queue is measured from its enqueue timestamp to the time a worker started
+ * it and service time from start to finish, so a slow stage can be told apart from a stage that is just backed up. Queue depth, in
+ * flight count, completed and failed counts are tracked as well.
+ *
+ * {@link StageExecutor} records its tasks here, but any {@link OrderQueue} implementation with its own threads can call
+ * {@link #started(long)}, {@link #completed(long)} and {@link #failed(long)}. Metrics are published through a pluggable
+ * {@link MetricsRegistry}, which is {@link JmxMetricsRegistry} unless {@link #setRegistry(MetricsRegistry)} is called.
+ *
+ * This class is thread safe.
+ *
+ * @author Steven P. Goldsmith
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class StageMetrics implements StageMetricsMBean {
+
+    /**
+     * Histogram precision.
+     */
+    private static final int SIGNIFICANT_DIGITS = 3;
+    /**
+     * Registry used by stages.
+     */
+    private static volatile MetricsRegistry registry = new JmxMetricsRegistry();
+    /**
+     * Instances created, used to tell apart stages with the same name.
+     */
+    private static final AtomicLong INSTANCES = new AtomicLong();
+    /**
+     * Unique instance ID.
+     */
+    private final long id = INSTANCES.incrementAndGet();
+    /**
+     * Stage name.
+     */
+    private final String name;
+    /**
+     * Queue depth of stage.
+     */
+    private final IntSupplier queueDepth;
+    /**
+     * Tasks running.
+     */
+    private final AtomicInteger inFlight = new AtomicInteger();
+    /**
+     * Tasks started.
+     */
+    private final AtomicLong started = new AtomicLong();
+    /**
+     * Tasks completed.
+     */
+    private final AtomicLong completed = new AtomicLong();
+    /**
+     * Tasks that threw an exception.
+     */
+    private final AtomicLong failed = new AtomicLong();
+    /**
+     * Total nanoseconds tasks waited in queue.
+     */
+    private final AtomicLong queueWaitNanos = new AtomicLong();
+    /**
+     * Maximum nanoseconds a task waited in queue.
+     */
+    private final AtomicLong maxQueueWaitNanos = new AtomicLong();
+    /**
+     * Queue wait nanoseconds.
+     */
+    private final ConcurrentHistogram queueWait = new ConcurrentHistogram(SIGNIFICANT_DIGITS);
+    /**
+     * Service nanoseconds of completed and failed tasks.
+     */
+    private final ConcurrentHistogram service = new ConcurrentHistogram(SIGNIFICANT_DIGITS);
+    /**
+     * Start of throughput interval.
+     */
+    private volatile long since = System.nanoTime();
+
+    /**
+     * Construct with stage name and queue depth.
+     *
+     * @param name Stage name.
+     * @param queueDepth Queue depth of stage.
+     */
+    public StageMetrics(final String name, final IntSupplier queueDepth) {
+        this.name = name;
+        this.queueDepth = queueDepth;
+    }
+
+    public static MetricsRegistry getRegistry() {
+        return registry;
+    }
+
+    public static void setRegistry(final MetricsRegistry registry) {
+        StageMetrics.registry = registry;
+    }
+
+    /**
+     * Timestamp taken when a task is queued.
+     *
+     * @return Enqueue timestamp in nanoseconds.
+     */
+    public long enqueued() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Task taken from queue. Records queue wait.
+     *
+     * @param enqueued Enqueue timestamp.
+     * @return Start timestamp in nanoseconds.
+     */
+    public long started(final long enqueued) {
+        final var start = System.nanoTime();
+        final var wait = Math.max(0, start - enqueued);
+        inFlight.incrementAndGet();
+        started.incrementAndGet();
+        queueWaitNanos.addAndGet(wait);
+        maxQueueWaitNanos.accumulateAndGet(wait, Math::max);
+        queueWait.recordValue(wait);
+        return start;
+    }
+
+    /**
+     * Task finished. Records service time.
+     *
+     * @param start Start timestamp.
+     */
+    public void completed(final long start) {
+        service.recordValue(Math.max(0, System.nanoTime() - start));
+        completed.incrementAndGet();
+        inFlight.decrementAndGet();
+    }
+
+    /**
+     * Task threw an exception. Records service time.
+     *
+     * @param start Start timestamp.
+     */
+    public void failed(final long start) {
+        service.recordValue(Math.max(0, System.nanoTime() - start));
+        failed.incrementAndGet();
+        inFlight.decrementAndGet();
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return queueDepth.getAsInt();
+    }
+
+    @Override
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    @Override
+    public long getStarted() {
+        return started.get();
+    }
+
+    @Override
+    public long getCompleted() {
+        return completed.get();
+    }
+
+    @Override
+    public long getFailed() {
+        return failed.get();
+    }
+
+    public long getQueueWaitNanos() {
+        return queueWaitNanos.get();
+    }
+
+    public long getMaxQueueWaitNanos() {
+        return maxQueueWaitNanos.get();
+    }
+
+    /**
+     * Completed and failed tasks per second since construction or last reset.
+     *
+     * @return Tasks per second.
+     */
+    @Override
+    public double getThroughput() {
+        final var seconds = (System.nanoTime() - since) / (double) TimeUnit.SECONDS.toNanos(1);
+        return seconds > 0 ? (completed.get() + failed.get()) / seconds : 0;
+    }
+
+    @Override
+    public double getQueueWaitMeanMicros() {
+        return queueWait.getMean() / 1000;
+    }
+
+    @Override
+    public long getQueueWaitP99Micros() {
+        return queueWait.getValueAtPercentile(99.0) / 1000;
+    }
+
+    @Override
+    public long getQueueWaitMaxMicros() {
+        return queueWait.getMaxValue() / 1000;
+    }
+
+    @Override
+    public double getServiceMeanMicros() {
+        return service.getMean() / 1000;
+    }
+
+    @Override
+    public long getServiceP50Micros() {
+        return service.getValueAtPercentile(50.0) / 1000;
+    }
+
+    @Override
+    public long getServiceP99Micros() {
+        return service.getValueAtPercentile(99.0) / 1000;
+    }
+
+    @Override
+    public long getServiceMaxMicros() {
+        return service.getMaxValue() / 1000;
+    }
+
+    /**
+     * Copy of queue wait histogram in nanoseconds.
+     *
+     * @return Histogram.
+     */
+    public Histogram getQueueWaitHistogram() {
+        return queueWait.copy();
+    }
+
+    /**
+     * Copy of service time histogram in nanoseconds.
+     *
+     * @return Histogram.
+     */
+    public Histogram getServiceHistogram() {
+        return service.copy();
+    }
+
+    /**
+     * Clear counts and histograms. Queue depth and in flight count are not cleared.
+     */
+    @Override
+    public void reset() {
+        started.set(0);
+        completed.set(0);
+        failed.set(0);
+        queueWaitNanos.set(0);
+        maxQueueWaitNanos.set(0);
+        queueWait.reset();
+        service.reset();
+        since = System.nanoTime();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Stage %s depth %d, in flight %d, completed %d, failed %d, %.1f/s, queue wait mean %.1f us p99 %d us, "
+                + "service mean %.1f us p99 %d us", name, getQueueDepth(), getInFlight(), getCompleted(), getFailed(), getThroughput(),
+                getQueueWaitMeanMicros(), getQueueWaitP99Micros(), getServiceMeanMicros(), getServiceP99Micros());
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) Steven P. Goldsmith. All rights reserved.
+ */
+package com.codeferm.detonator;
+
+/**
+ * Management interface of {@link StageMetrics}. Times are in microseconds.
+ *
+ * @author Steven P. Goldsmith
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public interface StageMetricsMBean {
+
+    String getName();
+
+    int getQueueDepth();
+
+    int getInFlight();
+
+    long getStarted();
+
+    long getCompleted();
+
+    long getFailed();
+
+    double getThroughput();
+
+    double getQueueWaitMeanMicros();
+
+    long getQueueWaitP99Micros();
+
+    long getQueueWaitMaxMicros();
+
+    double getServiceMeanMicros();
+
+    long getServiceP50Micros();
+
+    long getServiceP99Micros();
+
+    long getServiceMaxMicros();
+
+    /**
+     * Clear counts and histograms. Queue depth and in flight count are not cleared.
+     */
+    void reset();
+}
@@ -5,6 +5,8 @@ package com.codeferm.detonator;
 
 import com.codeferm.dto.Inventories;
 import com.codeferm.dto.OrderItems;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Update inventory based on OrderItems.
@@ -23,4 +25,25 @@ public interface UpdateInventory {
      */
     public Inventories update(final OrderItems item);
 
+    /**
+     * Update quantity of all OrderItems of an order. Default calls update for each item.
+     *
+     * @param items OrderItems used for update.
+     * @return Inventories DTO of each item in item order.
+     */
+    default List<Inventories> update(final List<OrderItems> items) {
+        final List<Inventories> list = new ArrayList<>();
+        items.forEach(item -> list.add(update(item)));
+        return list;
+    }
+
+    /**
+     * Can update be called by more than one thread at the same time? Default is false.
+     *
+     * @return True if thread safe.
+     */
+    default boolean isThreadSafe() {
+        return false;
+    }
+
 }
@@ -7,6 +7,12 @@ import com.codeferm.dto.Inventories;
 import com.codeferm.dto.InventoriesKey;
 import com.codeferm.dto.OrderItems;
 import com.codeferm.dto.OrderItemsKey;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 /**
  * UpdateInventoryDao is not thread safe because it updates the inventory. Use a single threaded queue to handle updates.
@@ -79,7 +85,7 @@ public class UpdateInventoryDao implements UpdateInventory {
                 Long.MAX_VALUE));
         // See if we get any hits
         if (list == null) {
-            throw new RuntimeException(String.format("productId %d not found", item.getProductId()));
+            throw new OrderRejectedException(String.format("productId %d not found", item.getProductId()));
         }
         int i = 0;
         // Rifle through list and see if any warehouse has product
@@ -95,8 +101,50 @@ public class UpdateInventoryDao implements UpdateInventory {
             // Save quantity update
             inventories.update(inv.getKey(), inv);
         } else {
-            throw new RuntimeException(String.format("productId %d not in invenroty", item.getProductId()));
+            throw new OrderRejectedException(String.format("productId %d not in invenroty", item.getProductId()));
         }
         return inv;
     }
+
+    /**
+     * Update inventory of all items with one range read and one batched update. Inventory of every product between the lowest and
+     * highest product ID is read, so this works best when product IDs of an order are close together. All items are checked before
+     * anything is written, so nothing is updated if any item fails.
+     *
+     * @param items OrderItems used for update.
+     * @return Inventories DTO of each item in item order.
+     */
+    @Override
+    public List<Inventories> update(final List<OrderItems> items) {
+        final List<Inventories> list = new ArrayList<>();
+        if (items.isEmpty()) {
+            return list;
+        }
+        final var productIds = items.stream().map(OrderItems::getProductId).collect(Collectors.toSet());
+        final var from = productIds.stream().min(Long::compare).get();
+        final var to = productIds.stream().max(Long::compare).get();
+        // Get warehouses of all products in one read
+        final Map<Long, List<Inventories>> stock = new HashMap<>();
+        inventories.findRange(new InventoriesKey(from, 0L), new InventoriesKey(to, Long.MAX_VALUE)).stream().filter(inv -> productIds.
+                contains(inv.getProductId())).forEach(inv -> stock.computeIfAbsent(inv.getProductId(), k -> new ArrayList<>()).add(
+                inv));
+        final Map<InventoriesKey, Inventories> dirty = new LinkedHashMap<>();
+        for (final OrderItems item : items) {
+            final var warehouses = stock.get(item.getProductId());
+            // See if we get any hits
+            if (warehouses == null) {
+                throw new OrderRejectedException(String.format("productId %d not found", item.getProductId()));
+            }
+            // Find first warehouse with enough quantity left after earlier items
+            final var inv = warehouses.stream().filter(i -> i.getQuantity() >= item.getQuantity()).findFirst().orElseThrow(
+                    () -> new OrderRejectedException(String.format("productId %d not in invenroty", item.getProductId())));
+            // Remove item quantity from inventory
+            inv.setQuantity(inv.getQuantity() - item.getQuantity());
+            dirty.put(inv.getKey(), inv);
+            list.add(inv);
+        }
+        // Save quantity updates in one batch
+        inventories.update(dirty);
+        return list;
+    }
 }
@@ -3,44 +3,164 @@
  */
 package com.codeferm.detonator;
 
+import com.codeferm.dto.Dto;
+import com.codeferm.dto.DtoValidator;
 import jakarta.validation.Validation;
 import jakarta.validation.Validator;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.metadata.PropertyDescriptor;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 
 /**
  * This class can validate beans using Bean Validation 2.0 (JSR 380).
  *
+ * DTOs with a validator generated from validator.ftl (class name plus Validator) are checked by it instead, so there's no
+ * reflective metadata walk per bean and nothing is allocated when the DTO is valid. Bean Validation is still used for DTOs without a
+ * generated validator and DTOs with constraints the generator doesn't know about, such as custom constraints. With columnChecks true
+ * generated validators also check string size and BigDecimal integer digits against the column, which Bean Validation annotations
+ * don't. It's off by default, so only the same NotNull constraints as Bean Validation are checked.
+ *
  * @author Steven P. Goldsmith
  * @version 1.0.0
  * @since 1.0.0
  */
 public class ValidateBean {
-    
+
+    /**
+     * Marks classes that need Bean Validation.
+     */
+    private static final DtoValidator<Dto> NONE = (dto, failFast, columnChecks) -> null;
     /**
      * Bean validator.
      */
-    private final Validator validator;    
+    private final Validator validator;
+    /**
+     * Stop at first violation of a generated validator.
+     */
+    private final boolean failFast;
+    /**
+     * Generated validators check string size and BigDecimal integer digits.
+     */
+    private final boolean columnChecks;
+    /**
+     * Generated validator by bean class or NONE.
+     */
+    private final Map<Class<?>, DtoValidator<Dto>> validators = new ConcurrentHashMap<>();
+
     /**
      * Default constructor. Initialize validator.
      */
     public ValidateBean() {
+        this(false);
+    }
+
+    /**
+     * Initialize validator.
+     *
+     * @param failFast Stop at first violation of a generated validator.
+     */
+    public ValidateBean(final boolean failFast) {
+        this(failFast, false);
+    }
+
+    /**
+     * Initialize validator.
+     *
+     * @param failFast Stop at first violation of a generated validator.
+     * @param columnChecks Generated validators check string size and BigDecimal integer digits against the column.
+     */
+    public ValidateBean(final boolean failFast, final boolean columnChecks) {
         validator = Validation.buildDefaultValidatorFactory().getValidator();
+        this.failFast = failFast;
+        this.columnChecks = columnChecks;
     }
-    
+
+    public boolean isFailFast() {
+        return failFast;
+    }
+
+    public boolean isColumnChecks() {
+        return columnChecks;
+    }
+
+    /**
+     * Find generated validator of class or its superclasses.
+     *
+     * @param clazz Bean class.
+     * @return Generated validator or NONE if Bean Validation must be used.
+     */
+    @SuppressWarnings("unchecked")
+    private DtoValidator<Dto> generated(final Class<?> clazz) {
+        for (Class<?> owner = clazz; owner != null && owner != Object.class; owner = owner.getSuperclass()) {
+            try {
+                final var validatorClass = Class.forName(String.format("%sValidator", owner.getName()), true, owner.
+                        getClassLoader());
+                if (!DtoValidator.class.isAssignableFrom(validatorClass)) {
+                    return NONE;
+                }
+                final var generated = (DtoValidator<Dto>) validatorClass.getDeclaredConstructor().newInstance();
+                return covered(clazz, owner) ? generated : NONE;
+            } catch (ClassNotFoundException e) {
+                // Not generated, try superclass
+            } catch (ReflectiveOperationException e) {
+                throw new RuntimeException(String.format("Unable to create validator for %s", owner.getName()), e);
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * Check that every constraint of class is a NotNull generated from the columns of the validator's class.
+     *
+     * @param clazz Bean class.
+     * @param owner Class the validator was generated for.
+     * @return True if generated validator covers all constraints.
+     */
+    private boolean covered(final Class<?> clazz, final Class<?> owner) {
+        final var descriptor = validator.getConstraintsForClass(clazz);
+        if (!descriptor.getConstraintDescriptors().isEmpty()) {
+            return false;
+        }
+        final var generatedNames = validator.getConstraintsForClass(owner).getConstrainedProperties().stream().map(
+                PropertyDescriptor::getPropertyName).collect(Collectors.toSet());
+        for (final var property : descriptor.getConstrainedProperties()) {
+            if (property.isCascaded() || !property.getConstrainedContainerElementTypes().isEmpty() || !generatedNames.contains(
+                    property.getPropertyName())) {
+                return false;
+            }
+            for (final var constraint : property.getConstraintDescriptors()) {
+                if (!(constraint.getAnnotation() instanceof NotNull)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
     /**
      * Throws exception if bean validation fails.
      *
      * @param bean Bean to validate.
      */
     public void valid(final Object bean) {
-        var violations = validator.validate(bean);
-        if (violations.size() > 0) {
-            var message = "";
+        if (bean instanceof Dto) {
+            final var generated = validators.computeIfAbsent(bean.getClass(), this::generated);
+            if (generated != NONE) {
+                final var message = generated.validate((Dto) bean, failFast, columnChecks);
+                if (message != null) {
+                    throw new OrderRejectedException(String.format("Bean violations: %s", message));
+                }
+                return;
+            }
+        }
+        final var violations = validator.validate(bean);
+        if (!violations.isEmpty()) {
             // Build exception message
-            message = violations.stream().map(violation -> String.format("%s.%s %s | ", violation.getRootBeanClass().
-                    getSimpleName(), violation.getPropertyPath(), violation.getMessage())).reduce(message, String::concat);
-            // Trim last seperator
-            message = message.substring(0, message.length() - 3);
-            throw new RuntimeException(String.format("Bean violations: %s", message));
+            final var message = violations.stream().map(violation -> String.format("%s.%s %s", violation.getRootBeanClass().
+                    getSimpleName(), violation.getPropertyPath(), violation.getMessage())).collect(Collectors.joining(" | "));
+            throw new OrderRejectedException(String.format("Bean violations: %s", message));
         }
-    }    
+    }
 }
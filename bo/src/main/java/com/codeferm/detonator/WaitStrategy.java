@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) Steven P. Goldsmith. All rights reserved.
+ */
+package com.codeferm.detonator;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * How an {@link EventBus} consumer waits for the next event. Busy spin has the lowest latency and burns a core, blocking uses the
+ * least CPU and adds wake up latency. Yielding and sleeping are in between.
+ *
+ * @author Steven P. Goldsmith
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public interface WaitStrategy {
+
+    /**
+     * Called while the event is not available.
+     *
+     * @param counter Number of times idle was called for this event starting at 0.
+     */
+    void idle(final int counter);
+
+    /**
+     * Called after an event is published.
+     */
+    void signalAll();
+
+    /**
+     * Spin on the CPU.
+     *
+     * @return Wait strategy.
+     */
+    static WaitStrategy busySpin() {
+        return new WaitStrategy() {
+            @Override
+            public void idle(final int counter) {
+                Thread.onSpinWait();
+            }
+
+            @Override
+            public void signalAll() {
+            }
+        };
+    }
+
+    /**
+     * Spin then yield the CPU.
+     *
+     * @return Wait strategy.
+     */
+    static WaitStrategy yielding() {
+        return new WaitStrategy() {
+            @Override
+            public void idle(final int counter) {
+                if (counter < 100) {
+                    Thread.onSpinWait();
+                } else {
+                    Thread.yield();
+                }
+            }
+
+            @Override
+            public void signalAll() {
+            }
+        };
+    }
+
+    /**
+     * Spin, yield then park.
+     *
+     * @param sleepNanos Park time.
+     * @return Wait strategy.
+     */
+    static WaitStrategy sleeping(final long sleepNanos) {
+        return new WaitStrategy() {
+            @Override
+            public void idle(final int counter) {
+                if (counter < 100) {
+                    Thread.onSpinWait();
+                } else if (counter < 200) {
+                    Thread.yield();
+                } else {
+                    LockSupport.parkNanos(sleepNanos);
+                }
+            }
+
+            @Override
+            public void signalAll() {
+            }
+        };
+    }
+
+    /**
+     * Block on a lock condition until signaled. Waits are bounded, so shutdown is always seen.
+     *
+     * @return Wait strategy.
+     */
+    static WaitStrategy blocking() {
+        return new WaitStrategy() {
+            private final ReentrantLock lock = new ReentrantLock();
+            private final Condition condition = lock.newCondition();
+            private volatile int waiters;
+
+            @Override
+            public void idle(final int counter) {
+                lock.lock();
+                try {
+                    waiters++;
+                    condition.await(1, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    waiters--;
+                    lock.unlock();
+                }
+            }
+
+            @Override
+            public void signalAll() {
+                // Only take the lock if someone is waiting
+                if (waiters > 0) {
+                    lock.lock();
+                    try {
+                        condition.signalAll();
+                    } finally {
+                        lock.unlock();
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * Wait strategy by name.
+     *
+     * @param name busySpin, yielding, sleeping or blocking.
+     * @return Wait strategy.
+     */
+    static WaitStrategy of(final String name) {
+        switch (name) {
+            case "busySpin":
+                return busySpin();
+            case "yielding":
+                return yielding();
+            case "sleeping":
+                return sleeping(100000);
+            case "blocking":
+                return blocking();
+            default:
+                throw new RuntimeException(String.format("Unknown wait strategy %s", name));
+        }
+    }
+}
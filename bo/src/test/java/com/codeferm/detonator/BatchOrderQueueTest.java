@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) Steven P. Goldsmith. All rights reserved.
+ */
+package com.codeferm.detonator;
+
+import com.codeferm.dto.Inventories;
+import com.codeferm.dto.InventoriesKey;
+import com.codeferm.dto.OrderItems;
+import com.codeferm.dto.OrderItemsKey;
+import com.codeferm.dto.Orders;
+import com.codeferm.dto.OrdersKey;
+import com.codeferm.dto.Products;
+import com.codeferm.dto.ProductsKey;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.mapdb.DBMaker;
+
+/**
+ * Test BatchOrderQueue using in memory MapDB.
+ *
+ * @author Steven P. Goldsmith
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class BatchOrderQueueTest {
+
+    /**
+     * Logger.
+     */
+    private static final Logger logger = LogManager.getLogger(BatchOrderQueueTest.class);
+
+    /**
+     * Create order message with one of each product.
+     *
+     * @param productIds Product IDs.
+     * @return Order message.
+     */
+    private OrderMessage orderMessage(final long... productIds) {
+        final List<OrderItems> list = new ArrayList<>();
+        for (var i = 0; i < productIds.length; i++) {
+            final var item = new OrderItems();
+            item.setItemId((long) i + 1);
+            item.setProductId(productIds[i]);
+            item.setQuantity(1);
+            list.add(item);
+        }
+        final var orderMessage = new OrderMessage();
+        orderMessage.setCustomerId(1L);
+        orderMessage.setSalesmanId(1L);
+        orderMessage.setOrderItemsList(list);
+        return orderMessage;
+    }
+
+    /**
+     * Orders that run out of inventory or use unknown products fail on their own and give back what they reserved.
+     */
+    @Test
+    public void createBatch() {
+        logger.debug("createBatch");
+        final var db = DBMaker.memoryDB().make();
+        // Auto increment key used by saveReturnKey
+        db.atomicLong("orders_key", 0L).create();
+        final Dao<OrdersKey, Orders> orders = new GenMapDbDao<>(db, "orders", OrdersKey.class, Orders.class);
+        final Dao<OrderItemsKey, OrderItems> orderItems = new GenMapDbDao<>(db, "orderitems", OrderItemsKey.class, OrderItems.class);
+        final Dao<ProductsKey, Products> products = new GenMapDbDao<>(db, "products", ProductsKey.class, Products.class);
+        final Dao<InventoriesKey, Inventories> inventories = new GenMapDbDao<>(db, "inventories", InventoriesKey.class,
+                Inventories.class);
+        // Product 1 has 5 in stock and product 2 has 100
+        for (long productId = 1; productId <= 2; productId++) {
+            final var product = new Products();
+            product.setProductId(productId);
+            product.setProductName(String.format("Product %d", productId));
+            product.setStandardCost(BigDecimal.TEN);
+            product.setListPrice(BigDecimal.TEN);
+            product.setCategoryId(1);
+            products.save(product);
+            final var inv = new Inventories();
+            inv.setProductId(productId);
+            inv.setWarehouseId(1L);
+            inv.setQuantity(productId == 1 ? 5 : 100);
+            inventories.save(inv);
+        }
+        final var queue = new BatchOrderQueue(new BatchCreateOrder(orders, orderItems, products, inventories), 8, 50,
+                StageExecutor.DEFAULT_CAPACITY, OverflowPolicy.BLOCK);
+        final List<OrderAggregate> created = new CopyOnWriteArrayList<>();
+        queue.addObserver((object, data) -> created.add(data));
+        // Item for product 2 is reserved first, so failed orders must give it back
+        for (var i = 0; i < 20; i++) {
+            assertTrue(queue.create(orderMessage(2, 1)));
+        }
+        assertTrue(queue.create(orderMessage(99)));
+        queue.shutdown();
+        assertEquals(5, queue.getCompleted());
+        assertEquals(16, queue.getFailed());
+        assertTrue(queue.getBatches() >= 3);
+        // Created orders are passed on in order
+        assertEquals(5, created.size());
+        for (var i = 0; i < created.size(); i++) {
+            assertEquals(i + 1, created.get(i).getOrderId().intValue());
+        }
+        assertEquals(5, orders.findAll().size());
+        assertEquals(10, orderItems.findAll().size());
+        assertEquals(0, inventories.find(new InventoriesKey(1L, 1L)).getQuantity().intValue());
+        assertEquals(95, inventories.find(new InventoriesKey(2L, 1L)).getQuantity().intValue());
+        db.close();
+    }
+
+    /**
+     * An observer that throws doesn't stop the drain thread, so every order is still created and a blocked create gets room.
+     */
+    @Test
+    public void observerError() {
+        logger.debug("observerError");
+        final var db = DBMaker.memoryDB().make();
+        db.atomicLong("orders_key", 0L).create();
+        final Dao<OrdersKey, Orders> orders = new GenMapDbDao<>(db, "orders", OrdersKey.class, Orders.class);
+        final Dao<OrderItemsKey, OrderItems> orderItems = new GenMapDbDao<>(db, "orderitems", OrderItemsKey.class, OrderItems.class);
+        final Dao<ProductsKey, Products> products = new GenMapDbDao<>(db, "products", ProductsKey.class, Products.class);
+        final Dao<InventoriesKey, Inventories> inventories = new GenMapDbDao<>(db, "inventories", InventoriesKey.class,
+                Inventories.class);
+        final var product = new Products();
+        product.setProductId(2L);
+        product.setProductName("Product 2");
+        product.setStandardCost(BigDecimal.TEN);
+        product.setListPrice(BigDecimal.TEN);
+        product.setCategoryId(1);
+        products.save(product);
+        final var inv = new Inventories();
+        inv.setProductId(2L);
+        inv.setWarehouseId(1L);
+        inv.setQuantity(100);
+        inventories.save(inv);
+        // Small queue, so create blocks if the drain thread dies
+        final var queue = new BatchOrderQueue(new BatchCreateOrder(orders, orderItems, products, inventories), 1, 10, 2,
+                OverflowPolicy.BLOCK);
+        final var notified = new AtomicInteger();
+        queue.addObserver((object, data) -> {
+            notified.incrementAndGet();
+            throw new RuntimeException("Event bus is shut down");
+        });
+        for (var i = 0; i < 20; i++) {
+            assertTrue(queue.create(orderMessage(2)));
+        }
+        queue.shutdown();
+        assertEquals(20, queue.getCompleted());
+        assertEquals(20, notified.get());
+        assertEquals(20, orders.findAll().size());
+        db.close();
+    }
+}
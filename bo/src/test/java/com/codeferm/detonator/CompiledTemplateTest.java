@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) Steven P. Goldsmith. All rights reserved.
+ */
+package com.codeferm.detonator;
+
+import com.codeferm.dto.Orders;
+import freemarker.template.Configuration;
+import freemarker.template.Template;
+import freemarker.template.TemplateException;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test CompiledTemplate renders the same output as FreeMarker.
+ *
+ * @author Steven P. Goldsmith
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class CompiledTemplateTest {
+
+    /**
+     * Logger.
+     */
+    private static final Logger logger = LogManager.getLogger(CompiledTemplateTest.class);
+
+    /**
+     * Process template text with FreeMarker.
+     *
+     * @param text Template text.
+     * @param dto Orders DTO.
+     * @param now Now value.
+     * @return Output.
+     */
+    private String freeMarker(final String text, final Orders dto, final String now) {
+        final var configuration = new Configuration(Configuration.VERSION_2_3_30);
+        configuration.setLocale(Locale.US);
+        final var model = new HashMap<String, Object>();
+        model.put("ordersDto", dto);
+        model.put("now", now);
+        final var out = new StringWriter();
+        try {
+            new Template("test", new StringReader(text), configuration).process(model, out);
+        } catch (IOException | TemplateException e) {
+            throw new RuntimeException(e);
+        }
+        return out.toString();
+    }
+
+    /**
+     * Shipped template and property access render like FreeMarker.
+     */
+    @Test
+    public void render() {
+        logger.debug("render");
+        final var dto = new Orders();
+        dto.setOrderId(123456L);
+        dto.setStatus("Shipped");
+        final var compiled = CompiledTemplate.compile(Paths.get("src/main/resources/templates/shipped.ftl"), "ordersDto",
+                "orderItemsList", "productsList", "now");
+        assertNotNull(compiled);
+        final var text = "Order ${ordersDto.orderId} is ${ ordersDto.getStatus() } at ${now}, id ${ordersDto.getOrderId()}\n";
+        final var template = CompiledTemplate.compile(text, Locale.US, "ordersDto", "now");
+        final var out = new StringWriter();
+        template.render(out, dto, "01-01-2020 00:00:00");
+        assertEquals(freeMarker(text, dto, "01-01-2020 00:00:00"), out.toString());
+        final var shipped = new StringWriter();
+        compiled.render(shipped, dto, List.of(), List.of(), "now");
+        assertTrue(shipped.toString().contains("shipped now."));
+        // Null values fail like FreeMarker
+        dto.setStatus(null);
+        assertThrows(RuntimeException.class, () -> template.render(new StringWriter(), dto, "now"));
+    }
+
+    /**
+     * Directives, built-ins and unbound variables fall back to FreeMarker.
+     */
+    @Test
+    public void unsupported() {
+        logger.debug("unsupported");
+        assertNull(CompiledTemplate.compile("<#list items as item>${item}</#list>", "items"));
+        assertNull(CompiledTemplate.compile("${ordersDto.status?upper_case}", "ordersDto"));
+        assertNull(CompiledTemplate.compile("${ordersDto.status!\"none\"}", "ordersDto"));
+        assertNull(CompiledTemplate.compile("${other}", "ordersDto"));
+    }
+
+    /**
+     * Unsupported interpolation between supported ones falls back to FreeMarker as well.
+     */
+    @Test
+    public void unsupportedBetween() {
+        logger.debug("unsupportedBetween");
+        assertNull(CompiledTemplate.compile("${ordersDto.orderId} ${ordersDto.orderId?c} ${ordersDto.status}", "ordersDto"));
+        assertNull(CompiledTemplate.compile("${ordersDto.orderId}${now!\"none\"}${ordersDto.status}", "ordersDto", "now"));
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) Steven P. Goldsmith. All rights reserved.
+ */
+package com.codeferm.detonator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test EventBus.
+ *
+ * @author Steven P. Goldsmith
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class EventBusTest {
+
+    /**
+     * Logger.
+     */
+    private static final Logger logger = LogManager.getLogger(EventBusTest.class);
+
+    /**
+     * Publish from several producers through a small ring, so publishers wrap and wait on the slow consumer.
+     *
+     * @param waitStrategy Consumer wait strategy.
+     */
+    private void publish(final WaitStrategy waitStrategy) {
+        final var producers = 4;
+        final var events = 10000;
+        final var eventBus = new EventBus<Observable<?, Long>, Long>(64, 16, waitStrategy);
+        final var observable = new Observable<Observable<?, Long>, Long>();
+        observable.addObserver(eventBus);
+        // Fast consumer checks sequence order
+        final var fastCount = new AtomicLong();
+        final var lastSequence = new AtomicLong(-1);
+        final var outOfOrder = new AtomicLong();
+        eventBus.addConsumer("fast", (source, data, sequence, endOfBatch) -> {
+            if (sequence != lastSequence.get() + 1) {
+                outOfOrder.incrementAndGet();
+            }
+            lastSequence.set(sequence);
+            fastCount.addAndGet(data);
+        });
+        // Slow consumer is an Observer
+        final var slowCount = new AtomicLong();
+        eventBus.addConsumer("slow", (Observer<Observable<?, Long>, Long>) (object, data) -> {
+            if (data % 1000 == 0) {
+                LockSupport.parkNanos(100000);
+            }
+            slowCount.addAndGet(data);
+        });
+        final var executor = Executors.newFixedThreadPool(producers);
+        for (var p = 0; p < producers; p++) {
+            executor.execute(() -> {
+                for (long i = 1; i <= events; i++) {
+                    observable.notifyObservers(i);
+                }
+            });
+        }
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+        eventBus.shutdown();
+        // Sum of 1 to events for each producer
+        final var expected = producers * ((long) events * (events + 1) / 2);
+        assertEquals(expected, fastCount.get());
+        assertEquals(expected, slowCount.get());
+        assertEquals(0, outOfOrder.get());
+        assertEquals(producers * events, eventBus.getProcessed("fast"));
+        assertEquals(0, eventBus.getLag("slow"));
+        // Lag can never exceed ring size plus publishers waiting for a slot
+        assertTrue(eventBus.getMaxLag("slow") <= eventBus.getSize() + producers);
+        logger.debug("Slow consumer {} batches, max lag {}", eventBus.getBatches("slow"), eventBus.getMaxLag("slow"));
+    }
+
+    /**
+     * Test each wait strategy.
+     */
+    @Test
+    public void waitStrategies() {
+        logger.debug("waitStrategies");
+        for (final var name : List.of("busySpin", "yielding", "sleeping", "blocking")) {
+            logger.debug("Wait strategy {}", name);
+            publish(WaitStrategy.of(name));
+        }
+    }
+
+    /**
+     * Test batch consumption and end of batch.
+     */
+    @Test
+    public void batch() {
+        logger.debug("batch");
+        final var eventBus = new EventBus<Observable<?, Integer>, Integer>(100);
+        // Rounded up to power of 2
+        assertEquals(128, eventBus.getSize());
+        final var observable = new Observable<Observable<?, Integer>, Integer>();
+        final List<Integer> batch = new ArrayList<>();
+        final List<List<Integer>> batches = new ArrayList<>();
+        final var blocked = new AtomicLong(1);
+        eventBus.addConsumer("batch", (source, data, sequence, endOfBatch) -> {
+            // Hold first event until the rest are published
+            while (blocked.get() == 1) {
+                Thread.onSpinWait();
+            }
+            batch.add(data);
+            if (endOfBatch) {
+                batches.add(new ArrayList<>(batch));
+                batch.clear();
+            }
+        });
+        for (var i = 0; i < 10; i++) {
+            eventBus.publish(observable, i);
+        }
+        blocked.set(0);
+        eventBus.shutdown();
+        // Everything but the event held is consumed in one batch
+        final var total = batches.stream().mapToInt(List::size).sum();
+        assertEquals(10, total);
+        assertTrue(batches.size() <= 2);
+    }
+
+    /**
+     * Publishing without consumers wraps the ring, but a consumer added later is still gated, so a slow consumer sees every event
+     * in order.
+     */
+    @Test
+    public void lateConsumer() {
+        logger.debug("lateConsumer");
+        final var eventBus = new EventBus<Observable<?, Integer>, Integer>(4);
+        final var observable = new Observable<Observable<?, Integer>, Integer>();
+        // Wrap ring several times with nobody reading
+        for (var i = 0; i < 20; i++) {
+            eventBus.publish(observable, -1);
+        }
+        final List<Integer> received = new ArrayList<>();
+        eventBus.addConsumer("late", (source, data, sequence, endOfBatch) -> {
+            LockSupport.parkNanos(100000);
+            received.add(data);
+        });
+        final List<Integer> expected = new ArrayList<>();
+        for (var i = 0; i < 100; i++) {
+            eventBus.publish(observable, i);
+            expected.add(i);
+        }
+        eventBus.shutdown();
+        assertEquals(expected, received);
+    }
+}
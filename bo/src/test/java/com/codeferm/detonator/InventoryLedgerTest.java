@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) Steven P. Goldsmith. All rights reserved.
+ */
+package com.codeferm.detonator;
+
+import com.codeferm.dto.Inventories;
+import com.codeferm.dto.InventoriesKey;
+import com.codeferm.dto.OrderItems;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.mapdb.DBMaker;
+
+/**
+ * Test InventoryLedger using in memory MapDB.
+ *
+ * @author Steven P. Goldsmith
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class InventoryLedgerTest {
+
+    /**
+     * Logger.
+     */
+    private static final Logger logger = LogManager.getLogger(InventoryLedgerTest.class);
+
+    /**
+     * Save inventory record.
+     *
+     * @param inventories Inventories DAO.
+     * @param productId Product ID.
+     * @param warehouseId Warehouse ID.
+     * @param quantity Quantity.
+     */
+    private void save(final Dao<InventoriesKey, Inventories> inventories, final long productId, final long warehouseId,
+            final int quantity) {
+        final var inv = new Inventories();
+        inv.setProductId(productId);
+        inv.setWarehouseId(warehouseId);
+        inv.setQuantity(quantity);
+        inventories.save(inv);
+    }
+
+    /**
+     * Create order item.
+     *
+     * @param productId Product ID.
+     * @param quantity Quantity.
+     * @return OrderItems DTO.
+     */
+    private OrderItems item(final long productId, final int quantity) {
+        final var item = new OrderItems();
+        item.setProductId(productId);
+        item.setQuantity(quantity);
+        return item;
+    }
+
+    /**
+     * Items come from the warehouse with the most stock, orders that can't be filled take nothing and changes are flushed.
+     */
+    @Test
+    public void update() {
+        logger.debug("update");
+        final var db = DBMaker.memoryDB().make();
+        final Dao<InventoriesKey, Inventories> inventories = new GenMapDbDao<>(db, "inventories", InventoriesKey.class,
+                Inventories.class);
+        save(inventories, 1, 1, 10);
+        save(inventories, 1, 2, 30);
+        save(inventories, 2, 1, 5);
+        final var ledger = new InventoryLedger(inventories, 4, 0);
+        final var inv = ledger.update(item(1, 25));
+        assertEquals(2L, inv.getWarehouseId().longValue());
+        assertEquals(5, inv.getQuantity().intValue());
+        // Warehouse 1 has the most stock now
+        assertEquals(1L, ledger.update(item(1, 1)).getWarehouseId().longValue());
+        // Product 2 runs out, so product 1 is given back
+        assertThrows(RuntimeException.class, () -> ledger.update(List.of(item(1, 2), item(2, 6))));
+        assertEquals(9, ledger.getQuantity(1, 1).intValue());
+        assertEquals(5, ledger.getQuantity(2, 1).intValue());
+        assertThrows(RuntimeException.class, () -> ledger.update(item(99, 1)));
+        final var list = ledger.update(List.of(item(1, 2), item(2, 5)));
+        assertEquals(2, list.size());
+        assertEquals(0, list.get(1).getQuantity().intValue());
+        // Flushed after every update
+        assertEquals(0, ledger.getPending());
+        assertEquals(7, inventories.find(new InventoriesKey(1L, 1L)).getQuantity().intValue());
+        assertEquals(5, inventories.find(new InventoriesKey(1L, 2L)).getQuantity().intValue());
+        assertEquals(0, inventories.find(new InventoriesKey(2L, 1L)).getQuantity().intValue());
+        // Change made outside ledger is picked up by reconcile
+        save(inventories, 3, 1, 1);
+        ledger.reconcile();
+        assertEquals(1, ledger.getQuantity(3, 1).intValue());
+        ledger.close();
+        db.close();
+    }
+
+    /**
+     * Concurrent allocations don't lose updates and flushes coalesce rows.
+     */
+    @Test
+    public void concurrent() {
+        logger.debug("concurrent");
+        final var db = DBMaker.memoryDB().make();
+        final Dao<InventoriesKey, Inventories> inventories = new GenMapDbDao<>(db, "inventories", InventoriesKey.class,
+                Inventories.class);
+        for (long productId = 1; productId <= 4; productId++) {
+            save(inventories, productId, 1, 10000);
+            save(inventories, productId, 2, 10000);
+        }
+        final var ledger = new InventoryLedger(inventories, 2, 10);
+        final var executor = Executors.newFixedThreadPool(8);
+        for (var i = 0; i < 4000; i++) {
+            final long productId = i % 4 + 1;
+            executor.execute(() -> ledger.update(List.of(item(productId, 1), item(productId % 4 + 1, 1))));
+        }
+        executor.shutdown();
+        try {
+            assertTrue(executor.awaitTermination(60, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+        ledger.close();
+        assertEquals(8000, ledger.getAllocations());
+        assertTrue(ledger.getFlushedRows() < ledger.getAllocations());
+        var total = 0;
+        for (final var inv : inventories.findAll()) {
+            total += inv.getQuantity();
+        }
+        assertEquals(80000 - 8000, total);
+        db.close();
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) Steven P. Goldsmith. All rights reserved.
+ */
+package com.codeferm.detonator;
+
+import com.codeferm.dto.OrderItems;
+import com.codeferm.dto.Orders;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Test JournalOrderQueue.
+ *
+ * @author Steven P. Goldsmith
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class JournalOrderQueueTest {
+
+    /**
+     * Logger.
+     */
+    private static final Logger logger = LogManager.getLogger(JournalOrderQueueTest.class);
+    /**
+     * Journal directory.
+     */
+    @TempDir
+    Path dir;
+
+    /**
+     * Create order message.
+     *
+     * @param customerId Customer ID.
+     * @param salesmanId Salesman ID used as sequence.
+     * @return Order message.
+     */
+    private OrderMessage orderMessage(final long customerId, final long salesmanId) {
+        final var item = new OrderItems();
+        item.setItemId(1L);
+        item.setProductId(1L);
+        item.setQuantity(1);
+        final var orderMessage = new OrderMessage();
+        orderMessage.setCustomerId(customerId);
+        orderMessage.setSalesmanId(salesmanId);
+        orderMessage.setOrderItemsList(List.of(item));
+        return orderMessage;
+    }
+
+    /**
+     * CreateOrder that records salesman ID (sequence) of each order.
+     *
+     * @param sequences Receives salesman ID of each order.
+     * @return CreateOrder.
+     */
+    private CreateOrder createOrder(final List<Long> sequences) {
+        final var orderId = new AtomicLong();
+        return new CreateOrder(item -> null) {
+            @Override
+            public OrderAggregate create(final OrderMessage orderMessage) {
+                sequences.add(orderMessage.getSalesmanId());
+                final var dto = new Orders();
+                dto.setOrderId(orderId.incrementAndGet());
+                dto.setCustomerId(orderMessage.getCustomerId());
+                return new OrderAggregate(dto, List.of(), List.of());
+            }
+        };
+    }
+
+    /**
+     * Orders from several producers are group committed, consumed in journal order and consumed segments are deleted.
+     */
+    @Test
+    public void rollAndCompact() {
+        logger.debug("rollAndCompact");
+        final List<Long> sequences = new CopyOnWriteArrayList<>();
+        final var queue = new JournalOrderQueue(createOrder(sequences), dir, 16 * 1024, 5);
+        final var created = new AtomicLong();
+        queue.addObserver((object, data) -> created.incrementAndGet());
+        final var executor = Executors.newFixedThreadPool(4);
+        for (var p = 0; p < 4; p++) {
+            final long customerId = p;
+            executor.execute(() -> {
+                for (long s = 0; s < 250; s++) {
+                    assertTrue(queue.create(orderMessage(customerId, s)));
+                }
+            });
+        }
+        executor.shutdown();
+        try {
+            assertTrue(executor.awaitTermination(60, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+        queue.shutdown();
+        assertFalse(queue.create(orderMessage(0, 0)));
+        assertEquals(1000, queue.getAppended());
+        assertEquals(1000, queue.getCompleted());
+        assertEquals(1000, created.get());
+        assertEquals(1, queue.getRejected());
+        assertEquals(0, queue.getLag());
+        // No more than one force per order
+        assertTrue(queue.getSyncs() > 0 && queue.getSyncs() <= 1000);
+        // Only the segment being appended to is left
+        assertEquals(1, queue.getSegments());
+        assertEquals(1000, sequences.size());
+    }
+
+    /**
+     * Entries after the saved offset are replayed on restart and new entries follow them.
+     *
+     * @throws IOException Possible exception.
+     */
+    @Test
+    public void replay() throws IOException {
+        logger.debug("replay");
+        final List<Long> sequences = new CopyOnWriteArrayList<>();
+        var queue = new JournalOrderQueue(createOrder(sequences), dir);
+        for (long s = 0; s < 100; s++) {
+            assertTrue(queue.create(orderMessage(1, s)));
+        }
+        queue.shutdown();
+        assertEquals(100, sequences.size());
+        // Simulate crash before consumed offset was saved
+        try (final var channel = FileChannel.open(dir.resolve(JournalOrderQueue.OFFSET_FILE), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(8).putLong(0, 0L), 0);
+        }
+        sequences.clear();
+        queue = new JournalOrderQueue(createOrder(sequences), dir);
+        queue.create(orderMessage(1, 100));
+        queue.shutdown();
+        assertEquals(100, queue.getReplayed());
+        assertEquals(101, queue.getCompleted());
+        for (var i = 0; i < sequences.size(); i++) {
+            assertEquals(i, sequences.get(i).intValue());
+        }
+        // Nothing left to replay
+        sequences.clear();
+        queue = new JournalOrderQueue(createOrder(sequences), dir);
+        queue.shutdown();
+        assertEquals(0, queue.getReplayed());
+        assertTrue(sequences.isEmpty());
+    }
+}
@@ -26,6 +26,8 @@ import javax.sql.DataSource;
 import org.apache.commons.dbcp2.BasicDataSource;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
@@ -216,6 +218,49 @@ public class MapDbOrdersBoTest {
 
     }
 
+    /**
+     * Test set based create validates whole order before anything is written.
+     */
+    @Test
+    public void createSetBased() {
+        logger.debug("createSetBased");
+        updateInventory(10);
+        final Dao<OrdersKey, Orders> orders = new GenMapDbDao<>(db, "orders", OrdersKey.class, Orders.class);
+        final Dao<OrderItemsKey, OrderItems> orderItems = new GenMapDbDao<>(db, "orderitems", OrderItemsKey.class, OrderItems.class);
+        final Dao<ProductsKey, Products> products = new GenMapDbDao<>(db, "products", ProductsKey.class, Products.class);
+        final Dao<InventoriesKey, Inventories> inventories
+                = new GenMapDbDao<>(db, "inventories", InventoriesKey.class, Inventories.class);
+        final var createOrder = new CreateOrder(new UpdateInventoryDao(orderItems, inventories), orders, orderItems, products);
+        createOrder.setSetBased(true);
+        final var orderMessage = new OrderMessage();
+        orderMessage.setCustomerId(1L);
+        orderMessage.setSalesmanId(1L);
+        orderMessage.setOrderItemsList(createOrderItemsList());
+        final var dto = createOrder.create(orderMessage);
+        final var items = orderItems.findRange(new OrderItemsKey(0L, dto.getOrderId()), new OrderItemsKey(Long.MAX_VALUE, dto.
+                getOrderId()));
+        assertEquals(2, items.size());
+        items.forEach(item -> assertEquals(products.find(new ProductsKey(item.getProductId())).getStandardCost(), item.
+                getUnitPrice()));
+        // Items and products travel with the order
+        assertEquals(2, dto.getOrderItemsList().size());
+        assertEquals(4L, dto.getProductsList().get(1).getProductId().longValue());
+        assertThrows(UnsupportedOperationException.class, () -> dto.getOrderItemsList().clear());
+        // Orders copy can be changed without changing the aggregate
+        final var copy = dto.toOrders();
+        copy.setStatus("Shipped");
+        assertEquals("New", dto.getStatus());
+        // Unknown product fails before order or inventory is written
+        final var count = orders.findAll().size();
+        final var list = createOrderItemsList();
+        list.get(1).setProductId(Long.MAX_VALUE);
+        orderMessage.setOrderItemsList(list);
+        assertThrows(OrderRejectedException.class, () -> createOrder.create(orderMessage));
+        assertEquals(count, orders.findAll().size());
+        assertEquals(9, inventories.findRange(new InventoriesKey(3L, 0L), new InventoriesKey(3L, Long.MAX_VALUE)).stream().mapToInt(
+                Inventories::getQuantity).min().getAsInt());
+    }
+
     /**
      * Test linking tables.
      */
@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) Steven P. Goldsmith. All rights reserved.
+ */
+package com.codeferm.detonator;
+
+import com.codeferm.dto.OrderItems;
+import com.codeferm.dto.Orders;
+import com.codeferm.dto.Products;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.List;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test OrderCodec.
+ *
+ * @author Steven P. Goldsmith
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class OrderCodecTest {
+
+    /**
+     * Logger.
+     */
+    private static final Logger logger = LogManager.getLogger(OrderCodecTest.class);
+
+    /**
+     * Create order.
+     *
+     * @return Orders DTO.
+     */
+    private Orders order() {
+        final var dto = new Orders();
+        dto.setOrderId(1L);
+        dto.setCustomerId(2L);
+        dto.setStatus("Pending");
+        dto.setOrderDate(Date.valueOf(LocalDate.of(2020, 5, 1)));
+        return dto;
+    }
+
+    /**
+     * Create order item.
+     *
+     * @return OrderItems DTO.
+     */
+    private OrderItems orderItem() {
+        final var dto = new OrderItems();
+        dto.setOrderId(1L);
+        dto.setItemId(1L);
+        dto.setProductId(3L);
+        dto.setQuantity(4);
+        dto.setUnitPrice(new BigDecimal("12.34"));
+        return dto;
+    }
+
+    /**
+     * Java serialized size.
+     *
+     * @param object Object to serialize.
+     * @return Size in bytes.
+     * @throws IOException Possible exception.
+     */
+    private int serializedSize(final Object object) throws IOException {
+        final var bytes = new ByteArrayOutputStream();
+        try (final var out = new ObjectOutputStream(bytes)) {
+            out.writeObject(object);
+        }
+        return bytes.size();
+    }
+
+    /**
+     * Order message round trip.
+     *
+     * @throws IOException Possible exception.
+     */
+    @Test
+    public void orderMessage() throws IOException {
+        logger.debug("orderMessage");
+        final var orderMessage = new OrderMessage();
+        orderMessage.setCustomerId(2L);
+        orderMessage.setOrderItemsList(List.of(orderItem(), orderItem()));
+        final var bytes = OrderCodec.encode(orderMessage);
+        final var decoded = OrderCodec.decodeOrderMessage(bytes);
+        assertEquals(orderMessage.getCustomerId(), decoded.getCustomerId());
+        assertNull(decoded.getSalesmanId());
+        assertEquals(2, decoded.getOrderItemsList().size());
+        assertEquals(new BigDecimal("12.34"), decoded.getOrderItemsList().get(0).getUnitPrice());
+        assertEquals(4, decoded.getOrderItemsList().get(1).getQuantity());
+        logger.debug("Codec {} bytes, serialized {} bytes", bytes.length, serializedSize(orderMessage));
+        assertTrue(bytes.length < serializedSize(orderMessage));
+    }
+
+    /**
+     * Batch of order messages round trip and single order message read as batch of one.
+     */
+    @Test
+    public void orderMessages() {
+        logger.debug("orderMessages");
+        final var orderMessage = new OrderMessage();
+        orderMessage.setCustomerId(2L);
+        orderMessage.setSalesmanId(5L);
+        orderMessage.setOrderItemsList(List.of(orderItem()));
+        final var decoded = OrderCodec.decodeOrderMessages(OrderCodec.encode(List.of(orderMessage, orderMessage, orderMessage)));
+        assertEquals(3, decoded.size());
+        assertEquals(5L, decoded.get(2).getSalesmanId().longValue());
+        assertEquals(1, decoded.get(2).getOrderItemsList().size());
+        assertEquals(1, OrderCodec.decodeOrderMessages(OrderCodec.encode(orderMessage)).size());
+        assertThrows(RuntimeException.class, () -> OrderCodec.decodeOrderMessages(OrderCodec.encode(order())));
+    }
+
+    /**
+     * Orders and OrderAggregate round trip.
+     *
+     * @throws IOException Possible exception.
+     */
+    @Test
+    public void orders() throws IOException {
+        logger.debug("orders");
+        final var order = order();
+        final var decoded = OrderCodec.decodeOrders(OrderCodec.encode(order));
+        assertEquals(Orders.class, decoded.getClass());
+        assertEquals(order.getOrderId(), decoded.getOrderId());
+        assertEquals(order.getStatus(), decoded.getStatus());
+        assertEquals(order.getOrderDate(), decoded.getOrderDate());
+        assertNull(decoded.getSalesmanId());
+        final var product = new Products();
+        product.setProductId(3L);
+        product.setProductName("Product 3");
+        product.setListPrice(new BigDecimal("20.00"));
+        final var aggregate = new OrderAggregate(order, List.of(orderItem()), List.of(product));
+        final var bytes = OrderCodec.encode(aggregate);
+        final var decodedAggregate = OrderCodec.decodeOrderAggregate(bytes);
+        assertEquals(order.getOrderId(), decodedAggregate.getOrderId());
+        assertEquals(order.getOrderDate(), decodedAggregate.getOrderDate());
+        assertEquals(1, decodedAggregate.getOrderItemsList().size());
+        assertEquals("Product 3", decodedAggregate.getProductsList().get(0).getProductName());
+        assertEquals(new BigDecimal("20.00"), decodedAggregate.getProductsList().get(0).getListPrice());
+        assertTrue(bytes.length < serializedSize(new Object[]{order, decodedAggregate.getOrderItemsList(), decodedAggregate.
+                getProductsList()}));
+        // Order of aggregate can be read on its own, a plain order has no aggregate
+        assertEquals(order.getOrderId(), OrderCodec.decodeOrders(bytes).getOrderId());
+        assertNull(OrderCodec.decodeOrderAggregate(OrderCodec.encode(order)));
+    }
+
+    /**
+     * Unknown version and wrong type are rejected.
+     */
+    @Test
+    public void reject() {
+        logger.debug("reject");
+        final var bytes = OrderCodec.encode(order());
+        assertThrows(RuntimeException.class, () -> OrderCodec.decodeOrderMessage(bytes));
+        bytes[0] = OrderCodec.VERSION + 1;
+        assertThrows(RuntimeException.class, () -> OrderCodec.decodeOrders(bytes));
+    }
+}
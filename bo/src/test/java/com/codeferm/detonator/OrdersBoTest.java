@@ -18,7 +18,9 @@ import java.nio.file.Paths;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -27,7 +29,11 @@ import org.apache.commons.dbcp2.BasicDataSource;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.junit.jupiter.api.AfterAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
@@ -220,6 +226,68 @@ public class OrdersBoTest {
 
     }
 
+    /**
+     * Test createOrder method with order created observer called by event bus consumer.
+     */
+    @Test
+    public void createOrderEventBus() {
+        logger.debug("createOrderEventBus");
+        final var outputDir = new File(properties.getProperty("output.dir"));
+        outputDir.mkdirs();
+        final var maxOrders = Integer.parseInt(properties.getProperty("orders.max.create"));
+        // Max out inventory
+        updateInventory(maxOrders);
+        // Create BO
+        final var ordersBo = createBo();
+        // Get all orders
+        var orders = ordersBo.getOrders().findAll();
+        // Get last one
+        final var lastOrder = orders.get(orders.size() - 1);
+        logger.debug("Last order: {}", lastOrder);
+        // Add observer
+        final var orderCreated = new OrderCreated(new OrderShipped(properties.getProperty("template.dir"), properties.getProperty(
+                "template"), properties.getProperty("output.dir"), ordersBo, Integer.parseInt(properties.getProperty(
+                "order.shipped.max.threads"))), Integer.parseInt(properties.getProperty("order.created.max.threads")));
+        // Event bus consumer calls order created observer
+        final var eventBus = new EventBus<OrderQueue, OrderAggregate>(1024);
+        eventBus.addConsumer("order-created", orderCreated);
+        ((CreateOrderQueue) ordersBo.getOrderQueue()).addObserver(eventBus);
+        final List<OrderItems> list = createOrderItemsList();
+        // Database pool size - 1 threads
+        final var executor = Executors.newFixedThreadPool(Integer.parseInt(properties.getProperty("client.max.threads")));
+        for (int i = 0; i < maxOrders; i++) {
+            final Runnable task = () -> {
+                ordersBo.createOrder(1, 1, list);
+            };
+            executor.execute(task);
+        }
+        // Shutdow executor service
+        executor.shutdown();
+        // Wait for BO client threads to finish
+        logger.debug("Waiting for BO client threads to finish");
+        try {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            logger.debug("BO client threads finished");
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+        // Wait for create order threads to finish
+        logger.debug("Waiting for create order thread to finish");
+        ordersBo.getOrderQueue().shutdown();
+        logger.debug("Create order thread finished");
+        logger.debug("Waiting for event bus to finish");
+        eventBus.shutdown();
+        logger.debug("Waiting for order created thread to finish");
+        orderCreated.shutdown();
+        logger.debug("Waiting for order shipped thread to finish");
+        orderCreated.getOrderShipped().shutdown();
+        // Get last order based on maxOrders
+        final var order = ordersBo.getOrders().find(new OrdersKey(lastOrder.getOrderId() + maxOrders));
+        assertNotNull(order);
+        logger.debug("Last order: {}", order);
+        assertEquals(maxOrders, eventBus.getProcessed("order-created"));
+    }
+
     /**
      * Test linking tables.
      */
@@ -231,4 +299,129 @@ public class OrdersBoTest {
         logger.debug(ordersBo.orderInfo(1));
     }
 
+    /**
+     * Concurrent atomic inventory updates don't lose updates or oversell.
+     */
+    @Test
+    public void atomicInventory() {
+        logger.debug("atomicInventory");
+        updateInventory(1000);
+        final var sql = common.loadProperties("inventories.properties");
+        // Merge custom SQL properties
+        sql.putAll(common.loadProperties("inventories-custom.properties"));
+        final var inventories = new GenDbDao<InventoriesKey, Inventories>(dataSource, sql, InventoriesKey.class,
+                Inventories.class);
+        final var from = new InventoriesKey(3L, 0L);
+        final var to = new InventoriesKey(3L, Long.MAX_VALUE);
+        final var before = inventories.findRange(from, to).stream().mapToInt(Inventories::getQuantity).sum();
+        final var updateInventory = new AtomicUpdateInventory(inventories);
+        final var executor = Executors.newFixedThreadPool(4);
+        for (var i = 0; i < 400; i++) {
+            executor.execute(() -> {
+                final var item = new OrderItems();
+                item.setProductId(3L);
+                item.setQuantity(1);
+                updateInventory.update(item);
+            });
+        }
+        executor.shutdown();
+        try {
+            assertTrue(executor.awaitTermination(60, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+        assertEquals(before - 400, inventories.findRange(from, to).stream().mapToInt(Inventories::getQuantity).sum());
+        // Not enough in any warehouse
+        final var item = new OrderItems();
+        item.setProductId(3L);
+        item.setQuantity(1001);
+        assertThrows(OrderRejectedException.class, () -> updateInventory.update(item));
+    }
+
+    /**
+     * Items of an order take inventory in product ID order, so concurrent transactions lock rows in the same order, and results
+     * stay in item order.
+     */
+    @Test
+    public void atomicInventoryOrder() {
+        logger.debug("atomicInventoryOrder");
+        updateInventory(1000);
+        final var sql = common.loadProperties("inventories.properties");
+        // Merge custom SQL properties
+        sql.putAll(common.loadProperties("inventories-custom.properties"));
+        final List<Long> taken = new ArrayList<>();
+        final var inventories = new GenDbDao<InventoriesKey, Inventories>(dataSource, sql, InventoriesKey.class,
+                Inventories.class) {
+            @Override
+            public int updateBy(final String name, final Object[] params) {
+                if (name.equals("decrementQuantity")) {
+                    taken.add((Long) params[1]);
+                }
+                return super.updateBy(name, params);
+            }
+        };
+        final var items = createOrderItemsList();
+        // Product 4 before product 3
+        items.add(0, items.remove(1));
+        final var list = new AtomicUpdateInventory(inventories).update(items);
+        assertEquals(List.of(3L, 4L), taken);
+        assertEquals(4L, list.get(0).getProductId().longValue());
+        assertEquals(3L, list.get(1).getProductId().longValue());
+    }
+
+    /**
+     * Batch order fails on its own when the database has less inventory than the batch snapshot and gives back what its other
+     * items took.
+     */
+    @Test
+    public void batchGuardedInventory() {
+        logger.debug("batchGuardedInventory");
+        updateInventory(1000);
+        final var ordersBo = createBo();
+        final var sql = common.loadProperties("inventories.properties");
+        // Merge custom SQL properties
+        sql.putAll(common.loadProperties("inventories-custom.properties"));
+        // Snapshot shows more than the database has, like another order took it after the read
+        final var inventories = new GenDbDao<InventoriesKey, Inventories>(dataSource, sql, InventoriesKey.class,
+                Inventories.class) {
+            @Override
+            public List<Inventories> findRange(final InventoriesKey fromKey, final InventoriesKey toKey) {
+                final var list = super.findRange(fromKey, toKey);
+                list.forEach(inv -> inv.setQuantity(inv.getQuantity() + 1000));
+                return list;
+            }
+        };
+        final var batchCreateOrder = new BatchCreateOrder(ordersBo.getOrders(), ordersBo.getOrderItems(), ordersBo.getProducts(),
+                inventories);
+        final var from3 = new InventoriesKey(3L, 0L);
+        final var to3 = new InventoriesKey(3L, Long.MAX_VALUE);
+        final var from4 = new InventoriesKey(4L, 0L);
+        final var to4 = new InventoriesKey(4L, Long.MAX_VALUE);
+        final var before3 = ordersBo.getInventories().findRange(from3, to3).stream().mapToInt(Inventories::getQuantity).sum();
+        final var before4 = ordersBo.getInventories().findRange(from4, to4).stream().mapToInt(Inventories::getQuantity).sum();
+        // First order asks for more of product 4 than any warehouse has
+        final var items = createOrderItemsList();
+        items.get(1).setQuantity(1500);
+        final var failing = new OrderMessage();
+        failing.setCustomerId(1L);
+        failing.setSalesmanId(1L);
+        failing.setOrderItemsList(items);
+        final List<OrderItems> single = new ArrayList<>();
+        single.add(createOrderItemsList().get(0));
+        final var passing = new OrderMessage();
+        passing.setCustomerId(1L);
+        passing.setSalesmanId(1L);
+        passing.setOrderItemsList(single);
+        final Map<Integer, RuntimeException> errors = new HashMap<>();
+        final var created = batchCreateOrder.create(List.of(failing, passing), errors);
+        ordersBo.getOrderQueue().shutdown();
+        assertEquals(1, errors.size());
+        assertTrue(errors.get(0) instanceof OrderRejectedException);
+        assertNull(created.get(0));
+        assertNotNull(created.get(1));
+        // Only the passing order took inventory
+        assertEquals(before3 - 1, ordersBo.getInventories().findRange(from3, to3).stream().mapToInt(Inventories::getQuantity).sum());
+        assertEquals(before4, ordersBo.getInventories().findRange(from4, to4).stream().mapToInt(Inventories::getQuantity).sum());
+    }
+
 }
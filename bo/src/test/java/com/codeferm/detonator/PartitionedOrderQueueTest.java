@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) Steven P. Goldsmith. All rights reserved.
+ */
+package com.codeferm.detonator;
+
+import com.codeferm.dto.Inventories;
+import com.codeferm.dto.OrderItems;
+import com.codeferm.dto.Orders;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test PartitionedOrderQueue without a database.
+ *
+ * @author Steven P. Goldsmith
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class PartitionedOrderQueueTest {
+
+    /**
+     * Logger.
+     */
+    private static final Logger logger = LogManager.getLogger(PartitionedOrderQueueTest.class);
+
+    /**
+     * Thread safe inventory update that does nothing.
+     */
+    private final UpdateInventory noInventory = new UpdateInventory() {
+        @Override
+        public Inventories update(final OrderItems item) {
+            return null;
+        }
+
+        @Override
+        public boolean isThreadSafe() {
+            return true;
+        }
+    };
+
+    /**
+     * Create order message.
+     *
+     * @param customerId Customer ID.
+     * @param salesmanId Used as per customer sequence.
+     * @param productId Product ID.
+     * @return Order message.
+     */
+    private OrderMessage orderMessage(final long customerId, final long salesmanId, final long productId) {
+        final var item = new OrderItems();
+        item.setItemId(1L);
+        item.setProductId(productId);
+        item.setQuantity(1);
+        final List<OrderItems> list = new ArrayList<>();
+        list.add(item);
+        final var orderMessage = new OrderMessage();
+        orderMessage.setCustomerId(customerId);
+        orderMessage.setSalesmanId(salesmanId);
+        orderMessage.setOrderItemsList(list);
+        return orderMessage;
+    }
+
+    /**
+     * Orders with the same key stay in order on one thread and every partition drains on shutdown.
+     */
+    @Test
+    public void partitionOrder() {
+        logger.debug("partitionOrder");
+        final var customers = 32;
+        final var ordersPerCustomer = 500;
+        // Record salesman ID (sequence) and thread by customer
+        final Map<Long, List<Long>> sequences = new ConcurrentHashMap<>();
+        final Map<Long, List<String>> threads = new ConcurrentHashMap<>();
+        final var orderId = new AtomicLong();
+        final var createOrder = new CreateOrder(noInventory) {
+            @Override
+            public OrderAggregate create(final OrderMessage orderMessage) {
+                if (orderMessage.getOrderItemsList().get(0).getProductId() < 0) {
+                    throw new RuntimeException("Bad product");
+                }
+                sequences.computeIfAbsent(orderMessage.getCustomerId(), k -> new CopyOnWriteArrayList<>()).add(orderMessage.
+                        getSalesmanId());
+                threads.computeIfAbsent(orderMessage.getCustomerId(), k -> new CopyOnWriteArrayList<>()).add(Thread.currentThread().
+                        getName());
+                final var dto = new Orders();
+                dto.setOrderId(orderId.incrementAndGet());
+                dto.setCustomerId(orderMessage.getCustomerId());
+                return new OrderAggregate(dto, List.of(), List.of());
+            }
+        };
+        final var queue = new PartitionedOrderQueue(createOrder, 4, OrderRouter.byCustomer());
+        final var created = new AtomicLong();
+        queue.addObserver((object, data) -> created.incrementAndGet());
+        for (long s = 0; s < ordersPerCustomer; s++) {
+            for (long c = 1; c <= customers; c++) {
+                queue.create(orderMessage(c, s, 1));
+            }
+        }
+        // Failed order
+        queue.create(orderMessage(1, ordersPerCustomer, -1));
+        queue.shutdown();
+        assertEquals(customers * ordersPerCustomer, created.get());
+        long completed = 0;
+        long failed = 0;
+        var used = 0;
+        for (var i = 0; i < queue.getPartitions(); i++) {
+            completed += queue.getCompleted(i);
+            failed += queue.getFailed(i);
+            assertEquals(0, queue.getQueueDepth(i));
+            if (queue.getCompleted(i) > 0) {
+                used++;
+            }
+        }
+        assertEquals(customers * ordersPerCustomer, completed);
+        assertEquals(1, failed);
+        // Customers spread over more than one partition
+        assertTrue(used > 1);
+        for (long c = 1; c <= customers; c++) {
+            final var list = sequences.get(c);
+            assertEquals(ordersPerCustomer, list.size());
+            for (var i = 0; i < list.size(); i++) {
+                assertEquals(i, list.get(i).intValue());
+            }
+            assertEquals(1, threads.get(c).stream().distinct().count());
+        }
+    }
+
+    /**
+     * Same product set routes to same partition regardless of item order.
+     */
+    @Test
+    public void byProducts() {
+        logger.debug("byProducts");
+        final var queue = new PartitionedOrderQueue(new CreateOrder(noInventory), 8, OrderRouter.byProducts());
+        final var message1 = orderMessage(1, 1, 3);
+        message1.getOrderItemsList().add(orderMessage(1, 1, 4).getOrderItemsList().get(0));
+        final var message2 = orderMessage(2, 1, 4);
+        message2.getOrderItemsList().add(orderMessage(2, 1, 3).getOrderItemsList().get(0));
+        assertEquals(queue.partition(message1), queue.partition(message2));
+        queue.shutdown();
+    }
+
+    /**
+     * More than one partition requires thread safe inventory update.
+     */
+    @Test
+    public void threadSafe() {
+        logger.debug("threadSafe");
+        assertThrows(RuntimeException.class, () -> new PartitionedOrderQueue(new CreateOrder(new UpdateInventoryDao()), 2,
+                OrderRouter.byCustomer()));
+        final var queue = new PartitionedOrderQueue(new CreateOrder(new UpdateInventoryDao()), 1, OrderRouter.byCustomer());
+        assertEquals(1, queue.getPartitions());
+        queue.shutdown();
+    }
+}
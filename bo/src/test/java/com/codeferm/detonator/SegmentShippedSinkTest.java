@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) Steven P. Goldsmith. All rights reserved.
+ */
+package com.codeferm.detonator;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Test SegmentShippedSink and SegmentShippedReader.
+ *
+ * @author Steven P. Goldsmith
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class SegmentShippedSinkTest {
+
+    /**
+     * Logger.
+     */
+    private static final Logger logger = LogManager.getLogger(SegmentShippedSinkTest.class);
+    /**
+     * Output directory.
+     */
+    @TempDir
+    Path dir;
+
+    /**
+     * Document of order.
+     *
+     * @param orderId Order ID.
+     * @return Document.
+     */
+    private String document(final long orderId) {
+        // Every 100th document is bigger than the buffer
+        return String.format("Order %d shipped\n", orderId).repeat(orderId % 100 == 0 ? 1000 : 1);
+    }
+
+    /**
+     * Documents written by several threads roll over segments and are read back by order ID.
+     */
+    @Test
+    public void writeAndRead() {
+        logger.debug("writeAndRead");
+        final var sink = new SegmentShippedSink(dir.toString(), 64 * 1024, 0, 16 * 1024, 10, 4 * 1024);
+        final var executor = Executors.newFixedThreadPool(4);
+        for (long orderId = 1; orderId <= 2000; orderId++) {
+            final var id = orderId;
+            executor.execute(() -> sink.write(id, document(id).getBytes(StandardCharsets.UTF_8)));
+        }
+        executor.shutdown();
+        try {
+            assertTrue(executor.awaitTermination(60, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+        sink.close();
+        assertEquals(2000, sink.getDocuments());
+        assertTrue(sink.getSegment() > 0);
+        try (final var reader = new SegmentShippedReader(dir.toString())) {
+            assertEquals(2000, reader.size());
+            for (long orderId = 1; orderId <= 2000; orderId++) {
+                assertEquals(document(orderId), reader.readString(orderId));
+            }
+            assertNull(reader.read(2001));
+        }
+        // New sink starts a new segment and reader picks it up on refresh
+        final var next = new SegmentShippedSink(dir.toString());
+        try (final var reader = new SegmentShippedReader(dir.toString())) {
+            next.write(2001, document(2001).getBytes(StandardCharsets.UTF_8));
+            next.close();
+            reader.refresh();
+            assertEquals(2001, reader.size());
+            assertEquals(document(2001), reader.readString(2001));
+        }
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) Steven P. Goldsmith. All rights reserved.
+ */
+package com.codeferm.detonator;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.management.JMException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test StageExecutor overflow policies and metrics.
+ *
+ * @author Steven P. Goldsmith
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class StageExecutorTest {
+
+    /**
+     * Logger.
+     */
+    private static final Logger logger = LogManager.getLogger(StageExecutorTest.class);
+
+    /**
+     * Hold the single worker until released, so the queue fills up.
+     *
+     * @param executor Stage executor.
+     * @param release Latch that releases worker.
+     */
+    private void holdWorker(final StageExecutor executor, final CountDownLatch release) {
+        final var started = new CountDownLatch(1);
+        assertTrue(executor.execute(() -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        try {
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Full queue rejects and task is not run.
+     */
+    @Test
+    public void reject() {
+        logger.debug("reject");
+        final var executor = new StageExecutor("test-reject", 1, 2, OverflowPolicy.REJECT);
+        final var release = new CountDownLatch(1);
+        holdWorker(executor, release);
+        final var ran = new AtomicLong();
+        assertTrue(executor.execute(ran::incrementAndGet));
+        assertTrue(executor.execute(ran::incrementAndGet));
+        assertEquals(2, executor.getQueueDepth());
+        assertFalse(executor.execute(ran::incrementAndGet));
+        release.countDown();
+        executor.shutdown();
+        assertEquals(2, ran.get());
+        assertEquals(3, executor.getAccepted());
+        assertEquals(1, executor.getRejected());
+        assertEquals(0, executor.getQueueDepth());
+        assertTrue(executor.getMaxQueueWaitNanos() > 0);
+        // Rejected after shutdown
+        assertFalse(executor.execute(ran::incrementAndGet));
+        assertEquals(2, executor.getRejected());
+    }
+
+    /**
+     * Full queue blocks caller until there is room.
+     */
+    @Test
+    public void block() {
+        logger.debug("block");
+        final var executor = new StageExecutor("test-block", 1, 1, OverflowPolicy.BLOCK);
+        final var release = new CountDownLatch(1);
+        holdWorker(executor, release);
+        final var ran = new AtomicLong();
+        assertTrue(executor.execute(ran::incrementAndGet));
+        // Release worker after caller is blocked
+        final var releaser = new Thread(() -> {
+            try {
+                TimeUnit.MILLISECONDS.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            release.countDown();
+        });
+        releaser.start();
+        assertTrue(executor.execute(ran::incrementAndGet));
+        executor.shutdown();
+        assertEquals(2, ran.get());
+        assertEquals(1, executor.getBlocked());
+        assertTrue(executor.getBlockedNanos() >= TimeUnit.MILLISECONDS.toNanos(50));
+        assertEquals(0, executor.getRejected());
+    }
+
+    /**
+     * Full queue runs task on caller's thread.
+     */
+    @Test
+    public void callerRuns() {
+        logger.debug("callerRuns");
+        final var executor = new StageExecutor("test-caller-runs", 1, 1, OverflowPolicy.CALLER_RUNS);
+        final var release = new CountDownLatch(1);
+        holdWorker(executor, release);
+        assertTrue(executor.execute(() -> {
+        }));
+        final var thread = new AtomicReference<Thread>();
+        assertTrue(executor.execute(() -> thread.set(Thread.currentThread())));
+        assertEquals(Thread.currentThread(), thread.get());
+        release.countDown();
+        executor.shutdown();
+        assertEquals(1, executor.getCallerRuns());
+        assertEquals(0, executor.getRejected());
+    }
+
+    /**
+     * Queue wait, service time, completed and failed tasks are recorded and published over JMX until the stage terminates.
+     */
+    @Test
+    public void metrics() {
+        logger.debug("metrics");
+        final var server = ManagementFactory.getPlatformMBeanServer();
+        final var executor = new StageExecutor("test-metrics", 1, 10, OverflowPolicy.BLOCK, new JmxMetricsRegistry(server));
+        final var objectName = JmxMetricsRegistry.objectName(executor.getMetrics());
+        assertTrue(server.isRegistered(objectName));
+        final var release = new CountDownLatch(1);
+        holdWorker(executor, release);
+        final var metrics = executor.getMetrics();
+        assertEquals(1, metrics.getInFlight());
+        assertTrue(executor.execute(() -> {
+            try {
+                TimeUnit.MILLISECONDS.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        assertTrue(executor.execute(() -> {
+            throw new RuntimeException("Task failed");
+        }));
+        // Worker survives the failed task
+        assertTrue(executor.execute(() -> {
+        }));
+        assertEquals(3, metrics.getQueueDepth());
+        try {
+            assertEquals(3, server.getAttribute(objectName, "QueueDepth"));
+        } catch (JMException e) {
+            throw new RuntimeException(e);
+        }
+        release.countDown();
+        executor.stop();
+        executor.awaitTermination();
+        assertEquals(4, metrics.getStarted());
+        assertEquals(3, metrics.getCompleted());
+        assertEquals(1, metrics.getFailed());
+        assertEquals(0, metrics.getInFlight());
+        assertEquals(4, metrics.getServiceHistogram().getTotalCount());
+        assertTrue(metrics.getServiceMaxMicros() >= 20000);
+        assertTrue(metrics.getQueueWaitMaxMicros() >= 20000);
+        assertEquals(executor.getMaxQueueWaitNanos(), metrics.getMaxQueueWaitNanos());
+        assertFalse(server.isRegistered(objectName));
+    }
+
+    /**
+     * Stages with the same name are published side by side and only unregister themselves.
+     */
+    @Test
+    public void sameName() {
+        logger.debug("sameName");
+        final var server = ManagementFactory.getPlatformMBeanServer();
+        final var registry = new JmxMetricsRegistry(server);
+        final var first = new StageExecutor("test-same-name", 1, 10, OverflowPolicy.BLOCK, registry);
+        final var second = new StageExecutor("test-same-name", 1, 10, OverflowPolicy.BLOCK, registry);
+        final var firstName = JmxMetricsRegistry.objectName(first.getMetrics());
+        final var secondName = JmxMetricsRegistry.objectName(second.getMetrics());
+        assertNotEquals(firstName, secondName);
+        assertTrue(server.isRegistered(firstName));
+        assertTrue(server.isRegistered(secondName));
+        first.shutdown();
+        assertFalse(server.isRegistered(firstName));
+        assertTrue(server.isRegistered(secondName));
+        second.shutdown();
+        assertFalse(server.isRegistered(secondName));
+    }
+
+    /**
+     * Policy names and unsupported policies.
+     */
+    @Test
+    public void policy() {
+        logger.debug("policy");
+        assertEquals(OverflowPolicy.CALLER_RUNS, OverflowPolicy.of("callerRuns"));
+        assertEquals(OverflowPolicy.BLOCK, OverflowPolicy.of(" block"));
+        assertThrows(RuntimeException.class, () -> OverflowPolicy.of("drop"));
+        // Caller runs would run orders outside the queue thread
+        assertThrows(RuntimeException.class, () -> new CreateOrderQueue(new CreateOrder(item -> null), 1,
+                OverflowPolicy.CALLER_RUNS));
+    }
+}
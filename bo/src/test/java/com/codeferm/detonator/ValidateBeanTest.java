@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) Steven P. Goldsmith. All rights reserved.
+ */
+package com.codeferm.detonator;
+
+import com.codeferm.dto.OrderItems;
+import com.codeferm.dto.Orders;
+import com.codeferm.dto.OrdersValidator;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test ValidateBean with generated validators.
+ *
+ * @author Steven P. Goldsmith
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class ValidateBeanTest {
+
+    /**
+     * Logger.
+     */
+    private static final Logger logger = LogManager.getLogger(ValidateBeanTest.class);
+
+    /**
+     * Orders subclass without constraints of its own.
+     */
+    private static class SubOrders extends Orders {
+
+        /**
+         * Serial version.
+         */
+        private static final long serialVersionUID = 1L;
+    }
+
+    /**
+     * Create valid order.
+     *
+     * @return Orders DTO.
+     */
+    private Orders order() {
+        return order(new Orders());
+    }
+
+    /**
+     * Set valid fields of order.
+     *
+     * @param dto Orders DTO or subclass.
+     * @return Order.
+     */
+    private Orders order(final Orders dto) {
+        dto.setOrderId(1L);
+        dto.setCustomerId(1L);
+        dto.setStatus("New");
+        dto.setOrderDate(Date.valueOf(LocalDate.now()));
+        return dto;
+    }
+
+    /**
+     * Generated validator reports the same violations as Bean Validation and column size and digits only when asked to.
+     */
+    @Test
+    public void generated() {
+        logger.debug("generated");
+        final var validator = new OrdersValidator();
+        final var dto = order();
+        assertNull(validator.validate(dto, false, true));
+        dto.setStatus(null);
+        dto.setCustomerId(null);
+        final var message = validator.validate(dto, false, false);
+        assertTrue(message.contains("Orders.status must not be null"));
+        assertTrue(message.contains("Orders.customerId must not be null"));
+        assertFalse(validator.validate(dto, true, false).contains(" | "));
+        final var validateBean = new ValidateBean(false, true);
+        assertThrows(RuntimeException.class, () -> validateBean.valid(dto));
+        // Status is VARCHAR(20)
+        dto.setCustomerId(1L);
+        dto.setStatus("S".repeat(21));
+        // Bean Validation annotations have no size, so column checks are off by default
+        new ValidateBean().valid(dto);
+        assertNull(validator.validate(dto, false, false));
+        final var e = assertThrows(OrderRejectedException.class, () -> validateBean.valid(dto));
+        assertEquals("Bean violations: Orders.status size must be between 0 and 20", e.getMessage());
+        // Unit price is NUMBER(8, 2)
+        final var item = new OrderItems();
+        item.setOrderId(1L);
+        item.setItemId(1L);
+        item.setProductId(1L);
+        item.setQuantity(1);
+        item.setUnitPrice(new BigDecimal("999999.99"));
+        validateBean.valid(item);
+        item.setUnitPrice(new BigDecimal("1000000.00"));
+        assertThrows(RuntimeException.class, () -> validateBean.valid(item));
+        new ValidateBean().valid(item);
+        // Subclass without constraints of its own uses Orders validator
+        validateBean.valid(order(new SubOrders()));
+        // Beans without generated validator use Bean Validation
+        validateBean.valid(new OrderMessage());
+    }
+}
@@ -32,6 +32,14 @@ public interface Dao<K, V> {
      */
     V find(final K key);
 
+    /**
+     * Return values of list of keys using one read. Keys not found are skipped and values may not be in key order.
+     *
+     * @param list List of keys.
+     * @return List of values.
+     */
+    List<V> find(final List<K> list);
+
     /**
      * Return range of values using from and to keys inclusive.
      *
@@ -64,6 +72,15 @@ public interface Dao<K, V> {
      */
     K saveReturnKey(final V value, final String[] keyNames);
 
+    /**
+     * Save list of values using batch operation and return generated keys in list order.
+     *
+     * @param list List of values to save.
+     * @param keyNames Array of key column names.
+     * @return Generated keys.
+     */
+    List<K> saveReturnKeys(final List<V> list, final String[] keyNames);
+
     /**
      * Delete the value by key.
      *
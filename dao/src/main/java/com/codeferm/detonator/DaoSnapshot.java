@@ -0,0 +1,577 @@
+/*
+ * Copyright (c) Steven P. Goldsmith. All rights reserved.
+ */
+package com.codeferm.detonator;
+
+import com.codeferm.dto.Dto;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Date;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Binary snapshot of DAO contents used to warm caches and MapDB collections without going back to the database.
+ *
+ * The header holds a magic number, format version, DTO class name, row count and each field's name and Java type in generated order
+ * (the varName and varType the plugin derives from RsmdDto). Each record is a null bitmap followed by the non-null values in fixed
+ * width binary form. Restore memory maps the file, verifies the header against the DTO class and fails on any schema mismatch, so a
+ * snapshot taken before a schema change is never loaded.
+ *
+ * Value class must implement {@link Dto}. This class is thread safe.
+ *
+ * @author Steven P. Goldsmith
+ * @version 1.0.0
+ * @since 1.0.0
+ * @param <K> Key type.
+ * @param <V> Value type.
+ */
+public class DaoSnapshot<K, V> {
+
+    /**
+     * Logger.
+     */
+    private static final Logger logger = LogManager.getLogger(DaoSnapshot.class);
+    /**
+     * File magic number "DTNS".
+     */
+    public static final int MAGIC = 0x44544e53;
+    /**
+     * File format version.
+     */
+    public static final short VERSION = 1;
+    /**
+     * Offset of row count in header.
+     */
+    private static final int ROWS_OFFSET = 6;
+    /**
+     * Remap window when less than this many bytes are left in it.
+     */
+    private static final int REMAP_THRESHOLD = 64 * 1024 * 1024;
+    /**
+     * Type codes.
+     */
+    private static final List<Class> TYPES = List.of(String.class, Long.class, Integer.class, Short.class, BigDecimal.class,
+            Double.class, Float.class, Boolean.class, Date.class, Timestamp.class, Time.class, java.util.Date.class, LocalDate.class,
+            LocalDateTime.class);
+    /**
+     * Value field metadata.
+     */
+    private final DtoFields fields;
+    /**
+     * Type code of each field.
+     */
+    private final int[] codes;
+    /**
+     * Null bitmap size in bytes.
+     */
+    private final int bitmapSize;
+    /**
+     * Write buffer size.
+     */
+    private final int bufferSize;
+    /**
+     * Rows passed per {@link Dao#save(Map)} or {@link Map#putAll(Map)}.
+     */
+    private final int chunkSize;
+    /**
+     * Fetch size used when snapshotting a {@link DbDao}.
+     */
+    private int fetchSize = 1000;
+
+    /**
+     * Construct with 1 MB buffer and 1000 row chunks.
+     *
+     * @param vClass Value class type.
+     */
+    public DaoSnapshot(final Class vClass) {
+        this(vClass, 1024 * 1024, 1000);
+    }
+
+    /**
+     * Construct with buffer size and chunk size.
+     *
+     * @param vClass Value class type.
+     * @param bufferSize Write buffer size in bytes.
+     * @param chunkSize Rows per batch on restore.
+     */
+    public DaoSnapshot(final Class vClass, final int bufferSize, final int chunkSize) {
+        this.fields = new DtoFields(vClass);
+        codes = new int[fields.size()];
+        for (var i = 0; i < codes.length; i++) {
+            codes[i] = TYPES.indexOf(fields.getTypes().get(i));
+            if (codes[i] < 0) {
+                throw new RuntimeException(String.format("Unsupported type %s for field %s", fields.getTypes().get(i).getName(),
+                        fields.getNames().get(i)));
+            }
+        }
+        bitmapSize = (codes.length + 7) / 8;
+        this.bufferSize = bufferSize;
+        this.chunkSize = chunkSize;
+    }
+
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    public void setFetchSize(final int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Snapshot all values of DAO. A {@link DbDao} streams using its findAll query, otherwise {@link Dao#findAll()} is used.
+     *
+     * @param dao DAO to snapshot.
+     * @param path File to write.
+     * @return Number of rows written.
+     */
+    public long snapshot(final Dao<K, V> dao, final Path path) {
+        if (dao instanceof DbDao) {
+            return write(path, consumer -> ((DbDao<K, V>) dao).streamBy("findAll", Db.NO_PARAMS, fetchSize, consumer));
+        }
+        return write(path, consumer -> dao.findAll().forEach(consumer));
+    }
+
+    /**
+     * Snapshot values such as the values of a cache Map.
+     *
+     * @param values Values to snapshot.
+     * @param path File to write.
+     * @return Number of rows written.
+     */
+    public long snapshot(final Iterable<V> values, final Path path) {
+        return write(path, consumer -> values.forEach(consumer));
+    }
+
+    /**
+     * Write header and values produced by source. Row count is patched into the header at the end. Rows are written to a temporary
+     * file next to path, which replaces path with an atomic move once complete, so a failed write never leaves a partial snapshot
+     * in place of the last good one.
+     *
+     * @param path File to write.
+     * @param source Passes each value to consumer.
+     * @return Number of rows written.
+     */
+    private long write(final Path path, final Consumer<Consumer<V>> source) {
+        final var start = System.nanoTime();
+        final var rows = new long[1];
+        final var temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (final var channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)) {
+            final var out = new Output(channel, ByteBuffer.allocateDirect(bufferSize));
+            out.ensure(ROWS_OFFSET + 8);
+            out.buffer.putInt(MAGIC);
+            out.buffer.putShort(VERSION);
+            // Row count placeholder
+            out.buffer.putLong(0);
+            out.putString(fields.getClazz().getName());
+            out.ensure(4);
+            out.buffer.putInt(fields.size());
+            for (var i = 0; i < fields.size(); i++) {
+                out.putString(fields.getNames().get(i));
+                out.putString(fields.getTypes().get(i).getName());
+            }
+            final var values = new Object[codes.length];
+            source.accept(value -> {
+                try {
+                    writeRecord(out, value, values);
+                } catch (IOException e) {
+                    throw new RuntimeException(String.format("Snapshot write exception: path=%s", path), e);
+                }
+                rows[0]++;
+            });
+            out.flush();
+            // Patch row count
+            final var count = ByteBuffer.allocate(8).putLong(0, rows[0]);
+            channel.write(count, ROWS_OFFSET);
+            channel.force(true);
+            final var seconds = (System.nanoTime() - start) / 1000000000.0;
+            logger.info("Snapshot {}: {} rows, {} bytes, {} seconds", path, rows[0], channel.size(), String.format("%.3f", seconds));
+        } catch (IOException | RuntimeException e) {
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw new RuntimeException(String.format("Snapshot exception: path=%s", path), e);
+        }
+        try {
+            Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new RuntimeException(String.format("Snapshot move exception: path=%s", path), e);
+        }
+        return rows[0];
+    }
+
+    /**
+     * Write null bitmap and non-null values.
+     *
+     * @param out Output.
+     * @param value DTO.
+     * @param values Reusable field value array.
+     * @throws IOException Possible exception.
+     */
+    private void writeRecord(final Output out, final V value, final Object[] values) throws IOException {
+        final var bitmap = new byte[bitmapSize];
+        for (var i = 0; i < codes.length; i++) {
+            values[i] = fields.get(value, i);
+            if (values[i] == null) {
+                bitmap[i >> 3] |= 1 << (i & 7);
+            }
+        }
+        out.ensure(bitmapSize);
+        out.buffer.put(bitmap);
+        for (var i = 0; i < codes.length; i++) {
+            final var v = values[i];
+            if (v == null) {
+                continue;
+            }
+            switch (codes[i]) {
+                case 0:
+                    out.putString((String) v);
+                    break;
+                case 1:
+                    out.ensure(8);
+                    out.buffer.putLong((Long) v);
+                    break;
+                case 2:
+                    out.ensure(4);
+                    out.buffer.putInt((Integer) v);
+                    break;
+                case 3:
+                    out.ensure(2);
+                    out.buffer.putShort((Short) v);
+                    break;
+                case 4:
+                    final var decimal = (BigDecimal) v;
+                    final var unscaled = decimal.unscaledValue().toByteArray();
+                    out.ensure(4);
+                    out.buffer.putInt(decimal.scale());
+                    out.putBytes(unscaled);
+                    break;
+                case 5:
+                    out.ensure(8);
+                    out.buffer.putDouble((Double) v);
+                    break;
+                case 6:
+                    out.ensure(4);
+                    out.buffer.putFloat((Float) v);
+                    break;
+                case 7:
+                    out.ensure(1);
+                    out.buffer.put((byte) ((Boolean) v ? 1 : 0));
+                    break;
+                case 9:
+                    out.ensure(12);
+                    out.buffer.putLong(((Timestamp) v).getTime());
+                    out.buffer.putInt(((Timestamp) v).getNanos());
+                    break;
+                case 8:
+                case 10:
+                case 11:
+                    out.ensure(8);
+                    out.buffer.putLong(((java.util.Date) v).getTime());
+                    break;
+                case 12:
+                    out.ensure(8);
+                    out.buffer.putLong(((LocalDate) v).toEpochDay());
+                    break;
+                case 13:
+                    out.ensure(12);
+                    out.buffer.putLong(((LocalDateTime) v).toEpochSecond(ZoneOffset.UTC));
+                    out.buffer.putInt(((LocalDateTime) v).getNano());
+                    break;
+                default:
+                    throw new IllegalStateException(String.format("Unknown type code %d", codes[i]));
+            }
+        }
+    }
+
+    /**
+     * Restore snapshot into DAO using chunked {@link Dao#save(Map)}.
+     *
+     * @param path Snapshot file.
+     * @param dao DAO to populate.
+     * @return Number of rows restored.
+     */
+    public long restore(final Path path, final Dao<K, V> dao) {
+        final var chunk = new LinkedHashMap<K, V>(chunkSize * 2);
+        final var rows = restore(path, (Consumer<V>) value -> {
+            chunk.put((K) ((Dto) value).getKey(), value);
+            if (chunk.size() >= chunkSize) {
+                dao.save(chunk);
+                chunk.clear();
+            }
+        });
+        if (!chunk.isEmpty()) {
+            dao.save(chunk);
+        }
+        return rows;
+    }
+
+    /**
+     * Restore snapshot into Map such as a cache or MapDB collection using chunked {@link Map#putAll(Map)}.
+     *
+     * @param path Snapshot file.
+     * @param map Map to populate.
+     * @return Number of rows restored.
+     */
+    public long restore(final Path path, final Map<K, V> map) {
+        final var chunk = new LinkedHashMap<K, V>(chunkSize * 2);
+        final var rows = restore(path, (Consumer<V>) value -> {
+            chunk.put((K) ((Dto) value).getKey(), value);
+            if (chunk.size() >= chunkSize) {
+                map.putAll(chunk);
+                chunk.clear();
+            }
+        });
+        map.putAll(chunk);
+        return rows;
+    }
+
+    /**
+     * Restore snapshot passing each value to consumer.
+     *
+     * @param path Snapshot file.
+     * @param consumer Called for each value.
+     * @return Number of rows restored.
+     */
+    public long restore(final Path path, final Consumer<V> consumer) {
+        final var start = System.nanoTime();
+        long rows;
+        try (final var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final var size = channel.size();
+            var windowStart = 0L;
+            var buffer = map(channel, windowStart, size);
+            if (size < ROWS_OFFSET + 8 || buffer.getInt() != MAGIC) {
+                throw new RuntimeException(String.format("Not a snapshot file: path=%s", path));
+            }
+            final var version = buffer.getShort();
+            if (version != VERSION) {
+                throw new RuntimeException(String.format("Snapshot version %d not supported: path=%s", version, path));
+            }
+            rows = buffer.getLong();
+            verifySchema(buffer, path);
+            final var bitmap = new byte[bitmapSize];
+            for (long row = 0; row < rows; row++) {
+                // Slide window forward for files larger than a single mapping
+                if (buffer.remaining() < REMAP_THRESHOLD && windowStart + buffer.limit() < size) {
+                    windowStart += buffer.position();
+                    buffer = map(channel, windowStart, size);
+                }
+                buffer.get(bitmap);
+                final V value = fields.newInstance();
+                for (var i = 0; i < codes.length; i++) {
+                    if ((bitmap[i >> 3] & (1 << (i & 7))) == 0) {
+                        fields.set(value, i, readValue(buffer, codes[i]));
+                    }
+                }
+                consumer.accept(value);
+            }
+            final var seconds = (System.nanoTime() - start) / 1000000000.0;
+            logger.info("Restored {}: {} rows, {} bytes, {} seconds", path, rows, size, String.format("%.3f", seconds));
+        } catch (IOException e) {
+            throw new RuntimeException(String.format("Restore exception: path=%s", path), e);
+        }
+        return rows;
+    }
+
+    /**
+     * Map window of file.
+     *
+     * @param channel File channel.
+     * @param position Window start.
+     * @param size File size.
+     * @return Mapped window.
+     * @throws IOException Possible exception.
+     */
+    private MappedByteBuffer map(final FileChannel channel, final long position, final long size) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(size - position, Integer.MAX_VALUE));
+    }
+
+    /**
+     * Compare header schema to DTO class.
+     *
+     * @param buffer Buffer positioned at class name.
+     * @param path Snapshot file.
+     */
+    private void verifySchema(final ByteBuffer buffer, final Path path) {
+        final var className = getString(buffer);
+        final var count = buffer.getInt();
+        final var names = new ArrayList<String>();
+        final var types = new ArrayList<String>();
+        for (var i = 0; i < count; i++) {
+            names.add(getString(buffer));
+            types.add(getString(buffer));
+        }
+        final var expectedTypes = new ArrayList<String>();
+        fields.getTypes().forEach(type -> {
+            expectedTypes.add(type.getName());
+        });
+        if (!className.equals(fields.getClazz().getName()) || !names.equals(fields.getNames()) || !types.equals(expectedTypes)) {
+            throw new RuntimeException(String.format(
+                    "Schema mismatch: path=%s, snapshot=%s %s %s, expected=%s %s %s", path, className, names, types, fields.
+                    getClazz().getName(), fields.getNames(), expectedTypes));
+        }
+    }
+
+    /**
+     * Read length prefixed UTF-8 String.
+     *
+     * @param buffer Buffer.
+     * @return String.
+     */
+    private String getString(final ByteBuffer buffer) {
+        final var bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Read value by type code.
+     *
+     * @param buffer Buffer.
+     * @param code Type code.
+     * @return Value.
+     */
+    private Object readValue(final ByteBuffer buffer, final int code) {
+        switch (code) {
+            case 0:
+                return getString(buffer);
+            case 1:
+                return buffer.getLong();
+            case 2:
+                return buffer.getInt();
+            case 3:
+                return buffer.getShort();
+            case 4:
+                final var scale = buffer.getInt();
+                final var unscaled = new byte[buffer.getInt()];
+                buffer.get(unscaled);
+                return new BigDecimal(new BigInteger(unscaled), scale);
+            case 5:
+                return buffer.getDouble();
+            case 6:
+                return buffer.getFloat();
+            case 7:
+                return buffer.get() != 0;
+            case 8:
+                return new Date(buffer.getLong());
+            case 9:
+                final var timestamp = new Timestamp(buffer.getLong());
+                timestamp.setNanos(buffer.getInt());
+                return timestamp;
+            case 10:
+                return new Time(buffer.getLong());
+            case 11:
+                return new java.util.Date(buffer.getLong());
+            case 12:
+                return LocalDate.ofEpochDay(buffer.getLong());
+            case 13:
+                return LocalDateTime.ofEpochSecond(buffer.getLong(), buffer.getInt(), ZoneOffset.UTC);
+            default:
+                throw new IllegalStateException(String.format("Unknown type code %d", code));
+        }
+    }
+
+    /**
+     * Buffered channel output.
+     */
+    private static final class Output {
+
+        /**
+         * File channel.
+         */
+        private final FileChannel channel;
+        /**
+         * Direct buffer.
+         */
+        private final ByteBuffer buffer;
+
+        /**
+         * Construct with channel and buffer.
+         *
+         * @param channel File channel.
+         * @param buffer Direct buffer.
+         */
+        private Output(final FileChannel channel, final ByteBuffer buffer) {
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+
+        /**
+         * Write buffer to channel.
+         *
+         * @throws IOException Possible exception.
+         */
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        /**
+         * Make sure buffer has room.
+         *
+         * @param bytes Bytes needed.
+         * @throws IOException Possible exception.
+         */
+        private void ensure(final int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        /**
+         * Write length prefixed bytes. Arrays larger than the buffer are written directly.
+         *
+         * @param bytes Bytes to write.
+         * @throws IOException Possible exception.
+         */
+        private void putBytes(final byte[] bytes) throws IOException {
+            ensure(4);
+            buffer.putInt(bytes.length);
+            if (bytes.length > buffer.capacity()) {
+                flush();
+                final var wrapped = ByteBuffer.wrap(bytes);
+                while (wrapped.hasRemaining()) {
+                    channel.write(wrapped);
+                }
+            } else {
+                ensure(bytes.length);
+                buffer.put(bytes);
+            }
+        }
+
+        /**
+         * Write length prefixed UTF-8 String.
+         *
+         * @param str String to write.
+         * @throws IOException Possible exception.
+         */
+        private void putString(final String str) throws IOException {
+            putBytes(str.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,604 @@
+/*
+ * Copyright (c) Steven P. Goldsmith. All rights reserved.
+ */
+package com.codeferm.detonator;
+
+import com.codeferm.dto.Dto;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Date;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Bulk delimited file import and export for any generated DAO. The first line of a file is a header with DTO field names, so column
+ * order doesn't have to match the DTO. Strings containing the delimiter, quotes or line breaks are quoted and embedded quotes are
+ * doubled. An unquoted empty field is null and a quoted empty field is an empty String.
+ *
+ * Export streams rows through a cursor when the DAO is a {@link DbDao} and writes through a {@link FileChannel} using a direct
+ * buffer. Import memory maps the file, splits it on line boundaries and parses each split in parallel. Fields are sliced directly out
+ * of the mapped buffer and numbers are parsed without creating Strings. Values are saved in chunks using {@link Dao#save(Map)}.
+ * Parallel import requires records without embedded line breaks; use a single worker otherwise.
+ *
+ * Value class must implement {@link Dto}, so the key can be derived from the value. This class is thread safe.
+ *
+ * @author Steven P. Goldsmith
+ * @version 1.0.0
+ * @since 1.0.0
+ * @param <K> Key type.
+ * @param <V> Value type.
+ */
+public class DaoTransfer<K, V> {
+
+    /**
+     * Logger.
+     */
+    private static final Logger logger = LogManager.getLogger(DaoTransfer.class);
+    /**
+     * Largest region that can be mapped at once.
+     */
+    private static final long MAX_MAP = Integer.MAX_VALUE;
+    /**
+     * Value field metadata.
+     */
+    private final DtoFields fields;
+    /**
+     * Field delimiter.
+     */
+    private final byte delimiter;
+    /**
+     * Export buffer size.
+     */
+    private final int bufferSize;
+    /**
+     * Rows saved per {@link Dao#save(Map)}.
+     */
+    private final int chunkSize;
+    /**
+     * Export fetch size.
+     */
+    private int fetchSize = 1000;
+
+    /**
+     * Construct with comma delimiter, 1 MB buffer and 1000 row chunks.
+     *
+     * @param vClass Value class type.
+     */
+    public DaoTransfer(final Class vClass) {
+        this(vClass, ',', 1024 * 1024, 1000);
+    }
+
+    /**
+     * Construct with delimiter, buffer size and chunk size.
+     *
+     * @param vClass Value class type.
+     * @param delimiter Field delimiter. Must be ASCII.
+     * @param bufferSize Export buffer size in bytes.
+     * @param chunkSize Rows saved per batch on import.
+     */
+    public DaoTransfer(final Class vClass, final char delimiter, final int bufferSize, final int chunkSize) {
+        if (delimiter > 127 || delimiter == '"' || delimiter == '\n' || delimiter == '\r') {
+            throw new IllegalArgumentException(String.format("Invalid delimiter %s", delimiter));
+        }
+        this.fields = new DtoFields(vClass);
+        this.delimiter = (byte) delimiter;
+        this.bufferSize = bufferSize;
+        this.chunkSize = chunkSize;
+    }
+
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    public void setFetchSize(final int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Log throughput.
+     *
+     * @param operation Operation name.
+     * @param path File path.
+     * @param rows Rows processed.
+     * @param bytes Bytes processed.
+     * @param start Start time in nanoseconds.
+     */
+    private void logThroughput(final String operation, final Path path, final long rows, final long bytes, final long start) {
+        final var seconds = (System.nanoTime() - start) / 1000000000.0;
+        logger.info("{} {}: {} rows, {} bytes, {} seconds, {} rows/second, {} MB/second", operation, path, rows, bytes, String.format(
+                "%.3f", seconds), String.format("%.0f", seconds > 0 ? rows / seconds : rows), String.format("%.2f", seconds > 0
+                ? bytes / seconds / (1024 * 1024) : 0));
+    }
+
+    /**
+     * Export all values. A {@link DbDao} streams using its findAll query, otherwise {@link Dao#findAll()} is used.
+     *
+     * @param dao DAO to export.
+     * @param path File to write.
+     * @return Number of rows exported.
+     */
+    public long exportFile(final Dao<K, V> dao, final Path path) {
+        if (dao instanceof DbDao) {
+            return exportFile((DbDao<K, V>) dao, "findAll", Db.NO_PARAMS, path);
+        }
+        return export(path, consumer -> dao.findAll().forEach(consumer));
+    }
+
+    /**
+     * Export values returned by named query.
+     *
+     * @param dao DAO to export.
+     * @param name Query name.
+     * @param params Query parameters.
+     * @param path File to write.
+     * @return Number of rows exported.
+     */
+    public long exportFile(final DbDao<K, V> dao, final String name, final Object[] params, final Path path) {
+        return export(path, consumer -> dao.streamBy(name, params, fetchSize, consumer));
+    }
+
+    /**
+     * Write header and values produced by source.
+     *
+     * @param path File to write.
+     * @param source Passes each value to consumer.
+     * @return Number of rows exported.
+     */
+    private long export(final Path path, final Consumer<Consumer<V>> source) {
+        final var start = System.nanoTime();
+        final var rows = new long[1];
+        try (final var channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)) {
+            final var buffer = ByteBuffer.allocateDirect(bufferSize);
+            final var line = new StringBuilder(256);
+            // Header
+            for (var i = 0; i < fields.size(); i++) {
+                if (i > 0) {
+                    line.append((char) delimiter);
+                }
+                line.append(fields.getNames().get(i));
+            }
+            line.append('\n');
+            write(channel, buffer, line);
+            source.accept(value -> {
+                line.setLength(0);
+                for (var i = 0; i < fields.size(); i++) {
+                    if (i > 0) {
+                        line.append((char) delimiter);
+                    }
+                    format(line, fields.get(value, i));
+                }
+                line.append('\n');
+                try {
+                    write(channel, buffer, line);
+                } catch (IOException e) {
+                    throw new RuntimeException(String.format("Export write exception: path=%s", path), e);
+                }
+                rows[0]++;
+            });
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            logThroughput("Exported", path, rows[0], channel.size(), start);
+        } catch (IOException e) {
+            throw new RuntimeException(String.format("Export exception: path=%s", path), e);
+        }
+        return rows[0];
+    }
+
+    /**
+     * Encode line into buffer and write buffer when full.
+     *
+     * @param channel File channel.
+     * @param buffer Direct buffer.
+     * @param line Line to write.
+     * @throws IOException Possible exception.
+     */
+    private void write(final FileChannel channel, final ByteBuffer buffer, final CharSequence line) throws IOException {
+        final var bytes = line.toString().getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > buffer.remaining()) {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+        if (bytes.length > buffer.capacity()) {
+            // Line larger than buffer
+            final var wrapped = ByteBuffer.wrap(bytes);
+            while (wrapped.hasRemaining()) {
+                channel.write(wrapped);
+            }
+        } else {
+            buffer.put(bytes);
+        }
+    }
+
+    /**
+     * Format value. Null is an empty field.
+     *
+     * @param line Line to append to.
+     * @param value Value to format.
+     */
+    private void format(final StringBuilder line, final Object value) {
+        if (value == null) {
+            return;
+        }
+        if (value instanceof BigDecimal) {
+            line.append(((BigDecimal) value).toPlainString());
+        } else if (value instanceof String || value instanceof Character) {
+            final var str = value.toString();
+            var quote = str.isEmpty();
+            for (var i = 0; i < str.length() && !quote; i++) {
+                final var c = str.charAt(i);
+                quote = c == delimiter || c == '"' || c == '\n' || c == '\r';
+            }
+            if (quote) {
+                line.append('"');
+                for (var i = 0; i < str.length(); i++) {
+                    final var c = str.charAt(i);
+                    if (c == '"') {
+                        line.append('"');
+                    }
+                    line.append(c);
+                }
+                line.append('"');
+            } else {
+                line.append(str);
+            }
+        } else if (value instanceof java.util.Date && !(value instanceof Date) && !(value instanceof Time)
+                && !(value instanceof Timestamp)) {
+            line.append(new Timestamp(((java.util.Date) value).getTime()));
+        } else {
+            line.append(value);
+        }
+    }
+
+    /**
+     * Import file using one worker per available processor.
+     *
+     * @param dao DAO to save values to.
+     * @param path File to read.
+     * @return Number of rows imported.
+     */
+    public long importFile(final Dao<K, V> dao, final Path path) {
+        return importFile(dao, path, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Import file using parallel workers. The file is split on line boundaries and each split is parsed and saved by its own worker.
+     *
+     * @param dao DAO to save values to.
+     * @param path File to read.
+     * @param workers Number of workers.
+     * @return Number of rows imported.
+     */
+    public long importFile(final Dao<K, V> dao, final Path path, final int workers) {
+        final var start = System.nanoTime();
+        long rows = 0;
+        try (final var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final var size = channel.size();
+            // Parse header
+            final var headerEnd = nextLine(channel, 0, size);
+            final var headerBuffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, headerEnd);
+            final var header = new ArrayList<String>();
+            final var headerSlices = new int[64 * 3 + 1];
+            final var headerCount = parseRecord(headerBuffer, 0, (int) headerEnd, headerSlices, header);
+            final var columns = new int[headerCount];
+            for (var i = 0; i < headerCount; i++) {
+                columns[i] = fields.getNames().indexOf(header.get(i));
+                if (columns[i] < 0) {
+                    throw new RuntimeException(String.format("Column %s not found in %s", header.get(i), fields.getClazz().
+                            getName()));
+                }
+            }
+            // Split on line boundaries
+            final var splits = new ArrayList<long[]>();
+            final var count = Math.max(workers, (int) ((size - headerEnd) / MAX_MAP) + 1);
+            final var splitSize = Math.max(1, (size - headerEnd) / count);
+            var splitStart = headerEnd;
+            while (splitStart < size) {
+                final var splitEnd = splitStart + splitSize >= size ? size : nextLine(channel, splitStart + splitSize, size);
+                if (splitEnd - splitStart > MAX_MAP) {
+                    throw new RuntimeException(String.format("Line too long near position %d", splitStart));
+                }
+                splits.add(new long[]{splitStart, splitEnd});
+                splitStart = splitEnd;
+            }
+            final var executor = Executors.newFixedThreadPool(Math.max(1, Math.min(workers, splits.size())));
+            try {
+                final var futures = new ArrayList<Future<Long>>();
+                for (final var split : splits) {
+                    final var buffer = channel.map(FileChannel.MapMode.READ_ONLY, split[0], split[1] - split[0]);
+                    futures.add(executor.submit(() -> importSplit(dao, buffer, columns)));
+                }
+                for (final var future : futures) {
+                    rows += future.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(String.format("Import interrupted: path=%s", path), e);
+            } catch (ExecutionException e) {
+                throw new RuntimeException(String.format("Import exception: path=%s", path), e.getCause());
+            } finally {
+                executor.shutdownNow();
+            }
+            logThroughput("Imported", path, rows, size, start);
+        } catch (IOException e) {
+            throw new RuntimeException(String.format("Import exception: path=%s", path), e);
+        }
+        return rows;
+    }
+
+    /**
+     * Return position after next line feed.
+     *
+     * @param channel File channel.
+     * @param position Position to start looking.
+     * @param size File size.
+     * @return Position after line feed or size.
+     * @throws IOException Possible exception.
+     */
+    private long nextLine(final FileChannel channel, final long position, final long size) throws IOException {
+        final var buffer = ByteBuffer.allocate(8192);
+        var pos = position;
+        while (pos < size) {
+            buffer.clear();
+            final var read = channel.read(buffer, pos);
+            if (read <= 0) {
+                break;
+            }
+            for (var i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return pos + i + 1;
+                }
+            }
+            pos += read;
+        }
+        return size;
+    }
+
+    /**
+     * Parse split and save values in chunks.
+     *
+     * @param dao DAO to save values to.
+     * @param buffer Mapped split.
+     * @param columns DTO field index of each column.
+     * @return Number of rows imported.
+     */
+    private long importSplit(final Dao<K, V> dao, final MappedByteBuffer buffer, final int[] columns) {
+        long rows = 0;
+        final var slices = new int[columns.length * 3 + 1];
+        var chunk = new LinkedHashMap<K, V>(chunkSize * 2);
+        final var end = buffer.limit();
+        var pos = 0;
+        while (pos < end) {
+            final var next = parseRecord(buffer, pos, end, slices, null);
+            final var recordEnd = slices[slices.length - 1];
+            if (next < 0) {
+                // Blank line
+                pos = -next;
+                continue;
+            }
+            if (next != columns.length) {
+                throw new RuntimeException(String.format("Expected %d columns and got %d near offset %d", columns.length, next,
+                        pos));
+            }
+            final V value = fields.newInstance();
+            for (var i = 0; i < columns.length; i++) {
+                fields.set(value, columns[i], convert(buffer, slices[i * 3], slices[i * 3 + 1], slices[i * 3 + 2] == 1,
+                        fields.getTypes().get(columns[i])));
+            }
+            chunk.put((K) ((Dto) value).getKey(), value);
+            if (chunk.size() >= chunkSize) {
+                dao.save(chunk);
+                chunk = new LinkedHashMap<>(chunkSize * 2);
+            }
+            rows++;
+            pos = recordEnd;
+        }
+        if (!chunk.isEmpty()) {
+            dao.save(chunk);
+        }
+        return rows;
+    }
+
+    /**
+     * Parse one record. Each field is stored as start, end and quoted flag. The last slot of slices is set to the position after the
+     * record.
+     *
+     * @param buffer Buffer to parse.
+     * @param start Record start.
+     * @param end Buffer end.
+     * @param slices Field slices.
+     * @param strings Decoded fields are added if not null.
+     * @return Number of fields or negative position after record if line is blank.
+     */
+    private int parseRecord(final ByteBuffer buffer, final int start, final int end, final int[] slices, final List<String> strings) {
+        final var maxFields = (slices.length - 1) / 3;
+        var pos = start;
+        var count = 0;
+        while (true) {
+            int fieldStart;
+            int fieldEnd;
+            var quoted = false;
+            if (pos < end && buffer.get(pos) == '"') {
+                quoted = true;
+                fieldStart = ++pos;
+                while (true) {
+                    if (pos >= end) {
+                        throw new RuntimeException(String.format("Unterminated quote at offset %d", fieldStart - 1));
+                    }
+                    if (buffer.get(pos) == '"') {
+                        if (pos + 1 < end && buffer.get(pos + 1) == '"') {
+                            pos += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    pos++;
+                }
+                fieldEnd = pos++;
+            } else {
+                fieldStart = pos;
+                while (pos < end) {
+                    final var b = buffer.get(pos);
+                    if (b == delimiter || b == '\n' || b == '\r') {
+                        break;
+                    }
+                    pos++;
+                }
+                fieldEnd = pos;
+            }
+            if (count < maxFields) {
+                slices[count * 3] = fieldStart;
+                slices[count * 3 + 1] = fieldEnd;
+                slices[count * 3 + 2] = quoted ? 1 : 0;
+            }
+            if (strings != null) {
+                strings.add(decode(buffer, fieldStart, fieldEnd, quoted));
+            }
+            count++;
+            if (pos >= end) {
+                break;
+            }
+            final var b = buffer.get(pos);
+            if (b == delimiter) {
+                pos++;
+                continue;
+            }
+            if (b == '\r') {
+                pos++;
+            } else if (b != '\n') {
+                throw new RuntimeException(String.format("Expected delimiter at offset %d", pos));
+            }
+            if (pos < end && buffer.get(pos) == '\n') {
+                pos++;
+            }
+            break;
+        }
+        slices[slices.length - 1] = pos;
+        // Blank line
+        if (count == 1 && slices[0] == slices[1] && slices[2] == 0) {
+            return -pos;
+        }
+        return count;
+    }
+
+    /**
+     * Decode field as String and remove doubled quotes.
+     *
+     * @param buffer Buffer.
+     * @param start Field start.
+     * @param end Field end.
+     * @param quoted True if field was quoted.
+     * @return Decoded String.
+     */
+    private String decode(final ByteBuffer buffer, final int start, final int end, final boolean quoted) {
+        final var bytes = new byte[end - start];
+        buffer.get(start, bytes);
+        final var str = new String(bytes, StandardCharsets.UTF_8);
+        return quoted ? str.replace("\"\"", "\"") : str;
+    }
+
+    /**
+     * Parse long directly from buffer.
+     *
+     * @param buffer Buffer.
+     * @param start Field start.
+     * @param end Field end.
+     * @return Parsed value.
+     */
+    private long parseLong(final ByteBuffer buffer, final int start, final int end) {
+        var pos = start;
+        var negative = false;
+        if (buffer.get(pos) == '-' || buffer.get(pos) == '+') {
+            negative = buffer.get(pos) == '-';
+            pos++;
+        }
+        if (pos == end || end - pos > 18) {
+            // Let Long handle edge cases and overflow
+            return Long.parseLong(decode(buffer, start, end, false));
+        }
+        long value = 0;
+        for (; pos < end; pos++) {
+            final var digit = buffer.get(pos) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException(String.format("Invalid number %s", decode(buffer, start, end, false)));
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Convert field slice to DTO field type.
+     *
+     * @param buffer Buffer.
+     * @param start Field start.
+     * @param end Field end.
+     * @param quoted True if field was quoted.
+     * @param type DTO field type.
+     * @return Converted value.
+     */
+    private Object convert(final ByteBuffer buffer, final int start, final int end, final boolean quoted, final Class type) {
+        if (start == end && !quoted) {
+            return null;
+        }
+        if (type == String.class) {
+            return decode(buffer, start, end, quoted);
+        } else if (type == Long.class || type == long.class) {
+            return parseLong(buffer, start, end);
+        } else if (type == Integer.class || type == int.class) {
+            return Math.toIntExact(parseLong(buffer, start, end));
+        } else if (type == Short.class || type == short.class) {
+            final var value = parseLong(buffer, start, end);
+            if (value < Short.MIN_VALUE || value > Short.MAX_VALUE) {
+                throw new NumberFormatException(String.format("Value out of range for short %d", value));
+            }
+            return (short) value;
+        }
+        final var str = decode(buffer, start, end, quoted);
+        if (type == BigDecimal.class) {
+            return new BigDecimal(str);
+        } else if (type == Double.class || type == double.class) {
+            return Double.valueOf(str);
+        } else if (type == Float.class || type == float.class) {
+            return Float.valueOf(str);
+        } else if (type == Boolean.class || type == boolean.class) {
+            return Boolean.valueOf(str);
+        } else if (type == Date.class) {
+            return Date.valueOf(str);
+        } else if (type == Timestamp.class) {
+            return Timestamp.valueOf(str);
+        } else if (type == Time.class) {
+            return Time.valueOf(str);
+        } else if (type == java.util.Date.class) {
+            return new java.util.Date(Timestamp.valueOf(str).getTime());
+        } else if (type == LocalDate.class) {
+            return LocalDate.parse(str);
+        } else if (type == LocalDateTime.class) {
+            return LocalDateTime.parse(str);
+        }
+        throw new RuntimeException(String.format("Unsupported type %s", type.getName()));
+    }
+}
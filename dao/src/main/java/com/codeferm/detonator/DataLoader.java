@@ -3,18 +3,31 @@
  */
 package com.codeferm.detonator;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.sql.BatchUpdateException;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
 import javax.sql.DataSource;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 /**
- * Data loader is used to load test data.
+ * Data loader is used to load test data. The script is streamed through {@link SqlScriptReader} once. Consecutive DML statements are
+ * grouped into JDBC batches and literal INSERTs can optionally be turned into parameterized batched statements. DDL and other
+ * statements flush the current batch and are executed on their own, so script order is preserved.
+ *
+ * Batch state is kept per script, so a loader can run scripts from several threads.
  *
  * @author Steven P. Goldsmith
  * @version 1.0.0
@@ -26,64 +39,464 @@ public class DataLoader {
      * Logger.
      */
     private final Logger logger = LogManager.getLogger(DataLoader.class);
+    /**
+     * VALUES keyword in INSERT statement.
+     */
+    private static final Pattern VALUES = Pattern.compile("\\bVALUES\\b", Pattern.CASE_INSENSITIVE);
 
     /**
      * DataSource.
      */
     private final DataSource dataSource;
+    /**
+     * Maximum statements per JDBC batch.
+     */
+    private final int batchSize;
+    /**
+     * Commit after this many statements or 0 to use auto commit.
+     */
+    private final int commitInterval;
+    /**
+     * Convert literal INSERTs to parameterized statements.
+     */
+    private final boolean parameterize;
+    /**
+     * Log progress after this many statements.
+     */
+    private int progressInterval = 10000;
+    /**
+     * Statements executed.
+     */
+    private final AtomicLong statements = new AtomicLong();
+    /**
+     * Batches executed.
+     */
+    private final AtomicLong batches = new AtomicLong();
+    /**
+     * State of one script execution.
+     */
+    private static final class ScriptContext {
+
+        /**
+         * Pending batch SQL or parameterized template.
+         */
+        private final List<String> batchSql = new ArrayList<>();
+        /**
+         * Script line of each pending batch statement.
+         */
+        private final List<Long> batchLines = new ArrayList<>();
+        /**
+         * Pending parameterized batch template or null if batch is plain SQL.
+         */
+        private String template;
+        /**
+         * Pending parameterized batch values.
+         */
+        private final List<Object[]> batchParams = new ArrayList<>();
+        /**
+         * Statements executed since last commit.
+         */
+        private int uncommitted;
+        /**
+         * Script line of failed statement.
+         */
+        private long failedLine;
+        /**
+         * Failed statement.
+         */
+        private String failedSql;
+
+        /**
+         * Clear pending batch.
+         */
+        private void clear() {
+            batchSql.clear();
+            batchLines.clear();
+            batchParams.clear();
+            template = null;
+        }
+    }
 
     /**
-     * Construct with DataSource.
+     * Construct with DataSource using batch size of 1000 and auto commit.
      *
      * @param dataSource DataSource to use.
      */
     public DataLoader(final DataSource dataSource) {
+        this(dataSource, 1000, 0, false);
+    }
+
+    /**
+     * Construct with DataSource and batch settings.
+     *
+     * @param dataSource DataSource to use.
+     * @param batchSize Maximum statements per JDBC batch. Use 1 to disable batching.
+     * @param commitInterval Commit after this many statements or 0 to use auto commit.
+     * @param parameterize True to convert literal INSERTs to parameterized statements.
+     */
+    public DataLoader(final DataSource dataSource, final int batchSize, final int commitInterval, final boolean parameterize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be greater than 0");
+        }
         this.dataSource = dataSource;
+        this.batchSize = batchSize;
+        this.commitInterval = commitInterval;
+        this.parameterize = parameterize;
+    }
+
+    /**
+     * Statements between progress log messages.
+     *
+     * @return Progress interval.
+     */
+    public int getProgressInterval() {
+        return progressInterval;
+    }
+
+    /**
+     * Set statements between progress log messages or 0 to disable progress logging.
+     *
+     * @param progressInterval Progress interval.
+     */
+    public void setProgressInterval(final int progressInterval) {
+        this.progressInterval = progressInterval;
+    }
+
+    /**
+     * Statements executed so far.
+     *
+     * @return Statement count.
+     */
+    public long getStatements() {
+        return statements.get();
     }
 
     /**
-     * Process SQL script and execute each line based on delimiter. Lines are accumulated until a delimiter is reached. SQL comments
-     * "--", "/*" and blank lines are skipped.
+     * JDBC batches executed so far.
+     *
+     * @return Batch count.
+     */
+    public long getBatches() {
+        return batches.get();
+    }
+
+    /**
+     * Process SQL script and execute each statement based on delimiter. The script is read as UTF-8. SQL comments are skipped.
      *
      * @param fileName SQL script to process.
-     * @param delimiter Line delimiter.
+     * @param delimiter Statement delimiter.
      * @param removeDelimiter True to remove delimiter from statement
      * @return Number of statements executed.
      */
     public int execScript(final String fileName, final String delimiter, final boolean removeDelimiter) {
-        int statements = 0;
-        String sql = "";
+        try (final var reader = Files.newBufferedReader(Paths.get(fileName), StandardCharsets.UTF_8)) {
+            return execScript(reader, delimiter, removeDelimiter);
+        } catch (IOException e) {
+            throw new RuntimeException(String.format("Script file exception: fileName=%s", fileName), e);
+        }
+    }
+
+    /**
+     * Process SQL script from Reader and execute each statement based on delimiter. SQL comments are skipped.
+     *
+     * @param reader SQL script to process.
+     * @param delimiter Statement delimiter.
+     * @param removeDelimiter True to remove delimiter from statement
+     * @return Number of statements executed.
+     */
+    public int execScript(final Reader reader, final String delimiter, final boolean removeDelimiter) {
+        final var scriptReader = new SqlScriptReader(reader, delimiter, removeDelimiter);
+        final var start = System.nanoTime();
+        final var startCount = statements.get();
+        final var context = new ScriptContext();
+        String sql;
         try (final Connection connection = dataSource.getConnection()) {
-            try (BufferedReader br = new BufferedReader(new FileReader(fileName))) {
-                String line;
-                // Process all lines in file
-                while ((line = br.readLine()) != null) {
-                    line = line.trim();
-                    if (!line.isEmpty()) {
-                        // Build SQL line
-                        sql += line;
-                        if (line.endsWith(delimiter)) {
-                            // Remove delimiter from statement
-                            if (removeDelimiter) {
-                                sql = sql.substring(0, sql.length() - 1);
-                            }
-                            // Execute SQL statement
-                            try (Statement statement = connection.createStatement()) {
-                                logger.debug("Executing {}", sql);
-                                statement.execute(sql);
-                            }
-                            sql = "";
+            final var autoCommit = connection.getAutoCommit();
+            if (commitInterval > 0) {
+                connection.setAutoCommit(false);
+            }
+            try (final var statement = connection.createStatement()) {
+                while ((sql = scriptReader.next()) != null) {
+                    if (isDml(sql)) {
+                        addBatch(connection, statement, sql, scriptReader.getStartLine(), context);
+                    } else {
+                        // Keep script order
+                        flush(connection, statement, context);
+                        logger.debug("Executing {}", sql);
+                        context.failedLine = scriptReader.getStartLine();
+                        context.failedSql = sql;
+                        statement.execute(sql);
+                        executed(connection, 1, context);
+                    }
+                }
+                flush(connection, statement, context);
+                if (commitInterval > 0) {
+                    connection.commit();
+                }
+            } catch (SQLException | RuntimeException e) {
+                // Don't leave uncommitted statements on a pooled connection
+                if (commitInterval > 0) {
+                    try {
+                        connection.rollback();
+                    } catch (SQLException re) {
+                        e.addSuppressed(re);
+                    }
+                }
+                throw e;
+            } finally {
+                if (commitInterval > 0) {
+                    connection.setAutoCommit(autoCommit);
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(String.format("SQL exception: line=%d, sql=%s", context.failedLine, context.failedSql), e);
+        }
+        final var count = statements.get() - startCount;
+        final var seconds = (System.nanoTime() - start) / 1000000000.0;
+        logger.debug("Executed {} statements in {} batches, {} seconds, {} statements/second", count, batches.get(), String.
+                format("%.3f", seconds), String.format("%.0f", seconds > 0 ? count / seconds : count));
+        return (int) count;
+    }
+
+    /**
+     * Is statement DML that can be batched?
+     *
+     * @param sql SQL statement.
+     * @return True for INSERT, UPDATE, DELETE and MERGE.
+     */
+    public boolean isDml(final String sql) {
+        var i = 0;
+        // Skip leading white space and parenthesis
+        while (i < sql.length() && (Character.isWhitespace(sql.charAt(i)) || sql.charAt(i) == '(')) {
+            i++;
+        }
+        return sql.regionMatches(true, i, "insert", 0, 6) || sql.regionMatches(true, i, "update", 0, 6) || sql.regionMatches(true, i,
+                "delete", 0, 6) || sql.regionMatches(true, i, "merge", 0, 5);
+    }
+
+    /**
+     * Add DML statement to pending batch. Batch is flushed when it's full or the statement can't join the current batch.
+     *
+     * @param connection Connection.
+     * @param statement Statement used for plain SQL batches.
+     * @param sql SQL statement.
+     * @param line Script line where statement starts.
+     * @param context Script execution state.
+     * @throws SQLException Possible exception.
+     */
+    private void addBatch(final Connection connection, final Statement statement, final String sql, final long line,
+            final ScriptContext context) throws SQLException {
+        List<Object> values = null;
+        String insertTemplate = null;
+        if (parameterize) {
+            values = new ArrayList<>();
+            insertTemplate = toTemplate(sql, values);
+        }
+        // Flush if switching between plain and parameterized or to a different template
+        if (!context.batchSql.isEmpty() && (insertTemplate == null ? context.template != null : !insertTemplate.equals(
+                context.template))) {
+            flush(connection, statement, context);
+        }
+        if (insertTemplate != null) {
+            context.template = insertTemplate;
+            context.batchParams.add(values.toArray());
+        }
+        context.batchSql.add(sql);
+        context.batchLines.add(line);
+        if (context.batchSql.size() >= batchSize) {
+            flush(connection, statement, context);
+        }
+    }
+
+    /**
+     * Execute pending batch.
+     *
+     * @param connection Connection.
+     * @param statement Statement used for plain SQL batches.
+     * @param context Script execution state.
+     * @throws SQLException Possible exception.
+     */
+    private void flush(final Connection connection, final Statement statement, final ScriptContext context) throws SQLException {
+        if (context.batchSql.isEmpty()) {
+            return;
+        }
+        final var size = context.batchSql.size();
+        // Assume first statement until we know which one failed
+        context.failedLine = context.batchLines.get(0);
+        context.failedSql = context.batchSql.get(0);
+        try {
+            if (size == 1 && context.template == null) {
+                statement.execute(context.batchSql.get(0));
+            } else if (context.template == null) {
+                for (final var sql : context.batchSql) {
+                    statement.addBatch(sql);
+                }
+                statement.executeBatch();
+            } else {
+                try (final PreparedStatement preparedStatement = connection.prepareStatement(context.template)) {
+                    for (final var params : context.batchParams) {
+                        for (var i = 0; i < params.length; i++) {
+                            preparedStatement.setObject(i + 1, params[i]);
+                        }
+                        preparedStatement.addBatch();
+                    }
+                    preparedStatement.executeBatch();
+                }
+            }
+        } catch (BatchUpdateException e) {
+            // Drivers either stop at the failed statement or mark it as failed and keep going
+            final var counts = e.getUpdateCounts() == null ? new int[0] : e.getUpdateCounts();
+            var failed = 0;
+            while (failed < counts.length && counts[failed] != Statement.EXECUTE_FAILED) {
+                failed++;
+            }
+            failed = Math.min(failed, size - 1);
+            context.failedLine = context.batchLines.get(failed);
+            context.failedSql = context.batchSql.get(failed);
+            throw e;
+        } finally {
+            statement.clearBatch();
+        }
+        context.clear();
+        batches.incrementAndGet();
+        executed(connection, size, context);
+    }
+
+    /**
+     * Count executed statements, commit on interval and log progress.
+     *
+     * @param connection Connection.
+     * @param count Number of statements executed.
+     * @param context Script execution state.
+     * @throws SQLException Possible exception.
+     */
+    private void executed(final Connection connection, final int count, final ScriptContext context) throws SQLException {
+        final var total = statements.addAndGet(count);
+        if (commitInterval > 0) {
+            context.uncommitted += count;
+            if (context.uncommitted >= commitInterval) {
+                connection.commit();
+                context.uncommitted = 0;
+            }
+        }
+        if (progressInterval > 0 && total / progressInterval != (total - count) / progressInterval) {
+            logger.debug("Executed {} statements", total);
+        }
+    }
+
+    /**
+     * Convert literal INSERT to parameterized template. Only INSERT ... VALUES (...) with number, string and NULL literals is
+     * converted.
+     *
+     * @param sql SQL statement.
+     * @param values Literal values are added to this List.
+     * @return Template or null if statement cannot be parameterized.
+     */
+    public String toTemplate(final String sql, final List<Object> values) {
+        if (!sql.regionMatches(true, 0, "insert", 0, 6)) {
+            return null;
+        }
+        final var matcher = VALUES.matcher(sql);
+        if (!matcher.find()) {
+            return null;
+        }
+        final var valuesPos = matcher.start();
+        // Make sure VALUES isn't in a quoted identifier or the column list has a quote
+        if (sql.lastIndexOf('\'', valuesPos) >= 0 || sql.lastIndexOf('"', valuesPos) >= 0) {
+            return null;
+        }
+        var i = matcher.end();
+        final var len = sql.length();
+        while (i < len && Character.isWhitespace(sql.charAt(i))) {
+            i++;
+        }
+        if (i == len || sql.charAt(i) != '(') {
+            return null;
+        }
+        i++;
+        final var template = new StringBuilder(valuesPos + 64);
+        template.append(sql, 0, valuesPos).append("values (");
+        var first = true;
+        while (true) {
+            while (i < len && Character.isWhitespace(sql.charAt(i))) {
+                i++;
+            }
+            if (i == len) {
+                return null;
+            }
+            final var c = sql.charAt(i);
+            if (c == '\'') {
+                // String literal with '' escapes
+                final var str = new StringBuilder();
+                i++;
+                while (true) {
+                    if (i == len) {
+                        return null;
+                    }
+                    final var s = sql.charAt(i++);
+                    if (s == '\'') {
+                        if (i < len && sql.charAt(i) == '\'') {
+                            str.append('\'');
+                            i++;
                         } else {
-                            sql += "\n";
+                            break;
                         }
+                    } else {
+                        str.append(s);
                     }
                 }
-            } catch (IOException e) {
-                throw new RuntimeException(String.format("Script file exception: fileName=%s", fileName), e);
+                values.add(str.toString());
+            } else if (c == '-' || c == '+' || c == '.' || Character.isDigit(c)) {
+                final var start = i;
+                i++;
+                while (i < len && (Character.isDigit(sql.charAt(i)) || sql.charAt(i) == '.' || sql.charAt(i) == 'e' || sql.charAt(i)
+                        == 'E' || ((sql.charAt(i) == '-' || sql.charAt(i) == '+') && (sql.charAt(i - 1) == 'e' || sql.charAt(i - 1)
+                        == 'E')))) {
+                    i++;
+                }
+                try {
+                    final var number = new BigDecimal(sql.substring(start, i));
+                    // Use long when possible, so drivers don't have to convert
+                    if (number.scale() <= 0 && number.unscaledValue().bitLength() < 64) {
+                        values.add(number.longValueExact());
+                    } else {
+                        values.add(number);
+                    }
+                } catch (NumberFormatException | ArithmeticException e) {
+                    return null;
+                }
+            } else if (sql.regionMatches(true, i, "null", 0, 4) && (i + 4 == len || !Character.isLetterOrDigit(sql.charAt(i + 4))
+                    && sql.charAt(i + 4) != '_')) {
+                values.add(null);
+                i += 4;
+            } else {
+                // Function call, expression, etc.
+                return null;
             }
-        } catch (SQLException e) {
-            throw new RuntimeException(String.format("SQL exception: sql=%s", sql), e);
+            template.append(first ? "?" : ", ?");
+            first = false;
+            while (i < len && Character.isWhitespace(sql.charAt(i))) {
+                i++;
+            }
+            if (i == len) {
+                return null;
+            }
+            if (sql.charAt(i) == ',') {
+                i++;
+            } else if (sql.charAt(i) == ')') {
+                i++;
+                break;
+            } else {
+                return null;
+            }
+        }
+        // Only white space can follow value list
+        while (i < len && Character.isWhitespace(sql.charAt(i))) {
+            i++;
+        }
+        if (i != len) {
+            return null;
         }
-        return statements;
+        return template.append(')').toString();
     }
 }
@@ -5,6 +5,7 @@ package com.codeferm.detonator;
 
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * Database access interface geared towards RDBMS. Implementations should handle bean mapping and converting snake_case field names
@@ -81,6 +82,21 @@ public interface Db {
         return object;
     }
 
+    /**
+     * Stream parameterized query results as beans without materializing the whole result. Rows are fetched using a cursor with the
+     * given fetch size and passed to the consumer one at a time.
+     *
+     * @param <T> Type of object passed to consumer.
+     * @param sql SQL statement to execute.
+     * @param params Initialize the PreparedStatement's IN parameters.
+     * @param fetchSize JDBC fetch size hint or 0 for driver default.
+     * @param clazz Class to map results to.
+     * @param consumer Called for each row.
+     * @return Number of rows.
+     */
+    <T> long selectStream(final String sql, final Object[] params, final int fetchSize, final Class clazz,
+            final Consumer<T> consumer);
+
     /**
      * Return parameterized query results as list of maps.
      *
@@ -243,4 +259,15 @@ public interface Db {
      * @return Number of rows updated array.
      */
     int[] batch(final String sql, final Object[][] params);
+
+    /**
+     * Executes INSERT statement with batch parameters and returns auto generated keys in parameter order. JDBC driver needs to
+     * support RETURN_GENERATED_KEYS for batches.
+     *
+     * @param sql SQL statement to execute.
+     * @param params Initialize the PreparedStatement's IN parameters.
+     * @param keyNames Key columns to return.
+     * @return Field name/value pairs of keys for each parameter array.
+     */
+    List<Map<String, Object>> batchReturnKeys(final String sql, final Object[][] params, final String[] keyNames);
 }
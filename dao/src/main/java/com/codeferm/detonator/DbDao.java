@@ -4,6 +4,7 @@
 package com.codeferm.detonator;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Database DAO interface that allows named queries, etc that Dao doesn't allow for. Trying to keep Dao K/V compatible.
@@ -25,6 +26,18 @@ public interface DbDao<K, V> extends Dao<K, V> {
      */
     List<V> findBy(final String name, final Object[] params);
 
+    /**
+     * Stream values using named query and parameters. Values are passed to consumer as they are fetched, so large tables can be
+     * processed without holding them in memory.
+     *
+     * @param name Query name.
+     * @param params Query parameters,
+     * @param fetchSize JDBC fetch size hint or 0 for driver default.
+     * @param consumer Called for each value.
+     * @return Number of values.
+     */
+    long streamBy(final String name, final Object[] params, final int fetchSize, final Consumer<V> consumer);
+
     /**
      * Delete values using named query and parameters.
      *
@@ -38,6 +51,16 @@ public interface DbDao<K, V> extends Dao<K, V> {
      *
      * @param name Query name.
      * @param params Query parameters,
+     * @return Number of rows updated.
+     */
+    int updateBy(final String name, final Object[] params);
+
+    /**
+     * Update values using named query and batch parameters.
+     *
+     * @param name Query name.
+     * @param params Query parameters for each statement in batch.
+     * @return Number of rows updated by each statement in parameter order.
      */
-    void updateBy(final String name, final Object[] params);
+    int[] batchUpdateBy(final String name, final Object[][] params);
 }
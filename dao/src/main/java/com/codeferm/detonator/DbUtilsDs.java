@@ -7,9 +7,12 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import javax.sql.DataSource;
 import org.apache.commons.dbutils.BasicRowProcessor;
 import org.apache.commons.dbutils.DbUtils;
@@ -24,6 +27,10 @@ import org.apache.commons.dbutils.handlers.MapListHandler;
  * Do not use connection based transactions since there's no guarantee the same connection is used for each method. You must use JTA
  * based transactions for DataSources.
  *
+ * Optionally reads can be routed to replica DataSources using a {@link ReplicaPolicy}. Writes always go to the primary. Reads go to
+ * the primary when the calling thread is in a {@link ReadRouting} primary scope or when the thread's last write is within the
+ * replica staleness bound.
+ *
  * @author sgoldsmith
  * @version 1.0.0
  * @since 1.0.0
@@ -34,6 +41,18 @@ public class DbUtilsDs implements Db {
      * QueryRunner is thread safe.
      */
     private transient QueryRunner queryRunner = null;
+    /**
+     * Replica QueryRunners or empty if no replicas.
+     */
+    private final List<QueryRunner> replicaRunners;
+    /**
+     * Replica policy or null if no replicas.
+     */
+    private final ReplicaPolicy replicaPolicy;
+    /**
+     * Maximum replica lag in nanoseconds. Reads stay on primary for this long after a write by the same thread.
+     */
+    private final long stalenessNanos;
 
     /**
      * Construct new {@code QueryRunner} with {@code DataSource}.
@@ -43,6 +62,69 @@ public class DbUtilsDs implements Db {
     public DbUtilsDs(final DataSource dataSource) {
         super();
         queryRunner = new QueryRunner(dataSource);
+        replicaRunners = List.of();
+        replicaPolicy = null;
+        stalenessNanos = 0;
+    }
+
+    /**
+     * Construct new {@code QueryRunner} with primary {@code DataSource} and replica {@code DataSource}s.
+     *
+     * @param dataSource Primary data source.
+     * @param replicas Replica data sources.
+     * @param replicaPolicy Policy used to pick replica.
+     * @param stalenessMillis Maximum replica lag in milliseconds.
+     */
+    public DbUtilsDs(final DataSource dataSource, final List<DataSource> replicas, final ReplicaPolicy replicaPolicy,
+            final long stalenessMillis) {
+        super();
+        queryRunner = new QueryRunner(dataSource);
+        final var list = new ArrayList<QueryRunner>();
+        replicas.forEach(replica -> {
+            list.add(new QueryRunner(replica));
+        });
+        replicaRunners = List.copyOf(list);
+        this.replicaPolicy = replicaPolicy;
+        stalenessNanos = TimeUnit.MILLISECONDS.toNanos(stalenessMillis);
+    }
+
+    /**
+     * Should read go to a replica?
+     *
+     * @return True to use replica.
+     */
+    private boolean useReplica() {
+        return !replicaRunners.isEmpty() && !ReadRouting.isPrimary() && !ReadRouting.isStale(stalenessNanos);
+    }
+
+    /**
+     * Record write so reads by this thread stay on the primary within the staleness bound.
+     */
+    private void markWrite() {
+        if (!replicaRunners.isEmpty()) {
+            ReadRouting.markWrite();
+        }
+    }
+
+    /**
+     * Return replica QueryRunner or primary if index is -1.
+     *
+     * @param replica Replica index or -1 for primary.
+     * @return QueryRunner to use.
+     */
+    private QueryRunner runner(final int replica) {
+        return replica < 0 ? queryRunner : replicaRunners.get(replica);
+    }
+
+    /**
+     * Release replica back to policy.
+     *
+     * @param replica Replica index or -1 for primary.
+     */
+    private void release(final int replica) {
+        if (replica >= 0) {
+            replicaPolicy.release(replica);
+        }
     }
 
     /**
@@ -57,15 +139,77 @@ public class DbUtilsDs implements Db {
     @Override
     public final <T> List<T> selectList(final String sql, final Object[] params, final Class clazz) {
         List<T> list = null;
+        final var replica = useReplica() ? replicaPolicy.acquire() : -1;
         try {
-            list = (List<T>) queryRunner.query(sql, new BeanListHandler(clazz, new BasicRowProcessor(new GenerousBeanProcessor())),
-                    params);
+            list = (List<T>) runner(replica).query(sql, new BeanListHandler(clazz, new BasicRowProcessor(
+                    new GenerousBeanProcessor())), params);
         } catch (SQLException e) {
             throw new RuntimeException(String.format("selectBeanList: sql=%s, params=%s", sql, Arrays.asList(params)), e);
+        } finally {
+            release(replica);
         }
         return list;
     }
 
+    /**
+     * Stream query results as beans using a cursor. {@code Connection} is closed automatically. Auto commit is turned off while
+     * streaming since some drivers (i.e. PostgreSQL) only honor fetch size in a transaction.
+     *
+     * @param <T> Type of object passed to consumer.
+     * @param sql SQL statement to execute.
+     * @param params Initialize the PreparedStatement's IN parameters.
+     * @param fetchSize JDBC fetch size hint or 0 for driver default.
+     * @param clazz {@code Class} to map results to.
+     * @param consumer Called for each row.
+     * @return Number of rows.
+     */
+    @Override
+    public final <T> long selectStream(final String sql, final Object[] params, final int fetchSize, final Class clazz,
+            final Consumer<T> consumer) {
+        long rows = 0;
+        final var replica = useReplica() ? replicaPolicy.acquire() : -1;
+        Connection connection = null;
+        PreparedStatement preparedStatement = null;
+        ResultSet resultSet = null;
+        Boolean autoCommit = null;
+        try {
+            connection = runner(replica).getDataSource().getConnection();
+            if (connection.getAutoCommit()) {
+                connection.setAutoCommit(false);
+                autoCommit = Boolean.TRUE;
+            }
+            preparedStatement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            preparedStatement.setFetchSize(fetchSize);
+            // Fill parameters
+            for (var i = 0; i < params.length; i++) {
+                preparedStatement.setObject(i + 1, params[i]);
+            }
+            resultSet = preparedStatement.executeQuery();
+            final var rowProcessor = new BasicRowProcessor(new GenerousBeanProcessor());
+            while (resultSet.next()) {
+                consumer.accept((T) rowProcessor.toBean(resultSet, clazz));
+                rows++;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(String.format("selectStream: sql=%s, params=%s", sql, Arrays.asList(params)), e);
+        } finally {
+            DbUtils.closeQuietly(resultSet);
+            DbUtils.closeQuietly(preparedStatement);
+            if (autoCommit != null) {
+                try {
+                    // Read only, so just end transaction
+                    connection.rollback();
+                    connection.setAutoCommit(true);
+                } catch (SQLException e) {
+                    // Connection is closed below
+                }
+            }
+            DbUtils.closeQuietly(connection);
+            release(replica);
+        }
+        return rows;
+    }
+
     /**
      * Return query results as list of Maps. {@code Connection} is closed automatically.
      *
@@ -76,10 +220,13 @@ public class DbUtilsDs implements Db {
     @Override
     public final List<Map<String, Object>> selectList(final String sql, final Object[] params) {
         List<Map<String, Object>> list = null;
+        final var replica = useReplica() ? replicaPolicy.acquire() : -1;
         try {
-            list = queryRunner.query(sql, new MapListHandler(), params);
+            list = runner(replica).query(sql, new MapListHandler(), params);
         } catch (SQLException e) {
             throw new RuntimeException(String.format("selectMapList: sql=%s, params=%s", sql, Arrays.asList(params)), e);
+        } finally {
+            release(replica);
         }
         return list;
     }
@@ -96,6 +243,7 @@ public class DbUtilsDs implements Db {
         int rows = -1;
         try {
             rows = queryRunner.update(sql, params);
+            markWrite();
         } catch (SQLException e) {
             throw new RuntimeException(String.format("update: sql=%s, params=%s", sql, Arrays.asList(params)), e);
         }
@@ -132,6 +280,7 @@ public class DbUtilsDs implements Db {
                 preparedStatement.setObject(i + 1, params[i]);
             }
             preparedStatement.executeUpdate();
+            markWrite();
             // Get keys as ResultSet
             resultSet = preparedStatement.getGeneratedKeys();
             // Get generated keys as Object array
@@ -158,9 +307,60 @@ public class DbUtilsDs implements Db {
         int[] rows = null;
         try {
             rows = queryRunner.batch(sql, params);
+            markWrite();
         } catch (SQLException e) {
             throw new RuntimeException(String.format("batch: sql=%s, params=%s", sql, Arrays.asList(params)), e);
         }
         return rows;
     }
+
+    /**
+     * Executes the given INSERT statement with array of parameter arrays and returns auto generated keys in parameter order.
+     * {@code Connection} is closed automatically.
+     *
+     * @param sql SQL statement to execute.
+     * @param params Initialize the PreparedStatement's IN parameters.
+     * @param keyNames Key columns to return.
+     * @return Field name/value pairs of keys for each parameter array.
+     */
+    @Override
+    public final List<Map<String, Object>> batchReturnKeys(final String sql, final Object[][] params, final String[] keyNames) {
+        List<Map<String, Object>> keys = null;
+        Connection connection = null;
+        PreparedStatement preparedStatement = null;
+        ResultSet resultSet = null;
+        try {
+            // Get Connection from QueryRunner DataSource
+            connection = queryRunner.getDataSource().getConnection();
+            // Oracle will return ROW_ID if not specified
+            if (keyNames != null) {
+                preparedStatement = connection.prepareStatement(sql, keyNames);
+            } else {
+                preparedStatement = connection.prepareStatement(sql, PreparedStatement.RETURN_GENERATED_KEYS);
+            }
+            // Fill parameters of each row
+            for (final var row : params) {
+                for (var i = 0; i < row.length; i++) {
+                    preparedStatement.setObject(i + 1, row[i]);
+                }
+                preparedStatement.addBatch();
+            }
+            preparedStatement.executeBatch();
+            markWrite();
+            // Get keys as ResultSet
+            resultSet = preparedStatement.getGeneratedKeys();
+            keys = new MapListHandler().handle(resultSet);
+        } catch (SQLException e) {
+            throw new RuntimeException(String.format("batchReturnKeys: sql=%s, rows=%d", sql, params.length), e);
+        } finally {
+            DbUtils.closeQuietly(resultSet);
+            DbUtils.closeQuietly(preparedStatement);
+            DbUtils.closeQuietly(connection);
+        }
+        if (keys.size() != params.length) {
+            throw new RuntimeException(String.format("batchReturnKeys: expected %d keys, got %d, sql=%s", params.length, keys.
+                    size(), sql));
+        }
+        return keys;
+    }
 }
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) Steven P. Goldsmith. All rights reserved.
+ */
+package com.codeferm.detonator;
+
+import java.beans.IntrospectionException;
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cached value field metadata of a generated DTO. Fields are in declared order which matches the generated SQL parameter order. The
+ * built in key field is ignored.
+ *
+ * @author Steven P. Goldsmith
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class DtoFields {
+
+    /**
+     * DTO class.
+     */
+    private final Class clazz;
+    /**
+     * Field names.
+     */
+    private final List<String> names;
+    /**
+     * Field types.
+     */
+    private final List<Class> types;
+    /**
+     * Read methods.
+     */
+    private final Method[] readMethods;
+    /**
+     * Write methods.
+     */
+    private final Method[] writeMethods;
+
+    /**
+     * Cache field names, types and methods of DTO class.
+     *
+     * @param clazz DTO class.
+     */
+    public DtoFields(final Class clazz) {
+        this.clazz = clazz;
+        final var nameList = new ArrayList<String>();
+        final var typeList = new ArrayList<Class>();
+        final var readList = new ArrayList<Method>();
+        final var writeList = new ArrayList<Method>();
+        for (final var field : clazz.getDeclaredFields()) {
+            // Ignore synthetic classes, dynamic proxies, constants and key field
+            if (!field.isSynthetic() && !Modifier.isStatic(field.getModifiers()) && !field.getName().equals("key")) {
+                try {
+                    final var propertyDescriptor = new PropertyDescriptor(field.getName(), clazz);
+                    nameList.add(field.getName());
+                    typeList.add(field.getType());
+                    readList.add(propertyDescriptor.getReadMethod());
+                    writeList.add(propertyDescriptor.getWriteMethod());
+                } catch (IntrospectionException e) {
+                    throw new RuntimeException(String.format("Field %s of %s is not a property", field.getName(), clazz.
+                            getName()), e);
+                }
+            }
+        }
+        names = List.copyOf(nameList);
+        types = List.copyOf(typeList);
+        readMethods = readList.toArray(new Method[0]);
+        writeMethods = writeList.toArray(new Method[0]);
+    }
+
+    public Class getClazz() {
+        return clazz;
+    }
+
+    public List<String> getNames() {
+        return names;
+    }
+
+    public List<Class> getTypes() {
+        return types;
+    }
+
+    /**
+     * Number of fields.
+     *
+     * @return Field count.
+     */
+    public int size() {
+        return names.size();
+    }
+
+    /**
+     * Create new DTO instance.
+     *
+     * @param <T> DTO type.
+     * @return New DTO.
+     */
+    public <T> T newInstance() {
+        try {
+            return (T) clazz.getDeclaredConstructor().newInstance();
+        } catch (NoSuchMethodException | SecurityException | InstantiationException | IllegalAccessException
+                | IllegalArgumentException | InvocationTargetException e) {
+            throw new RuntimeException(String.format("Error creating %s", clazz.getName()), e);
+        }
+    }
+
+    /**
+     * Get field value.
+     *
+     * @param bean DTO.
+     * @param index Field index.
+     * @return Field value.
+     */
+    public Object get(final Object bean, final int index) {
+        try {
+            return readMethods[index].invoke(bean, (Object[]) null);
+        } catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
+            throw new RuntimeException(String.format("Error reading %s", names.get(index)), e);
+        }
+    }
+
+    /**
+     * Set field value. This also sets key fields for generated DTOs.
+     *
+     * @param bean DTO.
+     * @param index Field index.
+     * @param value Field value.
+     */
+    public void set(final Object bean, final int index, final Object value) {
+        try {
+            writeMethods[index].invoke(bean, value);
+        } catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
+            throw new RuntimeException(String.format("Error writing %s=%s", names.get(index), value), e);
+        }
+    }
+}
@@ -16,6 +16,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import javax.sql.DataSource;
 
 /**
@@ -23,6 +25,9 @@ import javax.sql.DataSource;
  * Currently value, key and SQL generation put fields is in alpha order. Value and key methods are cached on construction to improve
  * mapping performance.
  *
+ * Reads can be routed to replicas by constructing with replica DataSources. Use {@link #setRequirePrimary(boolean)} to pin all reads
+ * of this DAO to the primary or {@link ReadRouting#primary(java.util.function.Supplier)} to pin a single call.
+ *
  * @author Steven P. Goldsmith
  * @version 1.0.0
  * @since 1.0.0
@@ -67,6 +72,10 @@ public class GenDbDao<K, V> implements DbDao<K, V> {
      * Key method parameters.
      */
     private final List<Parameter[]> kParams;
+    /**
+     * All reads go to primary.
+     */
+    private volatile boolean requirePrimary;
 
     /**
      * Constructor to initialize DataSource and cache value and key methods.
@@ -77,7 +86,38 @@ public class GenDbDao<K, V> implements DbDao<K, V> {
      * @param vClass Value class type.
      */
     public GenDbDao(final DataSource dataSource, final Properties properties, final Class kClass, final Class vClass) {
+        this(dataSource, new DbUtilsDs(dataSource), properties, kClass, vClass);
+    }
+
+    /**
+     * Constructor to initialize primary and replica DataSources and cache value and key methods.
+     *
+     * @param dataSource Primary DataSource used for writes.
+     * @param replicas Replica DataSources used for reads.
+     * @param replicaPolicy Policy used to pick replica.
+     * @param stalenessMillis Maximum replica lag in milliseconds.
+     * @param properties SQL statements as properties.
+     * @param kClass Key class type.
+     * @param vClass Value class type.
+     */
+    public GenDbDao(final DataSource dataSource, final List<DataSource> replicas, final ReplicaPolicy replicaPolicy,
+            final long stalenessMillis, final Properties properties, final Class kClass, final Class vClass) {
+        this(dataSource, new DbUtilsDs(dataSource, replicas, replicaPolicy, stalenessMillis), properties, kClass, vClass);
+    }
+
+    /**
+     * Constructor to initialize Db and cache value and key methods.
+     *
+     * @param dataSource Primary DataSource.
+     * @param dbDao Database access.
+     * @param properties SQL statements as properties.
+     * @param kClass Key class type.
+     * @param vClass Value class type.
+     */
+    private GenDbDao(final DataSource dataSource, final Db dbDao, final Properties properties, final Class kClass,
+            final Class vClass) {
         this.dataSource = dataSource;
+        this.dbDao = dbDao;
         this.kClass = kClass;
         this.vClass = vClass;
         this.sql = properties;
@@ -97,7 +137,35 @@ public class GenDbDao<K, V> implements DbDao<K, V> {
         } else {
             kParams = null;
         }
-        dbDao = new DbUtilsDs(this.dataSource);
+    }
+
+    /**
+     * Are all reads routed to primary?
+     *
+     * @return True if replicas are bypassed.
+     */
+    public boolean isRequirePrimary() {
+        return requirePrimary;
+    }
+
+    /**
+     * Route all reads to primary, for example when callers can't tolerate replica lag.
+     *
+     * @param requirePrimary True to bypass replicas.
+     */
+    public void setRequirePrimary(final boolean requirePrimary) {
+        this.requirePrimary = requirePrimary;
+    }
+
+    /**
+     * Run read on primary if this DAO requires it, otherwise let Db route the read.
+     *
+     * @param <T> Return type.
+     * @param supplier Read to run.
+     * @return Read result.
+     */
+    private <T> T read(final Supplier<T> supplier) {
+        return requirePrimary ? ReadRouting.primary(supplier) : supplier.get();
     }
 
     /**
@@ -226,7 +294,7 @@ public class GenDbDao<K, V> implements DbDao<K, V> {
      */
     @Override
     public List<V> findAll() {
-        return dbDao.selectList(sql.getProperty("findAll"), vClass);
+        return read(() -> dbDao.selectList(sql.getProperty("findAll"), vClass));
     }
 
     /**
@@ -237,7 +305,31 @@ public class GenDbDao<K, V> implements DbDao<K, V> {
      */
     @Override
     public V find(final K key) {
-        return dbDao.select(sql.getProperty("find"), beanToParams(key, kReadMethods), vClass);
+        return read(() -> dbDao.select(sql.getProperty("find"), beanToParams(key, kReadMethods), vClass));
+    }
+
+    /**
+     * Return values of list of keys using one select. The where clause of the find SQL is repeated with or for each key. Keys not
+     * found are skipped and values are in database order.
+     *
+     * @param list List of keys.
+     * @return List of values.
+     */
+    @Override
+    public List<V> find(final List<K> list) {
+        if (list.isEmpty()) {
+            return new ArrayList<>();
+        }
+        final var find = sql.getProperty("find");
+        final var where = find.lastIndexOf(" where ");
+        final var condition = String.format("(%s)", find.substring(where + 7));
+        final var sb = new StringBuilder(find.substring(0, where)).append(" where ").append(condition);
+        final List<Object> params = new ArrayList<>(Arrays.asList(beanToParams(list.get(0), kReadMethods)));
+        for (var i = 1; i < list.size(); i++) {
+            sb.append(" or ").append(condition);
+            params.addAll(Arrays.asList(beanToParams(list.get(i), kReadMethods)));
+        }
+        return read(() -> dbDao.selectList(sb.toString(), params.toArray(), vClass));
     }
 
     /**
@@ -265,7 +357,21 @@ public class GenDbDao<K, V> implements DbDao<K, V> {
      */
     @Override
     public List<V> findBy(final String name, final Object[] params) {
-        return dbDao.selectList(sql.getProperty(name), params, vClass);
+        return read(() -> dbDao.selectList(sql.getProperty(name), params, vClass));
+    }
+
+    /**
+     * Stream values using named query and parameters.
+     *
+     * @param name Query name.
+     * @param params Query parameters,
+     * @param fetchSize JDBC fetch size hint or 0 for driver default.
+     * @param consumer Called for each value.
+     * @return Number of values.
+     */
+    @Override
+    public long streamBy(final String name, final Object[] params, final int fetchSize, final Consumer<V> consumer) {
+        return read(() -> dbDao.selectStream(sql.getProperty(name), params, fetchSize, vClass, consumer));
     }
 
     /**
@@ -307,6 +413,26 @@ public class GenDbDao<K, V> implements DbDao<K, V> {
         return mapToKey(map);
     }
 
+    /**
+     * Save list of values using batch operation and return generated keys.
+     *
+     * @param list List of values to save.
+     * @param keyNames Key column names.
+     * @return Generated keys in list order.
+     */
+    @Override
+    public List<K> saveReturnKeys(final List<V> list, final String[] keyNames) {
+        final var params = new Object[list.size()][];
+        var i = 0;
+        for (final V value : list) {
+            params[i++] = beanToParams(value, vReadMethods);
+        }
+        final List<K> keys = new ArrayList<>();
+        // Create sorted Map of returned ID keys for each row
+        dbDao.batchReturnKeys(sql.getProperty("save"), params, keyNames).forEach(map -> keys.add(mapToKey(new TreeMap<>(map))));
+        return keys;
+    }
+
     /**
      * Delete the value by key.
      *
@@ -363,10 +489,23 @@ public class GenDbDao<K, V> implements DbDao<K, V> {
      *
      * @param name Query name.
      * @param params Query parameters,
+     * @return Number of rows updated.
      */
     @Override
-    public void updateBy(final String name, final Object[] params) {
-        dbDao.update(sql.getProperty(name), params);
+    public int updateBy(final String name, final Object[] params) {
+        return dbDao.update(sql.getProperty(name), params);
+    }
+
+    /**
+     * Update values using named query and batch parameters.
+     *
+     * @param name Query name.
+     * @param params Query parameters for each statement in batch.
+     * @return Number of rows updated by each statement in parameter order.
+     */
+    @Override
+    public int[] batchUpdateBy(final String name, final Object[][] params) {
+        return dbDao.batch(sql.getProperty(name), params);
     }
 
     /**
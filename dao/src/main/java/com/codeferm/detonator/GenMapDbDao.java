@@ -106,6 +106,24 @@ public class GenMapDbDao<K, V> implements Dao<K, V> {
         return map.get(key);
     }
 
+    /**
+     * Return values of list of keys. Keys not found are skipped.
+     *
+     * @param list List of keys.
+     * @return List of values in key order.
+     */
+    @Override
+    public List<V> find(final List<K> list) {
+        final List<V> values = new ArrayList<>();
+        list.forEach(key -> {
+            final var value = map.get(key);
+            if (value != null) {
+                values.add(value);
+            }
+        });
+        return values;
+    }
+
     /**
      * Return range of values using from and to keys inclusive.
      *
@@ -156,6 +174,20 @@ public class GenMapDbDao<K, V> implements Dao<K, V> {
         return ((Dto) value).getKey();
     }
 
+    /**
+     * Save list of values and return generated keys. Keys come from the same Atomic.Long as saveReturnKey.
+     *
+     * @param list List of values to save.
+     * @param keyNames Ignored for MapDB.
+     * @return Generated keys in list order.
+     */
+    @Override
+    public List<K> saveReturnKeys(final List<V> list, final String[] keyNames) {
+        final List<K> keys = new ArrayList<>();
+        list.forEach(value -> keys.add(saveReturnKey(value, keyNames)));
+        return keys;
+    }
+
     /**
      * Save map of values.
      *
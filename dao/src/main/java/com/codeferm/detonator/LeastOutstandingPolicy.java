@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) Steven P. Goldsmith. All rights reserved.
+ */
+package com.codeferm.detonator;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Least-outstanding replica policy. Each read goes to the replica with the fewest reads in progress, which favors faster replicas.
+ *
+ * @author Steven P. Goldsmith
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class LeastOutstandingPolicy implements ReplicaPolicy {
+
+    /**
+     * Reads in progress by replica.
+     */
+    private final AtomicIntegerArray outstanding;
+
+    /**
+     * Construct with number of replicas.
+     *
+     * @param replicas Number of replicas.
+     */
+    public LeastOutstandingPolicy(final int replicas) {
+        if (replicas < 1) {
+            throw new IllegalArgumentException("Replicas must be greater than 0");
+        }
+        outstanding = new AtomicIntegerArray(replicas);
+    }
+
+    /**
+     * Pick replica with fewest reads in progress. Ties go to the lowest index.
+     *
+     * @return Index of replica.
+     */
+    @Override
+    public int acquire() {
+        var index = 0;
+        var min = outstanding.get(0);
+        for (var i = 1; i < outstanding.length(); i++) {
+            final var count = outstanding.get(i);
+            if (count < min) {
+                min = count;
+                index = i;
+            }
+        }
+        outstanding.incrementAndGet(index);
+        return index;
+    }
+
+    /**
+     * Read completed.
+     *
+     * @param index Index of replica returned by acquire.
+     */
+    @Override
+    public void release(final int index) {
+        outstanding.decrementAndGet(index);
+    }
+
+    /**
+     * Reads in progress for replica.
+     *
+     * @param index Index of replica.
+     * @return Number of reads in progress.
+     */
+    public int getOutstanding(final int index) {
+        return outstanding.get(index);
+    }
+}
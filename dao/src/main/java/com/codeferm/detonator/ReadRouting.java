@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) Steven P. Goldsmith. All rights reserved.
+ */
+package com.codeferm.detonator;
+
+import java.util.function.Supplier;
+
+/**
+ * Thread scoped read routing used by {@link DbUtilsDs} when read replicas are configured. Reads go to the primary while the current
+ * thread is in a primary scope (i.e. a write unit of work or read-your-writes path) or while the last write by the current thread
+ * is within the staleness bound of the replicas.
+ *
+ * @author Steven P. Goldsmith
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public final class ReadRouting {
+
+    /**
+     * Nested primary scope depth.
+     */
+    private static final ThreadLocal<int[]> DEPTH = ThreadLocal.withInitial(() -> new int[1]);
+    /**
+     * Time of last write in nanoseconds.
+     */
+    private static final ThreadLocal<long[]> LAST_WRITE = ThreadLocal.withInitial(() -> new long[]{Long.MIN_VALUE});
+
+    /**
+     * Suppress default constructor for non-instantiability.
+     */
+    private ReadRouting() {
+        throw new AssertionError();
+    }
+
+    /**
+     * Enter primary scope. Scopes can be nested and each call must be paired with {@link #exit()}.
+     */
+    public static void enter() {
+        DEPTH.get()[0]++;
+    }
+
+    /**
+     * Exit primary scope.
+     */
+    public static void exit() {
+        final var depth = DEPTH.get();
+        if (depth[0] > 0) {
+            depth[0]--;
+        }
+    }
+
+    /**
+     * Is current thread in primary scope?
+     *
+     * @return True if reads must go to primary.
+     */
+    public static boolean isPrimary() {
+        return DEPTH.get()[0] > 0;
+    }
+
+    /**
+     * Run supplier with reads on the primary. Use this for read-your-writes paths.
+     *
+     * @param <T> Return type.
+     * @param supplier Code to run.
+     * @return Supplier result.
+     */
+    public static <T> T primary(final Supplier<T> supplier) {
+        enter();
+        try {
+            return supplier.get();
+        } finally {
+            exit();
+        }
+    }
+
+    /**
+     * Record write by current thread.
+     */
+    public static void markWrite() {
+        LAST_WRITE.get()[0] = System.nanoTime();
+    }
+
+    /**
+     * Was last write by current thread within staleness bound?
+     *
+     * @param stalenessNanos Maximum replica lag in nanoseconds.
+     * @return True if replicas may not have the write yet.
+     */
+    public static boolean isStale(final long stalenessNanos) {
+        final var lastWrite = LAST_WRITE.get()[0];
+        return lastWrite != Long.MIN_VALUE && System.nanoTime() - lastWrite < stalenessNanos;
+    }
+}
@@ -0,0 +1,30 @@
+/*
+ * Copyright (c) Steven P. Goldsmith. All rights reserved.
+ */
+package com.codeferm.detonator;
+
+/**
+ * Policy used to pick a read replica. Implementations must be thread safe since a single policy is shared by all threads using a
+ * {@link DbUtilsDs}.
+ *
+ * @author Steven P. Goldsmith
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public interface ReplicaPolicy {
+
+    /**
+     * Pick replica to use for the next read.
+     *
+     * @return Index of replica.
+     */
+    int acquire();
+
+    /**
+     * Called when the read using the acquired replica completes.
+     *
+     * @param index Index of replica returned by acquire.
+     */
+    default void release(final int index) {
+    }
+}
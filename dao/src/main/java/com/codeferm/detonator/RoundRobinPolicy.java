@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) Steven P. Goldsmith. All rights reserved.
+ */
+package com.codeferm.detonator;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Round-robin replica policy. Each read goes to the next replica in order.
+ *
+ * @author Steven P. Goldsmith
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class RoundRobinPolicy implements ReplicaPolicy {
+
+    /**
+     * Number of replicas.
+     */
+    private final int replicas;
+    /**
+     * Next replica counter.
+     */
+    private final AtomicInteger next = new AtomicInteger();
+
+    /**
+     * Construct with number of replicas.
+     *
+     * @param replicas Number of replicas.
+     */
+    public RoundRobinPolicy(final int replicas) {
+        if (replicas < 1) {
+            throw new IllegalArgumentException("Replicas must be greater than 0");
+        }
+        this.replicas = replicas;
+    }
+
+    /**
+     * Pick next replica.
+     *
+     * @return Index of replica.
+     */
+    @Override
+    public int acquire() {
+        // floorMod handles counter overflow
+        return Math.floorMod(next.getAndIncrement(), replicas);
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) Steven P. Goldsmith. All rights reserved.
+ */
+package com.codeferm.dto;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Compact binary codec generated from the same column metadata as the DTO. Fields are written in column order, each preceded by a
+ * null flag, so only values go over the wire instead of a Java serialized object graph.
+ *
+ * @author Steven P. Goldsmith
+ * @version 1.0.0
+ * @since 1.0.0
+ *
+ * @param <T> DTO type.
+ */
+public interface DtoCodec<T extends Dto> {
+
+    /**
+     * Write DTO.
+     *
+     * @param out Output.
+     * @param dto DTO to write.
+     * @throws IOException Possible exception.
+     */
+    void write(final DataOutput out, final T dto) throws IOException;
+
+    /**
+     * Read DTO.
+     *
+     * @param in Input.
+     * @return DTO.
+     * @throws IOException Possible exception.
+     */
+    T read(final DataInput in) throws IOException;
+
+    /**
+     * Write length prefixed bytes.
+     *
+     * @param out Output.
+     * @param value Bytes.
+     * @throws IOException Possible exception.
+     */
+    static void writeBytes(final DataOutput out, final byte[] value) throws IOException {
+        out.writeInt(value.length);
+        out.write(value);
+    }
+
+    /**
+     * Read length prefixed bytes.
+     *
+     * @param in Input.
+     * @return Bytes.
+     * @throws IOException Possible exception.
+     */
+    static byte[] readBytes(final DataInput in) throws IOException {
+        final var length = in.readInt();
+        if (length < 0) {
+            throw new IOException(String.format("Invalid length %d", length));
+        }
+        final var value = new byte[length];
+        in.readFully(value);
+        return value;
+    }
+
+    /**
+     * Write UTF-8 string. Unlike DataOutput.writeUTF strings aren't limited to 64K.
+     *
+     * @param out Output.
+     * @param value String.
+     * @throws IOException Possible exception.
+     */
+    static void writeString(final DataOutput out, final String value) throws IOException {
+        writeBytes(out, value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Read UTF-8 string.
+     *
+     * @param in Input.
+     * @return String.
+     * @throws IOException Possible exception.
+     */
+    static String readString(final DataInput in) throws IOException {
+        return new String(readBytes(in), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Write BigDecimal as scale and unscaled value.
+     *
+     * @param out Output.
+     * @param value BigDecimal.
+     * @throws IOException Possible exception.
+     */
+    static void writeBigDecimal(final DataOutput out, final BigDecimal value) throws IOException {
+        out.writeInt(value.scale());
+        writeBytes(out, value.unscaledValue().toByteArray());
+    }
+
+    /**
+     * Read BigDecimal.
+     *
+     * @param in Input.
+     * @return BigDecimal.
+     * @throws IOException Possible exception.
+     */
+    static BigDecimal readBigDecimal(final DataInput in) throws IOException {
+        final var scale = in.readInt();
+        return new BigDecimal(new BigInteger(readBytes(in)), scale);
+    }
+}
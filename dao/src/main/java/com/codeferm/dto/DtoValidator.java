@@ -0,0 +1,27 @@
+/*
+ * Copyright (c) Steven P. Goldsmith. All rights reserved.
+ */
+package com.codeferm.dto;
+
+/**
+ * Plain Java validator generated from the same column metadata as the DTO. Checks are straight line code, so nothing is allocated
+ * unless the DTO is invalid.
+ *
+ * @author Steven P. Goldsmith
+ * @version 1.0.0
+ * @since 1.0.0
+ *
+ * @param <T> DTO type.
+ */
+public interface DtoValidator<T extends Dto> {
+
+    /**
+     * Validate DTO.
+     *
+     * @param dto DTO to validate.
+     * @param failFast Stop at first violation.
+     * @param columnChecks Also check string size and BigDecimal integer digits against the column.
+     * @return Null if valid or violations separated by " | ".
+     */
+    String validate(final T dto, final boolean failFast, final boolean columnChecks);
+}
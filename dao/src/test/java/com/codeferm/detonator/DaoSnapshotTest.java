@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) Steven P. Goldsmith. All rights reserved.
+ */
+package com.codeferm.detonator;
+
+import com.codeferm.dto.OrderItems;
+import com.codeferm.dto.OrderItemsKey;
+import com.codeferm.dto.Orders;
+import com.codeferm.dto.OrdersKey;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.HashMap;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.Test;
+import org.mapdb.DBMaker;
+
+/**
+ * Test binary snapshot and restore.
+ *
+ * @author Steven P. Goldsmith
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class DaoSnapshotTest {
+
+    /**
+     * Logger.
+     */
+    private final Logger logger = LogManager.getLogger(DaoSnapshotTest.class);
+
+    /**
+     * Test snapshot, restore to DAO and Map, schema mismatch and failed snapshot.
+     *
+     * @throws IOException Possible exception.
+     */
+    @Test
+    public void snapshotRestore() throws IOException {
+        logger.debug("snapshotRestore");
+        final var db = DBMaker.memoryDB().make();
+        final Dao<OrdersKey, Orders> source = new GenMapDbDao<>(db, "source", OrdersKey.class, Orders.class);
+        final Dao<OrdersKey, Orders> target = new GenMapDbDao<>(db, "target", OrdersKey.class, Orders.class);
+        for (var i = 1L; i <= 500L; i++) {
+            final var dto = new Orders();
+            dto.setOrderId(i);
+            dto.setCustomerId(i % 10);
+            dto.setOrderDate(Date.valueOf(LocalDate.of(2020, 1, 1).plusDays(i)));
+            dto.setSalesmanId(i % 3 == 0 ? null : i);
+            dto.setStatus(i % 2 == 0 ? "Shipped" : "Pending");
+            source.save(dto);
+        }
+        final var path = Files.createTempFile("orders", ".snap");
+        try {
+            final var snapshot = new DaoSnapshot<OrdersKey, Orders>(Orders.class, 1024, 100);
+            assertEquals(500, snapshot.snapshot(source, path));
+            assertEquals(500, snapshot.restore(path, target));
+            assertEquals(source.findAll(), target.findAll());
+            final var map = new HashMap<OrdersKey, Orders>();
+            assertEquals(500, snapshot.restore(path, map));
+            assertEquals(source.find(new OrdersKey(3L)), map.get(new OrdersKey(3L)));
+            // Snapshot of different DTO must not load
+            final var items = new DaoSnapshot<OrderItemsKey, OrderItems>(OrderItems.class);
+            assertThrows(RuntimeException.class, () -> items.restore(path, new HashMap<OrderItemsKey, OrderItems>()));
+            // Failed snapshot leaves the last good one in place
+            final Iterable<Orders> failing = () -> source.findAll().stream().map(dto -> {
+                if (dto.getOrderId() == 250L) {
+                    throw new RuntimeException("Source failed");
+                }
+                return dto;
+            }).iterator();
+            assertThrows(RuntimeException.class, () -> snapshot.snapshot(failing, path));
+            assertFalse(Files.exists(path.resolveSibling(path.getFileName() + ".tmp")));
+            assertEquals(500, snapshot.restore(path, new HashMap<OrdersKey, Orders>()));
+        } finally {
+            Files.deleteIfExists(path);
+            db.close();
+        }
+    }
+}
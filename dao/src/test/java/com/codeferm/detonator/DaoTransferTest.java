@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) Steven P. Goldsmith. All rights reserved.
+ */
+package com.codeferm.detonator;
+
+import com.codeferm.dto.Orders;
+import com.codeferm.dto.OrdersKey;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Properties;
+import javax.sql.DataSource;
+import org.apache.commons.dbcp2.BasicDataSource;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.AfterAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.mapdb.DBMaker;
+
+/**
+ * Test bulk import and export.
+ *
+ * @author Steven P. Goldsmith
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class DaoTransferTest {
+
+    /**
+     * Logger.
+     */
+    private final Logger logger = LogManager.getLogger(DaoTransferTest.class);
+    /**
+     * Test properties.
+     */
+    private static Properties properties;
+    /**
+     * DataSource.
+     */
+    private static DataSource dataSource;
+    /**
+     * Common test methods.
+     */
+    private static Common common;
+
+    /**
+     * Set up DataSource and initialize database.
+     */
+    @BeforeAll
+    public static void beforeAll() {
+        common = new Common();
+        // Get database properties from dto project
+        properties = common.loadProperties("../dto/src/test/resources/database.properties");
+        // Merge app properties
+        properties.putAll(common.loadProperties("app.properties"));
+        // Create DBCP DataSource
+        final var ds = new BasicDataSource();
+        ds.setDriverClassName(properties.getProperty("db.driver"));
+        ds.setUsername(properties.getProperty("db.user"));
+        ds.setPassword(properties.getProperty("db.password"));
+        ds.setUrl(properties.getProperty("db.url"));
+        ds.setMaxTotal(Integer.parseInt(properties.getProperty("db.pool.size")));
+        dataSource = ds;
+        // Create database?
+        if (Boolean.parseBoolean(properties.getProperty("db.create"))) {
+            common.createDb(dataSource, properties.getProperty("db.sample"), properties.getProperty("db.delimiter"), Boolean.
+                    parseBoolean(properties.getProperty("db.remove.delimiter")));
+        }
+    }
+
+    /**
+     * Shut down DataSource.
+     *
+     * @throws SQLException Possible exception.
+     */
+    @AfterAll
+    public static void afterAll() throws SQLException {
+        ((BasicDataSource) dataSource).close();
+    }
+
+    /**
+     * Test export and parallel import round trip.
+     *
+     * @throws IOException Possible exception.
+     */
+    @Test
+    public void roundTrip() throws IOException {
+        logger.debug("roundTrip");
+        final var db = DBMaker.memoryDB().make();
+        final Dao<OrdersKey, Orders> source = new GenMapDbDao<>(db, "source", OrdersKey.class, Orders.class);
+        final Dao<OrdersKey, Orders> target = new GenMapDbDao<>(db, "target", OrdersKey.class, Orders.class);
+        for (var i = 1L; i <= 1000L; i++) {
+            final var dto = new Orders();
+            dto.setOrderId(i);
+            dto.setCustomerId(i % 10);
+            dto.setOrderDate(Date.valueOf(LocalDate.of(2020, 1, 1).plusDays(i)));
+            // Null, empty and quoted values
+            dto.setSalesmanId(i % 3 == 0 ? null : -i);
+            dto.setStatus(i % 5 == 0 ? "" : String.format("Say \"hi\", %d", i));
+            source.save(dto);
+        }
+        final var path = Files.createTempFile("orders", ".csv");
+        try {
+            final var transfer = new DaoTransfer<OrdersKey, Orders>(Orders.class, ',', 4096, 100);
+            assertEquals(1000, transfer.exportFile(source, path));
+            assertEquals(1000, transfer.importFile(target, path, 4));
+            assertEquals(source.findAll(), target.findAll());
+            assertNull(target.find(new OrdersKey(3L)).getSalesmanId());
+            assertEquals("", target.find(new OrdersKey(5L)).getStatus());
+        } finally {
+            Files.deleteIfExists(path);
+            db.close();
+        }
+    }
+
+    /**
+     * Test streaming export from database and import round trip.
+     *
+     * @throws IOException Possible exception.
+     */
+    @Test
+    public void dbRoundTrip() throws IOException {
+        logger.debug("dbRoundTrip");
+        // Get generated SQL
+        final var sql = common.loadProperties("orders.properties");
+        // Merge custom SQL
+        sql.putAll(common.loadProperties("orders-custom.properties"));
+        final DbDao<OrdersKey, Orders> source = new GenDbDao<>(dataSource, sql, OrdersKey.class, Orders.class);
+        final var db = DBMaker.memoryDB().make();
+        final Dao<OrdersKey, Orders> target = new GenMapDbDao<>(db, "target", OrdersKey.class, Orders.class);
+        final Dao<OrdersKey, Orders> range = new GenMapDbDao<>(db, "range", OrdersKey.class, Orders.class);
+        final var path = Files.createTempFile("orders", ".csv");
+        try {
+            final var transfer = new DaoTransfer<OrdersKey, Orders>(Orders.class, ',', 4096, 100);
+            transfer.setFetchSize(10);
+            // Export all rows using findAll query
+            final var list = source.findAll();
+            assertFalse(list.isEmpty());
+            assertEquals(list.size(), transfer.exportFile(source, path));
+            assertEquals(list.size(), transfer.importFile(target, path, 4));
+            for (final var dto : list) {
+                assertEquals(dto, target.find(new OrdersKey(dto.getOrderId())));
+            }
+            // Export rows using named query with parameters
+            final var params = new Object[]{50};
+            final var rangeList = source.findBy("findByIdLessThan", params);
+            assertFalse(rangeList.isEmpty());
+            assertEquals(rangeList.size(), transfer.exportFile(source, "findByIdLessThan", params, path));
+            assertEquals(rangeList.size(), transfer.importFile(range, path));
+            for (final var dto : rangeList) {
+                assertEquals(dto, range.find(new OrdersKey(dto.getOrderId())));
+            }
+            assertNull(range.find(new OrdersKey(50L)));
+        } finally {
+            Files.deleteIfExists(path);
+            db.close();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) Steven P. Goldsmith. All rights reserved.
+ */
+package com.codeferm.detonator;
+
+import java.io.StringReader;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import org.apache.commons.dbcp2.BasicDataSource;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test SQL script tokenizer and batched loading.
+ *
+ * @author Steven P. Goldsmith
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class DataLoaderTest {
+
+    /**
+     * Logger.
+     */
+    private static final Logger logger = LogManager.getLogger(DataLoaderTest.class);
+
+    /**
+     * Test tokenizer handles quotes, comments, hints and line end delimiter.
+     */
+    @Test
+    public void tokenizer() {
+        logger.debug("tokenizer");
+        final var script = "-- comment;\ninsert into T values ('a;b', \"x;\") /* skip; */;\nselect /*+ INDEX(T) */ 10/2 from T\n/\n"
+                + "select 1 from dual; -- trailing\n";
+        final var reader = new SqlScriptReader(new StringReader(script), ";", true);
+        assertEquals("insert into T values ('a;b', \"x;\")", reader.next());
+        assertEquals(2, reader.getStartLine());
+        // Slash delimiter isn't used here, so division and block are part of the next statement
+        assertEquals("select /*+ INDEX(T) */ 10/2 from T\n/\nselect 1 from dual", reader.next());
+        assertNull(reader.next());
+        final var slashReader = new SqlScriptReader(new StringReader("select 10/2 from T\n/\n"), "/", true);
+        assertEquals("select 10/2 from T", slashReader.next());
+        assertNull(slashReader.next());
+    }
+
+    /**
+     * Test batched and parameterized load.
+     *
+     * @throws SQLException Possible exception.
+     */
+    @Test
+    public void load() throws SQLException {
+        logger.debug("load");
+        final var ds = new BasicDataSource();
+        ds.setDriverClassName("org.h2.Driver");
+        ds.setUsername("sa");
+        ds.setPassword("");
+        ds.setUrl("jdbc:h2:mem:loader;DB_CLOSE_DELAY=-1");
+        final var script = new StringBuilder("create table LOAD_TEST (ID int, NAME varchar(20), AMOUNT decimal(8,2));\n");
+        for (var i = 0; i < 25; i++) {
+            script.append(String.format("insert into LOAD_TEST (ID, NAME, AMOUNT) values (%d, 'it''s %d', %d.50);%n", i, i, i));
+        }
+        script.append("update LOAD_TEST set AMOUNT = NULL where ID = 0;\n");
+        final var dataLoader = new DataLoader(ds, 10, 7, true);
+        assertEquals(27, dataLoader.execScript(new StringReader(script.toString()), ";", true));
+        final var dbDao = new DbUtilsDs(ds);
+        assertEquals(25L, ((Number) dbDao.select("select count(*) CNT from LOAD_TEST", "CNT")).longValue());
+        assertEquals("it's 24", dbDao.select("select NAME from LOAD_TEST where ID = 24", "NAME"));
+        final var values = new ArrayList<Object>();
+        assertNull(dataLoader.toTemplate("insert into T values (sysdate)", values));
+        // VALUES must be a whole word in any case
+        assertEquals("insert into T (MY_VALUES, ID) values (?, ?)", dataLoader.toTemplate("insert into T (MY_VALUES, ID) Values (1, 2)",
+                values));
+        assertEquals(2, values.size());
+        ds.close();
+    }
+
+    /**
+     * Test failed script rolls back statements since last commit and reports failing line.
+     *
+     * @throws SQLException Possible exception.
+     */
+    @Test
+    public void rollback() throws SQLException {
+        logger.debug("rollback");
+        final var ds = new BasicDataSource();
+        ds.setDriverClassName("org.h2.Driver");
+        ds.setUsername("sa");
+        ds.setPassword("");
+        ds.setUrl("jdbc:h2:mem:rollback;DB_CLOSE_DELAY=-1");
+        final var dataLoader = new DataLoader(ds, 10, 100, false);
+        dataLoader.execScript(new StringReader("create table ROLLBACK_TEST (ID int primary key);\n"), ";", true);
+        final var script = "insert into ROLLBACK_TEST (ID) values (1);\ninsert into ROLLBACK_TEST (ID) values (2);\n"
+                + "insert into ROLLBACK_TEST (ID) values (1);\n";
+        final var e = assertThrows(RuntimeException.class, () -> dataLoader.execScript(new StringReader(script), ";", true));
+        assertTrue(e.getMessage().contains("line=3"), e.getMessage());
+        final var dbDao = new DbUtilsDs(ds);
+        assertEquals(0L, ((Number) dbDao.select("select count(*) CNT from ROLLBACK_TEST", "CNT")).longValue());
+        // Connection goes back to pool in auto commit mode
+        try (final var connection = ds.getConnection()) {
+            assertTrue(connection.getAutoCommit());
+        }
+        ds.close();
+    }
+}
@@ -26,6 +26,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
@@ -133,6 +134,23 @@ public class GenDbDaoTest {
         assertNull(badDto);
     }
 
+    /**
+     * Test DAO find list of keys method.
+     */
+    @Test
+    public void findList() {
+        logger.debug("findList");
+        // Get generated SQL
+        final var sql = common.loadProperties("orderitems.properties");
+        // Create generic DAO
+        final Dao<OrderItemsKey, OrderItems> dao = new GenDbDao<>(dataSource, sql, OrderItemsKey.class, OrderItems.class);
+        // Composite keys with one that doesn't exist
+        final var list = dao.find(List.of(new OrderItemsKey(1L, 4L), new OrderItemsKey(2L, 4L), new OrderItemsKey(999L, 4L)));
+        // Verify exact count
+        assertEquals(2, list.size());
+        assertTrue(dao.find(new ArrayList<>()).isEmpty());
+    }
+
     /**
      * Test DAO findRange method.
      */
@@ -257,6 +275,36 @@ public class GenDbDaoTest {
         assertEquals(retDto.getKey(), key);
     }
 
+    /**
+     * Test DAO batch save and return generated keys method.
+     */
+    @Test
+    public void saveReturnKeys() {
+        logger.debug("saveReturnKeys");
+        // Get generated SQL
+        final var sql = common.loadProperties("orders.properties");
+        // Create generic DAO
+        final DbDao<OrdersKey, Orders> dao = new GenDbDao<>(dataSource, sql, OrdersKey.class, Orders.class);
+        final List<Orders> list = new ArrayList<>();
+        for (var i = 0; i < 3; i++) {
+            final var dto = new Orders();
+            dto.setCustomerId(1L);
+            dto.setOrderDate(Date.valueOf(LocalDate.now()));
+            dto.setSalesmanId(1L);
+            dto.setStatus(String.format("Batch %d", i));
+            list.add(dto);
+        }
+        // Save DTOs in one batch and return identity keys
+        final var keys = dao.saveReturnKeys(list, new String[]{"ORDER_ID"});
+        assertEquals(list.size(), keys.size());
+        // Keys are in list order
+        for (var i = 0; i < keys.size(); i++) {
+            assertEquals(list.get(i).getStatus(), dao.find(keys.get(i)).getStatus());
+        }
+        // Remove, so other tests see the same rows
+        dao.delete(keys);
+    }
+
     /**
      * Test DAO update method.
      */
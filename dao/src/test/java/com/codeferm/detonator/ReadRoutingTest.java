@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) Steven P. Goldsmith. All rights reserved.
+ */
+package com.codeferm.detonator;
+
+import java.sql.SQLException;
+import java.util.List;
+import javax.sql.DataSource;
+import org.apache.commons.dbcp2.BasicDataSource;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.AfterAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test read replica routing. Each in memory database holds its own name, so the query result shows which DataSource was used.
+ *
+ * @author Steven P. Goldsmith
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class ReadRoutingTest {
+
+    /**
+     * Logger.
+     */
+    private static final Logger logger = LogManager.getLogger(ReadRoutingTest.class);
+    /**
+     * Query used to identify DataSource.
+     */
+    private static final String SQL = "select NAME from DS_NAME";
+    /**
+     * Primary DataSource.
+     */
+    private static DataSource primary;
+    /**
+     * First replica DataSource.
+     */
+    private static DataSource replica1;
+    /**
+     * Second replica DataSource.
+     */
+    private static DataSource replica2;
+
+    /**
+     * Create in memory database named by DataSource.
+     *
+     * @param name Database name.
+     * @return DataSource.
+     */
+    public static DataSource createDataSource(final String name) {
+        final var ds = new BasicDataSource();
+        ds.setDriverClassName("org.h2.Driver");
+        ds.setUsername("sa");
+        ds.setPassword("");
+        ds.setUrl(String.format("jdbc:h2:mem:%s;DB_CLOSE_DELAY=-1", name));
+        final var dbDao = new DbUtilsDs(ds);
+        dbDao.update("create table DS_NAME (NAME varchar(20))");
+        dbDao.update("insert into DS_NAME (NAME) values (?)", new Object[]{name});
+        return ds;
+    }
+
+    /**
+     * Create primary and replicas.
+     */
+    @BeforeAll
+    public static void beforeAll() {
+        primary = createDataSource("primary");
+        replica1 = createDataSource("replica1");
+        replica2 = createDataSource("replica2");
+    }
+
+    /**
+     * Shut down DataSources.
+     *
+     * @throws SQLException Possible exception.
+     */
+    @AfterAll
+    public static void afterAll() throws SQLException {
+        ((BasicDataSource) primary).close();
+        ((BasicDataSource) replica1).close();
+        ((BasicDataSource) replica2).close();
+    }
+
+    /**
+     * Test round-robin reads.
+     */
+    @Test
+    public void roundRobin() {
+        logger.debug("roundRobin");
+        final var dbDao = new DbUtilsDs(primary, List.of(replica1, replica2), new RoundRobinPolicy(2), 0);
+        assertEquals("replica1", dbDao.select(SQL, "NAME"));
+        assertEquals("replica2", dbDao.select(SQL, "NAME"));
+        assertEquals("replica1", dbDao.select(SQL, "NAME"));
+    }
+
+    /**
+     * Test least-outstanding policy returns replica with fewest reads in progress.
+     */
+    @Test
+    public void leastOutstanding() {
+        logger.debug("leastOutstanding");
+        final var policy = new LeastOutstandingPolicy(2);
+        assertEquals(0, policy.acquire());
+        assertEquals(1, policy.acquire());
+        assertEquals(0, policy.acquire());
+        policy.release(1);
+        assertEquals(1, policy.acquire());
+        assertEquals(2, policy.getOutstanding(0));
+    }
+
+    /**
+     * Test primary scope and staleness bound.
+     */
+    @Test
+    public void primary() {
+        logger.debug("primary");
+        final var dbDao = new DbUtilsDs(primary, List.of(replica1), new RoundRobinPolicy(1), 60000);
+        assertEquals("replica1", dbDao.select(SQL, "NAME"));
+        // Per call override
+        assertEquals("primary", ReadRouting.primary(() -> dbDao.select(SQL, "NAME")));
+        // Write keeps this thread's reads on primary within staleness bound
+        dbDao.update("update DS_NAME set NAME = NAME");
+        assertEquals("primary", dbDao.select(SQL, "NAME"));
+    }
+}
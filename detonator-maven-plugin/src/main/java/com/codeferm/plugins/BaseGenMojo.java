@@ -68,6 +68,21 @@ public abstract class BaseGenMojo extends AbstractMojo {
      */
     @Parameter(property = "sqlTemplate", required = true)
     private String sqlTemplate;
+    /**
+     * Validator template. No validators are generated if not set.
+     */
+    @Parameter(property = "validatorTemplate", required = false)
+    private String validatorTemplate;
+    /**
+     * Binary codec template. No codecs are generated if not set.
+     */
+    @Parameter(property = "codecTemplate", required = false)
+    private String codecTemplate;
+    /**
+     * DAO registry template. No registry is generated if not set.
+     */
+    @Parameter(property = "registryTemplate", required = false)
+    private String registryTemplate;
     /**
      * Map of class name (key) and SQL (value).
      */
@@ -105,6 +120,9 @@ public abstract class BaseGenMojo extends AbstractMojo {
         genCode.setDtoTemplate(dtoTemplate);
         genCode.setIdTemplate(idTemplate);
         genCode.setSqlTemplate(sqlTemplate);
+        genCode.setValidatorTemplate(validatorTemplate);
+        genCode.setCodecTemplate(codecTemplate);
+        genCode.setRegistryTemplate(registryTemplate);
         genCode.setPackageName(packageName);
         genCode.setSqlMap(sqlMap);
         genCode.setSchema(schema);
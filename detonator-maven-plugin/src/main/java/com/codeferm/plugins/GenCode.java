@@ -10,12 +10,16 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
+import java.io.StringReader;
 import java.io.StringWriter;
 import java.nio.charset.StandardCharsets;
 import java.sql.SQLException;
 import java.util.Locale;
 
 import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import org.apache.commons.dbcp2.BasicDataSource;
@@ -82,6 +86,22 @@ public class GenCode {
      * ID template.
      */
     private String sqlTemplate;
+    /**
+     * Validator template or null to skip validators.
+     */
+    private String validatorTemplate;
+    /**
+     * Binary codec template or null to skip codecs.
+     */
+    private String codecTemplate;
+    /**
+     * DAO registry template or null to skip registry.
+     */
+    private String registryTemplate;
+    /**
+     * SQL statements of each generated class with a key used by registry.
+     */
+    private final Map<String, Map<String, String>> daoSql = new ConcurrentSkipListMap<>();
     /**
      * Map of class name (key) and SQL statement (value).
      */
@@ -196,6 +216,30 @@ public class GenCode {
         this.sqlTemplate = sqlTemplate;
     }
 
+    public String getValidatorTemplate() {
+        return validatorTemplate;
+    }
+
+    public void setValidatorTemplate(final String validatorTemplate) {
+        this.validatorTemplate = validatorTemplate;
+    }
+
+    public String getCodecTemplate() {
+        return codecTemplate;
+    }
+
+    public void setCodecTemplate(final String codecTemplate) {
+        this.codecTemplate = codecTemplate;
+    }
+
+    public String getRegistryTemplate() {
+        return registryTemplate;
+    }
+
+    public void setRegistryTemplate(final String registryTemplate) {
+        this.registryTemplate = registryTemplate;
+    }
+
     public Map<String, SqlStatement> getSqlMap() {
         return sqlMap;
     }
@@ -221,7 +265,7 @@ public class GenCode {
     }
 
     /**
-     * Make DTOs, IDs and SQL code.
+     * Make DTOs, IDs, SQL code and validators and codecs if their templates are set.
      *
      * @param makeDto DTO generator.
      * @param sourceDir Source target dir.
@@ -231,16 +275,38 @@ public class GenCode {
     public void generate(final MakeDto makeDto, final String sourceDir, final SqlStatement sql, final String className) {
         try {
             log.info(String.format("Generating artifacts for class %s", className));
+            // Use StringWriter, so registry can use SQL properties
+            final var sqlOut = new StringWriter();
+            makeDto.sqlTemplate(sqlTemplate, sql.getSql(), sql.getKeyColumns(), sqlOut);
             // Use FileOutputStream for SQL properties output
             try (var out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(new File(String.format("%s/%s.properties",
                     genResDir, className.toLowerCase(Locale.US))), false), StandardCharsets.UTF_8))) {
-                makeDto.sqlTemplate(sqlTemplate, sql.getSql(), sql.getKeyColumns(), out);
+                out.write(sqlOut.toString());
             }
             // Use FileOutputStream for DTO output
             try (var out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(new File(String.format("%s/%s.java",
                     sourceDir, className)), false), StandardCharsets.UTF_8))) {
                 makeDto.dtoTemplate(dtoTemplate, sql.getSql(), sql.getKeyColumns(), packageName, className, out);
             }
+            // Validator uses the same model as the DTO
+            if (validatorTemplate != null) {
+                try (var out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(new File(String.format(
+                        "%s/%sValidator.java", sourceDir, className)), false), StandardCharsets.UTF_8))) {
+                    makeDto.dtoTemplate(validatorTemplate, sql.getSql(), sql.getKeyColumns(), packageName, className, out);
+                }
+            }
+            // Codec is empty if a column type isn't supported
+            if (codecTemplate != null) {
+                final var codecOut = new StringWriter();
+                makeDto.dtoTemplate(codecTemplate, sql.getSql(), sql.getKeyColumns(), packageName, className, codecOut);
+                final var codecStr = codecOut.toString();
+                if (!codecStr.isBlank()) {
+                    try (var out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(new File(String.format(
+                            "%s/%sCodec.java", sourceDir, className)), false), StandardCharsets.UTF_8))) {
+                        out.write(codecStr);
+                    }
+                }
+            }
             // Use StringWriter in case ID is empty (i.e. no PK or composite SQL)
             final var out = new StringWriter();
             makeDto.keyTemplate(idTemplate, sql.getSql(), sql.getKeyColumns(), packageName, String.format("%sKey", className), out);
@@ -252,6 +318,14 @@ public class GenCode {
                         "%s/%sKey.java", sourceDir, className)), false), StandardCharsets.UTF_8))) {
                     idOut.write(idStr);
                 }
+                // Only single table SQL has DML and can be used by GenDbDao
+                final var properties = new Properties();
+                properties.load(new StringReader(sqlOut.toString()));
+                if (properties.containsKey("update")) {
+                    final Map<String, String> statements = new TreeMap<>();
+                    properties.stringPropertyNames().forEach(name -> statements.put(name, properties.getProperty(name)));
+                    daoSql.put(className, statements);
+                }
             }
         } catch (IOException e) {
             throw new RuntimeException("Write templates", e);
@@ -315,6 +389,16 @@ public class GenCode {
         } catch (InterruptedException e) {
             throw new RuntimeException(e);
         }
+        // Registry of every DAO generated
+        if (registryTemplate != null) {
+            log.info(String.format("Generating registry of %d DAOs", daoSql.size()));
+            try (var out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(new File(String.format(
+                    "%s/DaoRegistry.java", sourceDir)), false), StandardCharsets.UTF_8))) {
+                makeDto.daosTemplate(registryTemplate, packageName, "DaoRegistry", daoSql, out);
+            } catch (IOException e) {
+                throw new RuntimeException("Write registry template", e);
+            }
+        }
         log.info("Code generation complete");
         // Close DataSource
         try {
@@ -190,6 +190,33 @@ public class MakeDto {
         }
     }
 
+    /**
+     * Generate one class for all DAOs, such as a registry. Pass in the Writer required for a particular purpose.
+     *
+     * @param template Template to use.
+     * @param packageName Java package name.
+     * @param className Java class name.
+     * @param daos Generated SQL statements by name of each DTO class with a key.
+     * @param writer Template output.
+     */
+    public void daosTemplate(final String template, final String packageName, final String className,
+            final Map<String, Map<String, String>> daos, final Writer writer) {
+        final var formatter = DateTimeFormatter.ofPattern("MM-dd-yyyy HH:mm:ss");
+        // Template model
+        final Map<String, Object> model = new HashMap<>();
+        model.put("packageName", packageName);
+        model.put("now", LocalDateTime.now().format(formatter));
+        model.put("className", className);
+        model.put("daos", daos);
+        // Process template
+        try {
+            final var temp = configuration.getTemplate(template);
+            temp.process(model, writer);
+        } catch (IOException | TemplateException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     /**
      * Use database metadata to generate SQL statements. Pass in the Writer required for a particular purpose. For composite SQL
      * (i.e. more than one table) or tables without a PK the template will not generate DML operations.
@@ -114,6 +114,75 @@ public class MetadataExtract {
         return map;
     }
 
+    /**
+     * Set referenced (parent) table and column of foreign key columns. This is not done by getResultSetMetaData, so callers that
+     * need references ask for them.
+     *
+     * @param dataSource DataSoure to run queries against.
+     * @param tableName Name of table.
+     * @param map Map of ResultSetMetaData DTOs keyed by column name.
+     */
+    public void setImportedKeys(final DataSource dataSource, final String tableName, final Map<String, RsmdDto> map) {
+        try (Connection connection = dataSource.getConnection()) {
+            // Table name must be upper case
+            try (ResultSet columns = connection.getMetaData().
+                    getImportedKeys(null, null, tableName.toUpperCase(Locale.US))) {
+                while (columns.next()) {
+                    final var dto = map.get(columns.getString("FKCOLUMN_NAME").toUpperCase(Locale.US));
+                    // Skip columns not in result set
+                    if (dto != null) {
+                        dto.setPkTableName(columns.getString("PKTABLE_NAME").toUpperCase(Locale.US));
+                        dto.setPkColumnName(columns.getString("PKCOLUMN_NAME").toUpperCase(Locale.US));
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(String.format("setImportedKeys: tableName=%s", tableName), e);
+        }
+    }
+
+    /**
+     * Sort tables, so referenced (parent) tables come before tables that reference them. Self references and references to tables
+     * not in the Map are ignored.
+     *
+     * @param tables Map of ResultSetMetaData DTO Maps keyed by table name.
+     * @return Table names in dependency order.
+     */
+    public List<String> sortTables(final Map<String, Map<String, RsmdDto>> tables) {
+        final List<String> list = new ArrayList<>();
+        final Map<String, Boolean> visited = new TreeMap<>();
+        for (final var tableName : tables.keySet()) {
+            sortTable(tables, tableName, visited, list);
+        }
+        return list;
+    }
+
+    /**
+     * Depth first visit of table's parents before adding table.
+     *
+     * @param tables Map of ResultSetMetaData DTO Maps keyed by table name.
+     * @param tableName Name of table.
+     * @param visited Visited tables. False while table's parents are being visited.
+     * @param list Table names in dependency order.
+     */
+    private void sortTable(final Map<String, Map<String, RsmdDto>> tables, final String tableName,
+            final Map<String, Boolean> visited, final List<String> list) {
+        final var state = visited.get(tableName);
+        if (state == null) {
+            visited.put(tableName, false);
+            for (final var dto : tables.get(tableName).values()) {
+                final var pkTableName = dto.getPkTableName();
+                if (pkTableName != null && !pkTableName.equals(tableName) && tables.containsKey(pkTableName)) {
+                    sortTable(tables, pkTableName, visited, list);
+                }
+            }
+            visited.put(tableName, true);
+            list.add(tableName);
+        } else if (!state) {
+            throw new RuntimeException(String.format("Foreign key cycle at table %s", tableName));
+        }
+    }
+
     /**
      * Map Java types to optimize BigDecimal with scale 0.
      *
@@ -27,6 +27,8 @@ public class RsmdDto {
     private int columnType;
     private String columnTypeName;
     private Integer keySeq;
+    private String pkTableName;
+    private String pkColumnName;
     private int precision;
     private int scale;
     private String schemaName;
@@ -116,6 +118,22 @@ public class RsmdDto {
         this.keySeq = keySeq;
     }
 
+    public String getPkTableName() {
+        return pkTableName;
+    }
+
+    public void setPkTableName(final String pkTableName) {
+        this.pkTableName = pkTableName;
+    }
+
+    public String getPkColumnName() {
+        return pkColumnName;
+    }
+
+    public void setPkColumnName(final String pkColumnName) {
+        this.pkColumnName = pkColumnName;
+    }
+
     public int getScale() {
         return scale;
     }
@@ -247,6 +265,8 @@ public class RsmdDto {
         hash = 79 * hash + this.columnType;
         hash = 79 * hash + Objects.hashCode(this.columnTypeName);
         hash = 79 * hash + Objects.hashCode(this.keySeq);
+        hash = 79 * hash + Objects.hashCode(this.pkTableName);
+        hash = 79 * hash + Objects.hashCode(this.pkColumnName);
         hash = 79 * hash + this.precision;
         hash = 79 * hash + this.scale;
         hash = 79 * hash + Objects.hashCode(this.schemaName);
@@ -350,6 +370,12 @@ public class RsmdDto {
         if (!Objects.equals(this.keySeq, other.keySeq)) {
             return false;
         }
+        if (!Objects.equals(this.pkTableName, other.pkTableName)) {
+            return false;
+        }
+        if (!Objects.equals(this.pkColumnName, other.pkColumnName)) {
+            return false;
+        }
         return true;
     }
 
@@ -357,7 +383,8 @@ public class RsmdDto {
     public String toString() {
         return "RsmdDto{" + "catalogName=" + catalogName + ", columnClassName=" + columnClassName + ", columnDisplaySize="
                 + columnDisplaySize + ", columnLabel=" + columnLabel + ", columnName=" + columnName + ", columnType=" + columnType
-                + ", columnTypeName=" + columnTypeName + ", keySeq=" + keySeq + ", precision=" + precision + ", scale=" + scale
+                + ", columnTypeName=" + columnTypeName + ", keySeq=" + keySeq + ", pkTableName=" + pkTableName + ", pkColumnName="
+                + pkColumnName + ", precision=" + precision + ", scale=" + scale
                 + ", schemaName=" + schemaName + ", tableName=" + tableName + ", autoIncrement=" + autoIncrement
                 + ", caseSensitive=" + caseSensitive + ", currency=" + currency + ", definitelyWritable=" + definitelyWritable
                 + ", methodName=" + methodName + ", nullable=" + nullable + ", readOnly=" + readOnly + ", searchable=" + searchable
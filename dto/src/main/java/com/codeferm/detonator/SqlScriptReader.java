@@ -0,0 +1,309 @@
+/*
+ * Copyright (c) Steven P. Goldsmith. All rights reserved.
+ */
+package com.codeferm.detonator;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Streaming SQL script tokenizer. The script is read once and split into statements on a custom delimiter. A delimiter only ends a
+ * statement when it is outside of quotes and comments and nothing but white space or a line comment follows it on the same line,
+ * thus "/" can be used as an Oracle block delimiter without breaking division. Line comments and block comments are removed except
+ * for optimizer hints (i.e. /*+ ... *&#47;).
+ *
+ * This class is not thread safe.
+ *
+ * @author Steven P. Goldsmith
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class SqlScriptReader implements Closeable {
+
+    /**
+     * Tokenizer state.
+     */
+    private enum State {
+        NORMAL, SINGLE_QUOTE, DOUBLE_QUOTE, LINE_COMMENT, BLOCK_COMMENT, HINT
+    }
+    /**
+     * Read buffer size.
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+    /**
+     * Script reader.
+     */
+    private final Reader reader;
+    /**
+     * Statement delimiter.
+     */
+    private final String delimiter;
+    /**
+     * True to remove delimiter from statement.
+     */
+    private final boolean removeDelimiter;
+    /**
+     * Read buffer.
+     */
+    private final char[] buffer = new char[BUFFER_SIZE];
+    /**
+     * Current statement reused for each statement.
+     */
+    private final StringBuilder sql = new StringBuilder(1024);
+    /**
+     * Position in buffer.
+     */
+    private int pos;
+    /**
+     * Number of chars in buffer.
+     */
+    private int limit;
+    /**
+     * Current line number.
+     */
+    private long line = 1;
+    /**
+     * Line number where current statement started.
+     */
+    private long startLine;
+    /**
+     * Statement length before pending delimiter or -1 if none.
+     */
+    private int pendingEnd = -1;
+    /**
+     * Statement length including pending delimiter.
+     */
+    private int pendingDelimiterEnd;
+    /**
+     * True once current statement has a non white space char.
+     */
+    private boolean started;
+
+    /**
+     * Construct with reader and delimiter.
+     *
+     * @param reader Script reader.
+     * @param delimiter Statement delimiter.
+     * @param removeDelimiter True to remove delimiter from statement.
+     */
+    public SqlScriptReader(final Reader reader, final String delimiter, final boolean removeDelimiter) {
+        if (delimiter == null || delimiter.isEmpty()) {
+            throw new IllegalArgumentException("Delimiter cannot be empty");
+        }
+        this.reader = reader;
+        this.delimiter = delimiter;
+        this.removeDelimiter = removeDelimiter;
+    }
+
+    /**
+     * Line number where last statement returned by {@link #next()} started.
+     *
+     * @return Line number.
+     */
+    public long getStartLine() {
+        return startLine;
+    }
+
+    /**
+     * Read next char.
+     *
+     * @return Next char or -1 on end of script.
+     * @throws IOException Possible exception.
+     */
+    private int read() throws IOException {
+        if (pos == limit) {
+            limit = reader.read(buffer, 0, buffer.length);
+            pos = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[pos++];
+    }
+
+    /**
+     * Peek at next char without consuming it.
+     *
+     * @return Next char or -1 on end of script.
+     * @throws IOException Possible exception.
+     */
+    private int peek() throws IOException {
+        final var c = read();
+        if (c != -1) {
+            pos--;
+        }
+        return c;
+    }
+
+    /**
+     * Does statement end with delimiter?
+     *
+     * @return True if delimiter was just appended.
+     */
+    private boolean endsWithDelimiter() {
+        final var len = delimiter.length();
+        final var start = sql.length() - len;
+        if (start < 0) {
+            return false;
+        }
+        for (var i = 0; i < len; i++) {
+            if (sql.charAt(start + i) != delimiter.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Record start line when first token of statement is seen.
+     */
+    private void markStart() {
+        if (!started) {
+            started = true;
+            startLine = line;
+        }
+    }
+
+    /**
+     * Complete statement using pending delimiter.
+     *
+     * @return Statement or null if statement is empty.
+     */
+    private String complete() {
+        sql.setLength(removeDelimiter ? pendingEnd : pendingDelimiterEnd);
+        pendingEnd = -1;
+        started = false;
+        final var statement = sql.toString().trim();
+        sql.setLength(0);
+        return statement.isEmpty() ? null : statement;
+    }
+
+    /**
+     * Return next statement.
+     *
+     * @return Statement or null at end of script.
+     */
+    public String next() {
+        var state = State.NORMAL;
+        try {
+            int c;
+            while (true) {
+                c = read();
+                if (c == -1) {
+                    break;
+                }
+                switch (state) {
+                    case NORMAL:
+                        if (c == '\n') {
+                            line++;
+                            if (pendingEnd >= 0) {
+                                final var statement = complete();
+                                if (statement != null) {
+                                    return statement;
+                                }
+                                continue;
+                            }
+                            sql.append('\n');
+                        } else if (c == '-' && peek() == '-') {
+                            read();
+                            state = State.LINE_COMMENT;
+                        } else if (c == '/' && peek() == '*') {
+                            read();
+                            if (peek() == '+') {
+                                markStart();
+                                sql.append("/*");
+                                state = State.HINT;
+                            } else {
+                                state = State.BLOCK_COMMENT;
+                            }
+                        } else {
+                            if (pendingEnd >= 0 && !Character.isWhitespace(c)) {
+                                // Something follows delimiter on same line, so delimiter is part of statement
+                                pendingEnd = -1;
+                            }
+                            if (!Character.isWhitespace(c)) {
+                                markStart();
+                            }
+                            sql.append((char) c);
+                            if (c == '\'') {
+                                state = State.SINGLE_QUOTE;
+                            } else if (c == '"') {
+                                state = State.DOUBLE_QUOTE;
+                            } else if (pendingEnd < 0 && endsWithDelimiter()) {
+                                pendingDelimiterEnd = sql.length();
+                                pendingEnd = pendingDelimiterEnd - delimiter.length();
+                            }
+                        }
+                        break;
+                    case SINGLE_QUOTE:
+                        sql.append((char) c);
+                        if (c == '\n') {
+                            line++;
+                        } else if (c == '\'') {
+                            state = State.NORMAL;
+                        }
+                        break;
+                    case DOUBLE_QUOTE:
+                        sql.append((char) c);
+                        if (c == '\n') {
+                            line++;
+                        } else if (c == '"') {
+                            state = State.NORMAL;
+                        }
+                        break;
+                    case LINE_COMMENT:
+                        if (c == '\n') {
+                            // Let NORMAL state handle new line
+                            pos--;
+                            state = State.NORMAL;
+                        }
+                        break;
+                    case BLOCK_COMMENT:
+                        if (c == '\n') {
+                            line++;
+                        } else if (c == '*' && peek() == '/') {
+                            read();
+                            // Comment separates tokens
+                            sql.append(' ');
+                            state = State.NORMAL;
+                        }
+                        break;
+                    case HINT:
+                        sql.append((char) c);
+                        if (c == '\n') {
+                            line++;
+                        } else if (c == '*' && peek() == '/') {
+                            sql.append((char) read());
+                            state = State.NORMAL;
+                        }
+                        break;
+                    default:
+                        throw new IllegalStateException(state.toString());
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(String.format("Script read exception: line=%d", line), e);
+        }
+        // End of script
+        if (pendingEnd >= 0) {
+            return complete();
+        }
+        final var statement = sql.toString().trim();
+        sql.setLength(0);
+        started = false;
+        // Statement without delimiter at end of script
+        return statement.isEmpty() ? null : statement;
+    }
+
+    /**
+     * Close reader.
+     *
+     * @throws IOException Possible exception.
+     */
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
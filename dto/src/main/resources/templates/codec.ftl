@@ -0,0 +1,156 @@
+<#assign supported = ["String", "Long", "Integer", "Short", "Byte", "Double", "Float", "Boolean", "BigDecimal", "BigInteger", "Date", "Time", "Timestamp"] />
+<#assign unsupported = false />
+<#list map?values as rsmdDto>
+<#if !supported?seq_contains(rsmdDto.getVarType())>
+<#assign unsupported = true />
+</#if>
+</#list>
+<#-- No codec is generated if a column type isn't supported -->
+<#if !unsupported>
+/*
+ * Copyright (c) Steven P. Goldsmith. All rights reserved.
+ */
+package ${packageName};
+
+<#assign imports = imports + [ "java.io.DataInput", "java.io.DataOutput", "java.io.IOException" ] />
+<#list imports?sort as import>
+import ${import};
+</#list>
+
+/**
+ * Created by DeTOnator on ${now}.
+ *
+ * Binary codec for ${className} generated from the column metadata used by dtobv.ftl.
+ *
+ * ${sql}
+ */
+public class ${className}Codec implements DtoCodec<${className}> {
+
+    /**
+     * Number of fields written, checked on read so a codec generated from a different table version fails fast.
+     */
+    public static final int FIELDS = ${map?size?c};
+
+    /**
+     * Write DTO.
+     *
+     * @param out Output.
+     * @param dto DTO to write.
+     * @throws IOException Possible exception.
+     */
+    @Override
+    public void write(final DataOutput out, final ${className} dto) throws IOException {
+        out.writeShort(FIELDS);
+<#list map?values as rsmdDto>
+<#assign getter = "dto.get" + rsmdDto.getMethodName() + "()" />
+        out.writeBoolean(${getter} != null);
+        if (${getter} != null) {
+<#switch rsmdDto.getVarType()>
+<#case "String">
+            DtoCodec.writeString(out, ${getter});
+<#break>
+<#case "Long">
+            out.writeLong(${getter});
+<#break>
+<#case "Integer">
+            out.writeInt(${getter});
+<#break>
+<#case "Short">
+            out.writeShort(${getter});
+<#break>
+<#case "Byte">
+            out.writeByte(${getter});
+<#break>
+<#case "Double">
+            out.writeDouble(${getter});
+<#break>
+<#case "Float">
+            out.writeFloat(${getter});
+<#break>
+<#case "Boolean">
+            out.writeBoolean(${getter});
+<#break>
+<#case "BigDecimal">
+            DtoCodec.writeBigDecimal(out, ${getter});
+<#break>
+<#case "BigInteger">
+            DtoCodec.writeBytes(out, ${getter}.toByteArray());
+<#break>
+<#case "Date">
+<#case "Time">
+            out.writeLong(${getter}.getTime());
+<#break>
+<#case "Timestamp">
+            out.writeLong(${getter}.getTime());
+            out.writeInt(${getter}.getNanos());
+<#break>
+</#switch>
+        }
+</#list>
+    }
+
+    /**
+     * Read DTO.
+     *
+     * @param in Input.
+     * @return DTO.
+     * @throws IOException Possible exception.
+     */
+    @Override
+    public ${className} read(final DataInput in) throws IOException {
+        final var fields = in.readUnsignedShort();
+        if (fields != FIELDS) {
+            throw new IOException(String.format("${className} codec expects %d fields, got %d", FIELDS, fields));
+        }
+        final var dto = new ${className}();
+<#list map?values as rsmdDto>
+        if (in.readBoolean()) {
+<#switch rsmdDto.getVarType()>
+<#case "String">
+            dto.set${rsmdDto.getMethodName()}(DtoCodec.readString(in));
+<#break>
+<#case "Long">
+            dto.set${rsmdDto.getMethodName()}(in.readLong());
+<#break>
+<#case "Integer">
+            dto.set${rsmdDto.getMethodName()}(in.readInt());
+<#break>
+<#case "Short">
+            dto.set${rsmdDto.getMethodName()}(in.readShort());
+<#break>
+<#case "Byte">
+            dto.set${rsmdDto.getMethodName()}(in.readByte());
+<#break>
+<#case "Double">
+            dto.set${rsmdDto.getMethodName()}(in.readDouble());
+<#break>
+<#case "Float">
+            dto.set${rsmdDto.getMethodName()}(in.readFloat());
+<#break>
+<#case "Boolean">
+            dto.set${rsmdDto.getMethodName()}(in.readBoolean());
+<#break>
+<#case "BigDecimal">
+            dto.set${rsmdDto.getMethodName()}(DtoCodec.readBigDecimal(in));
+<#break>
+<#case "BigInteger">
+            dto.set${rsmdDto.getMethodName()}(new BigInteger(DtoCodec.readBytes(in)));
+<#break>
+<#case "Date">
+            dto.set${rsmdDto.getMethodName()}(new Date(in.readLong()));
+<#break>
+<#case "Time">
+            dto.set${rsmdDto.getMethodName()}(new Time(in.readLong()));
+<#break>
+<#case "Timestamp">
+            final var ${rsmdDto.getVarName()}Value = new Timestamp(in.readLong());
+            ${rsmdDto.getVarName()}Value.setNanos(in.readInt());
+            dto.set${rsmdDto.getMethodName()}(${rsmdDto.getVarName()}Value);
+<#break>
+</#switch>
+        }
+</#list>
+        return dto;
+    }
+}
+</#if>
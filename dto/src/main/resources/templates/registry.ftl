@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) Steven P. Goldsmith. All rights reserved.
+ */
+package ${packageName};
+
+import com.codeferm.detonator.DbDao;
+import com.codeferm.detonator.GenDbDao;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import javax.sql.DataSource;
+
+/**
+ * Created by DeTOnator on ${now}.
+ *
+ * Registry of a GenDbDao for every generated DTO with a key. SQL is compiled into this class, so nothing is loaded from the class
+ * path and each DAO is only created the first time it's asked for. DAO names are the lower case class names used for the SQL
+ * properties files.
+ */
+public class ${className} {
+
+    /**
+     * Key and value class of each DAO by name.
+     */
+    private static final Map<String, Class<?>[]> TYPES = Map.ofEntries(
+<#list daos as name, sql>
+            Map.entry("${name?lower_case}", new Class<?>[]{${name}Key.class, ${name}.class})<#if name?has_next>,</#if>
+</#list>
+    );
+    /**
+     * DataSource used by DAOs.
+     */
+    private final DataSource dataSource;
+    /**
+     * Called with DAO name and generated SQL before DAO is created, so custom SQL can be merged. May be null.
+     */
+    private final BiConsumer<String, Properties> customSql;
+    /**
+     * DAOs created so far.
+     */
+    private final Map<String, DbDao<?, ?>> daos = new ConcurrentHashMap<>();
+
+    /**
+     * Construct with DataSource.
+     *
+     * @param dataSource DataSource used by DAOs.
+     */
+    public ${className}(final DataSource dataSource) {
+        this(dataSource, null);
+    }
+
+    /**
+     * Construct with DataSource and custom SQL.
+     *
+     * @param dataSource DataSource used by DAOs.
+     * @param customSql Called with DAO name and generated SQL before DAO is created or null.
+     */
+    public ${className}(final DataSource dataSource, final BiConsumer<String, Properties> customSql) {
+        this.dataSource = dataSource;
+        this.customSql = customSql;
+    }
+
+    /**
+     * Names of all DAOs.
+     *
+     * @return Sorted DAO names.
+     */
+    public static Set<String> getNames() {
+        return new TreeSet<>(TYPES.keySet());
+    }
+
+    /**
+     * Key class of DAO.
+     *
+     * @param name DAO name.
+     * @return Key class.
+     */
+    public static Class<?> getKeyClass(final String name) {
+        return types(name)[0];
+    }
+
+    /**
+     * Value class of DAO.
+     *
+     * @param name DAO name.
+     * @return Value class.
+     */
+    public static Class<?> getValueClass(final String name) {
+        return types(name)[1];
+    }
+
+    /**
+     * Key and value class of DAO.
+     *
+     * @param name DAO name.
+     * @return Key and value class.
+     */
+    private static Class<?>[] types(final String name) {
+        final var types = TYPES.get(name);
+        if (types == null) {
+            throw new RuntimeException(String.format("Unknown DAO %s", name));
+        }
+        return types;
+    }
+
+    /**
+     * Generated SQL of DAO.
+     *
+     * @param name DAO name.
+     * @return SQL statements as properties.
+     */
+    public static Properties getSql(final String name) {
+        final var sql = new Properties();
+        switch (name) {
+<#list daos as name, sql>
+            case "${name?lower_case}":
+<#list sql as key, statement>
+                sql.setProperty("${key?j_string}", "${statement?j_string}");
+</#list>
+                break;
+</#list>
+            default:
+                throw new RuntimeException(String.format("Unknown DAO %s", name));
+        }
+        return sql;
+    }
+
+    /**
+     * Number of DAOs created so far.
+     *
+     * @return DAOs created.
+     */
+    public int getCreated() {
+        return daos.size();
+    }
+
+    /**
+     * Create DAO.
+     *
+     * @param name DAO name.
+     * @return DAO.
+     */
+    private DbDao<?, ?> create(final String name) {
+        final var sql = getSql(name);
+        if (customSql != null) {
+            customSql.accept(name, sql);
+        }
+        return new GenDbDao<>(dataSource, sql, getKeyClass(name), getValueClass(name));
+    }
+
+    /**
+     * Get DAO by name, creating it on first use. DAOs are thread safe, so one is shared by all callers.
+     *
+     * @param name DAO name.
+     * @return DAO.
+     */
+    public DbDao<?, ?> get(final String name) {
+        return daos.computeIfAbsent(name, this::create);
+    }
+<#list daos as name, sql>
+
+    @SuppressWarnings("unchecked")
+    public DbDao<${name}Key, ${name}> get${name}() {
+        return (DbDao<${name}Key, ${name}>) get("${name?lower_case}");
+    }
+</#list>
+}
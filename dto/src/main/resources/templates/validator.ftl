@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) Steven P. Goldsmith. All rights reserved.
+ */
+package ${packageName};
+
+/**
+ * Created by DeTOnator on ${now}.
+ *
+ * Validator for ${className} generated from the column metadata used by dtobv.ftl.
+ *
+ * ${sql}
+ */
+public class ${className}Validator implements DtoValidator<${className}> {
+
+    /**
+     * Add violation.
+     *
+     * @param violations Violations so far or null.
+     * @param violation Violation to add.
+     * @return Violations.
+     */
+    private static StringBuilder violation(final StringBuilder violations, final String violation) {
+        if (violations == null) {
+            return new StringBuilder(violation);
+        }
+        return violations.append(" | ").append(violation);
+    }
+
+    /**
+     * Validate DTO.
+     *
+     * @param dto DTO to validate.
+     * @param failFast Stop at first violation.
+     * @param columnChecks Also check string size and BigDecimal integer digits against the column.
+     * @return Null if valid or violations separated by " | ".
+     */
+    @Override
+    public String validate(final ${className} dto, final boolean failFast, final boolean columnChecks) {
+        StringBuilder violations = null;
+<#list map?values as rsmdDto>
+<#if rsmdDto.getNullable() == 0>
+        if (dto.get${rsmdDto.getMethodName()}() == null) {
+            violations = violation(violations, "${className}.${rsmdDto.getVarName()} must not be null");
+            if (failFast) {
+                return violations.toString();
+            }
+        }
+</#if>
+<#if rsmdDto.getVarType() == "String" && rsmdDto.getColumnDisplaySize() gt 0 && rsmdDto.getColumnDisplaySize() lt 2147483647>
+        if (columnChecks && dto.get${rsmdDto.getMethodName()}() != null && dto.get${rsmdDto.getMethodName()}().length() > ${rsmdDto.getColumnDisplaySize()?c}) {
+            violations = violation(violations, "${className}.${rsmdDto.getVarName()} size must be between 0 and ${rsmdDto.getColumnDisplaySize()?c}");
+            if (failFast) {
+                return violations.toString();
+            }
+        }
+</#if>
+<#if rsmdDto.getVarType() == "BigDecimal" && rsmdDto.getPrecision() gt 0 && rsmdDto.getScale() gte 0 && rsmdDto.getPrecision() gte rsmdDto.getScale()>
+        if (columnChecks && dto.get${rsmdDto.getMethodName()}() != null && dto.get${rsmdDto.getMethodName()}().precision() - dto.get${rsmdDto.getMethodName()}().scale() > ${(rsmdDto.getPrecision() - rsmdDto.getScale())?c}) {
+            violations = violation(violations, "${className}.${rsmdDto.getVarName()} numeric value out of bounds (<${(rsmdDto.getPrecision() - rsmdDto.getScale())?c} digits>.<${rsmdDto.getScale()?c} digits> expected)");
+            if (failFast) {
+                return violations.toString();
+            }
+        }
+</#if>
+</#list>
+        return violations == null ? null : violations.toString();
+    }
+}
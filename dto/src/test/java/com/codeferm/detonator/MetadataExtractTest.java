@@ -10,6 +10,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.TreeMap;
 import javax.sql.DataSource;
 import org.apache.commons.dbcp2.BasicDataSource;
 import org.apache.commons.dbutils.QueryLoader;
@@ -18,6 +19,8 @@ import org.apache.logging.log4j.Logger;
 import org.junit.jupiter.api.AfterAll;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
@@ -276,4 +279,30 @@ public class MetadataExtractTest {
             logger.debug(tableName);
         });
     }
+
+    /**
+     * Test foreign keys and table dependency order.
+     */
+    @Test
+    public void sortTables() {
+        logger.debug("sortTables");
+        final var metadataExtract = new MetadataExtract();
+        final Map<String, Map<String, RsmdDto>> tables = new TreeMap<>();
+        for (final var tableName : List.of("REGIONS", "COUNTRIES", "LOCATIONS", "WAREHOUSES", "EMPLOYEES")) {
+            final var map = metadataExtract.getResultSetMetaData(dataSource, String.format("select * from %s", tableName), true);
+            // References are only set on request
+            assertNull(map.values().stream().filter(dto -> dto.getPkTableName() != null).findFirst().orElse(null));
+            metadataExtract.setImportedKeys(dataSource, tableName, map);
+            tables.put(tableName, map);
+        }
+        // FK references parent table and column
+        assertEquals("REGIONS", tables.get("COUNTRIES").get("REGION_ID").getPkTableName());
+        assertEquals("REGION_ID", tables.get("COUNTRIES").get("REGION_ID").getPkColumnName());
+        final var list = metadataExtract.sortTables(tables);
+        assertEquals(tables.size(), list.size());
+        // Parents come before children
+        assertTrue(list.indexOf("REGIONS") < list.indexOf("COUNTRIES"));
+        assertTrue(list.indexOf("COUNTRIES") < list.indexOf("LOCATIONS"));
+        assertTrue(list.indexOf("LOCATIONS") < list.indexOf("WAREHOUSES"));
+    }
 }
@@ -3,6 +3,9 @@
  */
 package com.codeferm.detonator;
 
+import com.google.inject.Inject;
+import com.google.inject.name.Named;
+
 /**
  * Simple bean to wrap createOrder in a transaction.
  *
@@ -27,14 +30,27 @@ public class CreateOrderQueueBean extends CreateOrderQueue {
         super(createOrder);
     }
 
+    /**
+     * Construct with queue capacity and overflow policy. Guice injects queue.capacity and queue.overflow when the bean is created
+     * with {@link TransactionFactory#createObject(Class, Class, java.util.Properties)}.
+     *
+     * @param capacity Queue capacity.
+     * @param overflowPolicy Block or reject when queue is full.
+     */
+    @Inject
+    public CreateOrderQueueBean(@Named("queue.capacity") final int capacity, @Named("queue.overflow") final String overflowPolicy) {
+        super(null, capacity, OverflowPolicy.of(overflowPolicy));
+    }
+
     /**
      * Create order with transaction.
      *
      * @param orderMessage Order message.
+     * @return True if order was queued.
      */
     @Override
     @Transaction
-    public void create(final OrderMessage orderMessage) {
-        super.create(orderMessage);
+    public boolean create(final OrderMessage orderMessage) {
+        return super.create(orderMessage);
     }
 }
@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) Steven P. Goldsmith. All rights reserved.
+ */
+package com.codeferm.detonator;
+
+import com.codeferm.dto.DaoRegistry;
+import com.google.inject.AbstractModule;
+import com.google.inject.Key;
+import com.google.inject.Provider;
+import com.google.inject.util.Types;
+import java.util.Properties;
+import java.util.function.BiConsumer;
+import javax.sql.DataSource;
+
+/**
+ * Binds Dao and DbDao of every DTO in the generated {@link DaoRegistry}. Bindings are providers, so a DAO is only created the first
+ * time it's injected and the same DAO is injected after that.
+ *
+ * @author Steven P. Goldsmith
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class DaoModule extends AbstractModule {
+
+    /**
+     * Lazy DAO registry.
+     */
+    private final DaoRegistry registry;
+
+    /**
+     * Construct with DataSource.
+     *
+     * @param dataSource DataSource used by DAOs.
+     */
+    public DaoModule(final DataSource dataSource) {
+        this(dataSource, null);
+    }
+
+    /**
+     * Construct with DataSource and custom SQL.
+     *
+     * @param dataSource DataSource used by DAOs.
+     * @param customSql Called with DAO name and generated SQL before DAO is created or null.
+     */
+    public DaoModule(final DataSource dataSource, final BiConsumer<String, Properties> customSql) {
+        registry = new DaoRegistry(dataSource, customSql);
+    }
+
+    public DaoRegistry getRegistry() {
+        return registry;
+    }
+
+    /**
+     * Bind Dao and DbDao for each DAO name.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    protected void configure() {
+        bind(DaoRegistry.class).toInstance(registry);
+        for (final var name : DaoRegistry.getNames()) {
+            final var kClass = DaoRegistry.getKeyClass(name);
+            final var vClass = DaoRegistry.getValueClass(name);
+            // Called on injection, registry creates DAO once
+            final Provider<Object> provider = () -> registry.get(name);
+            bind((Key<Object>) Key.get(Types.newParameterizedType(Dao.class, kClass, vClass))).toProvider(provider);
+            bind((Key<Object>) Key.get(Types.newParameterizedType(DbDao.class, kClass, vClass))).toProvider(provider);
+        }
+    }
+}
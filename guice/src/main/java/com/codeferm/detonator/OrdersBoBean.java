@@ -40,9 +40,10 @@ public class OrdersBoBean {
      * @param customerId Customer ID.
      * @param salesmanId Salesman ID.
      * @param list List of OrderItems.
+     * @return True if order was accepted, false if it was rejected.
      */
-    public void createOrder(final long customerId, final long salesmanId, final List<OrderItems> list) {
-        ordersBo.createOrder(customerId, salesmanId, list);
+    public boolean createOrder(final long customerId, final long salesmanId, final List<OrderItems> list) {
+        return ordersBo.createOrder(customerId, salesmanId, list);
     }
 
     /**
@@ -5,7 +5,9 @@ package com.codeferm.detonator;
 
 import com.google.inject.AbstractModule;
 import com.google.inject.Guice;
+import com.google.inject.name.Names;
 import java.lang.reflect.InvocationTargetException;
+import java.util.Properties;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -60,4 +62,34 @@ public class TransactionFactory {
         }
         return object;
     }
+
+    /**
+     * Create object of type T wrapped in transaction. Properties are bound as named constants, so constructors can inject them
+     * with @Named.
+     *
+     * @param <T> Return type.
+     * @param clazz Type of object to create.
+     * @param transModule Transaction module must extend AbstractModule.
+     * @param properties Properties bound with Names.bindProperties.
+     * @return Wrapped object.
+     */
+    public static <T> T createObject(final Class<T> clazz, final Class<? extends AbstractModule> transModule,
+            final Properties properties) {
+        if (logger.isDebugEnabled()) {
+            logger.debug(String.format("Creating transactional object for %s", clazz.getName()));
+        }
+        T object = null;
+        try {
+            object = Guice.createInjector(transModule.getDeclaredConstructor().newInstance(), new AbstractModule() {
+                @Override
+                protected void configure() {
+                    Names.bindProperties(binder(), properties);
+                }
+            }).getInstance(clazz);
+        } catch (NoSuchMethodException | SecurityException | InstantiationException | IllegalAccessException
+                | IllegalArgumentException | InvocationTargetException e) {
+            throw new RuntimeException(e);
+        }
+        return object;
+    }
 }
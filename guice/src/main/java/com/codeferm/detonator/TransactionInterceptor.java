@@ -20,6 +20,10 @@ import org.apache.logging.log4j.Logger;
  * implementation. Other JTA implementations could be leveraged as well.
  * <p>
  * <p>
+ * Reads inside the transaction are pinned to the primary DataSource using {@link com.codeferm.detonator.ReadRouting}, so a
+ * transaction never reads stale data from a read replica.
+ * <p>
+ * <p>
  * Limitations
  * <p>
  * Behind the scenes, method interception is implemented by generating bytecode at runtime. Guice dynamically creates a subclass
@@ -71,6 +75,8 @@ public class TransactionInterceptor implements MethodInterceptor {
             final UserTransaction userTransaction = new UserTransactionImple();
             // Begin transaction
             userTransaction.begin();
+            // Reads in write unit of work stay on primary
+            ReadRouting.enter();
             try {
                 // Proceed with the original method's invocation
                 object = invocation.proceed();
@@ -87,6 +93,7 @@ public class TransactionInterceptor implements MethodInterceptor {
                 userTransaction.rollback();
                 throw e;
             } finally {
+                ReadRouting.exit();
                 //userTransaction.close();
             }
         }
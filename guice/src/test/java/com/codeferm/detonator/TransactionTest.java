@@ -4,6 +4,7 @@
 package com.codeferm.detonator;
 
 import com.arjuna.ats.jta.TransactionManager;
+import com.codeferm.dto.DaoRegistry;
 import com.codeferm.dto.Inventories;
 import com.codeferm.dto.InventoriesKey;
 import com.codeferm.dto.OrderItems;
@@ -12,6 +13,9 @@ import com.codeferm.dto.Orders;
 import com.codeferm.dto.OrdersKey;
 import com.codeferm.dto.Products;
 import com.codeferm.dto.ProductsKey;
+import com.google.inject.Guice;
+import com.google.inject.Key;
+import com.google.inject.TypeLiteral;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
@@ -155,7 +159,7 @@ public class TransactionTest {
                 "inventories.properties"),
                 InventoriesKey.class, Inventories.class);
         // Queue bean uses Guice transactions 
-        final var queue = TransactionFactory.createObject(CreateOrderQueueBean.class, TransactionModule.class);
+        final var queue = TransactionFactory.createObject(CreateOrderQueueBean.class, TransactionModule.class, properties);
         queue.setCreateOrder(new CreateOrder(new UpdateInventoryDao(orderItems, inventories), orders, orderItems, products));
         // Create BO
         return new OrdersBo(queue, orders, orderItems, products, inventories);
@@ -183,9 +187,12 @@ public class TransactionTest {
         OrdersBoBean bo = TransactionFactory.createObject(OrdersBoBean.class, TransactionModule.class);
         bo.setOrdersBo(createBo());
         // Add observer
+        final var capacity = Integer.parseInt(properties.getProperty("queue.capacity"));
+        final var stageOverflow = OverflowPolicy.of(properties.getProperty("stage.overflow"));
         final var orderCreated = new OrderCreated(new OrderShipped(properties.getProperty("template.dir"), properties.getProperty(
                 "template"), properties.getProperty("output.dir"), bo.getOrdersBo(), Integer.parseInt(properties.getProperty(
-                "order.shipped.max.threads"))), Integer.parseInt(properties.getProperty("order.created.max.threads")));
+                "order.shipped.max.threads")), capacity, stageOverflow), Integer.parseInt(properties.getProperty(
+                "order.created.max.threads")), capacity, stageOverflow);
         ((CreateOrderQueue) bo.getOrdersBo().getOrderQueue()).addObserver(orderCreated);
         // Database pool size - 1 threads
         final var executor = Executors.newFixedThreadPool(Integer.parseInt(properties.getProperty("db.xa.pool.size")) - 1);
@@ -244,4 +251,23 @@ public class TransactionTest {
         bo.setOrdersBo(createBo());
         bo.orderInfo(1);
     }
+
+    /**
+     * DAOs bound by DaoModule are created on first injection and shared after that.
+     */
+    @Test
+    public void daoModule() {
+        logger.debug("daoModule");
+        final var injector = Guice.createInjector(new DaoModule(dataSource));
+        final var registry = injector.getInstance(DaoRegistry.class);
+        Assertions.assertEquals(0, registry.getCreated());
+        final var orders = injector.getInstance(Key.get(new TypeLiteral<Dao<OrdersKey, Orders>>() {
+        }));
+        Assertions.assertEquals(1, registry.getCreated());
+        Assertions.assertSame(orders, injector.getInstance(Key.get(new TypeLiteral<DbDao<OrdersKey, Orders>>() {
+        })));
+        Assertions.assertNotNull(orders.find(new OrdersKey(1L)));
+        Assertions.assertEquals(1, registry.getCreated());
+        Assertions.assertTrue(DaoRegistry.getNames().contains("locations"));
+    }
 }
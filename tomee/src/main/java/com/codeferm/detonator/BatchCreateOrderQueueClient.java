@@ -0,0 +1,259 @@
+/*
+ * Copyright (c) Steven P. Goldsmith. All rights reserved.
+ */
+package com.codeferm.detonator;
+
+import jakarta.jms.ConnectionFactory;
+import jakarta.jms.JMSContext;
+import jakarta.jms.Queue;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Sends orders to CreateOrderBatchBean in batches. Orders are queued and one thread packs up to batch size orders into one
+ * {@link OrderCodec} message, sending when the batch is full or the oldest order has waited max wait, so broker overhead is paid per
+ * batch instead of per order. Each order still gets its own correlation ID from {@link InFlightTracker}.
+ *
+ * The sending thread comes from the ThreadFactory passed in, a ManagedThreadFactory in the container, and uses its own JMSContext
+ * created from the ConnectionFactory. Batches are sent in order and CreateOrderBatchBean uses a single session, so orders are
+ * created in the order they were queued. Call {@link #shutdown()} before the container stops to end the thread.
+ *
+ * @author Steven P. Goldsmith
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class BatchCreateOrderQueueClient implements OrderQueue {
+
+    /**
+     * Order message with its correlation ID.
+     */
+    private static final class Pending {
+
+        /**
+         * Order message.
+         */
+        private final OrderMessage orderMessage;
+        /**
+         * Correlation ID.
+         */
+        private final String id;
+
+        /**
+         * Construct with order message and correlation ID.
+         *
+         * @param orderMessage Order message.
+         * @param id Correlation ID.
+         */
+        private Pending(final OrderMessage orderMessage, final String id) {
+            this.orderMessage = orderMessage;
+            this.id = id;
+        }
+    }
+
+    /**
+     * Logger.
+     */
+    private final Logger logger = LogManager.getLogger(BatchCreateOrderQueueClient.class);
+    /**
+     * Connection factory used by sending thread.
+     */
+    private final ConnectionFactory connectionFactory;
+    /**
+     * Create order batch MDB.
+     */
+    private final Queue createOrderBatchBean;
+    /**
+     * Orders in flight.
+     */
+    private final InFlightTracker inFlightTracker;
+    /**
+     * Maximum orders per batch.
+     */
+    private final int batchSize;
+    /**
+     * Maximum time to wait for a batch to fill in milliseconds.
+     */
+    private final long maxWaitMillis;
+    /**
+     * Bounded order queue.
+     */
+    private final BlockingQueue<Pending> queue;
+    /**
+     * Thread sending batches.
+     */
+    private final Thread thread;
+    /**
+     * False after shutdown.
+     */
+    private volatile boolean running = true;
+    /**
+     * Batches sent.
+     */
+    private final AtomicLong batches = new AtomicLong();
+    /**
+     * Orders sent.
+     */
+    private final AtomicLong sent = new AtomicLong();
+
+    /**
+     * Construct with ConnectionFactory, Queue, tracker, batch size and wait. Queue holds {@link StageExecutor#DEFAULT_CAPACITY}
+     * orders and blocks when full.
+     *
+     * @param connectionFactory Connection factory used by sending thread.
+     * @param createOrderBatchBean Order batch queue.
+     * @param inFlightTracker Orders in flight.
+     * @param threadFactory Creates sending thread.
+     * @param batchSize Maximum orders per batch.
+     * @param maxWaitMillis Maximum time to wait for a batch to fill in milliseconds.
+     */
+    public BatchCreateOrderQueueClient(final ConnectionFactory connectionFactory, final Queue createOrderBatchBean,
+            final InFlightTracker inFlightTracker, final ThreadFactory threadFactory, final int batchSize, final long maxWaitMillis) {
+        if (batchSize < 1) {
+            throw new RuntimeException(String.format("Batch size must be greater than 0, batchSize=%d", batchSize));
+        }
+        this.connectionFactory = connectionFactory;
+        this.createOrderBatchBean = createOrderBatchBean;
+        this.inFlightTracker = inFlightTracker;
+        this.batchSize = batchSize;
+        this.maxWaitMillis = maxWaitMillis;
+        queue = new ArrayBlockingQueue<>(StageExecutor.DEFAULT_CAPACITY);
+        thread = threadFactory.newThread(this::drain);
+        thread.start();
+    }
+
+    public InFlightTracker getInFlightTracker() {
+        return inFlightTracker;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public long getBatches() {
+        return batches.get();
+    }
+
+    public long getSent() {
+        return sent.get();
+    }
+
+    /**
+     * Send batch as one message. Orders of a batch that can't be sent are no longer in flight.
+     *
+     * @param jmsContext JMS context of sending thread.
+     * @param list Pending orders.
+     */
+    private void send(final JMSContext jmsContext, final List<Pending> list) {
+        try {
+            final var message = JmsCodec.toMessage(jmsContext, list.stream().map(pending -> pending.orderMessage).collect(
+                    Collectors.toList()));
+            jmsContext.createProducer().setProperty(JmsCodec.CORRELATION_IDS, list.stream().map(pending -> pending.id).collect(
+                    Collectors.joining(","))).send(createOrderBatchBean, message);
+            batches.incrementAndGet();
+            sent.addAndGet(list.size());
+        } catch (RuntimeException e) {
+            // DeTOnator exception handling throws RuntimeException
+            logger.error("Send order batch of {} error {}", list.size(), e.getMessage());
+            list.forEach(pending -> inFlightTracker.completed(pending.id));
+        }
+    }
+
+    /**
+     * Drain queue in batches until shutdown and queue is empty.
+     */
+    private void drain() {
+        try (final var jmsContext = connectionFactory.createContext()) {
+            final List<Pending> list = new ArrayList<>(batchSize);
+            while (running || !queue.isEmpty()) {
+                try {
+                    final var first = queue.poll(100, TimeUnit.MILLISECONDS);
+                    if (first != null) {
+                        list.add(first);
+                        // Fill batch until full or wait is up
+                        final var deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+                        queue.drainTo(list, batchSize - list.size());
+                        while (list.size() < batchSize) {
+                            final var next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                            if (next == null) {
+                                break;
+                            }
+                            list.add(next);
+                            queue.drainTo(list, batchSize - list.size());
+                        }
+                        send(jmsContext, list);
+                        list.clear();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Queue order for next batch. Blocks when queue is full.
+     *
+     * @param orderMessage Order message.
+     * @return True if order was queued.
+     */
+    @Override
+    public boolean create(final OrderMessage orderMessage) {
+        if (!running) {
+            return false;
+        }
+        final var id = inFlightTracker.sent();
+        try {
+            queue.put(new Pending(orderMessage, id));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            inFlightTracker.completed(id);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Wait until every order queued has been shipped. Partial batches are sent once max wait is up.
+     *
+     * @param timeout Maximum time to wait.
+     * @param unit Time unit of timeout.
+     * @return True if nothing is in flight, false if timed out.
+     */
+    public boolean awaitQuiescence(final long timeout, final TimeUnit unit) {
+        return inFlightTracker.awaitQuiescence(timeout, unit);
+    }
+
+    /**
+     * Stop accepting orders, send what is queued and wait for orders in flight to finish.
+     */
+    @Override
+    public void shutdown() {
+        running = false;
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+        // Orders queued while drain thread was stopping
+        final List<Pending> list = new ArrayList<>();
+        queue.drainTo(list);
+        if (!list.isEmpty()) {
+            try (final var jmsContext = connectionFactory.createContext()) {
+                send(jmsContext, list);
+            }
+        }
+        if (!awaitQuiescence(CreateOrderQueueClient.DEFAULT_SHUTDOWN_MILLIS, TimeUnit.MILLISECONDS)) {
+            logger.warn("Shutdown timed out with {} orders in flight", inFlightTracker.getInFlight());
+        }
+        logger.debug("Sent {} orders in {} batches", sent.get(), batches.get());
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) Steven P. Goldsmith. All rights reserved.
+ */
+package com.codeferm.detonator;
+
+import com.codeferm.dto.Inventories;
+import com.codeferm.dto.InventoriesKey;
+import com.codeferm.dto.OrderItems;
+import com.codeferm.dto.OrderItemsKey;
+import com.codeferm.dto.Orders;
+import com.codeferm.dto.OrdersKey;
+import com.codeferm.dto.Products;
+import com.codeferm.dto.ProductsKey;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import jakarta.ejb.ActivationConfigProperty;
+import jakarta.ejb.MessageDriven;
+import jakarta.inject.Inject;
+import jakarta.inject.Named;
+import jakarta.jms.JMSContext;
+import jakarta.jms.Message;
+import jakarta.jms.MessageListener;
+import jakarta.jms.Queue;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.logging.log4j.LogManager;
+
+/**
+ * MDB that creates a batch of orders sent by BatchCreateOrderQueueClient. BatchCreateOrder checks every order before writing, so an
+ * order that fails is reported on its own and the rest of the batch is written with one batched insert of orders, one of items and
+ * one guarded inventory update. Created orders are sent to OrderCreatedBean in the same transaction.
+ *
+ * Only orders rejected by validation or an inventory check (OrderRejectedException) are dropped. Any other exception is thrown, so
+ * the batch rolls back and the message is redelivered or sent to the dead letter queue. Inventory is taken with a conditional
+ * update, so it's safe to send to CreateOrderBean at the same time. A single session keeps batches in the order sent.
+ *
+ * @author Steven P. Goldsmith
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+@MessageDriven(activationConfig = {
+    @ActivationConfigProperty(propertyName = "maxSessions", propertyValue = "1")})
+public class CreateOrderBatchBean implements MessageListener {
+
+    /**
+     * Logger.
+     */
+    private final org.apache.logging.log4j.Logger logger = LogManager.getLogger(CreateOrderBatchBean.class);
+    /**
+     * Orders DAO.
+     */
+    @Inject
+    @Named("test")
+    private Dao<OrdersKey, Orders> orders;
+    /**
+     * OrderItems DAO.
+     */
+    @Inject
+    @Named
+    private Dao<OrderItemsKey, OrderItems> orderItems;
+    /**
+     * Products DAO.
+     */
+    @Inject
+    @Named
+    private Dao<ProductsKey, Products> products;
+    /**
+     * Inventories DAO.
+     */
+    @Inject
+    @Named
+    private Dao<InventoriesKey, Inventories> inventories;
+    /**
+     * Orders in flight.
+     */
+    @Inject
+    private InFlightTracker inFlightTracker;
+    /**
+     * Completes rejected orders once the batch commits.
+     */
+    @Resource
+    private TransactionSynchronizationRegistry registry;
+    /**
+     * Injected JMS Context.
+     */
+    @Inject
+    JMSContext jmsContext;
+    /**
+     * Order Created MDB.
+     *
+     * For TomEE use openejb.deploymentId.format={ejbJarId}/{ejbName}
+     */
+    @Resource(name = "OrderCreatedBean")
+    private Queue orderCreatedBean;
+    /**
+     * Batch create order logic.
+     */
+    private BatchCreateOrder batchCreateOrder;
+
+    public CreateOrderBatchBean() {
+    }
+
+    /**
+     * Init.
+     */
+    @PostConstruct
+    public void init() {
+        logger.debug("PostConstruct");
+        if (!(inventories instanceof DbDao)) {
+            throw new RuntimeException(String.format("Inventories DAO %s can't take inventory with a conditional update", inventories.
+                    getClass().getName()));
+        }
+        batchCreateOrder = new BatchCreateOrder(orders, orderItems, products, inventories);
+    }
+
+    /**
+     * Create batch of orders and pass each created order on with its correlation ID. Correlation IDs of rejected orders are
+     * completed once the batch commits. If the batch rolls back they're redelivered with the rest of the batch.
+     *
+     * @param message Message.
+     */
+    @Override
+    public void onMessage(final Message message) {
+        final var list = JmsCodec.orderMessages(message);
+        final var ids = JmsCodec.correlationIds(message, list.size());
+        final Map<Integer, RuntimeException> errors = new HashMap<>();
+        final var created = batchCreateOrder.create(list, errors);
+        final var producer = jmsContext.createProducer();
+        final List<String> rejected = new ArrayList<>();
+        for (var i = 0; i < created.size(); i++) {
+            if (created.get(i) != null) {
+                producer.setJMSCorrelationID(ids[i]).send(orderCreatedBean, JmsCodec.toMessage(jmsContext, created.get(i)));
+            } else {
+                logger.error("Create order rejected {}", errors.get(i).getMessage());
+                rejected.add(ids[i]);
+            }
+        }
+        if (!rejected.isEmpty()) {
+            registry.registerInterposedSynchronization(new Synchronization() {
+                @Override
+                public void beforeCompletion() {
+                }
+
+                @Override
+                public void afterCompletion(final int status) {
+                    if (status == Status.STATUS_COMMITTED) {
+                        // Rejected orders leave the pipeline here
+                        rejected.forEach(inFlightTracker::completed);
+                    }
+                }
+            });
+        }
+    }
+}
@@ -16,25 +16,27 @@ import jakarta.annotation.PreDestroy;
 import jakarta.annotation.Resource;
 import jakarta.ejb.ActivationConfigProperty;
 import jakarta.ejb.MessageDriven;
+import jakarta.ejb.MessageDrivenContext;
 import jakarta.inject.Inject;
 import jakarta.inject.Named;
 import jakarta.jms.JMSContext;
-import jakarta.jms.JMSException;
 import jakarta.jms.Message;
 import jakarta.jms.MessageListener;
-import jakarta.jms.ObjectMessage;
 import jakarta.jms.Queue;
 import org.apache.logging.log4j.LogManager;
 
 /**
- * MDB used for asynchronous order creation using single session.
+ * MDB used for asynchronous order creation. Inventory is updated with atomic conditional updates, so many sessions can create
+ * orders at the same time. CreateOrderQueueClient sets JMSXGroupID, so the broker hands all messages of a group to the same
+ * consumer and they are processed in order. Orders are created set based, so inventory rows are locked in product ID order and
+ * sessions whose orders share products can't deadlock.
  *
  * @author sgoldsmith
  * @version 1.0.0
  * @since 1.0.0
  */
 @MessageDriven(activationConfig = {
-    @ActivationConfigProperty(propertyName = "maxSessions", propertyValue = "1")})
+    @ActivationConfigProperty(propertyName = "maxSessions", propertyValue = "10")})
 public class CreateOrderBean implements MessageListener {
 
     /**
@@ -65,6 +67,16 @@ public class CreateOrderBean implements MessageListener {
     @Inject
     @Named
     private Dao<InventoriesKey, Inventories> inventories;
+    /**
+     * Orders in flight.
+     */
+    @Inject
+    private InFlightTracker inFlightTracker;
+    /**
+     * Used to roll back a rejected order.
+     */
+    @Resource
+    private MessageDrivenContext messageDrivenContext;
     /**
      * Injected JMS Context.
      */
@@ -89,12 +101,15 @@ public class CreateOrderBean implements MessageListener {
      * Init.
      */
     @PostConstruct
+    @SuppressWarnings("unchecked")
     public void init() {
         logger.debug("PostConstruct");
-        createOrder = new CreateOrder(new UpdateInventoryDao(orderItems, inventories));
+        createOrder = new CreateOrder(new AtomicUpdateInventory((DbDao<InventoriesKey, Inventories>) inventories));
         createOrder.setOrderItems(orderItems);
         createOrder.setOrders(orders);
         createOrder.setProducts(products);
+        // Take inventory of all items at once in product ID order
+        createOrder.setSetBased(true);
     }
 
     /**
@@ -110,18 +125,28 @@ public class CreateOrderBean implements MessageListener {
      * serially to the listener. This means that a listener assigned to one or more consumers of the same session can assume that
      * the onMessage method is not called with the next message until the session has completed the last call.
      *
+     * An order rejected by validation or an inventory check is logged, the transaction is rolled back, so nothing the order wrote is
+     * kept, and its correlation ID is completed, so it doesn't stay in flight. The message is redelivered like any rolled back
+     * message and ends up in the dead letter queue, since the order is rejected again. Any other exception is thrown, so the message
+     * is redelivered or sent to the dead letter queue.
+     *
      * @param message Message.
      */
     @Override
     public void onMessage(final Message message) {
-        final var objectMessage = (ObjectMessage) message;
+        final var id = JmsCodec.correlationId(message);
+        final OrderAggregate orders;
         try {
-            var orderMessage = (OrderMessage) objectMessage.getObject();
-            var orders = createOrder.create(orderMessage);
-            jmsContext.createProducer().send(orderCreatedBean, orders);
-        } catch (JMSException e) {
-            throw new RuntimeException(e);
+            orders = createOrder.create(JmsCodec.orderMessage(message));
+        } catch (OrderRejectedException e) {
+            logger.error("Create order rejected {}", e.getMessage());
+            messageDrivenContext.setRollbackOnly();
+            // Rejected order leaves the pipeline here
+            inFlightTracker.completed(id);
+            return;
         }
+        // Pass correlation ID on, so order is tracked until shipped
+        jmsContext.createProducer().setJMSCorrelationID(id).send(orderCreatedBean, JmsCodec.toMessage(jmsContext, orders));
     }
 
 }
@@ -4,13 +4,21 @@
 package com.codeferm.detonator;
 
 import jakarta.jms.JMSContext;
-import jakarta.jms.JMSException;
 import jakarta.jms.Queue;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
 import java.util.concurrent.TimeUnit;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
 /**
- * CreateOrder is not thread safe because it updates the inventory. SingleThreadExecutor used to make sure only one update at a
- * time.
+ * Sends orders to CreateOrderBean. Each message gets a JMSXGroupID from the order router key, so orders in the same group are
+ * consumed by one MDB session in the order sent while other groups are processed in parallel. Each message also gets a
+ * JMSCorrelationID from {@link InFlightTracker}, so shutdown can wait for every order to be shipped without browsing queues.
+ *
+ * A send in the caller's JTA transaction is only delivered if the transaction commits. With a TransactionSynchronizationRegistry
+ * the correlation ID is completed when the transaction rolls back, so an order that was never delivered doesn't stay in flight.
  *
  * @author Steven P. Goldsmith
  * @version 1.0.0
@@ -18,6 +26,14 @@ import java.util.concurrent.TimeUnit;
  */
 public class CreateOrderQueueClient implements OrderQueue {
 
+    /**
+     * Default time shutdown waits for orders in flight.
+     */
+    public static final long DEFAULT_SHUTDOWN_MILLIS = 60000;
+    /**
+     * Logger.
+     */
+    private final Logger logger = LogManager.getLogger(CreateOrderQueueClient.class);
     /**
      * JMS context.
      */
@@ -26,43 +42,123 @@ public class CreateOrderQueueClient implements OrderQueue {
      * Create order MDB.
      */
     private final Queue createOrderBean;
+    /**
+     * Message group key of order.
+     */
+    private final OrderRouter orderRouter;
+    /**
+     * Orders in flight.
+     */
+    private final InFlightTracker inFlightTracker;
+    /**
+     * Transaction synchronization or null if sends aren't transacted.
+     */
+    private final TransactionSynchronizationRegistry registry;
 
     /**
-     * Construct queue client with JMSContext and Queue.
+     * Construct queue client with JMSContext, Queue and tracker. Orders are grouped by products.
      *
      * @param jmsContext JMS context.
      * @param createOrderBean Order queue.
+     * @param inFlightTracker Orders in flight.
      */
-    public CreateOrderQueueClient(final JMSContext jmsContext, final Queue createOrderBean) {
+    public CreateOrderQueueClient(final JMSContext jmsContext, final Queue createOrderBean, final InFlightTracker inFlightTracker) {
+        this(jmsContext, createOrderBean, OrderRouter.byProducts(), inFlightTracker);
+    }
+
+    /**
+     * Construct queue client with JMSContext, Queue, message group router and tracker.
+     *
+     * @param jmsContext JMS context.
+     * @param createOrderBean Order queue.
+     * @param orderRouter Message group key of order.
+     * @param inFlightTracker Orders in flight.
+     */
+    public CreateOrderQueueClient(final JMSContext jmsContext, final Queue createOrderBean, final OrderRouter orderRouter,
+            final InFlightTracker inFlightTracker) {
+        this(jmsContext, createOrderBean, orderRouter, inFlightTracker, null);
+    }
+
+    /**
+     * Construct queue client with JMSContext, Queue, message group router, tracker and transaction synchronization.
+     *
+     * @param jmsContext JMS context.
+     * @param createOrderBean Order queue.
+     * @param orderRouter Message group key of order.
+     * @param inFlightTracker Orders in flight.
+     * @param registry Transaction synchronization or null if sends aren't transacted.
+     */
+    public CreateOrderQueueClient(final JMSContext jmsContext, final Queue createOrderBean, final OrderRouter orderRouter,
+            final InFlightTracker inFlightTracker, final TransactionSynchronizationRegistry registry) {
         this.jmsContext = jmsContext;
         this.createOrderBean = createOrderBean;
+        this.orderRouter = orderRouter;
+        this.inFlightTracker = inFlightTracker;
+        this.registry = registry;
     }
 
-    @Override
-    public void create(final OrderMessage orderMessage) {
-        jmsContext.createProducer().send(createOrderBean, orderMessage);
+    public OrderRouter getOrderRouter() {
+        return orderRouter;
+    }
+
+    public InFlightTracker getInFlightTracker() {
+        return inFlightTracker;
     }
 
     /**
-     * Wait for the queue to empty out.
+     * Send order to JMS queue as {@link OrderCodec} bytes. The broker applies its own flow control, so send either blocks or throws.
+     *
+     * @param orderMessage Order message.
+     * @return Always true.
      */
     @Override
-    public void shutdown() {
-        var queueBrowser = jmsContext.createBrowser(createOrderBean);
+    public boolean create(final OrderMessage orderMessage) {
+        final var message = JmsCodec.toMessage(jmsContext, orderMessage);
+        final var id = inFlightTracker.sent();
         try {
-            var enumeration = queueBrowser.getEnumeration();
-            while (enumeration.hasMoreElements()) {
-                while (enumeration.hasMoreElements()) {
-                    enumeration.nextElement();
+            jmsContext.createProducer().setProperty("JMSXGroupID", String.valueOf(orderRouter.key(orderMessage))).
+                    setJMSCorrelationID(id).send(createOrderBean, message);
+        } catch (RuntimeException e) {
+            // Never sent
+            inFlightTracker.completed(id);
+            throw e;
+        }
+        // Message is only delivered if the caller's transaction commits
+        if (registry != null && registry.getTransactionKey() != null) {
+            registry.registerInterposedSynchronization(new Synchronization() {
+                @Override
+                public void beforeCompletion() {
                 }
-                queueBrowser.close();
-                TimeUnit.MILLISECONDS.sleep(100);
-                queueBrowser = jmsContext.createBrowser(createOrderBean);
-                enumeration = queueBrowser.getEnumeration();
-            }
-            queueBrowser.close();
-        } catch (JMSException | InterruptedException e) {
-            throw new RuntimeException(e);
+
+                @Override
+                public void afterCompletion(final int status) {
+                    if (status != Status.STATUS_COMMITTED) {
+                        inFlightTracker.completed(id);
+                    }
+                }
+            });
+        }
+        return true;
+    }
+
+    /**
+     * Wait until every order sent has been shipped.
+     *
+     * @param timeout Maximum time to wait.
+     * @param unit Time unit of timeout.
+     * @return True if nothing is in flight, false if timed out.
+     */
+    public boolean awaitQuiescence(final long timeout, final TimeUnit unit) {
+        return inFlightTracker.awaitQuiescence(timeout, unit);
+    }
+
+    /**
+     * Wait for orders in flight to finish.
+     */
+    @Override
+    public void shutdown() {
+        if (!awaitQuiescence(DEFAULT_SHUTDOWN_MILLIS, TimeUnit.MILLISECONDS)) {
+            logger.warn("Shutdown timed out with {} orders in flight", inFlightTracker.getInFlight());
         }
     }
 }
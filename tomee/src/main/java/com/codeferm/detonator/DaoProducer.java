@@ -9,6 +9,7 @@ import com.codeferm.dto.Countries;
 import com.codeferm.dto.CountriesKey;
 import com.codeferm.dto.Customers;
 import com.codeferm.dto.CustomersKey;
+import com.codeferm.dto.DaoRegistry;
 import com.codeferm.dto.Employees;
 import com.codeferm.dto.EmployeesKey;
 import com.codeferm.dto.Inventories;
@@ -29,25 +30,28 @@ import com.codeferm.dto.Warehouses;
 import com.codeferm.dto.WarehousesKey;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.Resource;
+import jakarta.ejb.Lock;
+import jakarta.ejb.LockType;
 import jakarta.ejb.Singleton;
 import jakarta.inject.Named;
 import jakarta.ws.rs.Produces;
 import java.io.IOException;
-import java.util.Map;
 import java.util.Properties;
-import java.util.concurrent.ConcurrentHashMap;
 import javax.sql.DataSource;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 /**
- * DAO producer. Probably a more type safe way of doing this, but this works and is efficient.
+ * DAO producer. DAOs come from the generated DaoRegistry, so a DAO is only created the first time it's injected and SQL is compiled
+ * in instead of loaded from properties files. Custom SQL in name-custom.properties is merged when the DAO is created. Read lock lets
+ * injections run in parallel, DaoRegistry creates each DAO once and DAOs are thread safe.
  *
  * @author Steven P. Goldsmith
  * @version 1.0.0
  * @since 1.0.0
  */
 @Singleton
+@Lock(LockType.READ)
 public class DaoProducer {
 
     /**
@@ -60,66 +64,40 @@ public class DaoProducer {
     @Resource
     private DataSource dataSource;
     /**
-     * DAO Map.
+     * Lazy DAO registry.
      */
-    private final Map<String, DbDao<?, ?>> map;
+    private DaoRegistry registry;
 
     /**
      * Default constructor.
      */
     public DaoProducer() {
-        map = new ConcurrentHashMap<>();
-    }
-
-    /**
-     * Create DAOs. Treat DAOs as Singleton since GenDbDao is thread safe.
-     */
-    void daoConfig() {
-        map.put("contacts", new GenDbDao<ContactsKey, Contacts>(dataSource, loadProperties("contacts.properties"),
-                ContactsKey.class, Contacts.class));
-        map.put("countries", new GenDbDao<CountriesKey, Countries>(dataSource, loadProperties("countries.properties"),
-                CountriesKey.class, Countries.class));
-        map.put("customers", new GenDbDao<CustomersKey, Customers>(dataSource, loadProperties("customers.properties"),
-                CustomersKey.class, Customers.class));
-        map.put("employees", new GenDbDao<EmployeesKey, Employees>(dataSource, loadProperties("employees.properties"),
-                EmployeesKey.class, Employees.class));
-        map.put("inventories", new GenDbDao<InventoriesKey, Inventories>(dataSource, loadProperties("inventories.properties"),
-                InventoriesKey.class, Inventories.class));
-        var orderitemsSql = loadProperties("orderitems.properties");
-        // Merge custom SQL properties
-        orderitemsSql.putAll(loadProperties("orderitems-custom.properties"));
-        map.put("orderitems", new GenDbDao<OrderItemsKey, OrderItems>(dataSource, orderitemsSql, OrderItemsKey.class,
-                OrderItems.class));
-        map.put("orders", new GenDbDao<OrdersKey, Orders>(dataSource, loadProperties("orders.properties"), OrdersKey.class,
-                Orders.class));
-        map.put("productcategories", new GenDbDao<ProductCategoriesKey, ProductCategories>(dataSource, loadProperties(
-                "productcategories.properties"), ProductCategoriesKey.class, ProductCategories.class));
-        map.put("products", new GenDbDao<ProductsKey, Products>(dataSource, loadProperties("products.properties"),
-                ProductsKey.class, Products.class));
-        map.put("regions", new GenDbDao<RegionsKey, Regions>(dataSource, loadProperties("regions.properties"),
-                RegionsKey.class, Regions.class));
-        map.put("warehouses", new GenDbDao<WarehousesKey, Warehouses>(dataSource, loadProperties("warehouses.properties"),
-                WarehousesKey.class, Warehouses.class));
     }
 
     @PostConstruct
     void init() {
-        logger.debug("Init DAO Map");
-        daoConfig();
-        logger.debug("Done DAO Map");
+        logger.debug("Init DAO registry");
+        registry = new DaoRegistry(dataSource, (name, sql) -> sql.putAll(loadProperties(String.format("%s-custom.properties",
+                name))));
+    }
+
+    public DaoRegistry getRegistry() {
+        return registry;
     }
 
     /**
-     * Load properties file from class path.
+     * Load optional properties file from class path.
      *
      * @param propertyFile Name of property file.
-     * @return Properties.
+     * @return Properties or empty Properties if not found.
      */
     public Properties loadProperties(final String propertyFile) {
         Properties props = new Properties();
         // Get properties from classpath
         try (final var stream = DaoProducer.class.getClassLoader().getResourceAsStream(propertyFile)) {
-            props.load(stream);
+            if (stream != null) {
+                props.load(stream);
+            }
         } catch (IOException e) {
             throw new RuntimeException("Property file exception", e);
         }
@@ -128,62 +106,62 @@ public class DaoProducer {
 
     @Produces
     public Dao<ContactsKey, Contacts> getContacts() {
-        return (Dao<ContactsKey, Contacts>) map.get("contacts");
+        return registry.getContacts();
     }
 
     @Produces
     public Dao<CountriesKey, Countries> getCountries() {
-        return (Dao<CountriesKey, Countries>) map.get("countries");
+        return registry.getCountries();
     }
 
     @Produces
     public Dao<CustomersKey, Customers> getCustomers() {
-        return (Dao<CustomersKey, Customers>) map.get("customers");
+        return registry.getCustomers();
     }
 
     @Produces
     public Dao<EmployeesKey, Employees> getEmployees() {
-        return (Dao<EmployeesKey, Employees>) map.get("employees");
+        return registry.getEmployees();
     }
 
     @Produces
     public Dao<InventoriesKey, Inventories> getInventories() {
-        return (Dao<InventoriesKey, Inventories>) map.get("inventories");
+        return registry.getInventories();
     }
 
     @Produces
     public Dao<LocationsKey, Locations> getLocations() {
-        return (Dao<LocationsKey, Locations>) map.get("locations");
+        return registry.getLocations();
     }
 
     @Produces
     public Dao<OrderItemsKey, OrderItems> getOrderItems() {
-        return (Dao<OrderItemsKey, OrderItems>) map.get("orderitems");
+        return registry.getOrderItems();
     }
 
     @Produces
     @Named("test")
     public Dao<OrdersKey, Orders> getOrders() {
-        return (Dao<OrdersKey, Orders>) map.get("orders");
+        return registry.getOrders();
     }
 
     @Produces
     public Dao<ProductCategoriesKey, ProductCategories> getProductCategories() {
-        return (Dao<ProductCategoriesKey, ProductCategories>) map.get("productcategories");
+        return registry.getProductCategories();
     }
 
     @Produces
     public Dao<ProductsKey, Products> getProducts() {
-        return (Dao<ProductsKey, Products>) map.get("products");
+        return registry.getProducts();
     }
 
     @Produces
     public Dao<RegionsKey, Regions> getRegions() {
-        return (Dao<RegionsKey, Regions>) map.get("regions");
+        return registry.getRegions();
     }
 
     @Produces
     public Dao<WarehousesKey, Warehouses> getWarehouses() {
-        return (Dao<WarehousesKey, Warehouses>) map.get("warehouses");
+        return registry.getWarehouses();
     }
 }
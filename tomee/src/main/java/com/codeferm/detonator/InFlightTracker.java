@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) Steven P. Goldsmith. All rights reserved.
+ */
+package com.codeferm.detonator;
+
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.Singleton;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracks orders in flight across all pipeline hops. CreateOrderQueueClient gets a correlation ID for each order it sends, the MDBs
+ * pass it along as JMSCorrelationID and OrderCreatedBean completes it once the order is shipped. Waiting for quiescence is just a
+ * wait on an empty map, so it doesn't depend on queue size and covers orders being processed, not only orders still queued.
+ *
+ * Completing an ID more than once has no effect, so redelivered messages are safe. Orders that end up in a dead letter queue stay in
+ * flight and awaitQuiescence times out.
+ *
+ * @author Steven P. Goldsmith
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class InFlightTracker {
+
+    /**
+     * Correlation ID sequence.
+     */
+    private final AtomicLong sequence = new AtomicLong();
+    /**
+     * Orders completed.
+     */
+    private final AtomicLong completed = new AtomicLong();
+    /**
+     * Correlation IDs in flight.
+     */
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+    /**
+     * Signaled when nothing is in flight.
+     */
+    private final Object quiescent = new Object();
+
+    /**
+     * Default constructor.
+     */
+    public InFlightTracker() {
+    }
+
+    /**
+     * Order is about to be sent.
+     *
+     * @return Correlation ID.
+     */
+    public String sent() {
+        final var id = Long.toString(sequence.incrementAndGet());
+        inFlight.add(id);
+        return id;
+    }
+
+    /**
+     * Order has left the pipeline.
+     *
+     * @param id Correlation ID or null for untracked messages.
+     */
+    public void completed(final String id) {
+        if (id != null && inFlight.remove(id)) {
+            completed.incrementAndGet();
+            if (inFlight.isEmpty()) {
+                synchronized (quiescent) {
+                    quiescent.notifyAll();
+                }
+            }
+        }
+    }
+
+    public int getInFlight() {
+        return inFlight.size();
+    }
+
+    public long getSent() {
+        return sequence.get();
+    }
+
+    public long getCompleted() {
+        return completed.get();
+    }
+
+    /**
+     * Wait until no orders are in flight.
+     *
+     * @param timeout Maximum time to wait.
+     * @param unit Time unit of timeout.
+     * @return True if nothing is in flight, false if timed out.
+     */
+    public boolean awaitQuiescence(final long timeout, final TimeUnit unit) {
+        final var deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (quiescent) {
+            while (!inFlight.isEmpty()) {
+                final var remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(quiescent, remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException(e);
+                }
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,236 @@
+/*
+ * Copyright (c) Steven P. Goldsmith. All rights reserved.
+ */
+package com.codeferm.detonator;
+
+import com.codeferm.dto.Orders;
+import jakarta.jms.BytesMessage;
+import jakarta.jms.JMSContext;
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+import jakarta.jms.ObjectMessage;
+import java.util.List;
+
+/**
+ * Carries order messages and orders as {@link OrderCodec} bytes in a BytesMessage instead of a Java serialized ObjectMessage.
+ *
+ * ObjectMessages sent by older producers are only read with system property detonator.jms.legacy=true, because reading one runs
+ * Java deserialization on whatever the producer sent. Enable it only while producers and consumers are upgraded separately and
+ * limit the classes the broker will deserialize (org.apache.activemq.SERIALIZABLE_PACKAGES for ActiveMQ). The object read has to be
+ * the expected type.
+ *
+ * @author Steven P. Goldsmith
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public final class JmsCodec {
+
+    /**
+     * String property holding the comma separated correlation ID of each order in a batch.
+     */
+    public static final String CORRELATION_IDS = "correlationIds";
+    /**
+     * System property that enables reading legacy ObjectMessages.
+     */
+    public static final String LEGACY = "detonator.jms.legacy";
+    /**
+     * Read legacy ObjectMessages.
+     */
+    private static final boolean LEGACY_ENABLED = Boolean.getBoolean(LEGACY);
+
+    /**
+     * Static methods only.
+     */
+    private JmsCodec() {
+    }
+
+    /**
+     * Read object of legacy ObjectMessage if enabled.
+     *
+     * @param <T> Expected type.
+     * @param message JMS message.
+     * @param type Expected type.
+     * @return Object.
+     * @throws JMSException Possible exception.
+     */
+    private static <T> T legacyObject(final Message message, final Class<T> type) throws JMSException {
+        if (!(message instanceof ObjectMessage)) {
+            throw new RuntimeException(String.format("Unsupported message type %s", message.getClass().getName()));
+        }
+        if (!LEGACY_ENABLED) {
+            throw new RuntimeException(String.format("Legacy ObjectMessage rejected, set %s=true to read it", LEGACY));
+        }
+        final var object = ((ObjectMessage) message).getObject();
+        if (!type.isInstance(object)) {
+            throw new RuntimeException(String.format("Expected %s, got %s", type.getName(), object == null ? null : object.getClass().
+                    getName()));
+        }
+        return type.cast(object);
+    }
+
+    /**
+     * Create BytesMessage with encoded bytes.
+     *
+     * @param jmsContext JMS context.
+     * @param bytes Encoded bytes.
+     * @return BytesMessage.
+     */
+    private static BytesMessage bytesMessage(final JMSContext jmsContext, final byte[] bytes) {
+        final var message = jmsContext.createBytesMessage();
+        try {
+            message.writeBytes(bytes);
+        } catch (JMSException e) {
+            throw new RuntimeException(e);
+        }
+        return message;
+    }
+
+    /**
+     * Create message for order message.
+     *
+     * @param jmsContext JMS context.
+     * @param orderMessage Order message.
+     * @return BytesMessage.
+     */
+    public static BytesMessage toMessage(final JMSContext jmsContext, final OrderMessage orderMessage) {
+        return bytesMessage(jmsContext, OrderCodec.encode(orderMessage));
+    }
+
+    /**
+     * Create message for batch of order messages.
+     *
+     * @param jmsContext JMS context.
+     * @param list Order messages.
+     * @return BytesMessage.
+     */
+    public static BytesMessage toMessage(final JMSContext jmsContext, final List<OrderMessage> list) {
+        return bytesMessage(jmsContext, OrderCodec.encode(list));
+    }
+
+    /**
+     * Create message for order.
+     *
+     * @param jmsContext JMS context.
+     * @param orders Orders DTO.
+     * @return BytesMessage.
+     */
+    public static BytesMessage toMessage(final JMSContext jmsContext, final Orders orders) {
+        return bytesMessage(jmsContext, OrderCodec.encode(orders));
+    }
+
+    /**
+     * Create message for order with its items and products.
+     *
+     * @param jmsContext JMS context.
+     * @param aggregate Order aggregate.
+     * @return BytesMessage.
+     */
+    public static BytesMessage toMessage(final JMSContext jmsContext, final OrderAggregate aggregate) {
+        return bytesMessage(jmsContext, OrderCodec.encode(aggregate));
+    }
+
+    /**
+     * Read order message from BytesMessage or legacy ObjectMessage if enabled.
+     *
+     * @param message JMS message.
+     * @return Order message.
+     */
+    public static OrderMessage orderMessage(final Message message) {
+        try {
+            if (message instanceof BytesMessage) {
+                return OrderCodec.decodeOrderMessage(message.getBody(byte[].class));
+            }
+            return legacyObject(message, OrderMessage.class);
+        } catch (JMSException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Read batch of order messages from BytesMessage or a single order from legacy ObjectMessage if enabled.
+     *
+     * @param message JMS message.
+     * @return Order messages.
+     */
+    public static List<OrderMessage> orderMessages(final Message message) {
+        try {
+            if (message instanceof BytesMessage) {
+                return OrderCodec.decodeOrderMessages(message.getBody(byte[].class));
+            }
+            return List.of(legacyObject(message, OrderMessage.class));
+        } catch (JMSException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Correlation ID of each order in batch message.
+     *
+     * @param message JMS message.
+     * @param size Orders in batch.
+     * @return Correlation IDs with null for untracked orders.
+     */
+    public static String[] correlationIds(final Message message, final int size) {
+        try {
+            final var ids = message.getStringProperty(CORRELATION_IDS);
+            if (ids == null) {
+                return new String[size];
+            }
+            final var array = ids.split(",", -1);
+            if (array.length != size) {
+                throw new RuntimeException(String.format("Batch has %d orders and %d correlation IDs", size, array.length));
+            }
+            return array;
+        } catch (JMSException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Correlation ID of message.
+     *
+     * @param message JMS message.
+     * @return Correlation ID or null.
+     */
+    public static String correlationId(final Message message) {
+        try {
+            return message.getJMSCorrelationID();
+        } catch (JMSException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Read order from BytesMessage or legacy ObjectMessage if enabled.
+     *
+     * @param message JMS message.
+     * @return Orders DTO.
+     */
+    public static Orders orders(final Message message) {
+        try {
+            if (message instanceof BytesMessage) {
+                return OrderCodec.decodeOrders(message.getBody(byte[].class));
+            }
+            return legacyObject(message, Orders.class);
+        } catch (JMSException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Read order with its items and products from BytesMessage.
+     *
+     * @param message JMS message.
+     * @return Order aggregate or null if message only has the order.
+     */
+    public static OrderAggregate orderAggregate(final Message message) {
+        try {
+            if (message instanceof BytesMessage) {
+                return OrderCodec.decodeOrderAggregate(message.getBody(byte[].class));
+            }
+            return null;
+        } catch (JMSException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
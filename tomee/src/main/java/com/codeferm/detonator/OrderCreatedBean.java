@@ -3,17 +3,14 @@
  */
 package com.codeferm.detonator;
 
-import com.codeferm.dto.Orders;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import jakarta.ejb.ActivationConfigProperty;
 import jakarta.ejb.MessageDriven;
 import jakarta.inject.Inject;
 import jakarta.inject.Named;
-import jakarta.jms.JMSException;
 import jakarta.jms.Message;
 import jakarta.jms.MessageListener;
-import jakarta.jms.ObjectMessage;
 import java.io.IOException;
 import java.util.Properties;
 import org.apache.logging.log4j.LogManager;
@@ -38,6 +35,11 @@ public class OrderCreatedBean implements MessageListener {
     @Inject
     @Named
     private OrdersBo ordersBo;
+    /**
+     * Orders in flight.
+     */
+    @Inject
+    private InFlightTracker inFlightTracker;
     /**
      * Create order logic.
      */
@@ -72,15 +74,17 @@ public class OrderCreatedBean implements MessageListener {
         Properties properties = loadProperties("app.properties");
         orderShipped = new OrderShipped(properties.getProperty("template.dir"), properties.getProperty(
                 "template"), properties.getProperty("output.dir"), ordersBo, Integer.parseInt(properties.getProperty(
-                "order.shipped.max.threads")));
+                "order.shipped.max.threads")), Integer.parseInt(properties.getProperty("queue.capacity", String.valueOf(
+                StageExecutor.DEFAULT_CAPACITY))), OverflowPolicy.of(properties.getProperty("stage.overflow", "block")));
     }
 
     /**
-     * Destroy cache.
+     * Stop shipping stage, so its threads end and its metrics MBean is unregistered when the container discards this instance.
      */
     @PreDestroy
     public void destroy() {
         logger.debug("PreDestroy");
+        orderShipped.shutdown();
     }
 
     /**
@@ -92,11 +96,14 @@ public class OrderCreatedBean implements MessageListener {
      */
     @Override
     public void onMessage(final Message message) {
-        final var objectMessage = (ObjectMessage) message;
-        try {
-            orderShipped.shipOrder((Orders) objectMessage.getObject());
-        } catch (JMSException e) {
-            throw new RuntimeException(e);
+        final var id = JmsCodec.correlationId(message);
+        final Runnable done = () -> inFlightTracker.completed(id);
+        final var aggregate = JmsCodec.orderAggregate(message);
+        if (aggregate != null) {
+            orderShipped.shipOrder(aggregate, done);
+        } else {
+            // Older producers only send the order
+            orderShipped.shipOrder(JmsCodec.orders(message), done);
         }
     }
 
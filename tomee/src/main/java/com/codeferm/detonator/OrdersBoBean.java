@@ -6,6 +6,8 @@ package com.codeferm.detonator;
 import com.codeferm.dto.OrderItems;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.Resource;
+import jakarta.ejb.Lock;
+import jakarta.ejb.LockType;
 import jakarta.ejb.Singleton;
 import jakarta.inject.Inject;
 import jakarta.inject.Named;
@@ -19,11 +21,15 @@ import org.apache.logging.log4j.Logger;
 /**
  * Orders business object with transactions. This is an EJB wrapper for OrdersBo.
  *
+ * Read lock lets calls run in parallel instead of the default write lock that serializes every call. OrdersBo and its DAOs are
+ * thread safe and each call gets its own transaction.
+ *
  * @author Steven P. Goldsmith
  * @version 1.0.0
  * @since 1.0.0
  */
 @Singleton
+@Lock(LockType.READ)
 public class OrdersBoBean {
 
     /**
@@ -68,9 +74,10 @@ public class OrdersBoBean {
      * @param customerId Customer ID.
      * @param salesmanId Salesman ID.
      * @param list List of OrderItems.
+     * @return True if order was accepted, false if it was rejected.
      */
-    public void createOrder(final long customerId, final long salesmanId, final List<OrderItems> list) {
-        ordersBo.createOrder(customerId, salesmanId, list);
+    public boolean createOrder(final long customerId, final long salesmanId, final List<OrderItems> list) {
+        return ordersBo.createOrder(customerId, salesmanId, list);
     }
 
     /**
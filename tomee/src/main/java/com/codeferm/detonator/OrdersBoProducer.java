@@ -12,24 +12,33 @@ import com.codeferm.dto.OrdersKey;
 import com.codeferm.dto.Products;
 import com.codeferm.dto.ProductsKey;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.annotation.Resource;
+import jakarta.ejb.Lock;
+import jakarta.ejb.LockType;
 import jakarta.ejb.Singleton;
+import jakarta.enterprise.concurrent.ManagedThreadFactory;
 import jakarta.inject.Inject;
 import jakarta.inject.Named;
+import jakarta.jms.ConnectionFactory;
 import jakarta.jms.JMSContext;
 import jakarta.jms.Queue;
+import jakarta.transaction.TransactionSynchronizationRegistry;
 import jakarta.ws.rs.Produces;
+import java.io.IOException;
+import java.util.Properties;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 /**
- * Business object producer.
+ * Business object producer. Read lock lets injections run in parallel, since OrdersBo is created once in PostConstruct.
  *
  * @author Steven P. Goldsmith
  * @version 1.0.0
  * @since 1.0.0
  */
 @Singleton
+@Lock(LockType.READ)
 public class OrdersBoProducer {
 
     /**
@@ -68,6 +77,31 @@ public class OrdersBoProducer {
      */
     @Resource(name = "CreateOrderBean")
     private Queue createOrderBean;
+    /**
+     * Create Order batch MDB.
+     */
+    @Resource(name = "CreateOrderBatchBean")
+    private Queue createOrderBatchBean;
+    /**
+     * Connection factory used by batch client.
+     */
+    @Resource
+    private ConnectionFactory connectionFactory;
+    /**
+     * Creates batch client's sending thread.
+     */
+    @Resource
+    private ManagedThreadFactory managedThreadFactory;
+    /**
+     * Orders in flight.
+     */
+    @Inject
+    private InFlightTracker inFlightTracker;
+    /**
+     * Completes orders sent in a transaction that rolled back.
+     */
+    @Resource
+    private TransactionSynchronizationRegistry registry;
     /**
      * Plain Java business object.
      */
@@ -79,15 +113,55 @@ public class OrdersBoProducer {
     public OrdersBoProducer() {
     }
 
+    /**
+     * Load optional properties file from class path.
+     *
+     * @param propertyFile Name of property file.
+     * @return Properties or empty Properties if not found.
+     */
+    public Properties loadProperties(final String propertyFile) {
+        Properties props = new Properties();
+        // Get properties from classpath
+        try (final var stream = OrdersBoProducer.class.getClassLoader().getResourceAsStream(propertyFile)) {
+            if (stream != null) {
+                props.load(stream);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Property file exception", e);
+        }
+        return props;
+    }
+
+    /**
+     * Send orders one per message or in batches if create.batch.size is greater than 0.
+     */
     @PostConstruct
     void init() {
-        ordersBo = new OrdersBo(new CreateOrderQueueClient(jmsContext, createOrderBean));
+        final var properties = loadProperties("app.properties");
+        final var batchSize = Integer.parseInt(properties.getProperty("create.batch.size", "0"));
+        final OrderQueue orderQueue;
+        if (batchSize > 0) {
+            logger.debug("Sending orders in batches of {}", batchSize);
+            orderQueue = new BatchCreateOrderQueueClient(connectionFactory, createOrderBatchBean, inFlightTracker, managedThreadFactory,
+                    batchSize, Long.parseLong(properties.getProperty("create.batch.max.wait", "10")));
+        } else {
+            orderQueue = new CreateOrderQueueClient(jmsContext, createOrderBean, OrderRouter.byProducts(), inFlightTracker, registry);
+        }
+        ordersBo = new OrdersBo(orderQueue);
         ordersBo.setOrderItems(orderItems);
         ordersBo.setOrders(orders);
         ordersBo.setProducts(products);
         ordersBo.setInventories(inventories);        
     }
 
+    /**
+     * Wait for orders in flight and stop batch client's sending thread.
+     */
+    @PreDestroy
+    void destroy() {
+        ordersBo.getOrderQueue().shutdown();
+    }
+
     @Produces
     public OrdersBo getOrdersBo() {
         return ordersBo;
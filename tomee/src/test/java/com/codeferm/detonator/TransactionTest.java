@@ -6,21 +6,36 @@ package com.codeferm.detonator;
 import com.codeferm.dto.Inventories;
 import com.codeferm.dto.InventoriesKey;
 import com.codeferm.dto.OrderItems;
+import com.codeferm.dto.Orders;
 import com.codeferm.dto.OrdersKey;
+import jakarta.annotation.Resource;
 import jakarta.ejb.embeddable.EJBContainer;
 import jakarta.inject.Inject;
+import jakarta.jms.ConnectionFactory;
+import jakarta.jms.Queue;
+import jakarta.transaction.UserTransaction;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import javax.naming.Context;
 import javax.naming.NamingException;
 import javax.sql.DataSource;
@@ -30,7 +45,10 @@ import org.apache.logging.log4j.Logger;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Assertions;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -67,6 +85,26 @@ public class TransactionTest {
      */
     @Inject
     private OrdersBo ordersBo;
+    /**
+     * User transaction.
+     */
+    @Resource
+    private UserTransaction userTransaction;
+    /**
+     * Orders in flight.
+     */
+    @Inject
+    private InFlightTracker inFlightTracker;
+    /**
+     * Connection factory used by batch client.
+     */
+    @Resource
+    private ConnectionFactory connectionFactory;
+    /**
+     * Create Order batch MDB.
+     */
+    @Resource(name = "CreateOrderBatchBean")
+    private Queue createOrderBatchBean;
     /**
      * EJB container.
      */
@@ -237,6 +275,9 @@ public class TransactionTest {
         logger.debug("commit");
         final var maxOrders = Integer.parseInt(properties.getProperty("orders.max.create"));
         updateInventory(maxOrders);
+        final var from = new InventoriesKey(3L, 0L);
+        final var to = new InventoriesKey(3L, Long.MAX_VALUE);
+        final var before = inventories.findRange(from, to).stream().mapToInt(Inventories::getQuantity).sum();
         // Database pool size - 1 threads
         final var executor = Executors.newFixedThreadPool(Integer.parseInt(properties.getProperty("client.max.threads")));
         // Create some OrderItems
@@ -280,6 +321,8 @@ public class TransactionTest {
         } catch (InterruptedException e) {
             throw new RuntimeException(e);
         }
+        // Wait for every order to be shipped
+        assertTrue(((CreateOrderQueueClient) ordersBo.getOrderQueue()).awaitQuiescence(60, TimeUnit.SECONDS));
         ordersBo.getOrderQueue().shutdown();
         final var stop = System.nanoTime();
         logger.debug("TPS: {}", maxOrders / ((stop - start) / 1000000000L));
@@ -287,6 +330,137 @@ public class TransactionTest {
         final var dto = ordersBo.getOrders().find(new OrdersKey(1106L));
         assertNotNull(dto);
         logger.debug("Last order: {}", dto);
+        // No lost inventory updates with concurrent sessions
+        assertEquals(before - (maxOrders + 1), inventories.findRange(from, to).stream().mapToInt(Inventories::getQuantity).
+                sum());
+    }
+
+    /**
+     * Order item with quantity.
+     *
+     * @param productId Product ID.
+     * @param quantity Quantity.
+     * @return Order item.
+     */
+    public OrderItems orderItem(final long productId, final int quantity) {
+        final var item = new OrderItems();
+        item.setItemId(1L);
+        item.setProductId(productId);
+        item.setQuantity(quantity);
+        return item;
+    }
+
+    /**
+     * Highest order ID.
+     *
+     * @return Order ID.
+     * @throws SQLException Possible exception.
+     */
+    public long lastOrderId() throws SQLException {
+        try (final var connection = DriverManager.getConnection(properties.getProperty("db.url"), properties.getProperty(
+                "db.user"), properties.getProperty("db.password")); final var statement = connection.createStatement();
+                final var resultSet = statement.executeQuery("select max(ORDER_ID) from ORDERS")) {
+            resultSet.next();
+            return resultSet.getLong(1);
+        }
+    }
+
+    /**
+     * Orders of a message group are created in the order sent while another group is created by other MDB sessions. Each order's
+     * item quantity is its send sequence, so sequences have to grow with the generated order ID within each group.
+     *
+     * @throws SQLException Possible exception.
+     */
+    @Test
+    public void groupOrder() throws SQLException {
+        logger.debug("groupOrder");
+        final var maxOrders = 20;
+        updateInventory(Integer.parseInt(properties.getProperty("orders.max.create")));
+        final var first = lastOrderId();
+        // Interleave two groups, products 3 and 5
+        for (int i = 1; i <= maxOrders; i++) {
+            ordersBoBean.createOrder(1, 1, List.of(orderItem(3L, i)));
+            ordersBoBean.createOrder(1, 1, List.of(orderItem(5L, i)));
+        }
+        assertTrue(((CreateOrderQueueClient) ordersBo.getOrderQueue()).awaitQuiescence(60, TimeUnit.SECONDS));
+        final Map<Long, List<Integer>> sequences = new HashMap<>();
+        try (final var connection = DriverManager.getConnection(properties.getProperty("db.url"), properties.getProperty(
+                "db.user"), properties.getProperty("db.password")); final var statement = connection.prepareStatement(
+                "select PRODUCT_ID, QUANTITY from ORDER_ITEMS where ORDER_ID > ? order by ORDER_ID")) {
+            statement.setLong(1, first);
+            try (final var resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    sequences.computeIfAbsent(resultSet.getLong(1), k -> new ArrayList<>()).add(resultSet.getInt(2));
+                }
+            }
+        }
+        final var expected = IntStream.rangeClosed(1, maxOrders).boxed().collect(Collectors.toList());
+        assertEquals(expected, sequences.get(3L));
+        assertEquals(expected, sequences.get(5L));
+    }
+
+    /**
+     * An order CreateOrderBean can't create leaves the pipeline instead of staying in flight.
+     */
+    @Test
+    public void failedOrder() {
+        logger.debug("failedOrder");
+        ordersBoBean.createOrder(1, 1, List.of(orderItem(Long.MAX_VALUE, 1)));
+        assertTrue(((CreateOrderQueueClient) ordersBo.getOrderQueue()).awaitQuiescence(10, TimeUnit.SECONDS));
+    }
+
+    /**
+     * An order sent in a transaction that rolls back is never delivered, so it doesn't stay in flight.
+     *
+     * @throws Exception Possible exception.
+     */
+    @Test
+    public void rollbackSend() throws Exception {
+        logger.debug("rollbackSend");
+        final var orderQueue = (CreateOrderQueueClient) ordersBo.getOrderQueue();
+        final var sent = orderQueue.getInFlightTracker().getSent();
+        userTransaction.begin();
+        ordersBoBean.createOrder(1, 1, List.of(orderItem(3L, 1)));
+        userTransaction.rollback();
+        assertEquals(sent + 1, orderQueue.getInFlightTracker().getSent());
+        assertTrue(orderQueue.awaitQuiescence(10, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Orders sent in batches are created by CreateOrderBatchBean. A rejected order doesn't fail the rest of the batch and every
+     * correlation ID is completed.
+     *
+     * @throws SQLException Possible exception.
+     */
+    @Test
+    public void batch() throws SQLException {
+        logger.debug("batch");
+        final var maxOrders = 25;
+        updateInventory(Integer.parseInt(properties.getProperty("orders.max.create")));
+        final var first = lastOrderId();
+        final var client = new BatchCreateOrderQueueClient(connectionFactory, createOrderBatchBean, inFlightTracker, Executors.
+                defaultThreadFactory(), 10, 10);
+        for (int i = 0; i < maxOrders; i++) {
+            final var orderMessage = new OrderMessage();
+            orderMessage.setCustomerId(1L);
+            orderMessage.setSalesmanId(1L);
+            // One unknown product
+            orderMessage.setOrderItemsList(List.of(orderItem(i == maxOrders / 2 ? Long.MAX_VALUE : 3L, 1)));
+            assertTrue(client.create(orderMessage));
+        }
+        client.shutdown();
+        assertEquals(0, inFlightTracker.getInFlight());
+        assertEquals(maxOrders, client.getSent());
+        assertTrue(client.getBatches() >= maxOrders / client.getBatchSize());
+        try (final var connection = DriverManager.getConnection(properties.getProperty("db.url"), properties.getProperty(
+                "db.user"), properties.getProperty("db.password")); final var statement = connection.prepareStatement(
+                "select count(*) from ORDERS where ORDER_ID > ?")) {
+            statement.setLong(1, first);
+            try (final var resultSet = statement.executeQuery()) {
+                resultSet.next();
+                assertEquals(maxOrders - 1, resultSet.getInt(1));
+            }
+        }
     }
 
     /**
@@ -301,6 +475,43 @@ public class TransactionTest {
         });
     }
 
+    /**
+     * Parallel updateStatus calls don't queue behind each other. The orders DAO is wrapped so update waits on a barrier that only
+     * trips once both calls are inside updateStatus at the same time. A singleton write lock would let one call in at a time and
+     * the barrier would time out.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void concurrentUpdateStatus() {
+        logger.debug("concurrentUpdateStatus");
+        final var barrier = new CyclicBarrier(2);
+        final var dao = ordersBo.getOrders();
+        ordersBo.setOrders((Dao<OrdersKey, Orders>) Proxy.newProxyInstance(Dao.class.getClassLoader(), new Class<?>[]{Dao.class}, (
+                proxy, method, args) -> {
+            if (method.getName().equals("update")) {
+                barrier.await(10, TimeUnit.SECONDS);
+            }
+            try {
+                return method.invoke(dao, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }));
+        final var executor = Executors.newFixedThreadPool(2);
+        try {
+            final var first = executor.submit(() -> ordersBoBean.updateStatus(1, "Shipped"));
+            final var second = executor.submit(() -> ordersBoBean.updateStatus(2, "Shipped"));
+            first.get(20, TimeUnit.SECONDS);
+            second.get(20, TimeUnit.SECONDS);
+            assertFalse(barrier.isBroken());
+        } catch (InterruptedException | ExecutionException | TimeoutException e) {
+            throw new RuntimeException(e);
+        } finally {
+            ordersBo.setOrders(dao);
+            executor.shutdown();
+        }
+    }
+
     /**
      * Test linking tables.
      */